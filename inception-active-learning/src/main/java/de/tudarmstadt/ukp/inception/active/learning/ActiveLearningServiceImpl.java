@@ -44,6 +44,7 @@ import de.tudarmstadt.ukp.inception.recommendation.api.LearningRecordService;
 import de.tudarmstadt.ukp.inception.recommendation.api.RecommendationService;
 import de.tudarmstadt.ukp.inception.recommendation.api.model.AnnotationSuggestion;
 import de.tudarmstadt.ukp.inception.recommendation.api.model.LearningRecord;
+import de.tudarmstadt.ukp.inception.recommendation.api.model.LearningRecordIndex;
 import de.tudarmstadt.ukp.inception.recommendation.api.model.Predictions;
 import de.tudarmstadt.ukp.inception.recommendation.api.model.SuggestionDocumentGroup;
 import de.tudarmstadt.ukp.inception.recommendation.api.model.SuggestionGroup;
@@ -120,9 +121,8 @@ public class ActiveLearningServiceImpl
             AnnotationLayer aLayer, boolean filterSkippedRecommendation,
             List<SuggestionGroup> aSuggestionGroups)
     {
-        List<LearningRecord> records = learningHistoryService
-                .listRecords(aUser.getUsername(),
-                        aLayer);
+        LearningRecordIndex records = learningHistoryService
+                .getRecordIndex(aUser.getUsername(), aLayer);
 
         for (SuggestionGroup group : aSuggestionGroups) {
             for (AnnotationSuggestion s : group) {
@@ -132,20 +132,15 @@ public class ActiveLearningServiceImpl
                 // prediction run (unless the learning-record-deletion code does an explicit
                 // unhiding).
                 if (s.isVisible()) {
-                    records.stream()
-                            .filter(r -> r.getSourceDocument().getName().equals(s.getDocumentName())
-                                    && r.getOffsetCharacterBegin() == s.getBegin()
-                                    && r.getOffsetCharacterEnd() == s.getEnd()
-                                    && s.labelEquals(r.getAnnotation()))
-                            .forEach(record -> {
-                                if (REJECTED.equals(record.getUserAction())) {
-                                    s.hide(FLAG_REJECTED);
-                                }
-                                else if (filterSkippedRecommendation
-                                        && SKIPPED.equals(record.getUserAction())) {
-                                    s.hide(FLAG_SKIPPED);
-                                }
-                            });
+                    records.get(s).ifPresent(record -> {
+                        if (REJECTED.equals(record.getUserAction())) {
+                            s.hide(FLAG_REJECTED);
+                        }
+                        else if (filterSkippedRecommendation
+                                && SKIPPED.equals(record.getUserAction())) {
+                            s.hide(FLAG_SKIPPED);
+                        }
+                    });
                 }
             }
         }
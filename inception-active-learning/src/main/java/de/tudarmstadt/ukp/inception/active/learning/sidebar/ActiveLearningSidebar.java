@@ -1255,6 +1255,17 @@ public class ActiveLearningSidebar
     @OnEvent
     public void onPredictionsSwitched(PredictionsSwitchedEvent aEvent)
     {
+        ActiveLearningUserState alState = alStateModel.getObject();
+        
+        // If the suggestions on the layer of the active learning session did not change, the 
+        // suggestions we know about remain valid and there is no need to recompute them
+        if (alState.isSessionActive() && alState.getLayer() != null
+                && !aEvent.getDelta().affects(alState.getLayer().getId())) {
+            LOG.trace("Predictions switched without changes on layer {} - keeping suggestions",
+                    alState.getLayer().getName());
+            return;
+        }
+        
         reactToChangeInPredictions(aEvent.getRequestHandler());
         // As a reaction to the change in predictions, the highlights may have to be placed at 
         // a different location. This the prediction switch is announced late in the rendering
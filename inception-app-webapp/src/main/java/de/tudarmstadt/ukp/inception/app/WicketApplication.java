@@ -22,6 +22,7 @@ import org.apache.wicket.Page;
 import de.tudarmstadt.ukp.clarin.webanno.ui.core.WicketApplicationBase;
 import de.tudarmstadt.ukp.clarin.webanno.ui.core.page.ApplicationPageBase;
 import de.tudarmstadt.ukp.inception.app.config.InceptionResourcesBehavior;
+import de.tudarmstadt.ukp.inception.recommendation.websocket.PredictionsPushBehavior;
 import de.tudarmstadt.ukp.inception.ui.core.dashboard.project.ProjectDashboardPage;
 import de.tudarmstadt.ukp.inception.ui.core.menubar.MenuBar;
 
@@ -58,6 +59,7 @@ public class WicketApplication
         super.initWebFrameworks();
 
         initInceptionResources();
+        initPredictionsPush();
     }
     
     protected void initInceptionResources()
@@ -68,4 +70,10 @@ public class WicketApplication
             }
         });
     }
+    
+    protected void initPredictionsPush()
+    {
+        // Let the annotation page pick up new predictions as soon as they are ready
+        getComponentInstantiationListeners().add(PredictionsPushBehavior::install);
+    }
 }
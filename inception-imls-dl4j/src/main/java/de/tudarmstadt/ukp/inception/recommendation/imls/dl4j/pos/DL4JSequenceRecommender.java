@@ -370,6 +370,13 @@ public class DL4JSequenceRecommender
 
     @Override
     public void predict(RecommenderContext aContext, CAS aCas) throws RecommendationException
+    {
+        predict(aContext, asList(aCas));
+    }
+
+    @Override
+    public void predict(RecommenderContext aContext, List<CAS> aCasses)
+        throws RecommendationException
     {
         String[] tagset = aContext.get(KEY_TAGSET).orElseThrow(() ->
                 new RecommendationException("Key [" + KEY_TAGSET + "] not found in context"));
@@ -377,64 +384,80 @@ public class DL4JSequenceRecommender
                 new RecommendationException("Key [" + KEY_MODEL + "] not found in context"));
         
         try {
-            Type sentenceType = getType(aCas, Sentence.class);
-            Type predictedType = getPredictedType(aCas);
-            Type tokenType = getType(aCas, Token.class);
-
-            Feature scoreFeature = getScoreFeature(aCas);
-            Feature predictedFeature = getPredictedFeature(aCas);
-            Feature isPredictionFeature = getIsPredictionFeature(aCas);
-    
             final int limit = traits.getPredictionLimit();
             final int batchSize = traits.getBatchSize();
 
-            Collection<AnnotationFS> sentences = select(aCas, sentenceType);
+            // Prepare batches of sentences that we want to predict because calling the
+            // prediction is expensive. The sentences of short documents are batched together
+            // with those of the next documents.
+            List<CasSample> batch = new ArrayList<>();
             int sentNum = 0;
-            
-            Iterator<AnnotationFS> sentenceIterator = sentences.iterator();
-            while (sentenceIterator.hasNext()) {
-                // Prepare a batch of sentences that we want to predict because calling the
-                // prediction is expensive
-                List<CasSample> batch = new ArrayList<>();
-                while (sentenceIterator.hasNext() && batch.size() < batchSize && sentNum < limit) {
+            for (CAS cas : aCasses) {
+                Type sentenceType = getType(cas, Sentence.class);
+                Type tokenType = getType(cas, Token.class);
+
+                // The limit applies to each document separately
+                Iterator<AnnotationFS> sentenceIterator = select(cas, sentenceType).iterator();
+                int docSentNum = 0;
+                while (sentenceIterator.hasNext() && docSentNum < limit) {
                     AnnotationFS sentence = sentenceIterator.next();
                     List<AnnotationFS> tokenFSes = selectCovered(tokenType, sentence);
                     List<String> tokens = CasUtil.toText(tokenFSes);
                     batch.add(new CasSample(tokens, tokenFSes));
-                    sentNum++;
-                }
-                
-                // If a limit was set that is smaller than the number of sentence, then we
-                // eventually start producing empty batches. At this point, we are done.
-                if (batch.isEmpty()) {
-                    break;
-                }
+                    docSentNum++;
 
-                List<Outcome<CasSample>> outcomes = predict(classifier, tagset, batch);
-                
-                int outcomeIdx = 0;
-                for (Outcome<CasSample> outcome : outcomes) {
-                    List<AnnotationFS> tokenFSes = outcome.getSample().getTokens();
-                    for (int tokenIdx = 0; tokenIdx < tokenFSes.size(); tokenIdx ++) {
-                        AnnotationFS token = tokenFSes.get(tokenIdx);
-                        AnnotationFS annotation = aCas.createAnnotation(predictedType,
-                                token.getBegin(), token.getEnd());
-                        //annotation.setDoubleValue(scoreFeature, prediction.getProb());
-                        annotation.setStringValue(predictedFeature,
-                                outcomes.get(outcomeIdx).getLabels().get(tokenIdx));
-                        annotation.setBooleanValue(isPredictionFeature, true);
-                        aCas.addFsToIndexes(annotation);
+                    if (batch.size() >= batchSize) {
+                        sentNum += predictBatch(classifier, tagset, batch);
+                        batch.clear();
                     }
-                    outcomeIdx++;
                 }
-                
-                log.trace("Predicted {} of {} sentences", sentNum, sentences.size());
             }
+            sentNum += predictBatch(classifier, tagset, batch);
+            
+            log.trace("Predicted {} sentences in {} documents", sentNum, aCasses.size());
         }
         catch (IOException e) {
             throw new IllegalStateException("Unable to predict", e);
         }
     }
+
+    /**
+     * Predicts the labels for the given sentences and writes them into the CASes the sentences
+     * belong to.
+     * 
+     * @return the number of sentences predicted.
+     */
+    private int predictBatch(MultiLayerNetwork aClassifier, String[] aTagset,
+            List<CasSample> aBatch)
+        throws IOException
+    {
+        List<Outcome<CasSample>> outcomes = predict(aClassifier, aTagset, aBatch);
+        
+        for (Outcome<CasSample> outcome : outcomes) {
+            List<AnnotationFS> tokenFSes = outcome.getSample().getTokens();
+            if (tokenFSes.isEmpty()) {
+                continue;
+            }
+            
+            // The sentences in a batch may come from different documents
+            CAS cas = tokenFSes.get(0).getCAS();
+            Type predictedType = getPredictedType(cas);
+            Feature predictedFeature = getPredictedFeature(cas);
+            Feature isPredictionFeature = getIsPredictionFeature(cas);
+            
+            for (int tokenIdx = 0; tokenIdx < tokenFSes.size(); tokenIdx ++) {
+                AnnotationFS token = tokenFSes.get(tokenIdx);
+                AnnotationFS annotation = cas.createAnnotation(predictedType,
+                        token.getBegin(), token.getEnd());
+                annotation.setStringValue(predictedFeature,
+                        outcome.getLabels().get(tokenIdx));
+                annotation.setBooleanValue(isPredictionFeature, true);
+                cas.addFsToIndexes(annotation);
+            }
+        }
+        
+        return outcomes.size();
+    }
     
     private <T extends Sample> List<Outcome<T>> predict(MultiLayerNetwork aClassifier,
             String[] aTagset, List<T> aData)
@@ -33,6 +33,7 @@ import org.apache.commons.io.IOUtils;
 import org.apache.uima.cas.CAS;
 import org.apache.uima.cas.CASException;
 import org.apache.uima.cas.CASRuntimeException;
+import org.apache.uima.cas.TypeSystem;
 import org.apache.uima.cas.impl.XmiCasDeserializer;
 import org.apache.uima.cas.impl.XmiCasSerializer;
 import org.apache.uima.fit.util.JCasUtil;
@@ -149,10 +150,31 @@ public class ExternalRecommender
     @Override
     public void predict(RecommenderContext aContext, CAS aCas) throws RecommendationException
     {
-        String typeSystem = serializeTypeSystem(aCas);
+        predict(aCas, serializeTypeSystem(aCas));
+    }
+
+    @Override
+    public void predict(RecommenderContext aContext, List<CAS> aCasses)
+        throws RecommendationException
+    {
+        // The remote protocol takes one document per request, but the documents of a project
+        // usually share their type system, so we only serialize it once per batch.
+        TypeSystem lastTypeSystem = null;
+        String typeSystem = null;
+        for (CAS cas : aCasses) {
+            if (cas.getTypeSystem() != lastTypeSystem) {
+                lastTypeSystem = cas.getTypeSystem();
+                typeSystem = serializeTypeSystem(cas);
+            }
+
+            predict(cas, typeSystem);
+        }
+    }
 
+    private void predict(CAS aCas, String aTypeSystem) throws RecommendationException
+    {
         PredictionRequest predictionRequest = new PredictionRequest();
-        predictionRequest.setTypeSystem(typeSystem);
+        predictionRequest.setTypeSystem(aTypeSystem);
         predictionRequest.setDocument(buildDocument(aCas));
 
         // Fill in metadata
@@ -203,7 +225,11 @@ public class ExternalRecommender
             // to serialize all types (i.e. no filtering for a specific target type system).
             XmiCasSerializer xmiCasSerializer = new XmiCasSerializer(null);
             XMLSerializer sax2xml = new XMLSerializer(out, true);
-            xmiCasSerializer.serialize(aCas, sax2xml.getContentHandler(), null, null, null);
+            // The training CASes are shared with other recommenders which may serialize them at
+            // the same time (cf. RecommendationEngine#train)
+            synchronized (aCas) {
+                xmiCasSerializer.serialize(aCas, sax2xml.getContentHandler(), null, null, null);
+            }
             return out.toString();
         }
         catch (CASRuntimeException | SAXException | IOException e) {
@@ -304,4 +330,11 @@ public class ExternalRecommender
             return TRAINING_NOT_SUPPORTED;
         }
     }
+
+    @Override
+    public boolean isConcurrentPredictionSupported()
+    {
+        // The model is kept by the remote service
+        return true;
+    }
 }
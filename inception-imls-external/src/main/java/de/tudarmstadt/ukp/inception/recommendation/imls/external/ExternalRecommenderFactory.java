@@ -87,4 +87,10 @@ public class ExternalRecommenderFactory
     {
         return false;
     }
+
+    @Override
+    public boolean isRemote()
+    {
+        return true;
+    }
 }
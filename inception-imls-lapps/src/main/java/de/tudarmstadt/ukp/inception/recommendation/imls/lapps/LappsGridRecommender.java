@@ -141,4 +141,11 @@ public class LappsGridRecommender
     {
         return RecommendationEngineCapability.TRAINING_NOT_SUPPORTED;
     }
+
+    @Override
+    public boolean isConcurrentPredictionSupported()
+    {
+        // The processing is done by the remote service
+        return true;
+    }
 }
@@ -101,4 +101,10 @@ public class LappsGridRecommenderFactory
     {
         return false;
     }
+
+    @Override
+    public boolean isRemote()
+    {
+        return true;
+    }
 }
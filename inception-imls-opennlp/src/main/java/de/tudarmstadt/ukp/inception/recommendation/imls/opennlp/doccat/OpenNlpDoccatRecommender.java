@@ -17,18 +17,23 @@
  */
 package de.tudarmstadt.ukp.inception.recommendation.imls.opennlp.doccat;
 
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.singletonList;
 import static org.apache.uima.fit.util.CasUtil.getType;
 import static org.apache.uima.fit.util.CasUtil.indexCovered;
 import static org.apache.uima.fit.util.CasUtil.select;
 import static org.apache.uima.fit.util.CasUtil.selectCovered;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Objects;
+import java.util.Set;
 
 import org.apache.commons.lang3.math.NumberUtils;
 import org.apache.uima.cas.CAS;
@@ -61,6 +66,8 @@ public class OpenNlpDoccatRecommender
     extends RecommendationEngine
 {
     public static final Key<DoccatModel> KEY_MODEL = new Key<>("model");
+    private static final Key<Map<String, List<DocumentSample>>> KEY_TRAINING_DATA = new Key<>(
+            "opennlp_doccat_training_data");
     
     private static final Logger LOG = LoggerFactory.getLogger(OpenNlpDoccatRecommender.class);
 
@@ -86,10 +93,44 @@ public class OpenNlpDoccatRecommender
     public void train(RecommenderContext aContext, List<CAS> aCasses)
         throws RecommendationException
     {
-        List<DocumentSample> docSamples = extractSamples(aCasses);
-        
-        if (docSamples.size() < 2) {
-            LOG.info("Not enough training data: [{}] items", docSamples.size());
+        trainModel(aContext, extractSamples(aCasses));
+    }
+
+    @Override
+    public boolean isIncrementalTrainingSupported()
+    {
+        return true;
+    }
+
+    @Override
+    public RecommenderContext newContext(RecommenderContext aCurrentContext)
+    {
+        // Carry over the samples taken from the documents so that the next training only needs
+        // to extract samples from the documents which changed
+        RecommenderContext context = new RecommenderContext();
+        aCurrentContext.get(KEY_TRAINING_DATA).ifPresent(d -> context.put(KEY_TRAINING_DATA, d));
+        return context;
+    }
+
+    @Override
+    public void trainIncrementally(RecommenderContext aContext, Map<String, CAS> aChangedCasses,
+            Set<String> aRemovedDocuments)
+        throws RecommendationException
+    {
+        Map<String, List<DocumentSample>> trainingData = updateTrainingData(
+                aContext.get(KEY_TRAINING_DATA).orElse(emptyMap()), aChangedCasses,
+                aRemovedDocuments, cas -> extractSamples(singletonList(cas)));
+        aContext.put(KEY_TRAINING_DATA, trainingData);
+
+        trainModel(aContext,
+                flattenTrainingData(trainingData, traits.getTrainingSetSizeLimit()));
+    }
+
+    private void trainModel(RecommenderContext aContext, List<DocumentSample> aSamples)
+        throws RecommendationException
+    {
+        if (aSamples.size() < 2) {
+            LOG.info("Not enough training data: [{}] items", aSamples.size());
             return;
         }
         
@@ -101,7 +142,7 @@ public class OpenNlpDoccatRecommender
         TrainingParameters params = traits.getParameters();
         params.put(BeamSearch.BEAM_SIZE_PARAMETER, Integer.toString(beamSize));
         
-        DoccatModel model = train(docSamples, params);
+        DoccatModel model = train(aSamples, params);
         
         aContext.put(KEY_MODEL, model);
     }
@@ -112,14 +153,55 @@ public class OpenNlpDoccatRecommender
         return RecommendationEngineCapability.TRAINING_REQUIRED;
     }
 
+    @Override
+    public boolean isConcurrentPredictionSupported()
+    {
+        // The categorizer is created per call, the model itself is only read
+        return true;
+    }
+
+    @Override
+    public boolean isModelExportSupported()
+    {
+        return true;
+    }
+
+    @Override
+    public void exportModel(RecommenderContext aContext, OutputStream aOutput) throws IOException
+    {
+        DoccatModel model = aContext.get(KEY_MODEL).orElseThrow(() ->
+                new IOException("Key [" + KEY_MODEL + "] not found in context"));
+        model.serialize(aOutput);
+    }
+
+    @Override
+    public void importModel(RecommenderContext aContext, InputStream aInput) throws IOException
+    {
+        aContext.put(KEY_MODEL, new DoccatModel(aInput));
+    }
+
     @Override
     public void predict(RecommenderContext aContext, CAS aCas) throws RecommendationException
+    {
+        predict(aContext, singletonList(aCas));
+    }
+
+    @Override
+    public void predict(RecommenderContext aContext, List<CAS> aCasses)
+        throws RecommendationException
     {
         DoccatModel model = aContext.get(KEY_MODEL).orElseThrow(() -> 
                 new RecommendationException("Key [" + KEY_MODEL + "] not found in context"));
         
+        // The categorizer is set up only once for all documents
         DocumentCategorizerME finder = new DocumentCategorizerME(model);
+        for (CAS cas : aCasses) {
+            predict(finder, cas);
+        }
+    }
 
+    private void predict(DocumentCategorizerME aFinder, CAS aCas)
+    {
         Type sentenceType = getType(aCas, Sentence.class);
         Type predictedType = getPredictedType(aCas);
         Type tokenType = getType(aCas, Token.class);
@@ -139,8 +221,8 @@ public class OpenNlpDoccatRecommender
                 .map(AnnotationFS::getCoveredText)
                 .toArray(String[]::new);
 
-            double[] outcome = finder.categorize(tokens);
-            String label = finder.getBestCategory(outcome);
+            double[] outcome = aFinder.categorize(tokens);
+            String label = aFinder.getBestCategory(outcome);
             
             AnnotationFS annotation = aCas.createAnnotation(predictedType, sentence.getBegin(),
                     sentence.getEnd());
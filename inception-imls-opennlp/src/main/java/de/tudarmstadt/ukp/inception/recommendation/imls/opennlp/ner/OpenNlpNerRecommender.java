@@ -17,6 +17,8 @@
  */
 package de.tudarmstadt.ukp.inception.recommendation.imls.opennlp.ner;
 
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.singletonList;
 import static org.apache.commons.lang3.StringUtils.isNotBlank;
 import static org.apache.uima.fit.util.CasUtil.getType;
 import static org.apache.uima.fit.util.CasUtil.indexCovered;
@@ -24,12 +26,15 @@ import static org.apache.uima.fit.util.CasUtil.select;
 import static org.apache.uima.fit.util.CasUtil.selectCovered;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Objects;
+import java.util.Set;
 
 import org.apache.uima.cas.CAS;
 import org.apache.uima.cas.Feature;
@@ -65,6 +70,8 @@ public class OpenNlpNerRecommender
     extends RecommendationEngine
 {
     public static final Key<TokenNameFinderModel> KEY_MODEL = new Key<>("opennlp_ner_model");
+    private static final Key<Map<String, List<NameSample>>> KEY_TRAINING_DATA = new Key<>(
+            "opennlp_ner_training_data");
     private static final Logger LOG = LoggerFactory.getLogger(OpenNlpNerRecommender.class);
     
     private static final String NO_NE_TAG = "O";
@@ -88,10 +95,44 @@ public class OpenNlpNerRecommender
     public void train(RecommenderContext aContext, List<CAS> aCasses)
         throws RecommendationException
     {
-        List<NameSample> nameSamples = extractNameSamples(aCasses);
-        
-        if (nameSamples.size() < 2) {
-            LOG.info("Not enough training data: [{}] items", nameSamples.size());
+        trainModel(aContext, extractNameSamples(aCasses));
+    }
+
+    @Override
+    public boolean isIncrementalTrainingSupported()
+    {
+        return true;
+    }
+
+    @Override
+    public RecommenderContext newContext(RecommenderContext aCurrentContext)
+    {
+        // Carry over the samples taken from the documents so that the next training only needs
+        // to extract samples from the documents which changed
+        RecommenderContext context = new RecommenderContext();
+        aCurrentContext.get(KEY_TRAINING_DATA).ifPresent(d -> context.put(KEY_TRAINING_DATA, d));
+        return context;
+    }
+
+    @Override
+    public void trainIncrementally(RecommenderContext aContext, Map<String, CAS> aChangedCasses,
+            Set<String> aRemovedDocuments)
+        throws RecommendationException
+    {
+        Map<String, List<NameSample>> trainingData = updateTrainingData(
+                aContext.get(KEY_TRAINING_DATA).orElse(emptyMap()), aChangedCasses,
+                aRemovedDocuments, cas -> extractNameSamples(singletonList(cas)));
+        aContext.put(KEY_TRAINING_DATA, trainingData);
+
+        trainModel(aContext,
+                flattenTrainingData(trainingData, traits.getTrainingSetSizeLimit()));
+    }
+
+    private void trainModel(RecommenderContext aContext, List<NameSample> aSamples)
+        throws RecommendationException
+    {
+        if (aSamples.size() < 2) {
+            LOG.info("Not enough training data: [{}] items", aSamples.size());
             return;
         }
         
@@ -103,7 +144,7 @@ public class OpenNlpNerRecommender
         TrainingParameters params = traits.getParameters();
         params.put(BeamSearch.BEAM_SIZE_PARAMETER, Integer.toString(beamSize));
         
-        TokenNameFinderModel model = train(nameSamples, params);
+        TokenNameFinderModel model = train(aSamples, params);
         
         aContext.put(KEY_MODEL, model);
     }
@@ -114,14 +155,57 @@ public class OpenNlpNerRecommender
         return RecommendationEngineCapability.TRAINING_REQUIRED;
     }
 
+    @Override
+    public boolean isConcurrentPredictionSupported()
+    {
+        // The decoder is created per call, the model itself is only read
+        return true;
+    }
+
+    @Override
+    public boolean isModelExportSupported()
+    {
+        return true;
+    }
+
+    @Override
+    public void exportModel(RecommenderContext aContext, OutputStream aOutput) throws IOException
+    {
+        TokenNameFinderModel model = aContext.get(KEY_MODEL).orElseThrow(() ->
+                new IOException("Key [" + KEY_MODEL + "] not found in context"));
+        model.serialize(aOutput);
+    }
+
+    @Override
+    public void importModel(RecommenderContext aContext, InputStream aInput) throws IOException
+    {
+        aContext.put(KEY_MODEL, new TokenNameFinderModel(aInput));
+    }
+
     @Override
     public void predict(RecommenderContext aContext, CAS aCas) throws RecommendationException
+    {
+        predict(aContext, singletonList(aCas));
+    }
+
+    @Override
+    public void predict(RecommenderContext aContext, List<CAS> aCasses)
+        throws RecommendationException
     {
         TokenNameFinderModel model = aContext.get(KEY_MODEL).orElseThrow(() -> 
                 new RecommendationException("Key [" + KEY_MODEL + "] not found in context"));
         
+        // The name finder is set up only once for all documents
         NameFinderME finder = new NameFinderME(model);
+        for (CAS cas : aCasses) {
+            // What the name finder has adapted to in one document must not affect the next one
+            finder.clearAdaptiveData();
+            predict(finder, cas);
+        }
+    }
 
+    private void predict(NameFinderME aFinder, CAS aCas)
+    {
         Type sentenceType = getType(aCas, Sentence.class);
         Type tokenType = getType(aCas, Token.class);
         Type predictedType = getPredictedType(aCas);
@@ -142,7 +226,7 @@ public class OpenNlpNerRecommender
                 .map(AnnotationFS::getCoveredText)
                 .toArray(String[]::new);
 
-            for (Span prediction : finder.find(tokens)) {
+            for (Span prediction : aFinder.find(tokens)) {
                 String label = prediction.getType();
                 if (NameSample.DEFAULT_TYPE.equals(label)) {
                     continue;
@@ -17,6 +17,8 @@
  */
 package de.tudarmstadt.ukp.inception.recommendation.imls.opennlp.pos;
 
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.singletonList;
 import static org.apache.commons.lang3.StringUtils.isNoneBlank;
 import static org.apache.uima.fit.util.CasUtil.getType;
 import static org.apache.uima.fit.util.CasUtil.indexCovered;
@@ -24,12 +26,15 @@ import static org.apache.uima.fit.util.CasUtil.select;
 import static org.apache.uima.fit.util.CasUtil.selectCovered;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 
 import javax.annotation.Nullable;
 
@@ -64,6 +69,8 @@ public class OpenNlpPosRecommender
     extends RecommendationEngine
 {
     public static final Key<POSModel> KEY_MODEL = new Key<>("opennlp_pos_model");
+    private static final Key<Map<String, List<POSSample>>> KEY_TRAINING_DATA = new Key<>(
+            "opennlp_pos_training_data");
 
     private static final Logger LOG = LoggerFactory.getLogger(OpenNlpPosRecommender.class);
     private static final String PAD = "<PAD>";
@@ -87,10 +94,44 @@ public class OpenNlpPosRecommender
     public void train(RecommenderContext aContext, List<CAS> aCasses)
         throws RecommendationException
     {
-        List<POSSample> posSamples = extractPosSamples(aCasses);
-        
-        if (posSamples.size() < 2) {
-            LOG.info("Not enough training data: [{}] items", posSamples.size());
+        trainModel(aContext, extractPosSamples(aCasses));
+    }
+
+    @Override
+    public boolean isIncrementalTrainingSupported()
+    {
+        return true;
+    }
+
+    @Override
+    public RecommenderContext newContext(RecommenderContext aCurrentContext)
+    {
+        // Carry over the samples taken from the documents so that the next training only needs
+        // to extract samples from the documents which changed
+        RecommenderContext context = new RecommenderContext();
+        aCurrentContext.get(KEY_TRAINING_DATA).ifPresent(d -> context.put(KEY_TRAINING_DATA, d));
+        return context;
+    }
+
+    @Override
+    public void trainIncrementally(RecommenderContext aContext, Map<String, CAS> aChangedCasses,
+            Set<String> aRemovedDocuments)
+        throws RecommendationException
+    {
+        Map<String, List<POSSample>> trainingData = updateTrainingData(
+                aContext.get(KEY_TRAINING_DATA).orElse(emptyMap()), aChangedCasses,
+                aRemovedDocuments, cas -> extractPosSamples(singletonList(cas)));
+        aContext.put(KEY_TRAINING_DATA, trainingData);
+
+        trainModel(aContext,
+                flattenTrainingData(trainingData, traits.getTrainingSetSizeLimit()));
+    }
+
+    private void trainModel(RecommenderContext aContext, List<POSSample> aSamples)
+        throws RecommendationException
+    {
+        if (aSamples.size() < 2) {
+            LOG.info("Not enough training data: [{}] items", aSamples.size());
             return;
         }
 
@@ -101,7 +142,7 @@ public class OpenNlpPosRecommender
 
         TrainingParameters params = traits.getParameters();
         params.put(BeamSearch.BEAM_SIZE_PARAMETER, Integer.toString(beamSize));
-        POSModel model = train(posSamples, params);
+        POSModel model = train(aSamples, params);
 
         aContext.put(KEY_MODEL, model);
     }
@@ -112,15 +153,56 @@ public class OpenNlpPosRecommender
         return RecommendationEngineCapability.TRAINING_REQUIRED;
     }
 
+    @Override
+    public boolean isConcurrentPredictionSupported()
+    {
+        // The tagger is created per call, the model itself is only read
+        return true;
+    }
+
+    @Override
+    public boolean isModelExportSupported()
+    {
+        return true;
+    }
+
+    @Override
+    public void exportModel(RecommenderContext aContext, OutputStream aOutput) throws IOException
+    {
+        POSModel model = aContext.get(KEY_MODEL).orElseThrow(() ->
+                new IOException("Key [" + KEY_MODEL + "] not found in context"));
+        model.serialize(aOutput);
+    }
+
+    @Override
+    public void importModel(RecommenderContext aContext, InputStream aInput) throws IOException
+    {
+        aContext.put(KEY_MODEL, new POSModel(aInput));
+    }
+
     @Override
     public void predict(RecommenderContext aContext, CAS aCas)
         throws RecommendationException
+    {
+        predict(aContext, singletonList(aCas));
+    }
+
+    @Override
+    public void predict(RecommenderContext aContext, List<CAS> aCasses)
+        throws RecommendationException
     {
         POSModel model = aContext.get(KEY_MODEL).orElseThrow(() -> 
                 new RecommendationException("Key [" + KEY_MODEL + "] not found in context"));
         
+        // The tagger is set up only once for all documents
         POSTaggerME tagger = new POSTaggerME(model);
+        for (CAS cas : aCasses) {
+            predict(tagger, cas);
+        }
+    }
 
+    private void predict(POSTaggerME aTagger, CAS aCas)
+    {
         Type sentenceType = getType(aCas, Sentence.class);
         Type predictedType = getPredictedType(aCas);
         Type tokenType = getType(aCas, Token.class);
@@ -141,7 +223,7 @@ public class OpenNlpPosRecommender
                 .map(AnnotationFS::getCoveredText)
                 .toArray(String[]::new);
 
-            Sequence[] bestSequences = tagger.topKSequences(tokens);
+            Sequence[] bestSequences = aTagger.topKSequences(tokens);
 
 //            LOG.debug("Total number of sequences predicted: {}", bestSequences.length);
 
@@ -17,7 +17,9 @@
  */
 package de.tudarmstadt.ukp.inception.recommendation.imls.stringmatch;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.Arrays.asList;
+import static java.util.Collections.emptyMap;
 import static java.util.Comparator.comparingInt;
 import static org.apache.commons.lang3.StringUtils.isBlank;
 import static org.apache.commons.lang3.StringUtils.isNotEmpty;
@@ -25,12 +27,18 @@ import static org.apache.uima.fit.util.CasUtil.getType;
 import static org.apache.uima.fit.util.CasUtil.select;
 import static org.apache.uima.fit.util.CasUtil.selectCovered;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
@@ -61,6 +69,8 @@ public class StringMatchingRecommender
     extends RecommendationEngine
 {
     public static final Key<Trie<DictEntry>> KEY_MODEL = new Key<>("model");
+    private static final Key<Map<String, List<GazeteerEntry>>> KEY_TRAINING_DATA = new Key<>(
+            "training_data");
 
     private static final String UNKNOWN_LABEL = "unknown";
     private static final String NO_LABEL = "O";
@@ -111,6 +121,77 @@ public class StringMatchingRecommender
     
     @Override
     public void train(RecommenderContext aContext, List<CAS> aCasses) throws RecommendationException
+    {
+        pretrainGazeteers(aContext);
+        
+        Trie<DictEntry> dict = aContext.get(KEY_MODEL).orElseGet(this::createTrie);
+        
+        for (CAS cas : aCasses) {
+            for (GazeteerEntry entry : extractEntries(cas)) {
+                learn(dict, entry.text, entry.label);
+            }
+        }
+        
+        aContext.put(KEY_MODEL, dict);
+        
+        log.debug("Learned dictionary model with {} entries", dict.size());
+    }
+
+    @Override
+    public boolean isIncrementalTrainingSupported()
+    {
+        return true;
+    }
+
+    @Override
+    public boolean isConcurrentPredictionSupported()
+    {
+        // The dictionary is only read while predicting
+        return true;
+    }
+
+    @Override
+    public RecommenderContext newContext(RecommenderContext aCurrentContext)
+    {
+        // Carry over the entries taken from the documents so that the next training only needs to
+        // look at the documents which changed
+        RecommenderContext context = new RecommenderContext();
+        aCurrentContext.get(KEY_TRAINING_DATA).ifPresent(d -> context.put(KEY_TRAINING_DATA, d));
+        return context;
+    }
+
+    @Override
+    public void trainIncrementally(RecommenderContext aContext, Map<String, CAS> aChangedCasses,
+            Set<String> aRemovedDocuments)
+    {
+        Map<String, List<GazeteerEntry>> trainingData = updateTrainingData(
+                aContext.get(KEY_TRAINING_DATA).orElse(emptyMap()), aChangedCasses,
+                aRemovedDocuments, this::extractEntries);
+        aContext.put(KEY_TRAINING_DATA, trainingData);
+
+        // Rebuilding the dictionary from the retained entries is cheap compared to reading and
+        // scanning all the documents again
+        pretrainGazeteers(aContext);
+        pretrain(flattenTrainingData(trainingData, Integer.MAX_VALUE), aContext);
+        
+        log.debug("Learned dictionary model with {} entries from {} changed documents",
+                aContext.get(KEY_MODEL).get().size(), aChangedCasses.size());
+    }
+
+    private List<GazeteerEntry> extractEntries(CAS aCas)
+    {
+        Type predictedType = getPredictedType(aCas);
+        Feature predictedFeature = getPredictedFeature(aCas);
+
+        List<GazeteerEntry> entries = new ArrayList<>();
+        for (AnnotationFS ann : select(aCas, predictedType)) {
+            entries.add(new GazeteerEntry(ann.getCoveredText(),
+                    ann.getFeatureValueAsString(predictedFeature)));
+        }
+        return entries;
+    }
+
+    private void pretrainGazeteers(RecommenderContext aContext)
     {
         // Pre-load the gazeteers into the model
         if (gazeteerService != null) {
@@ -127,21 +208,69 @@ public class StringMatchingRecommender
                 }
             }
         }
-        
+    }
+
+    @Override
+    public boolean isModelExportSupported()
+    {
+        return true;
+    }
+
+    @Override
+    public void exportModel(RecommenderContext aContext, OutputStream aOutput) throws IOException
+    {
         Trie<DictEntry> dict = aContext.get(KEY_MODEL).orElseGet(this::createTrie);
-        
-        for (CAS cas : aCasses) {
-            Type predictedType = getPredictedType(cas);
-            Feature predictedFeature = getPredictedFeature(cas);
 
-            for (AnnotationFS ann : select(cas, predictedType)) {
-                learn(dict, ann.getCoveredText(), ann.getFeatureValueAsString(predictedFeature));
+        DataOutputStream out = new DataOutputStream(aOutput);
+        out.writeInt(dict.size());
+        for (DictEntry entry : dict.values()) {
+            writeString(out, entry.key);
+            out.writeInt(entry.labels.length);
+            for (int i = 0; i < entry.labels.length; i++) {
+                // The unknown label is recognized by instance, so it cannot be written as a string
+                boolean unknown = entry.labels[i] == UNKNOWN_LABEL;
+                out.writeBoolean(unknown);
+                if (!unknown) {
+                    writeString(out, entry.labels[i]);
+                }
+                out.writeInt(entry.counts[i]);
             }
         }
-        
+        out.flush();
+    }
+
+    @Override
+    public void importModel(RecommenderContext aContext, InputStream aInput) throws IOException
+    {
+        Trie<DictEntry> dict = createTrie();
+
+        DataInputStream in = new DataInputStream(aInput);
+        int entryCount = in.readInt();
+        for (int e = 0; e < entryCount; e++) {
+            DictEntry entry = new DictEntry(readString(in));
+            int labelCount = in.readInt();
+            for (int i = 0; i < labelCount; i++) {
+                String label = in.readBoolean() ? UNKNOWN_LABEL : readString(in);
+                entry.put(label, in.readInt());
+            }
+            dict.put(entry.key, entry);
+        }
+
         aContext.put(KEY_MODEL, dict);
-        
-        log.debug("Learned dictionary model with {} entries", dict.size());
+    }
+
+    private static void writeString(DataOutputStream aOut, String aValue) throws IOException
+    {
+        byte[] bytes = aValue.getBytes(UTF_8);
+        aOut.writeInt(bytes.length);
+        aOut.write(bytes);
+    }
+
+    private static String readString(DataInputStream aIn) throws IOException
+    {
+        byte[] bytes = new byte[aIn.readInt()];
+        aIn.readFully(bytes);
+        return new String(bytes, UTF_8);
     }
 
     @Override
@@ -529,11 +658,16 @@ public class StringMatchingRecommender
         }
         
         public void put(String aLabel)
+        {
+            put(aLabel, 1);
+        }
+        
+        public void put(String aLabel, int aCount)
         {
             // No data yet - create it
             if (labels == null) {
                 labels = new String[] { aLabel };
-                counts = new int[] { 1 };
+                counts = new int[] { aCount };
                 return;
             }
             
@@ -542,7 +676,7 @@ public class StringMatchingRecommender
             
             // Label already exists
             if (i != -1) {
-                counts[i]++;
+                counts[i] += aCount;
                 return;
             }
             
@@ -556,7 +690,7 @@ public class StringMatchingRecommender
             counts = newCounts;
             
             labels[labels.length - 1] = aLabel;
-            counts[counts.length - 1] = 1;
+            counts[counts.length - 1] = aCount;
         }
         
         public List<LabelStats> getBest(int aN)
@@ -20,14 +20,22 @@ package de.tudarmstadt.ukp.inception.recommendation.imls.stringmatch;
 import static de.tudarmstadt.ukp.inception.support.test.recommendation.RecommenderTestHelper.getPredictions;
 import static java.util.Arrays.asList;
 import static java.util.Collections.emptyList;
+import static java.util.Collections.emptySet;
+import static java.util.Collections.singleton;
+import static java.util.Collections.singletonMap;
+import static java.util.stream.Collectors.toList;
 import static org.apache.uima.fit.factory.CollectionReaderFactory.createReader;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.dkpro.core.api.datasets.DatasetValidationPolicy.CONTINUE;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.uima.UIMAException;
 import org.apache.uima.cas.CAS;
@@ -135,6 +143,85 @@ public class StringMatchingRecommenderTest
                 .containsOnlyNulls();
     }
 
+    @Test
+    public void thatExportedModelCanBeImported() throws Exception
+    {
+        StringMatchingRecommender sut = new StringMatchingRecommender(recommender, traits);
+        List<CAS> casList = loadDevelopmentData();
+        CAS cas = casList.get(0);
+        RecommenderTestHelper.addScoreFeature(cas, NamedEntity.class, "value");
+
+        sut.train(context, asList(cas));
+
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        sut.exportModel(context, buffer);
+
+        RecommenderContext importedContext = new RecommenderContext();
+        sut.importModel(importedContext, new ByteArrayInputStream(buffer.toByteArray()));
+
+        assertThat(sut.isReadyForPrediction(importedContext)).isTrue();
+        assertThat(importedContext.get(StringMatchingRecommender.KEY_MODEL).get().keys())
+                .containsExactlyInAnyOrderElementsOf(
+                        context.get(StringMatchingRecommender.KEY_MODEL).get().keys());
+
+        sut.predict(context, cas);
+        List<String> expected = getPredictions(cas, NamedEntity.class).stream()
+                .map(ne -> ne.getBegin() + "-" + ne.getEnd() + ":" + ne.getValue() + ":"
+                        + getScore(ne))
+                .collect(toList());
+
+        CAS cas2 = loadDevelopmentData().get(0);
+        RecommenderTestHelper.addScoreFeature(cas2, NamedEntity.class, "value");
+        sut.predict(importedContext, cas2);
+        List<String> actual = getPredictions(cas2, NamedEntity.class).stream()
+                .map(ne -> ne.getBegin() + "-" + ne.getEnd() + ":" + ne.getValue() + ":"
+                        + getScore(ne))
+                .collect(toList());
+
+        assertThat(actual).as("Imported model predicts the same as the original one")
+                .isNotEmpty()
+                .containsExactlyInAnyOrderElementsOf(expected);
+    }
+
+    @Test
+    public void thatIncrementalTrainingReplacesChangedDocuments() throws Exception
+    {
+        StringMatchingRecommender sut = new StringMatchingRecommender(recommender, traits);
+        Map<String, CAS> casses = new HashMap<>();
+        casses.put("doc1", getTestNECas("John Smith", new String[] { "PER" },
+                new int[][] { { 0, 4 } }, new int[][] { { 0, 10 } },
+                new int[][] { { 0, 4 }, { 5, 10 } }).get(0));
+        casses.put("doc2", getTestNECas("Berlin", new String[] { "LOC" },
+                new int[][] { { 0, 6 } }, new int[][] { { 0, 6 } },
+                new int[][] { { 0, 6 } }).get(0));
+
+        sut.trainIncrementally(context, casses, emptySet());
+        context.close();
+
+        assertThat(context.get(StringMatchingRecommender.KEY_MODEL).get().keys())
+                .containsExactlyInAnyOrder("John", "Berlin");
+
+        CAS changedDoc1 = getTestNECas("John Smith", new String[] { "ORG" },
+                new int[][] { { 0, 4 } }, new int[][] { { 0, 10 } },
+                new int[][] { { 0, 4 }, { 5, 10 } }).get(0);
+        RecommenderContext nextContext = sut.newContext(context);
+        sut.trainIncrementally(nextContext, singletonMap("doc1", changedDoc1), singleton("doc2"));
+
+        assertThat(nextContext.get(StringMatchingRecommender.KEY_MODEL).get().keys())
+                .containsExactly("John");
+        assertThat(context.get(StringMatchingRecommender.KEY_MODEL).get().keys())
+                .as("Previous model is not modified")
+                .containsExactlyInAnyOrder("John", "Berlin");
+
+        CAS cas = getTestNECas("John Smith", new String[0], new int[0][],
+                new int[][] { { 0, 10 } }, new int[][] { { 0, 4 }, { 5, 10 } }).get(0);
+        RecommenderTestHelper.addScoreFeature(cas, NamedEntity.class, "value");
+        sut.predict(nextContext, cas);
+
+        assertThat(getPredictions(cas, NamedEntity.class)).extracting(NamedEntity::getValue)
+                .containsExactly("ORG");
+    }
+
     private CAS getTestCasNoLabelLabels() throws Exception
     {
         Dataset ds = loader.load("germeval2014-de", CONTINUE);
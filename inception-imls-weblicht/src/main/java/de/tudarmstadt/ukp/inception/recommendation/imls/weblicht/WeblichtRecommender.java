@@ -228,6 +228,13 @@ public class WeblichtRecommender
     {
         return RecommendationEngineCapability.TRAINING_NOT_SUPPORTED;
     }
+
+    @Override
+    public boolean isConcurrentPredictionSupported()
+    {
+        // The processing is done by the remote service
+        return true;
+    }
     
     private Response sendRequest(Request aRequest) throws RecommendationException
     {
@@ -121,4 +121,10 @@ public class WeblichtRecommenderFactoryImpl
     {
         return false;
     }
+
+    @Override
+    public boolean isRemote()
+    {
+        return true;
+    }
 }
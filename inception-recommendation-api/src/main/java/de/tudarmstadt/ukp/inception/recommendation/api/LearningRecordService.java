@@ -26,6 +26,7 @@ import de.tudarmstadt.ukp.clarin.webanno.security.model.User;
 import de.tudarmstadt.ukp.inception.recommendation.api.model.AnnotationSuggestion;
 import de.tudarmstadt.ukp.inception.recommendation.api.model.LearningRecord;
 import de.tudarmstadt.ukp.inception.recommendation.api.model.LearningRecordChangeLocation;
+import de.tudarmstadt.ukp.inception.recommendation.api.model.LearningRecordIndex;
 import de.tudarmstadt.ukp.inception.recommendation.api.model.LearningRecordType;
 
 public interface LearningRecordService
@@ -42,6 +43,15 @@ public interface LearningRecordService
      */
     List<LearningRecord> listRecords(String user, AnnotationLayer layer, int aLimit);
 
+    /**
+     * Fetches the learning records for the given user and layer indexed by document, position,
+     * feature and label. The index is kept in memory and is updated when records are logged or
+     * deleted through this service, so it should be used in favor of {@link #listRecords} when
+     * checking whether suggestions have been rejected or skipped. Learning records with the action
+     * {@link LearningRecordType#SHOWN} are <b>not</b> included in the index.
+     */
+    LearningRecordIndex getRecordIndex(String aUser, AnnotationLayer aLayer);
+
     void deleteRecords(SourceDocument document, String user);
 
     LearningRecord getRecordById(long recordId);
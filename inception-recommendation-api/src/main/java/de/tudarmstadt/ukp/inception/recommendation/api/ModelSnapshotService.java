@@ -0,0 +1,58 @@
+/*
+ * Copyright 2019
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.recommendation.api;
+
+import java.io.IOException;
+import java.util.Optional;
+
+import de.tudarmstadt.ukp.clarin.webanno.security.model.User;
+import de.tudarmstadt.ukp.inception.recommendation.api.model.Recommender;
+import de.tudarmstadt.ukp.inception.recommendation.api.recommender.RecommendationEngine;
+import de.tudarmstadt.ukp.inception.recommendation.api.recommender.RecommenderContext;
+
+/**
+ * Persists the models trained by the recommenders, so that they can be used again after a restart
+ * without having to re-train them first. Only engines which support exporting their model are
+ * persisted (cf. {@link RecommendationEngine#isModelExportSupported()}).
+ */
+public interface ModelSnapshotService
+{
+    String SERVICE_NAME = "ModelSnapshotService";
+
+    /**
+     * Stores the model from the given context, replacing any previous snapshot for the given user
+     * and recommender. The snapshot is tied to the current configuration of the recommender.
+     */
+    void saveSnapshot(User aUser, Recommender aRecommender, RecommendationEngine aEngine,
+            RecommenderContext aContext)
+        throws IOException;
+
+    /**
+     * Restores the model for the given user and recommender into a new, closed context. If there
+     * is no snapshot or it was made with a different configuration of the recommender, nothing is
+     * returned.
+     */
+    Optional<RecommenderContext> loadSnapshot(User aUser, Recommender aRecommender,
+            RecommendationEngine aEngine)
+        throws IOException;
+
+    /**
+     * Removes the snapshots of all users for the given recommender.
+     */
+    void deleteSnapshots(Recommender aRecommender) throws IOException;
+}
@@ -20,6 +20,7 @@ package de.tudarmstadt.ukp.inception.recommendation.api;
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Predicate;
 
 import org.apache.uima.cas.CAS;
 
@@ -32,6 +33,7 @@ import de.tudarmstadt.ukp.clarin.webanno.model.SourceDocument;
 import de.tudarmstadt.ukp.clarin.webanno.security.model.User;
 import de.tudarmstadt.ukp.inception.recommendation.api.model.EvaluatedRecommender;
 import de.tudarmstadt.ukp.inception.recommendation.api.model.Predictions;
+import de.tudarmstadt.ukp.inception.recommendation.api.model.PredictionsDelta;
 import de.tudarmstadt.ukp.inception.recommendation.api.model.Preferences;
 import de.tudarmstadt.ukp.inception.recommendation.api.model.Recommender;
 import de.tudarmstadt.ukp.inception.recommendation.api.model.SuggestionGroup;
@@ -93,8 +95,32 @@ public interface RecommendationService
     Predictions getIncomingPredictions(User aUser, Project aProject);
     
     void putIncomingPredictions(User aUser, Project aProject, Predictions aPredictions);
+
+    /**
+     * Publishes the given predictions on the given documents only. The incoming predictions on
+     * these documents are replaced while those on all other documents are kept. If there are no
+     * incoming predictions yet, they start out as a copy of the active predictions.
+     */
+    void putIncomingPredictions(User aUser, Project aProject, Predictions aPredictions,
+            Collection<String> aDocumentNames);
     
-    boolean switchPredictions(User aUser, Project aProject);
+    /**
+     * Activates the incoming predictions if there are any.
+     * 
+     * @return the changes between the previously active and the new predictions or nothing if
+     *         there were no incoming predictions.
+     */
+    Optional<PredictionsDelta> switchPredictions(User aUser, Project aProject);
+
+    /**
+     * @return the incoming predictions if there are any, otherwise the active predictions.
+     */
+    Predictions getLatestPredictions(User aUser, Project aProject);
+
+    /**
+     * @return the document which the user has opened most recently in the given project.
+     */
+    Optional<SourceDocument> getFocusDocument(User aUser, Project aProject);
 
     /**
      * Returns the {@code RecommenderContext} for the given recommender if it exists.
@@ -131,6 +157,32 @@ public interface RecommendationService
         throws AnnotationException;
     
     Predictions computePredictions(User aUser, Project aProject, List<SourceDocument> aDocuments);
+
+    /**
+     * Computes the predictions for the given chunks of documents one chunk after the other and
+     * adds them to the given predictions. The predictions from the previous predictions are
+     * carried forward for documents on which neither the annotations nor the model of a
+     * recommender have changed since. The chunks form a single prediction run, i.e. the same
+     * models are used for all of them and the performance of the recommenders is recorded once
+     * the last chunk has been predicted.
+     * 
+     * @param aUser
+     *            the user.
+     * @param aProject
+     *            the project.
+     * @param aChunks
+     *            the documents to predict in chunks.
+     * @param aPreviousPredictions
+     *            the previous predictions (may be {@code null}).
+     * @param aPredictions
+     *            the predictions to which the results are added.
+     * @param aChunkCallback
+     *            invoked with the documents of each chunk once they have been predicted. If it
+     *            returns {@code false}, the run is aborted and nothing is recorded.
+     */
+    void computePredictions(User aUser, Project aProject, List<List<SourceDocument>> aChunks,
+            Predictions aPreviousPredictions, Predictions aPredictions,
+            Predicate<List<SourceDocument>> aChunkCallback);
     
     void calculateVisibility(CAS aCas, String aUser, AnnotationLayer aLayer,
             Collection<SuggestionGroup> aRecommendations, int aWindowBegin, int aWindowEnd);
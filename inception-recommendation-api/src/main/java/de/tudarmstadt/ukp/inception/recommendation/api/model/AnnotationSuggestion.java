@@ -27,7 +27,13 @@ import org.apache.commons.lang3.builder.ToStringBuilder;
 
 import de.tudarmstadt.ukp.clarin.webanno.api.annotation.model.VID;
 
-public class AnnotationSuggestion
+/**
+ * A suggestion made by a recommender. This class does not hold any values itself, so suggestions
+ * can either be stored as individual objects (cf. {@link SimpleAnnotationSuggestion}) or in a
+ * compact form from which they are accessed via light-weight views (cf.
+ * {@link ColumnarSuggestions}).
+ */
+public abstract class AnnotationSuggestion
     implements Serializable
 {
     public static final String EXTENSION_ID = "recommendationEditorExtension";
@@ -64,92 +70,16 @@ public class AnnotationSuggestion
     
     public static final int FLAG_ALL = FLAG_OVERLAP | FLAG_SKIPPED | FLAG_REJECTED
             | FLAG_TRANSIENT_ACCEPTED | FLAG_TRANSIENT_REJECTED | FLAG_TRANSIENT_CORRECTED;
-    
-    
-    private final int id;
-
-    private final long recommenderId;
-    private final String recommenderName;
-    private final long layerId;
-    private final String feature;
-
-    private final String documentName;
-
-    private final int begin;
-    private final int end;
-    private final String coveredText;
-
-    private final String label;
-    private final String uiLabel;
-    private final double confidence;
-    private final Optional<String> confidenceExplanation;
-
-    private int hidingFlags = 0;
-
-    public AnnotationSuggestion(int aId, long aRecommenderId, String aRecommenderName,
-        long aLayerId, String aFeature, String aDocumentName, int aBegin, int aEnd,
-        String aCoveredText, String aLabel, String aUiLabel, double aConfidence,
-        String aConfidenceExplanation)
-    {
-        label = aLabel;
-        uiLabel = aUiLabel;
-        id = aId;
-        layerId = aLayerId;
-        feature = aFeature;
-        recommenderName = aRecommenderName;
-        confidence = aConfidence;
-        confidenceExplanation = Optional.ofNullable(aConfidenceExplanation);
-        recommenderId = aRecommenderId;
-        begin = aBegin;
-        end = aEnd;
-        coveredText = aCoveredText;
-        documentName = aDocumentName;
-    }
-
-    /**
-     * Copy constructor.
-     *
-     * @param aObject
-     *            The annotationObject to copy
-     */
-    public AnnotationSuggestion(AnnotationSuggestion aObject)
-    {
-        label = aObject.label;
-        uiLabel = aObject.uiLabel;
-        id = aObject.id;
-        layerId = aObject.layerId;
-        feature = aObject.feature;
-        recommenderName = aObject.recommenderName;
-        confidence = aObject.confidence;
-        confidenceExplanation = aObject.confidenceExplanation;
-        recommenderId = aObject.recommenderId;
-        begin = aObject.begin;
-        end = aObject.end;
-        coveredText = aObject.coveredText;
-        documentName = aObject.documentName;
-    }
 
-    // Getter and setter
+    // Getter
 
-    public String getCoveredText()
-    {
-        return coveredText;
-    }
+    public abstract String getCoveredText();
 
-    public int getBegin()
-    {
-        return begin;
-    }
+    public abstract int getBegin();
 
-    public int getEnd()
-    {
-        return end;
-    }
+    public abstract int getEnd();
 
-    public int getId()
-    {
-        return id;
-    }
+    public abstract int getId();
 
     /**
      * Get the annotation's label, might be null if this is a suggestion for an annotation but not
@@ -158,50 +88,23 @@ public class AnnotationSuggestion
      * @return the label value or null
      */
     @Nullable
-    public String getLabel()
-    {
-        return label;
-    }
+    public abstract String getLabel();
 
-    public String getUiLabel()
-    {
-        return uiLabel;
-    }
+    public abstract String getUiLabel();
 
-    public long getLayerId()
-    {
-        return layerId;
-    }
-    
-    public String getFeature()
-    {
-        return feature;
-    }
+    public abstract long getLayerId();
 
-    public String getRecommenderName()
-    {
-        return recommenderName;
-    }
+    public abstract String getFeature();
 
-    public double getConfidence()
-    {
-        return confidence;
-    }
-    
-    public Optional<String> getConfidenceExplanation() 
-    {
-        return confidenceExplanation;
-    }
+    public abstract String getRecommenderName();
 
-    public long getRecommenderId()
-    {
-        return recommenderId;
-    }
+    public abstract double getConfidence();
 
-    public String getDocumentName()
-    {
-        return documentName;
-    }
+    public abstract Optional<String> getConfidenceExplanation();
+
+    public abstract long getRecommenderId();
+
+    public abstract String getDocumentName();
 
     /**
      * @deprecated Better use {@link #getBegin()} and {@link #getEnd()}
@@ -209,35 +112,40 @@ public class AnnotationSuggestion
     @Deprecated
     public Offset getOffset()
     {
-        return new Offset(begin, end);
+        return new Offset(getBegin(), getEnd());
     }
 
+    protected abstract int getHidingFlags();
+
+    protected abstract void setHidingFlags(int aFlags);
+
     public void hide(int aFlags)
     {
-        hidingFlags |= aFlags;
+        setHidingFlags(getHidingFlags() | aFlags);
     }
     
     public void show(int aFlags)
     {
-        hidingFlags &= ~aFlags;
+        setHidingFlags(getHidingFlags() & ~aFlags);
     }
     
     public String getReasonForHiding()
     {
+        int flags = getHidingFlags();
         StringBuilder sb = new StringBuilder();
-        if ((hidingFlags & FLAG_OVERLAP) != 0) {
+        if ((flags & FLAG_OVERLAP) != 0) {
             sb.append("overlapping ");
         }
-        if ((hidingFlags & FLAG_REJECTED) != 0) {
+        if ((flags & FLAG_REJECTED) != 0) {
             sb.append("rejected ");
         }
-        if ((hidingFlags & FLAG_SKIPPED) != 0) {
+        if ((flags & FLAG_SKIPPED) != 0) {
             sb.append("skipped ");
         }
-        if ((hidingFlags & FLAG_TRANSIENT_ACCEPTED) != 0) {
+        if ((flags & FLAG_TRANSIENT_ACCEPTED) != 0) {
             sb.append("transient-accepted ");
         }
-        if ((hidingFlags & FLAG_TRANSIENT_REJECTED) != 0) {
+        if ((flags & FLAG_TRANSIENT_REJECTED) != 0) {
             sb.append("transient-rejected ");
         }
         return sb.toString();
@@ -245,12 +153,13 @@ public class AnnotationSuggestion
     
     public boolean isVisible()
     {
-        return hidingFlags == 0;
+        return getHidingFlags() == 0;
     }
 
     public VID getVID()
     {
-        return new VID(EXTENSION_ID, layerId, (int) recommenderId, id, VID.NONE, VID.NONE);
+        return new VID(EXTENSION_ID, getLayerId(), (int) getRecommenderId(), getId(), VID.NONE,
+                VID.NONE);
     }
 
     @Override
@@ -258,7 +167,7 @@ public class AnnotationSuggestion
     {
         // The recommenderId captures uniquely the project, layer and feature, so we do not have to
         // check them separately
-        return Objects.hash(id, recommenderId, documentName);
+        return Objects.hash(getId(), getRecommenderId(), getDocumentName());
     }
 
     @Override
@@ -269,24 +178,27 @@ public class AnnotationSuggestion
         if (this == o) {
             return true;
         }
-        if (o == null || getClass() != o.getClass()) {
+        // Views of suggestions (cf. ColumnarSuggestions) are equal to the suggestions they have
+        // been created from
+        if (!(o instanceof AnnotationSuggestion)) {
             return false;
         }
         AnnotationSuggestion that = (AnnotationSuggestion) o;
-        return id == that.id && recommenderId == that.recommenderId
-                && documentName.equals(that.documentName);
+        return getId() == that.getId() && getRecommenderId() == that.getRecommenderId()
+                && getDocumentName().equals(that.getDocumentName());
     }
 
     @Override
     public String toString()
     {
-        return new ToStringBuilder(this).append("id", id).append("recommenderId", recommenderId)
-                .append("recommenderName", recommenderName).append("layerId", layerId)
-                .append("feature", feature).append("documentName", documentName)
-                .append("begin", begin).append("end", end)
-                .append("coveredText", coveredText).append("label", label)
-                .append("uiLabel", uiLabel).append("confidence", confidence)
-                .append("confindenceExplanation", confidenceExplanation)
+        return new ToStringBuilder(this).append("id", getId())
+                .append("recommenderId", getRecommenderId())
+                .append("recommenderName", getRecommenderName()).append("layerId", getLayerId())
+                .append("feature", getFeature()).append("documentName", getDocumentName())
+                .append("begin", getBegin()).append("end", getEnd())
+                .append("coveredText", getCoveredText()).append("label", getLabel())
+                .append("uiLabel", getUiLabel()).append("confidence", getConfidence())
+                .append("confindenceExplanation", getConfidenceExplanation())
                 .append("visible", isVisible())
                 .append("reasonForHiding", getReasonForHiding()).toString();
     }
@@ -298,6 +210,7 @@ public class AnnotationSuggestion
      */
     public boolean labelEquals(String aLabel)
     {
+        String label = getLabel();
         return (aLabel == null && label == null) || (label != null && label.equals(aLabel));
 
     }
@@ -0,0 +1,323 @@
+/*
+ * Copyright 2017
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.recommendation.api.model;
+
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Compact storage for the suggestions of a recommender on a document. The values which are the
+ * same for all these suggestions (document, recommender, layer and feature) are stored only once.
+ * The other values are stored column by column in arrays. Equal strings (labels, UI labels, etc.)
+ * are stored as references to the same string.
+ * <p>
+ * The suggestions are accessed via light-weight views (cf. {@link #get(int)}) which provide the
+ * usual {@link AnnotationSuggestion} accessors. The views only refer to the batch and a row in it
+ * and are meant to be created when needed rather than to be kept. The visibility state of a
+ * suggestion is stored in the batch as well, so hiding or showing a suggestion via any of its
+ * views affects all of them.
+ */
+public class ColumnarSuggestions
+    implements Serializable
+{
+    private static final long serialVersionUID = 6519727398420432617L;
+
+    private final String documentName;
+    private final long recommenderId;
+    private final String recommenderName;
+    private final long layerId;
+    private final String feature;
+
+    private final int[] ids;
+    private final int[] begins;
+    private final int[] ends;
+    private final String[] coveredTexts;
+    private final String[] labels;
+    private final String[] uiLabels;
+    private final double[] confidences;
+    private final String[] confidenceExplanations;
+    private final byte[] hidingFlags;
+
+    // Whether the IDs are in ascending order, so that a suggestion can be found by binary search
+    private final boolean sortedById;
+
+    /**
+     * @param aSuggestions
+     *            the suggestions - must be at least one and all must have been made by the same
+     *            recommender on the same document.
+     */
+    public ColumnarSuggestions(List<? extends AnnotationSuggestion> aSuggestions)
+    {
+        if (aSuggestions.isEmpty()) {
+            throw new IllegalArgumentException("At least one suggestion is required");
+        }
+
+        AnnotationSuggestion first = aSuggestions.get(0);
+        documentName = first.getDocumentName();
+        recommenderId = first.getRecommenderId();
+        recommenderName = first.getRecommenderName();
+        layerId = first.getLayerId();
+        feature = first.getFeature();
+
+        int size = aSuggestions.size();
+        ids = new int[size];
+        begins = new int[size];
+        ends = new int[size];
+        coveredTexts = new String[size];
+        labels = new String[size];
+        uiLabels = new String[size];
+        confidences = new double[size];
+        confidenceExplanations = new String[size];
+        hidingFlags = new byte[size];
+
+        Map<String, String> strings = new HashMap<>();
+        boolean sorted = true;
+        for (int i = 0; i < size; i++) {
+            AnnotationSuggestion suggestion = aSuggestions.get(i);
+            if (suggestion.getRecommenderId() != recommenderId
+                    || suggestion.getLayerId() != layerId
+                    || !Objects.equals(suggestion.getDocumentName(), documentName)
+                    || !Objects.equals(suggestion.getRecommenderName(), recommenderName)
+                    || !Objects.equals(suggestion.getFeature(), feature)) {
+                throw new IllegalArgumentException("All suggestions must have been made by the "
+                        + "same recommender on the same document");
+            }
+
+            ids[i] = suggestion.getId();
+            begins[i] = suggestion.getBegin();
+            ends[i] = suggestion.getEnd();
+            coveredTexts[i] = share(strings, suggestion.getCoveredText());
+            labels[i] = share(strings, suggestion.getLabel());
+            uiLabels[i] = share(strings, suggestion.getUiLabel());
+            confidences[i] = suggestion.getConfidence();
+            confidenceExplanations[i] = share(strings,
+                    suggestion.getConfidenceExplanation().orElse(null));
+            hidingFlags[i] = (byte) suggestion.getHidingFlags();
+            sorted &= i == 0 || ids[i - 1] < ids[i];
+        }
+        sortedById = sorted;
+    }
+
+    private static String share(Map<String, String> aStrings, String aValue)
+    {
+        if (aValue == null) {
+            return null;
+        }
+
+        String shared = aStrings.putIfAbsent(aValue, aValue);
+        return shared != null ? shared : aValue;
+    }
+
+    public String getDocumentName()
+    {
+        return documentName;
+    }
+
+    public long getRecommenderId()
+    {
+        return recommenderId;
+    }
+
+    public long getLayerId()
+    {
+        return layerId;
+    }
+
+    public String getFeature()
+    {
+        return feature;
+    }
+
+    public int size()
+    {
+        return ids.length;
+    }
+
+    /**
+     * @return a view of the suggestion at the given position.
+     */
+    public AnnotationSuggestion get(int aIndex)
+    {
+        if (aIndex < 0 || aIndex >= ids.length) {
+            throw new IndexOutOfBoundsException("Index: " + aIndex + ", size: " + ids.length);
+        }
+        return new View(this, aIndex);
+    }
+
+    /**
+     * @return a view of the suggestion with the given ID.
+     */
+    public Optional<AnnotationSuggestion> getById(int aId)
+    {
+        if (sortedById) {
+            int low = 0;
+            int high = ids.length - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (ids[mid] < aId) {
+                    low = mid + 1;
+                }
+                else if (ids[mid] > aId) {
+                    high = mid - 1;
+                }
+                else {
+                    return Optional.of(new View(this, mid));
+                }
+            }
+            return Optional.empty();
+        }
+
+        for (int i = 0; i < ids.length; i++) {
+            if (ids[i] == aId) {
+                return Optional.of(new View(this, i));
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * @return views of all the suggestions in the batch.
+     */
+    public List<AnnotationSuggestion> asList()
+    {
+        return new AbstractList<AnnotationSuggestion>()
+        {
+            @Override
+            public AnnotationSuggestion get(int aIndex)
+            {
+                return ColumnarSuggestions.this.get(aIndex);
+            }
+
+            @Override
+            public int size()
+            {
+                return ColumnarSuggestions.this.size();
+            }
+        };
+    }
+
+    private static final class View
+        extends AnnotationSuggestion
+    {
+        private static final long serialVersionUID = -2594316592851180343L;
+
+        private final ColumnarSuggestions columns;
+        private final int row;
+
+        public View(ColumnarSuggestions aColumns, int aRow)
+        {
+            columns = aColumns;
+            row = aRow;
+        }
+
+        @Override
+        public String getCoveredText()
+        {
+            return columns.coveredTexts[row];
+        }
+
+        @Override
+        public int getBegin()
+        {
+            return columns.begins[row];
+        }
+
+        @Override
+        public int getEnd()
+        {
+            return columns.ends[row];
+        }
+
+        @Override
+        public int getId()
+        {
+            return columns.ids[row];
+        }
+
+        @Override
+        public String getLabel()
+        {
+            return columns.labels[row];
+        }
+
+        @Override
+        public String getUiLabel()
+        {
+            return columns.uiLabels[row];
+        }
+
+        @Override
+        public long getLayerId()
+        {
+            return columns.layerId;
+        }
+
+        @Override
+        public String getFeature()
+        {
+            return columns.feature;
+        }
+
+        @Override
+        public String getRecommenderName()
+        {
+            return columns.recommenderName;
+        }
+
+        @Override
+        public double getConfidence()
+        {
+            return columns.confidences[row];
+        }
+
+        @Override
+        public Optional<String> getConfidenceExplanation()
+        {
+            return Optional.ofNullable(columns.confidenceExplanations[row]);
+        }
+
+        @Override
+        public long getRecommenderId()
+        {
+            return columns.recommenderId;
+        }
+
+        @Override
+        public String getDocumentName()
+        {
+            return columns.documentName;
+        }
+
+        @Override
+        protected int getHidingFlags()
+        {
+            return columns.hidingFlags[row];
+        }
+
+        @Override
+        protected void setHidingFlags(int aFlags)
+        {
+            columns.hidingFlags[row] = (byte) aFlags;
+        }
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2019
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.recommendation.api.model;
+
+import static de.tudarmstadt.ukp.inception.recommendation.api.model.LearningRecordType.SHOWN;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Predicate;
+
+/**
+ * The learning records of a user on a layer indexed by document, position, feature and label, so
+ * that the record applying to a suggestion can be looked up without scanning all the records.
+ * Since the learning history contains at most one record for each of these keys (cf.
+ * {@code LearningRecordService#logRecord}), only a single record is kept per key. Records with the
+ * action {@link LearningRecordType#SHOWN} are not indexed.
+ */
+public class LearningRecordIndex
+{
+    private final Map<Key, LearningRecord> records = new HashMap<>();
+
+    public LearningRecordIndex(Collection<LearningRecord> aRecords)
+    {
+        aRecords.forEach(this::put);
+    }
+
+    /**
+     * Adds the given record to the index, replacing any record with the same document, position,
+     * feature and label.
+     */
+    public synchronized void put(LearningRecord aRecord)
+    {
+        Key key = new Key(aRecord);
+        records.remove(key);
+        if (!SHOWN.equals(aRecord.getUserAction())) {
+            records.put(key, aRecord);
+        }
+    }
+
+    public synchronized void remove(LearningRecord aRecord)
+    {
+        records.remove(new Key(aRecord));
+    }
+
+    public synchronized void removeDocument(String aDocumentName)
+    {
+        records.keySet().removeIf(key -> Objects.equals(key.documentName, aDocumentName));
+    }
+
+    public synchronized void removeIf(Predicate<LearningRecord> aPredicate)
+    {
+        records.values().removeIf(aPredicate);
+    }
+
+    public synchronized Optional<LearningRecord> get(String aDocumentName, int aBegin, int aEnd,
+            String aFeature, String aLabel)
+    {
+        return Optional.ofNullable(
+                records.get(new Key(aDocumentName, aBegin, aEnd, aFeature, aLabel)));
+    }
+
+    /**
+     * Looks up the record for the document, position, feature and label of the given suggestion.
+     */
+    public Optional<LearningRecord> get(AnnotationSuggestion aSuggestion)
+    {
+        return get(aSuggestion.getDocumentName(), aSuggestion.getBegin(), aSuggestion.getEnd(),
+                aSuggestion.getFeature(), aSuggestion.getLabel());
+    }
+
+    public synchronized int size()
+    {
+        return records.size();
+    }
+
+    private static final class Key
+    {
+        private final String documentName;
+        private final int begin;
+        private final int end;
+        private final String feature;
+        private final String label;
+
+        public Key(LearningRecord aRecord)
+        {
+            this(aRecord.getSourceDocument() != null ? aRecord.getSourceDocument().getName() : null,
+                    aRecord.getOffsetCharacterBegin(), aRecord.getOffsetCharacterEnd(),
+                    aRecord.getAnnotationFeature() != null
+                            ? aRecord.getAnnotationFeature().getName()
+                            : null,
+                    aRecord.getAnnotation());
+        }
+
+        public Key(String aDocumentName, int aBegin, int aEnd, String aFeature, String aLabel)
+        {
+            documentName = aDocumentName;
+            begin = aBegin;
+            end = aEnd;
+            feature = aFeature;
+            label = aLabel;
+        }
+
+        @Override
+        public boolean equals(Object aOther)
+        {
+            if (this == aOther) {
+                return true;
+            }
+            if (!(aOther instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) aOther;
+            return begin == other.begin && end == other.end
+                    && Objects.equals(documentName, other.documentName)
+                    && Objects.equals(feature, other.feature)
+                    && Objects.equals(label, other.label);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(documentName, begin, end, feature, label);
+        }
+    }
+}
@@ -17,15 +17,24 @@
  */
 package de.tudarmstadt.ukp.inception.recommendation.api.model;
 
+import static java.util.Collections.emptyMap;
+
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongPredicate;
 import java.util.stream.Collectors;
 
+import org.apache.commons.lang3.tuple.Pair;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -41,20 +50,29 @@ import de.tudarmstadt.ukp.clarin.webanno.security.model.User;
  * Stores references to the recommendationService, the currently used JCas and the annotatorState.
  * This class is widely used in the recommendation module.
  * 
- * If the prediction task has run it stores the predicted annotations for an annotation layer in the
- * predictions map.
+ * If the prediction task has run it stores the predicted annotations for an annotation layer. The
+ * suggestions of a recommender on a document are kept together in a compact form (cf.
+ * {@link ColumnarSuggestions}) and the suggestions returned by this class are views which are
+ * created on demand. Lookups therefore only go through the suggestions of a single document (or
+ * a single recommender on a document) instead of maintaining additional indexes.
  */
 public class Predictions
     implements Serializable
 {
     private static final long serialVersionUID = -1598768729246662885L;
     
-    private Map<ExtendedId, AnnotationSuggestion> predictions = new ConcurrentHashMap<>();
+    // Suggestions keyed by document name and recommender ID
+    private final Map<String, Map<Long, ColumnarSuggestions>> predictions =
+            new ConcurrentHashMap<>();
+
+    // Inputs (CAS timestamp, model version) from which the predictions of a recommender on a
+    // document were generated, keyed by document name and recommender ID
+    private final Map<String, Map<Long, Pair<Long, Long>>> inputs = new ConcurrentHashMap<>();
     
     private final Project project;
     private final User user;
     
-    private Logger logger = LoggerFactory.getLogger(getClass());
+    private transient Logger logger = LoggerFactory.getLogger(getClass());
     
     public Predictions(Project aProject, User aUser,
             Map<ExtendedId, AnnotationSuggestion> aPredictions)
@@ -67,7 +85,7 @@ public class Predictions
         user = aUser;
 
         if (aPredictions != null) {
-            predictions = new ConcurrentHashMap<ExtendedId, AnnotationSuggestion>(aPredictions);
+            put(new ArrayList<>(aPredictions.values()));
         }
     }
     
@@ -75,6 +93,18 @@ public class Predictions
         this(aProject, aUser, null);
     }
 
+    /**
+     * Copy constructor. The copy shares the suggestions with the original.
+     */
+    public Predictions(Predictions aOther)
+    {
+        this(aOther.project, aOther.user, null);
+        aOther.predictions.forEach((doc, batches) -> predictions.put(doc,
+                new ConcurrentHashMap<>(batches)));
+        aOther.inputs.forEach((doc, docInputs) -> inputs.put(doc,
+                new ConcurrentHashMap<>(docInputs)));
+    }
+
     /**
      * Get the predictions of a given window for each document, where the outer list is a list of
      * tokens and the inner list is a list of predictions for a token. The method filters all tokens
@@ -119,13 +149,12 @@ public class Predictions
     private List<AnnotationSuggestion> getFlattenedPredictions(String aDocumentName,
         AnnotationLayer aLayer, int aWindowBegin, int aWindowEnd)
     {
-        return predictions.entrySet().stream()
-            .filter(f -> f.getKey().getDocumentName().equals(aDocumentName))
-            .filter(f -> f.getKey().getLayerId() == aLayer.getId())
-            .filter(f -> aWindowBegin == -1 || (f.getKey().getBegin() >= aWindowBegin))
-            .filter(f -> aWindowEnd == -1 || (f.getKey().getEnd() <= aWindowEnd))
-            .sorted(Comparator.comparingInt(e2 -> e2.getValue().getBegin()))
-            .map(Map.Entry::getValue)
+        return getBatches(aDocumentName).values().stream()
+            .filter(batch -> batch.getLayerId() == aLayer.getId())
+            .flatMap(batch -> batch.asList().stream())
+            .filter(f -> aWindowBegin == -1 || (f.getBegin() >= aWindowBegin))
+            .filter(f -> aWindowEnd == -1 || (f.getEnd() <= aWindowEnd))
+            .sorted(Comparator.comparingInt(AnnotationSuggestion::getBegin))
             .collect(Collectors.toList());
     }
 
@@ -135,11 +164,12 @@ public class Predictions
      */
     public Optional<AnnotationSuggestion> getPredictionByVID(SourceDocument aDocument, VID aVID)
     {
-        return predictions.values().stream()
-                .filter(f -> f.getDocumentName().equals(aDocument.getName()))
-                .filter(f -> f.getId() == aVID.getSubId())
-                .filter(f -> f.getRecommenderId() == aVID.getId())
-                .findFirst();
+        ColumnarSuggestions batch = getBatches(aDocument.getName()).get((long) aVID.getId());
+        if (batch == null) {
+            return Optional.empty();
+        }
+
+        return batch.getById(aVID.getSubId());
     }
 
     /**
@@ -148,25 +178,53 @@ public class Predictions
     public Optional<AnnotationSuggestion> getPrediction(SourceDocument aDocument, int aBegin,
             int aEnd, String aLabel)
     {
-        return predictions.values().stream()
-                .filter(f -> f.getDocumentName().equals(aDocument.getName()))
+        return getPredictionsByDocument(aDocument.getName()).stream()
                 .filter(f -> f.getBegin() == aBegin && f.getEnd() == aEnd)
                 .filter(f -> f.getLabel().equals(aLabel))
                 .max(Comparator.comparingInt(AnnotationSuggestion::getId));
     }
     
     /**
+     * Adds the given suggestions. They are stored in a compact form (cf.
+     * {@link ColumnarSuggestions}), so the suggestions returned by this class are views of the
+     * given ones which are equal to them but are not the same objects. A suggestion replaces a
+     * previously added suggestion of the same recommender on the same document with the same ID.
      * 
      * @param aLayerId
      * @param aPredictions - list of sentences containing recommendations
      */
-    public void putPredictions(long aLayerId, List<AnnotationSuggestion> aPredictions)
+    public synchronized void putPredictions(long aLayerId, List<AnnotationSuggestion> aPredictions)
     {
-        aPredictions.forEach(prediction -> {
-            predictions.put(new ExtendedId(user.getUsername(), project.getId(),
-                    prediction.getDocumentName(), aLayerId, prediction.getOffset(),
-                    prediction.getRecommenderId(), prediction.getId(), -1), prediction);
+        put(aPredictions);
+    }
 
+    private void put(List<AnnotationSuggestion> aPredictions)
+    {
+        // Group by document and recommender, keeping the order of the suggestions
+        Map<String, Map<Long, List<AnnotationSuggestion>>> groups = new LinkedHashMap<>();
+        for (AnnotationSuggestion prediction : aPredictions) {
+            groups.computeIfAbsent(prediction.getDocumentName(), k -> new LinkedHashMap<>())
+                    .computeIfAbsent(prediction.getRecommenderId(), k -> new ArrayList<>())
+                    .add(prediction);
+        }
+
+        groups.forEach((doc, byRecommender) -> {
+            Map<Long, ColumnarSuggestions> batches = predictions.computeIfAbsent(doc,
+                k -> new ConcurrentHashMap<>());
+            byRecommender.forEach((recommenderId, suggestions) -> {
+                List<AnnotationSuggestion> rows = suggestions;
+                ColumnarSuggestions previous = batches.get(recommenderId);
+                if (previous != null) {
+                    Set<Integer> ids = suggestions.stream()
+                            .map(AnnotationSuggestion::getId)
+                            .collect(Collectors.toSet());
+                    rows = previous.asList().stream()
+                            .filter(s -> !ids.contains(s.getId()))
+                            .collect(Collectors.toCollection(ArrayList::new));
+                    rows.addAll(suggestions);
+                }
+                batches.put(recommenderId, new ColumnarSuggestions(rows));
+            });
         });
     }
 
@@ -179,20 +237,144 @@ public class Predictions
         return !predictions.isEmpty();
     }
 
+    /**
+     * @return all predictions. The map is created on every call, so this should only be used
+     *         rarely.
+     */
     public Map<ExtendedId, AnnotationSuggestion> getPredictions()
     {
-        return predictions;
+        Map<ExtendedId, AnnotationSuggestion> result = new HashMap<>();
+        predictions.values().forEach(batches -> batches.values().forEach(batch -> batch.asList()
+                .forEach(prediction -> result.put(new ExtendedId(user.getUsername(),
+                        project.getId(), prediction.getDocumentName(), prediction.getLayerId(),
+                        prediction.getOffset(), prediction.getRecommenderId(),
+                        prediction.getId(), -1), prediction))));
+        return Collections.unmodifiableMap(result);
+    }
+
+    /**
+     * TODO #176 use the document Id once it it available in the CAS
+     * 
+     * @return all predictions for the given document.
+     */
+    public List<AnnotationSuggestion> getPredictionsByDocument(String aDocumentName)
+    {
+        List<AnnotationSuggestion> result = new ArrayList<>();
+        getBatches(aDocumentName).values().forEach(batch -> result.addAll(batch.asList()));
+        return result;
+    }
+    
+    /**
+     * TODO #176 use the document Id once it it available in the CAS
+     * 
+     * @return the names of the documents for which there are predictions.
+     */
+    Set<String> getDocumentNames()
+    {
+        return Collections.unmodifiableSet(predictions.keySet());
+    }
+
+    /**
+     * TODO #176 use the document Id once it it available in the CAS
+     * 
+     * @return a read-only view of the suggestions on the given document by recommender ID.
+     */
+    Map<Long, ColumnarSuggestions> getBatches(String aDocumentName)
+    {
+        return Collections.unmodifiableMap(predictions.getOrDefault(aDocumentName, emptyMap()));
     }
     
-    public void clearPredictions()
+    /**
+     * Records from which inputs the predictions of the given recommender on the given document
+     * were generated.
+     */
+    public void putInputs(String aDocumentName, long aRecommenderId, long aCasTimestamp,
+            long aModelVersion)
+    {
+        inputs.computeIfAbsent(aDocumentName, k -> new ConcurrentHashMap<>())
+                .put(aRecommenderId, Pair.of(aCasTimestamp, aModelVersion));
+    }
+
+    /**
+     * @return whether the predictions of the given recommender on the given document were
+     *         generated from the given inputs, i.e. predicting again would yield the same result.
+     */
+    public boolean isUpToDate(String aDocumentName, long aRecommenderId, long aCasTimestamp,
+            long aModelVersion)
+    {
+        return Pair.of(aCasTimestamp, aModelVersion).equals(
+                inputs.getOrDefault(aDocumentName, emptyMap()).get(aRecommenderId));
+    }
+
+    /**
+     * TODO #176 use the document Id once it it available in the CAS
+     * 
+     * Copies the predictions of the given recommender on the given document including the inputs
+     * from which they were generated from another set of predictions.
+     */
+    public synchronized void carryForward(Predictions aOther, String aDocumentName,
+            Recommender aRecommender)
+    {
+        carryForward(aOther, aDocumentName, id -> id == aRecommender.getId().longValue());
+    }
+
+    /**
+     * TODO #176 use the document Id once it it available in the CAS
+     * 
+     * Copies the predictions of all recommenders on the given document including the inputs from
+     * which they were generated from another set of predictions.
+     */
+    public synchronized void carryForward(Predictions aOther, String aDocumentName)
+    {
+        carryForward(aOther, aDocumentName, id -> true);
+    }
+
+    /**
+     * TODO #176 use the document Id once it it available in the CAS
+     * 
+     * Replaces the predictions on the given document including the inputs from which they were
+     * generated with those from another set of predictions. The predictions on other documents
+     * are not touched.
+     */
+    public synchronized void replacePredictions(Predictions aOther, String aDocumentName)
+    {
+        predictions.remove(aDocumentName);
+        inputs.remove(aDocumentName);
+
+        carryForward(aOther, aDocumentName, id -> true);
+    }
+
+    /**
+     * The suggestions are not copied, both sets of predictions share them.
+     */
+    private void carryForward(Predictions aOther, String aDocumentName,
+            LongPredicate aRecommenderFilter)
+    {
+        aOther.getBatches(aDocumentName).entrySet().stream()
+                .filter(e -> aRecommenderFilter.test(e.getKey()))
+                .forEach(e -> predictions
+                        .computeIfAbsent(aDocumentName, k -> new ConcurrentHashMap<>())
+                        .put(e.getKey(), e.getValue()));
+
+        aOther.inputs.getOrDefault(aDocumentName, emptyMap()).entrySet().stream()
+                .filter(e -> aRecommenderFilter.test(e.getKey()))
+                .forEach(e -> putInputs(aDocumentName, e.getKey(), e.getValue().getLeft(),
+                        e.getValue().getRight()));
+    }
+    
+    public synchronized void clearPredictions()
     {
         predictions.clear();
+        inputs.clear();
     }
 
-    public void removePredictions(Long recommenderId)
+    public synchronized void removePredictions(Long recommenderId)
     {
-        predictions.entrySet()
-            .removeIf((p) -> p.getKey().getRecommenderId() == recommenderId);
+        predictions.keySet().forEach(doc -> predictions.computeIfPresent(doc, (k, batches) -> {
+            batches.remove(recommenderId);
+            return batches.isEmpty() ? null : batches;
+        }));
+        inputs.values().forEach(docInputs -> docInputs.remove(recommenderId));
     }
 
     /**
@@ -210,21 +392,23 @@ public class Predictions
     public List<AnnotationSuggestion> getPredictionsByTokenAndFeature(String aDocumentName,
         AnnotationLayer aLayer, int aBegin, int aEnd, String aFeature)
     {
-        return predictions.entrySet().stream()
-            .filter(f -> f.getKey().getDocumentName().equals(aDocumentName))
-            .filter(f -> f.getKey().getLayerId() == aLayer.getId())
-            .filter(f -> f.getKey().getOffset().getBeginCharacter() == aBegin)
-            .filter(f -> f.getKey().getOffset().getEndCharacter() == aEnd)
-            .filter(f -> f.getValue().getFeature().equals(aFeature))
-            .map(Map.Entry::getValue)
-            .collect(Collectors.toList());
+        return getBatches(aDocumentName).values().stream()
+                .filter(batch -> batch.getLayerId() == aLayer.getId()
+                        && Objects.equals(batch.getFeature(), aFeature))
+                .flatMap(batch -> batch.asList().stream())
+                .filter(f -> f.getBegin() == aBegin && f.getEnd() == aEnd)
+                .collect(Collectors.toList());
     }
 
     public List<AnnotationSuggestion> getPredictionsByRecommender(Recommender aRecommender)
     {
-        return predictions.entrySet().stream()
-                .filter(f -> f.getKey().getRecommenderId() == (long) aRecommender.getId())
-                .map(Map.Entry::getValue)
-                .collect(Collectors.toList());
+        List<AnnotationSuggestion> result = new ArrayList<>();
+        predictions.values().forEach(batches -> {
+            ColumnarSuggestions batch = batches.get(aRecommender.getId());
+            if (batch != null) {
+                result.addAll(batch.asList());
+            }
+        });
+        return result;
     }
 }
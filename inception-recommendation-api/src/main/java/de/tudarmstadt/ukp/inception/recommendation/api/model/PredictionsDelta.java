@@ -0,0 +1,283 @@
+/*
+ * Copyright 2019
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.recommendation.api.model;
+
+import static java.util.Collections.emptyList;
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.unmodifiableList;
+import static java.util.Collections.unmodifiableSet;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * The changes between two sets of predictions, e.g. between the active and the incoming
+ * predictions when the latter are activated. Suggestions are matched by their recommender, layer,
+ * feature, offsets and label. A matched suggestion counts as changed if its ID (and thereby its
+ * {@link AnnotationSuggestion#getVID() VID}), confidence, confidence explanation or UI label
+ * differs.
+ * <p>
+ * Predictions which have been carried forward unchanged (cf. {@link Predictions#carryForward})
+ * share the same {@link ColumnarSuggestions} in both sets and are skipped without comparing the
+ * individual suggestions.
+ */
+public class PredictionsDelta
+{
+    private final Map<String, List<AnnotationSuggestion>> added = new HashMap<>();
+    private final Map<String, List<AnnotationSuggestion>> removed = new HashMap<>();
+    private final Map<String, List<AnnotationSuggestion>> changed = new HashMap<>();
+
+    private PredictionsDelta()
+    {
+        // Use between()
+    }
+
+    /**
+     * @return a delta without any changes, e.g. between a set of predictions and a copy of it.
+     */
+    public static PredictionsDelta empty()
+    {
+        return new PredictionsDelta();
+    }
+
+    /**
+     * @param aOld
+     *            the previous predictions - may be {@code null} if there were none.
+     * @param aNew
+     *            the new predictions.
+     */
+    public static PredictionsDelta between(Predictions aOld, Predictions aNew)
+    {
+        PredictionsDelta delta = new PredictionsDelta();
+
+        Set<String> documents = new LinkedHashSet<>(aNew.getDocumentNames());
+        if (aOld != null) {
+            documents.addAll(aOld.getDocumentNames());
+        }
+
+        for (String document : documents) {
+            delta.compare(aOld, aNew, document);
+        }
+
+        return delta;
+    }
+
+    /**
+     * Recomputes the changes on the given documents, e.g. after the predictions on these
+     * documents have been replaced (cf. {@link Predictions#replacePredictions}). The changes on
+     * other documents are kept as they are, so the cost only depends on the given documents.
+     * 
+     * @param aOld
+     *            the previous predictions - may be {@code null} if there were none.
+     * @param aNew
+     *            the new predictions.
+     * @param aDocumentNames
+     *            the documents to update.
+     */
+    public void update(Predictions aOld, Predictions aNew, Collection<String> aDocumentNames)
+    {
+        for (String document : aDocumentNames) {
+            added.remove(document);
+            removed.remove(document);
+            changed.remove(document);
+
+            compare(aOld, aNew, document);
+        }
+    }
+
+    private void compare(Predictions aOld, Predictions aNew, String aDocumentName)
+    {
+        Map<Long, ColumnarSuggestions> oldBatches = aOld != null
+                ? aOld.getBatches(aDocumentName)
+                : emptyMap();
+        Map<Long, ColumnarSuggestions> newBatches = aNew.getBatches(aDocumentName);
+
+        Set<Long> recommenderIds = new LinkedHashSet<>(newBatches.keySet());
+        recommenderIds.addAll(oldBatches.keySet());
+        for (Long recommenderId : recommenderIds) {
+            ColumnarSuggestions oldBatch = oldBatches.get(recommenderId);
+            ColumnarSuggestions newBatch = newBatches.get(recommenderId);
+            if (oldBatch != newBatch) {
+                compare(aDocumentName, rows(oldBatch), rows(newBatch));
+            }
+        }
+    }
+
+    private static List<AnnotationSuggestion> rows(ColumnarSuggestions aBatch)
+    {
+        return aBatch != null ? aBatch.asList() : emptyList();
+    }
+
+    private void compare(String aDocumentName, Collection<AnnotationSuggestion> aOld,
+            Collection<AnnotationSuggestion> aNew)
+    {
+        Map<SuggestionKey, AnnotationSuggestion> oldByKey = new HashMap<>();
+        for (AnnotationSuggestion suggestion : aOld) {
+            oldByKey.put(new SuggestionKey(suggestion), suggestion);
+        }
+
+        for (AnnotationSuggestion suggestion : aNew) {
+            AnnotationSuggestion previous = oldByKey.remove(new SuggestionKey(suggestion));
+            if (previous == null) {
+                add(added, aDocumentName, suggestion);
+            }
+            else if (!isSameValues(previous, suggestion)) {
+                add(changed, aDocumentName, suggestion);
+            }
+        }
+
+        oldByKey.values().forEach(suggestion -> add(removed, aDocumentName, suggestion));
+    }
+
+    private static boolean isSameValues(AnnotationSuggestion aOld, AnnotationSuggestion aNew)
+    {
+        return aOld.getId() == aNew.getId() && aOld.getConfidence() == aNew.getConfidence()
+                && Objects.equals(aOld.getUiLabel(), aNew.getUiLabel())
+                && Objects.equals(aOld.getConfidenceExplanation(),
+                        aNew.getConfidenceExplanation());
+    }
+
+    private static void add(Map<String, List<AnnotationSuggestion>> aTarget, String aDocumentName,
+            AnnotationSuggestion aSuggestion)
+    {
+        aTarget.computeIfAbsent(aDocumentName, k -> new ArrayList<>()).add(aSuggestion);
+    }
+
+    /**
+     * @return whether there are no changes at all.
+     */
+    public boolean isEmpty()
+    {
+        return added.isEmpty() && removed.isEmpty() && changed.isEmpty();
+    }
+
+    /**
+     * @return the names of the documents with changes.
+     */
+    public Set<String> getDocuments()
+    {
+        Set<String> documents = new LinkedHashSet<>(added.keySet());
+        documents.addAll(removed.keySet());
+        documents.addAll(changed.keySet());
+        return unmodifiableSet(documents);
+    }
+
+    /**
+     * @return the suggestions on the given document which are new.
+     */
+    public List<AnnotationSuggestion> getAdded(String aDocumentName)
+    {
+        return unmodifiableList(added.getOrDefault(aDocumentName, emptyList()));
+    }
+
+    /**
+     * @return the suggestions on the given document which no longer exist.
+     */
+    public List<AnnotationSuggestion> getRemoved(String aDocumentName)
+    {
+        return unmodifiableList(removed.getOrDefault(aDocumentName, emptyList()));
+    }
+
+    /**
+     * @return the new versions of the suggestions on the given document which have changed.
+     */
+    public List<AnnotationSuggestion> getChanged(String aDocumentName)
+    {
+        return unmodifiableList(changed.getOrDefault(aDocumentName, emptyList()));
+    }
+
+    /**
+     * @return whether there are changes to the suggestions on the given layer in any document.
+     */
+    public boolean affects(long aLayerId)
+    {
+        return Stream.of(added, removed, changed)
+                .flatMap(suggestions -> suggestions.values().stream())
+                .flatMap(List::stream)
+                .anyMatch(suggestion -> suggestion.getLayerId() == aLayerId);
+    }
+
+    /**
+     * @return whether there are changes to the suggestions on the given layer in the given
+     *         document.
+     */
+    public boolean affects(String aDocumentName, long aLayerId)
+    {
+        return Stream.of(added, removed, changed)
+                .flatMap(suggestions -> suggestions.getOrDefault(aDocumentName, emptyList())
+                        .stream())
+                .anyMatch(suggestion -> suggestion.getLayerId() == aLayerId);
+    }
+
+    /**
+     * @return the total number of added, removed and changed suggestions.
+     */
+    public int size()
+    {
+        return Stream.of(added, removed, changed)
+                .flatMap(suggestions -> suggestions.values().stream())
+                .mapToInt(List::size)
+                .sum();
+    }
+
+    private static final class SuggestionKey
+    {
+        private final long recommenderId;
+        private final long layerId;
+        private final String feature;
+        private final int begin;
+        private final int end;
+        private final String label;
+
+        public SuggestionKey(AnnotationSuggestion aSuggestion)
+        {
+            recommenderId = aSuggestion.getRecommenderId();
+            layerId = aSuggestion.getLayerId();
+            feature = aSuggestion.getFeature();
+            begin = aSuggestion.getBegin();
+            end = aSuggestion.getEnd();
+            label = aSuggestion.getLabel();
+        }
+
+        @Override
+        public boolean equals(Object aOther)
+        {
+            if (!(aOther instanceof SuggestionKey)) {
+                return false;
+            }
+            SuggestionKey other = (SuggestionKey) aOther;
+            return recommenderId == other.recommenderId && layerId == other.layerId
+                    && begin == other.begin && end == other.end
+                    && Objects.equals(feature, other.feature)
+                    && Objects.equals(label, other.label);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(recommenderId, layerId, feature, begin, end, label);
+        }
+    }
+}
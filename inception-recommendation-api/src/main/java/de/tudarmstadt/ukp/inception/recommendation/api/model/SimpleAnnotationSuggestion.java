@@ -0,0 +1,182 @@
+/*
+ * Copyright 2017
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.recommendation.api.model;
+
+import java.util.Optional;
+
+/**
+ * A suggestion which keeps its values in its own fields.
+ */
+public class SimpleAnnotationSuggestion
+    extends AnnotationSuggestion
+{
+    private static final long serialVersionUID = 8126385227627939536L;
+
+    private final int id;
+
+    private final long recommenderId;
+    private final String recommenderName;
+    private final long layerId;
+    private final String feature;
+
+    private final String documentName;
+
+    private final int begin;
+    private final int end;
+    private final String coveredText;
+
+    private final String label;
+    private final String uiLabel;
+    private final double confidence;
+    private final String confidenceExplanation;
+
+    private int hidingFlags = 0;
+
+    public SimpleAnnotationSuggestion(int aId, long aRecommenderId, String aRecommenderName,
+        long aLayerId, String aFeature, String aDocumentName, int aBegin, int aEnd,
+        String aCoveredText, String aLabel, String aUiLabel, double aConfidence,
+        String aConfidenceExplanation)
+    {
+        label = aLabel;
+        uiLabel = aUiLabel;
+        id = aId;
+        layerId = aLayerId;
+        feature = aFeature;
+        recommenderName = aRecommenderName;
+        confidence = aConfidence;
+        confidenceExplanation = aConfidenceExplanation;
+        recommenderId = aRecommenderId;
+        begin = aBegin;
+        end = aEnd;
+        coveredText = aCoveredText;
+        documentName = aDocumentName;
+    }
+
+    /**
+     * Copy constructor.
+     *
+     * @param aObject
+     *            The annotationObject to copy
+     */
+    public SimpleAnnotationSuggestion(AnnotationSuggestion aObject)
+    {
+        label = aObject.getLabel();
+        uiLabel = aObject.getUiLabel();
+        id = aObject.getId();
+        layerId = aObject.getLayerId();
+        feature = aObject.getFeature();
+        recommenderName = aObject.getRecommenderName();
+        confidence = aObject.getConfidence();
+        confidenceExplanation = aObject.getConfidenceExplanation().orElse(null);
+        recommenderId = aObject.getRecommenderId();
+        begin = aObject.getBegin();
+        end = aObject.getEnd();
+        coveredText = aObject.getCoveredText();
+        documentName = aObject.getDocumentName();
+    }
+
+    @Override
+    public String getCoveredText()
+    {
+        return coveredText;
+    }
+
+    @Override
+    public int getBegin()
+    {
+        return begin;
+    }
+
+    @Override
+    public int getEnd()
+    {
+        return end;
+    }
+
+    @Override
+    public int getId()
+    {
+        return id;
+    }
+
+    @Override
+    public String getLabel()
+    {
+        return label;
+    }
+
+    @Override
+    public String getUiLabel()
+    {
+        return uiLabel;
+    }
+
+    @Override
+    public long getLayerId()
+    {
+        return layerId;
+    }
+
+    @Override
+    public String getFeature()
+    {
+        return feature;
+    }
+
+    @Override
+    public String getRecommenderName()
+    {
+        return recommenderName;
+    }
+
+    @Override
+    public double getConfidence()
+    {
+        return confidence;
+    }
+
+    @Override
+    public Optional<String> getConfidenceExplanation()
+    {
+        return Optional.ofNullable(confidenceExplanation);
+    }
+
+    @Override
+    public long getRecommenderId()
+    {
+        return recommenderId;
+    }
+
+    @Override
+    public String getDocumentName()
+    {
+        return documentName;
+    }
+
+    @Override
+    protected int getHidingFlags()
+    {
+        return hidingFlags;
+    }
+
+    @Override
+    protected void setHidingFlags(int aFlags)
+    {
+        hidingFlags = aFlags;
+    }
+}
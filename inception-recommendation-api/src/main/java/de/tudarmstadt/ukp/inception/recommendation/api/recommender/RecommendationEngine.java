@@ -22,7 +22,16 @@ import static de.tudarmstadt.ukp.inception.recommendation.api.RecommendationServ
 import static de.tudarmstadt.ukp.inception.recommendation.api.RecommendationService.FEATURE_NAME_SCORE_SUFFIX;
 import static org.apache.uima.fit.util.CasUtil.getType;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
 
 import org.apache.uima.cas.CAS;
 import org.apache.uima.cas.Feature;
@@ -57,7 +66,10 @@ public abstract class RecommendationEngine
     /**
      * Given training data in {@code aCasses}, train a model. In order to save data between
      * runs, the {@code aContext} can be used.
-     * This method must not mutate {@code aCasses} in any way.
+     * This method must not mutate {@code aCasses} in any way. The CASes are shared with other
+     * recommenders which may be trained or evaluated on other threads at the same time. Reading
+     * them concurrently is fine, but an engine which serializes them (e.g. to XMI) must do so
+     * while holding the lock of the respective CAS.
      * @param aContext The context of the recommender
      * @param aCasses The training data
      */
@@ -78,7 +90,8 @@ public abstract class RecommendationEngine
      * Evaluates the performance of a recommender by splitting the data given in {@code aCasses} in
      * training and test sets by using {@code aDataSplitter}, training on the training set and
      * measuring performance on unseen data on the training set. This method must not mutate
-     * {@code aCasses} in any way.
+     * {@code aCasses} in any way. As for {@link #train}, the CASes are shared and must be locked
+     * while they are serialized.
      * 
      * @param aCasses
      *            The CASses containing target annotations
@@ -91,6 +104,25 @@ public abstract class RecommendationEngine
         throws RecommendationException;
 // end::methodDefinition[]
 
+    /**
+     * Given the texts in {@code aCasses}, predict target annotations and write them into the
+     * respective CAS. The platform passes several documents at once, so that engines can do their
+     * setup for prediction (e.g. instantiating a model or connecting to a service) only once for
+     * all of them. By default, {@link #predict(RecommenderContext, CAS)} is called for each CAS.
+     * 
+     * @param aContext
+     *            The context of the recommender
+     * @param aCasses
+     *            The documents to predict on
+     */
+    public void predict(RecommenderContext aContext, List<CAS> aCasses)
+        throws RecommendationException
+    {
+        for (CAS cas : aCasses) {
+            predict(aContext, cas);
+        }
+    }
+
     /**
      * This method should be called before attempting to call {@link #predict} to ensure that the
      * given context contains sufficient information to perform prediction. If this method returns
@@ -116,6 +148,87 @@ public abstract class RecommendationEngine
         return RecommendationEngineCapability.TRAINING_SUPPORTED;
     }
     
+    /**
+     * Returns whether {@link #predict} may be called on several threads at the same time with the
+     * same context. This is not the case e.g. if the model kept in the context is not thread-safe.
+     * Predictions with engines that do not support this are run on one thread at a time per
+     * context.
+     */
+    public boolean isConcurrentPredictionSupported()
+    {
+        return false;
+    }
+    
+    /**
+     * Returns whether the engine supports {@link #trainIncrementally}, i.e. whether it can update
+     * its model using only the documents which changed since the previous training.
+     */
+    public boolean isIncrementalTrainingSupported()
+    {
+        return false;
+    }
+
+    /**
+     * Trains a model using only the documents which changed since the previous training. The
+     * given context has been created via {@link #newContext} from the context of the previous
+     * training, so the engine can carry over whatever it needs from the previous training there.
+     * The previous context must not be modified since it may still be in use for predictions. If
+     * there was no previous training, all documents are passed as changed.
+     * 
+     * @param aContext
+     *            the context of the recommender.
+     * @param aChangedCasses
+     *            the CASes of the new or changed documents by document name. They replace the
+     *            training data previously taken from the same documents. This method must not
+     *            mutate them in any way.
+     * @param aRemovedDocuments
+     *            the names of documents which no longer provide training data.
+     */
+    public void trainIncrementally(RecommenderContext aContext, Map<String, CAS> aChangedCasses,
+            Set<String> aRemovedDocuments)
+        throws RecommendationException
+    {
+        throw new UnsupportedOperationException("Incremental training is not supported");
+    }
+
+    /**
+     * Returns whether the model in a context can be written via {@link #exportModel} and read back
+     * via {@link #importModel}. This allows the model to be persisted, e.g. in order to have it
+     * available again after a restart without re-training.
+     */
+    public boolean isModelExportSupported()
+    {
+        return false;
+    }
+
+    /**
+     * Writes the model stored in the given context to the given stream. The stream must not be
+     * closed by this method.
+     * 
+     * @param aContext
+     *            a context for which {@link #isReadyForPrediction} is {@code true}.
+     * @param aOutput
+     *            the stream to write the model to.
+     */
+    public void exportModel(RecommenderContext aContext, OutputStream aOutput) throws IOException
+    {
+        throw new UnsupportedOperationException("Model export is not supported");
+    }
+
+    /**
+     * Reads a model written by {@link #exportModel} from the given stream and stores it in the
+     * given (new) context.
+     * 
+     * @param aContext
+     *            the context to store the model in.
+     * @param aInput
+     *            the stream to read the model from.
+     */
+    public void importModel(RecommenderContext aContext, InputStream aInput) throws IOException
+    {
+        throw new UnsupportedOperationException("Model import is not supported");
+    }
+
     /**
      * Create a new context given the previous context. This allows incrementally training 
      * recommenders to salvage information from the current context for a new iteration. By default,
@@ -126,6 +239,44 @@ public abstract class RecommendationEngine
         return new RecommenderContext();
     }
 
+    /**
+     * Helper for engines implementing {@link #trainIncrementally} by keeping the training data
+     * extracted from each document in the context. Only the changed documents are passed to the
+     * extractor.
+     * 
+     * @return a new map with the training data per document. The given map is not modified.
+     */
+    protected static <T> Map<String, List<T>> updateTrainingData(
+            Map<String, List<T>> aTrainingData, Map<String, CAS> aChangedCasses,
+            Set<String> aRemovedDocuments, Function<CAS, List<T>> aExtractor)
+    {
+        // Sorted so that the training data is always presented to the learner in the same order
+        Map<String, List<T>> trainingData = new TreeMap<>(aTrainingData);
+        trainingData.keySet().removeAll(aRemovedDocuments);
+        for (Entry<String, CAS> e : aChangedCasses.entrySet()) {
+            trainingData.put(e.getKey(), aExtractor.apply(e.getValue()));
+        }
+        return trainingData;
+    }
+
+    /**
+     * @return the training data of all documents in one list, but no more than the given number
+     *         of items.
+     */
+    protected static <T> List<T> flattenTrainingData(Map<String, List<T>> aTrainingData,
+            int aLimit)
+    {
+        List<T> result = new ArrayList<>();
+        for (List<T> items : aTrainingData.values()) {
+            if (result.size() + items.size() > aLimit) {
+                result.addAll(items.subList(0, aLimit - result.size()));
+                break;
+            }
+            result.addAll(items);
+        }
+        return result;
+    }
+
     protected Type getPredictedType(CAS aCas)
     {
         return getType(aCas, layerName);
@@ -45,6 +45,15 @@ public interface RecommendationEngineFactory<T>
         return true;
     }
 
+    /**
+     * @return True if the recommender delegates training and prediction to a remote service, i.e.
+     *         its tasks mainly wait for I/O instead of using the local CPU.
+     */
+    default boolean isRemote()
+    {
+        return false;
+    }
+
     RecommendationEngine build(Recommender aRecommender);
 
     boolean accepts(AnnotationLayer aLayer, AnnotationFeature aFeature);
@@ -23,6 +23,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.annotation.Nullable;
 
@@ -41,6 +42,9 @@ public class RecommenderContext
         EMPTY_CONTEXT.close();
     }
     
+    private static final AtomicLong NEXT_VERSION = new AtomicLong();
+
+    private final long version = NEXT_VERSION.incrementAndGet();
     private final Map<String, Object> store;
     private List<LogMessage> messages;
     private Optional<User> user;
@@ -129,6 +133,16 @@ public class RecommenderContext
         }
     }
     
+    /**
+     * @return a version number which is unique to this context. Since a new context is created
+     *         whenever a recommender is trained, predictions made with contexts of the same version
+     *         were made using the same model.
+     */
+    public long getVersion()
+    {
+        return version;
+    }
+    
     public Optional<User> getUser() {
         return user;
     }
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2019
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.recommendation.api.model;
+
+import static de.tudarmstadt.ukp.inception.recommendation.api.model.AnnotationSuggestion.FLAG_OVERLAP;
+import static de.tudarmstadt.ukp.inception.recommendation.api.model.AnnotationSuggestion.FLAG_REJECTED;
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class ColumnarSuggestionsTest
+{
+    private AnnotationSuggestion s1;
+    private AnnotationSuggestion s2;
+
+    private ColumnarSuggestions sut;
+
+    @Before
+    public void setup()
+    {
+        s1 = new SimpleAnnotationSuggestion(1, 1, "rec1", 2, "value", "doc1", 0, 5, "Paris", "LOC",
+                "Location", 0.1, "E1");
+        s2 = new SimpleAnnotationSuggestion(2, 1, "rec1", 2, "value", "doc1", 10, 15, "Paris",
+                "LOC", "Location", 0.2, null);
+        s2.hide(FLAG_OVERLAP);
+
+        sut = new ColumnarSuggestions(asList(s1, s2));
+    }
+
+    @Test
+    public void thatViewsProvideTheValuesOfTheSuggestions()
+    {
+        assertThat(sut.size()).isEqualTo(2);
+        assertThat(sut.asList()).containsExactly(s1, s2);
+
+        AnnotationSuggestion view = sut.get(0);
+        assertThat(view.getId()).isEqualTo(1);
+        assertThat(view.getRecommenderId()).isEqualTo(1L);
+        assertThat(view.getRecommenderName()).isEqualTo("rec1");
+        assertThat(view.getLayerId()).isEqualTo(2L);
+        assertThat(view.getFeature()).isEqualTo("value");
+        assertThat(view.getDocumentName()).isEqualTo("doc1");
+        assertThat(view.getBegin()).isEqualTo(0);
+        assertThat(view.getEnd()).isEqualTo(5);
+        assertThat(view.getCoveredText()).isEqualTo("Paris");
+        assertThat(view.getLabel()).isEqualTo("LOC");
+        assertThat(view.getUiLabel()).isEqualTo("Location");
+        assertThat(view.getConfidence()).isEqualTo(0.1);
+        assertThat(view.getConfidenceExplanation()).contains("E1");
+        assertThat(view.getVID()).isEqualTo(s1.getVID());
+        assertThat(view.hashCode()).isEqualTo(s1.hashCode());
+
+        assertThat(sut.get(1).getConfidenceExplanation()).isEmpty();
+    }
+
+    @Test
+    public void thatStringsAreStoredOnlyOnce()
+    {
+        assertThat(sut.get(1).getLabel()).isSameAs(sut.get(0).getLabel());
+        assertThat(sut.get(1).getCoveredText()).isSameAs(sut.get(0).getCoveredText());
+    }
+
+    @Test
+    public void thatVisibilityIsSharedByViews()
+    {
+        assertThat(sut.get(0).isVisible()).isTrue();
+        assertThat(sut.get(1).isVisible()).isFalse();
+
+        sut.get(0).hide(FLAG_REJECTED);
+        sut.get(1).show(FLAG_OVERLAP);
+
+        assertThat(sut.get(0).getReasonForHiding().trim()).isEqualTo("rejected");
+        assertThat(sut.get(1).isVisible()).isTrue();
+        assertThat(s1.isVisible()).isTrue();
+    }
+
+    @Test
+    public void thatSuggestionsCanBeFoundById()
+    {
+        assertThat(sut.getById(2)).contains(s2);
+        assertThat(sut.getById(3)).isEmpty();
+
+        ColumnarSuggestions unsorted = new ColumnarSuggestions(asList(s2, s1));
+        assertThat(unsorted.getById(1)).contains(s1);
+        assertThat(unsorted.getById(3)).isEmpty();
+    }
+
+    @Test
+    public void thatSuggestionsOfDifferentRecommendersAreRejected()
+    {
+        AnnotationSuggestion other = new SimpleAnnotationSuggestion(3, 2, "rec2", 2, "value",
+                "doc1", 0, 5, "Paris", "LOC", "Location", 0.3, null);
+
+        assertThatThrownBy(() -> new ColumnarSuggestions(asList(s1, other)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void thatViewsDoNotCopyTheValues()
+    {
+        assertThat(Arrays.stream(AnnotationSuggestion.class.getDeclaredFields())
+                .filter(field -> !Modifier.isStatic(field.getModifiers())))
+                        .extracting(Field::getName).isEmpty();
+
+        // A view only adds itself (header, batch reference and row) to the batch it refers to
+        assertThat(ObjectSizeEstimator.sizeOf(sut.get(0)) - ObjectSizeEstimator.sizeOf(sut))
+                .isLessThanOrEqualTo(24);
+    }
+}
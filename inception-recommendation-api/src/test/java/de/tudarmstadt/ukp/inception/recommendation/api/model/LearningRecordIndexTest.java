@@ -0,0 +1,114 @@
+/*
+ * Copyright 2019
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.recommendation.api.model;
+
+import static de.tudarmstadt.ukp.inception.recommendation.api.model.LearningRecordType.REJECTED;
+import static de.tudarmstadt.ukp.inception.recommendation.api.model.LearningRecordType.SHOWN;
+import static de.tudarmstadt.ukp.inception.recommendation.api.model.LearningRecordType.SKIPPED;
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationFeature;
+import de.tudarmstadt.ukp.clarin.webanno.model.SourceDocument;
+
+public class LearningRecordIndexTest
+{
+    private SourceDocument doc1;
+    private SourceDocument doc2;
+    private AnnotationFeature feature;
+
+    private LearningRecord rejected;
+    private LearningRecord skipped;
+
+    private LearningRecordIndex sut;
+
+    @Before
+    public void setup()
+    {
+        doc1 = new SourceDocument();
+        doc1.setName("doc1");
+        doc2 = new SourceDocument();
+        doc2.setName("doc2");
+
+        feature = new AnnotationFeature("value", "uima.cas.String");
+
+        rejected = buildRecord(doc1, 0, 1, "A", REJECTED);
+        skipped = buildRecord(doc2, 0, 1, "A", SKIPPED);
+
+        sut = new LearningRecordIndex(asList(rejected, skipped));
+    }
+
+    @Test
+    public void thatRecordsCanBeLookedUp()
+    {
+        assertThat(sut.get("doc1", 0, 1, "value", "A")).containsSame(rejected);
+        assertThat(sut.get("doc2", 0, 1, "value", "A")).containsSame(skipped);
+        assertThat(sut.get("doc1", 0, 2, "value", "A")).isEmpty();
+        assertThat(sut.get("doc1", 0, 1, "other", "A")).isEmpty();
+        assertThat(sut.get("doc1", 0, 1, "value", "B")).isEmpty();
+
+        AnnotationSuggestion suggestion = new SimpleAnnotationSuggestion(1, 1, "rec1", 1, "value",
+                "doc1", 0, 1, "a", "A", "#A", 0.1, "E1");
+        assertThat(sut.get(suggestion)).containsSame(rejected);
+    }
+
+    @Test
+    public void thatNewRecordsReplaceExistingOnes()
+    {
+        LearningRecord skippedAgain = buildRecord(doc1, 0, 1, "A", SKIPPED);
+        sut.put(skippedAgain);
+
+        assertThat(sut.get("doc1", 0, 1, "value", "A")).containsSame(skippedAgain);
+        assertThat(sut.size()).isEqualTo(2);
+
+        // Records of shown suggestions are not indexed but still replace existing ones
+        sut.put(buildRecord(doc1, 0, 1, "A", SHOWN));
+
+        assertThat(sut.get("doc1", 0, 1, "value", "A")).isEmpty();
+        assertThat(sut.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void thatRecordsCanBeRemoved()
+    {
+        sut.removeDocument("doc1");
+
+        assertThat(sut.get("doc1", 0, 1, "value", "A")).isEmpty();
+        assertThat(sut.get("doc2", 0, 1, "value", "A")).containsSame(skipped);
+
+        sut.removeIf(record -> SKIPPED.equals(record.getUserAction()));
+
+        assertThat(sut.size()).isEqualTo(0);
+    }
+
+    private LearningRecord buildRecord(SourceDocument aDocument, int aBegin, int aEnd,
+            String aLabel, LearningRecordType aAction)
+    {
+        LearningRecord record = new LearningRecord();
+        record.setSourceDocument(aDocument);
+        record.setOffsetCharacterBegin(aBegin);
+        record.setOffsetCharacterEnd(aEnd);
+        record.setAnnotationFeature(feature);
+        record.setAnnotation(aLabel);
+        record.setUserAction(aAction);
+        return record;
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2017
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.recommendation.api.model;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Estimates the memory taken by an object graph on a 64-bit JVM with compressed references, i.e.
+ * 12 bytes per object header, 4 bytes per reference and sizes padded to multiples of 8 bytes.
+ * <p>
+ * The fields of the objects of this module and of {@code commons-lang3} tuples are inspected via
+ * reflection. Maps and collections of the JDK are estimated from their size, so the estimation
+ * does not depend on the internals of the JDK. Strings and all other objects (e.g. projects and
+ * users) are shared with the rest of the application and are not counted.
+ */
+class ObjectSizeEstimator
+{
+    private static final int HEADER = 12;
+    private static final int ARRAY_HEADER = 16;
+    private static final int REFERENCE = 4;
+
+    // A hash map entry (header, hash, key, value, next) plus its slot in the table
+    private static final int MAP_ENTRY = 32 + 2 * REFERENCE;
+    private static final int MAP = 64;
+    private static final int COLLECTION = 24;
+
+    private final Set<Object> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final Deque<Object> pending = new ArrayDeque<>();
+
+    public static long sizeOf(Object aObject)
+    {
+        return new ObjectSizeEstimator().measure(aObject);
+    }
+
+    private long measure(Object aRoot)
+    {
+        long size = 0;
+        enqueue(aRoot);
+        while (!pending.isEmpty()) {
+            size += shallowSize(pending.pop());
+        }
+        return size;
+    }
+
+    private void enqueue(Object aObject)
+    {
+        if (aObject != null && seen.add(aObject)) {
+            pending.push(aObject);
+        }
+    }
+
+    private long shallowSize(Object aObject)
+    {
+        Class<?> type = aObject.getClass();
+
+        if (type.isArray()) {
+            Class<?> componentType = type.getComponentType();
+            int length = Array.getLength(aObject);
+            if (!componentType.isPrimitive()) {
+                for (int i = 0; i < length; i++) {
+                    enqueue(Array.get(aObject, i));
+                }
+            }
+            return align(ARRAY_HEADER + (long) length * sizeOfType(componentType));
+        }
+
+        if (aObject instanceof Map) {
+            Map<?, ?> map = (Map<?, ?>) aObject;
+            map.forEach((key, value) -> {
+                enqueue(key);
+                enqueue(value);
+            });
+            return MAP + (long) map.size() * MAP_ENTRY;
+        }
+
+        if (aObject instanceof Collection) {
+            Collection<?> collection = (Collection<?>) aObject;
+            collection.forEach(this::enqueue);
+            return align(COLLECTION + ARRAY_HEADER + (long) collection.size() * REFERENCE);
+        }
+
+        if (aObject instanceof Number) {
+            return align(HEADER + 8);
+        }
+
+        String packageName = type.getPackage() != null ? type.getPackage().getName() : "";
+        if (!packageName.startsWith("de.tudarmstadt.ukp.inception.recommendation")
+                && !packageName.startsWith("org.apache.commons.lang3.tuple")) {
+            return 0;
+        }
+
+        long size = HEADER;
+        for (Class<?> t = type; t != null; t = t.getSuperclass()) {
+            for (Field field : t.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers())) {
+                    continue;
+                }
+                size += sizeOfType(field.getType());
+                if (!field.getType().isPrimitive()) {
+                    field.setAccessible(true);
+                    try {
+                        enqueue(field.get(aObject));
+                    }
+                    catch (IllegalAccessException e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+            }
+        }
+        return align(size);
+    }
+
+    private static int sizeOfType(Class<?> aType)
+    {
+        if (aType == long.class || aType == double.class) {
+            return 8;
+        }
+        if (aType == int.class || aType == float.class) {
+            return 4;
+        }
+        if (aType == short.class || aType == char.class) {
+            return 2;
+        }
+        if (aType == byte.class || aType == boolean.class) {
+            return 1;
+        }
+        return REFERENCE;
+    }
+
+    private static long align(long aSize)
+    {
+        return (aSize + 7) & ~7L;
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2019
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.recommendation.api.model;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import de.tudarmstadt.ukp.clarin.webanno.model.Project;
+import de.tudarmstadt.ukp.clarin.webanno.security.model.User;
+
+public class PredictionsDeltaTest
+{
+    private Project project;
+    private User user;
+
+    private Predictions oldPredictions;
+
+    @Before
+    public void setup()
+    {
+        project = new Project();
+        project.setId(1L);
+        user = new User("user");
+
+        oldPredictions = new Predictions(user, project);
+        oldPredictions.putPredictions(1L, asList(
+                suggestion(1, "doc1", 0, 1, "A", 0.1),
+                suggestion(2, "doc1", 2, 3, "B", 0.2),
+                suggestion(3, "doc1", 4, 5, "C", 0.3),
+                suggestion(1, "doc2", 0, 1, "D", 0.4)));
+    }
+
+    @Test
+    public void thatDocumentsCarriedForwardAreUnchanged()
+    {
+        Predictions newPredictions = new Predictions(user, project);
+        newPredictions.carryForward(oldPredictions, "doc1");
+        newPredictions.carryForward(oldPredictions, "doc2");
+
+        PredictionsDelta sut = PredictionsDelta.between(oldPredictions, newPredictions);
+
+        assertThat(sut.isEmpty()).isTrue();
+        assertThat(sut.getDocuments()).isEmpty();
+    }
+
+    @Test
+    public void thatAddedRemovedAndChangedSuggestionsAreDetected()
+    {
+        AnnotationSuggestion same = suggestion(1, "doc1", 0, 1, "A", 0.1);
+        AnnotationSuggestion changed = suggestion(2, "doc1", 2, 3, "B", 0.5);
+        AnnotationSuggestion added = suggestion(3, "doc1", 6, 7, "E", 0.3);
+
+        Predictions newPredictions = new Predictions(user, project);
+        newPredictions.putPredictions(1L, asList(same, changed, added));
+        newPredictions.carryForward(oldPredictions, "doc2");
+
+        PredictionsDelta sut = PredictionsDelta.between(oldPredictions, newPredictions);
+
+        assertThat(sut.getDocuments()).containsExactly("doc1");
+        assertThat(sut.getAdded("doc1")).containsExactly(added);
+        assertThat(sut.getChanged("doc1")).containsExactly(changed);
+        assertThat(sut.getRemoved("doc1"))
+                .containsExactly(suggestion(3, "doc1", 4, 5, "C", 0.3));
+        assertThat(sut.size()).isEqualTo(3);
+        assertThat(sut.affects(1L)).isTrue();
+        assertThat(sut.affects(2L)).isFalse();
+        assertThat(sut.affects("doc2", 1L)).isFalse();
+    }
+
+    @Test
+    public void thatAllSuggestionsAreAddedWithoutPreviousPredictions()
+    {
+        PredictionsDelta sut = PredictionsDelta.between(null, oldPredictions);
+
+        assertThat(sut.getDocuments()).containsExactlyInAnyOrder("doc1", "doc2");
+        assertThat(sut.getAdded("doc1")).hasSize(3);
+        assertThat(sut.getAdded("doc2")).hasSize(1);
+        assertThat(sut.getRemoved("doc1")).isEmpty();
+    }
+
+    @Test
+    public void thatDeltaCanBeUpdatedForSomeDocuments()
+    {
+        Predictions newPredictions = new Predictions(oldPredictions);
+        PredictionsDelta sut = PredictionsDelta.empty();
+
+        AnnotationSuggestion added = suggestion(5, "doc2", 2, 3, "E", 0.5);
+        Predictions chunk = new Predictions(user, project);
+        chunk.putPredictions(1L, asList(suggestion(1, "doc2", 0, 1, "D", 0.4), added));
+        newPredictions.replacePredictions(chunk, "doc2");
+        sut.update(oldPredictions, newPredictions, asList("doc2"));
+
+        assertThat(sut.getDocuments()).containsExactly("doc2");
+        assertThat(sut.getAdded("doc2")).containsExactly(added);
+        assertThat(sut.getChanged("doc2")).isEmpty();
+        assertThat(sut.getRemoved("doc2")).isEmpty();
+
+        // Predicting the document again replaces its previous changes
+        newPredictions.replacePredictions(oldPredictions, "doc2");
+        sut.update(oldPredictions, newPredictions, asList("doc2"));
+
+        assertThat(sut.isEmpty()).isTrue();
+    }
+
+    private static AnnotationSuggestion suggestion(int aId, String aDocumentName, int aBegin,
+            int aEnd, String aLabel, double aConfidence)
+    {
+        return new SimpleAnnotationSuggestion(aId, 1, "rec1", 1, "value", aDocumentName, aBegin,
+                aEnd, "x", aLabel, "#" + aLabel, aConfidence, null);
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ * Copyright 2019
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.recommendation.api.model;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationLayer;
+import de.tudarmstadt.ukp.clarin.webanno.model.Project;
+import de.tudarmstadt.ukp.clarin.webanno.model.SourceDocument;
+import de.tudarmstadt.ukp.clarin.webanno.security.model.User;
+
+public class PredictionsTest
+{
+    private AnnotationLayer layer;
+    private SourceDocument doc1;
+
+    private AnnotationSuggestion rec1Doc1;
+    private AnnotationSuggestion rec1Doc2;
+    private AnnotationSuggestion rec2Doc1;
+
+    private Predictions sut;
+
+    @Before
+    public void setup()
+    {
+        Project project = new Project();
+        project.setId(1L);
+
+        layer = new AnnotationLayer();
+        layer.setId(1L);
+
+        doc1 = new SourceDocument();
+        doc1.setName("doc1");
+
+        rec1Doc1 = new SimpleAnnotationSuggestion(1, 1, "rec1", 1, "value", "doc1", 0, 1, "a", "A",
+                "#A", 0.1, "E1");
+        rec1Doc2 = new SimpleAnnotationSuggestion(2, 1, "rec1", 1, "value", "doc2", 0, 1, "b", "B",
+                "#B", 0.2, "E2");
+        rec2Doc1 = new SimpleAnnotationSuggestion(3, 2, "rec2", 1, "value", "doc1", 0, 1, "a", "C",
+                "#C", 0.3, "E3");
+
+        sut = new Predictions(new User("user"), project);
+        sut.putPredictions(layer.getId(), asList(rec1Doc1, rec1Doc2, rec2Doc1));
+    }
+
+    @Test
+    public void thatPredictionsCanBeLookedUp()
+    {
+        assertThat(sut.getPredictionsByDocument("doc1"))
+                .containsExactlyInAnyOrder(rec1Doc1, rec2Doc1);
+        assertThat(sut.getPredictionsByDocument("doc3")).isEmpty();
+
+        assertThat(sut.getPredictionsByTokenAndFeature("doc1", layer, 0, 1, "value"))
+                .containsExactlyInAnyOrder(rec1Doc1, rec2Doc1);
+        assertThat(sut.getPredictionsByTokenAndFeature("doc1", layer, 0, 2, "value"))
+                .isEmpty();
+
+        assertThat(sut.getPredictionsByRecommender(buildRecommender(1L)))
+                .containsExactlyInAnyOrder(rec1Doc1, rec1Doc2);
+
+        assertThat(sut.getPredictionByVID(doc1, rec2Doc1.getVID())).contains(rec2Doc1);
+        assertThat(sut.getPredictionByVID(doc1, rec1Doc2.getVID())).isEmpty();
+
+        assertThat(sut.getPrediction(doc1, 0, 1, "C")).contains(rec2Doc1);
+    }
+
+    @Test
+    public void thatRemovingPredictionsUpdatesIndexes()
+    {
+        sut.removePredictions(1L);
+
+        assertThat(sut.getPredictions()).hasSize(1);
+        assertThat(sut.getPredictionsByDocument("doc1")).containsExactly(rec2Doc1);
+        assertThat(sut.getPredictionsByDocument("doc2")).isEmpty();
+        assertThat(sut.getPredictionsByRecommender(buildRecommender(1L))).isEmpty();
+        assertThat(sut.getPredictionByVID(doc1, rec1Doc1.getVID())).isEmpty();
+        assertThat(sut.getPredictionsByTokenAndFeature("doc1", layer, 0, 1, "value"))
+                .containsExactly(rec2Doc1);
+
+        sut.clearPredictions();
+
+        assertThat(sut.hasPredictions()).isFalse();
+        assertThat(sut.getPredictionsByDocument("doc1")).isEmpty();
+        assertThat(sut.getPredictionByVID(doc1, rec2Doc1.getVID())).isEmpty();
+    }
+
+    @Test
+    public void thatReplacedPredictionIsRemovedFromIndexes()
+    {
+        AnnotationSuggestion replacement = new SimpleAnnotationSuggestion(1, 1, "rec1", 1, "value",
+                "doc1", 0, 1, "a", "D", "#D", 0.4, "E4");
+        sut.putPredictions(layer.getId(), asList(replacement));
+
+        assertThat(sut.getPredictionsByDocument("doc1"))
+                .containsExactlyInAnyOrder(replacement, rec2Doc1);
+        assertThat(sut.getPredictionByVID(doc1, replacement.getVID())).contains(replacement);
+    }
+
+    @Test
+    public void thatUnchangedPredictionsCanBeCarriedForward()
+    {
+        sut.putInputs("doc1", 1L, 100L, 1L);
+
+        assertThat(sut.isUpToDate("doc1", 1L, 100L, 1L)).isTrue();
+        assertThat(sut.isUpToDate("doc1", 1L, 101L, 1L)).isFalse();
+        assertThat(sut.isUpToDate("doc1", 1L, 100L, 2L)).isFalse();
+        assertThat(sut.isUpToDate("doc2", 1L, 100L, 1L)).isFalse();
+
+        Predictions next = new Predictions(new User("user"), sut.getProject());
+        next.carryForward(sut, "doc1", buildRecommender(1L));
+
+        assertThat(next.getPredictions()).hasSize(1);
+        assertThat(next.getPredictionsByDocument("doc1")).containsExactly(rec1Doc1);
+        assertThat(next.isUpToDate("doc1", 1L, 100L, 1L)).isTrue();
+
+        sut.removePredictions(1L);
+
+        assertThat(sut.isUpToDate("doc1", 1L, 100L, 1L)).isFalse();
+    }
+
+    @Test
+    public void thatPredictionsCanBeCopiedAndMerged()
+    {
+        sut.putInputs("doc2", 1L, 100L, 1L);
+
+        Predictions copy = new Predictions(sut);
+        sut.clearPredictions();
+
+        assertThat(copy.getPredictions()).hasSize(3);
+        assertThat(copy.isUpToDate("doc2", 1L, 100L, 1L)).isTrue();
+
+        Predictions merged = new Predictions(new User("user"), copy.getProject());
+        merged.carryForward(copy, "doc1");
+
+        assertThat(merged.getPredictionsByDocument("doc1"))
+                .containsExactlyInAnyOrder(rec1Doc1, rec2Doc1);
+        assertThat(merged.getPredictionsByDocument("doc2")).isEmpty();
+        assertThat(merged.isUpToDate("doc2", 1L, 100L, 1L)).isFalse();
+    }
+
+    @Test
+    public void thatPredictionsOnADocumentCanBeReplaced()
+    {
+        sut.putInputs("doc1", 1L, 100L, 1L);
+        sut.putInputs("doc2", 1L, 100L, 1L);
+
+        AnnotationSuggestion replacement = new SimpleAnnotationSuggestion(4, 1, "rec1", 1, "value",
+                "doc1", 2, 3, "c", "D", "#D", 0.4, "E4");
+        Predictions next = new Predictions(new User("user"), sut.getProject());
+        next.putPredictions(layer.getId(), asList(replacement));
+        next.putInputs("doc1", 1L, 101L, 1L);
+
+        sut.replacePredictions(next, "doc1");
+
+        assertThat(sut.getPredictionsByDocument("doc1")).containsExactly(replacement);
+        assertThat(sut.getPredictionsByRecommender(buildRecommender(2L))).isEmpty();
+        assertThat(sut.getPredictionByVID(doc1, rec2Doc1.getVID())).isEmpty();
+        assertThat(sut.isUpToDate("doc1", 1L, 101L, 1L)).isTrue();
+        assertThat(sut.isUpToDate("doc1", 1L, 100L, 1L)).isFalse();
+
+        // Other documents are not affected
+        assertThat(sut.getPredictionsByDocument("doc2")).containsExactly(rec1Doc2);
+        assertThat(sut.isUpToDate("doc2", 1L, 100L, 1L)).isTrue();
+    }
+
+    @Test
+    public void thatPredictionsAreStoredCompactly()
+    {
+        String[] labels = { "PER", "LOC", "ORG", "MISC" };
+        List<AnnotationSuggestion> suggestions = new ArrayList<>();
+        for (int doc = 0; doc < 10; doc++) {
+            for (int rec = 1; rec <= 2; rec++) {
+                for (int i = 0; i < 500; i++) {
+                    String label = labels[i % labels.length];
+                    suggestions.add(new SimpleAnnotationSuggestion(i, rec, "rec" + rec, 1,
+                            "value", "doc" + doc, i * 10, i * 10 + 5, "token" + i, label, label,
+                            0.5, null));
+                }
+            }
+        }
+
+        Predictions predictions = new Predictions(new User("user"), sut.getProject());
+        predictions.putPredictions(layer.getId(), suggestions);
+
+        assertThat(predictions.getPredictionsByDocument("doc0")).hasSize(1000);
+
+        // Strings are not counted since they are shared in both cases
+        long plainSize = ObjectSizeEstimator.sizeOf(new ArrayList<>(suggestions));
+        long size = ObjectSizeEstimator.sizeOf(predictions);
+        assertThat(size).isLessThan(plainSize / 2);
+        assertThat(size / suggestions.size()).isLessThan(48);
+    }
+
+    private Recommender buildRecommender(long aId)
+    {
+        Recommender recommender = new Recommender();
+        recommender.setId(aId);
+        return recommender;
+    }
+}
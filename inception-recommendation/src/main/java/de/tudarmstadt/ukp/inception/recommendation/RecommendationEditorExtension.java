@@ -60,6 +60,7 @@ import de.tudarmstadt.ukp.inception.recommendation.api.LearningRecordService;
 import de.tudarmstadt.ukp.inception.recommendation.api.RecommendationService;
 import de.tudarmstadt.ukp.inception.recommendation.api.model.AnnotationSuggestion;
 import de.tudarmstadt.ukp.inception.recommendation.api.model.Predictions;
+import de.tudarmstadt.ukp.inception.recommendation.api.model.PredictionsDelta;
 import de.tudarmstadt.ukp.inception.recommendation.api.model.Recommender;
 import de.tudarmstadt.ukp.inception.recommendation.event.AjaxRecommendationAcceptedEvent;
 import de.tudarmstadt.ukp.inception.recommendation.event.AjaxRecommendationRejectedEvent;
@@ -260,16 +261,17 @@ public class RecommendationEditorExtension
         // at the moment. For another, even if we had it, it would be quite annoying to the user
         // if the UI kept updating itself without any the user expecting an update. The user does
         // expect an update when she makes some interaction, so we piggy-back on this expectation.
-        boolean switched = recommendationService.switchPredictions(aState.getUser(),
-                aState.getProject());
+        Optional<PredictionsDelta> delta = recommendationService
+                .switchPredictions(aState.getUser(), aState.getProject());
 
         // Notify other UI components on the page about the prediction switch such that they can
-        // also update their state to remain in sync with the new predictions
-        if (switched) {
+        // also update their state to remain in sync with the new predictions. The delta allows
+        // them to skip updates if the suggestions they show have not changed.
+        if (delta.isPresent()) {
             RequestCycle.get().find(AjaxRequestTarget.class)
                     .ifPresent(_target -> _target.getPage().send(_target.getPage(),
-                            Broadcast.BREADTH,
-                            new PredictionsSwitchedEvent(_target, aCas, aState, aVDoc)));
+                            Broadcast.BREADTH, new PredictionsSwitchedEvent(_target, aCas,
+                                    aState, aVDoc, delta.get())));
         }
 
         // Add the suggestions to the visual document
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2019
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.recommendation.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties("inception.recommendation")
+public class RecommendationProperties
+{
+    private int numberOfPredictionThreads = 2;
+    private int predictionBatchSize = 4;
+    private int predictionChunkSize = 50;
+    private long casSnapshotCacheSize = 5_000_000;
+    private boolean modelSnapshotsEnabled = true;
+    private int numberOfRecommenderThreads = 2;
+    private int recommenderParallelism = 2;
+    private long learningRecordWriteInterval = 1_000;
+    private int learningRecordBatchSize = 100;
+    private long recommendationStateCacheSize = 1_000;
+    private long recommendationStateIdleTimeout = 1_800;
+    private int performanceHistorySize = 50;
+
+    public int getNumberOfPredictionThreads()
+    {
+        return numberOfPredictionThreads;
+    }
+
+    public void setNumberOfPredictionThreads(int aNumberOfPredictionThreads)
+    {
+        numberOfPredictionThreads = aNumberOfPredictionThreads;
+    }
+
+    public int getPredictionBatchSize()
+    {
+        return predictionBatchSize;
+    }
+
+    public void setPredictionBatchSize(int aPredictionBatchSize)
+    {
+        predictionBatchSize = aPredictionBatchSize;
+    }
+
+    public int getPredictionChunkSize()
+    {
+        return predictionChunkSize;
+    }
+
+    public void setPredictionChunkSize(int aPredictionChunkSize)
+    {
+        predictionChunkSize = aPredictionChunkSize;
+    }
+
+    public long getCasSnapshotCacheSize()
+    {
+        return casSnapshotCacheSize;
+    }
+
+    public void setCasSnapshotCacheSize(long aCasSnapshotCacheSize)
+    {
+        casSnapshotCacheSize = aCasSnapshotCacheSize;
+    }
+
+    public boolean isModelSnapshotsEnabled()
+    {
+        return modelSnapshotsEnabled;
+    }
+
+    public void setModelSnapshotsEnabled(boolean aModelSnapshotsEnabled)
+    {
+        modelSnapshotsEnabled = aModelSnapshotsEnabled;
+    }
+
+    public int getNumberOfRecommenderThreads()
+    {
+        return numberOfRecommenderThreads;
+    }
+
+    public void setNumberOfRecommenderThreads(int aNumberOfRecommenderThreads)
+    {
+        numberOfRecommenderThreads = aNumberOfRecommenderThreads;
+    }
+
+    public int getRecommenderParallelism()
+    {
+        return recommenderParallelism;
+    }
+
+    public void setRecommenderParallelism(int aRecommenderParallelism)
+    {
+        recommenderParallelism = aRecommenderParallelism;
+    }
+
+    public long getLearningRecordWriteInterval()
+    {
+        return learningRecordWriteInterval;
+    }
+
+    public void setLearningRecordWriteInterval(long aLearningRecordWriteInterval)
+    {
+        learningRecordWriteInterval = aLearningRecordWriteInterval;
+    }
+
+    public int getLearningRecordBatchSize()
+    {
+        return learningRecordBatchSize;
+    }
+
+    public void setLearningRecordBatchSize(int aLearningRecordBatchSize)
+    {
+        learningRecordBatchSize = aLearningRecordBatchSize;
+    }
+
+    public long getRecommendationStateCacheSize()
+    {
+        return recommendationStateCacheSize;
+    }
+
+    public void setRecommendationStateCacheSize(long aRecommendationStateCacheSize)
+    {
+        recommendationStateCacheSize = aRecommendationStateCacheSize;
+    }
+
+    public long getRecommendationStateIdleTimeout()
+    {
+        return recommendationStateIdleTimeout;
+    }
+
+    public void setRecommendationStateIdleTimeout(long aRecommendationStateIdleTimeout)
+    {
+        recommendationStateIdleTimeout = aRecommendationStateIdleTimeout;
+    }
+
+    public int getPerformanceHistorySize()
+    {
+        return performanceHistorySize;
+    }
+
+    public void setPerformanceHistorySize(int aPerformanceHistorySize)
+    {
+        performanceHistorySize = aPerformanceHistorySize;
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2019
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.recommendation.event;
+
+import java.util.Set;
+
+import org.springframework.context.ApplicationEvent;
+
+import de.tudarmstadt.ukp.clarin.webanno.model.Project;
+
+/**
+ * Published when new predictions for a user have been computed and are waiting to be activated.
+ */
+public class PredictionsReadyEvent
+    extends ApplicationEvent
+{
+    private static final long serialVersionUID = -6314722961850683346L;
+
+    private final String user;
+    private final Project project;
+    private final Set<String> documentNames;
+
+    public PredictionsReadyEvent(Object aSource, String aUser, Project aProject,
+            Set<String> aDocumentNames)
+    {
+        super(aSource);
+
+        user = aUser;
+        project = aProject;
+        documentNames = aDocumentNames;
+    }
+
+    public String getUser()
+    {
+        return user;
+    }
+
+    public Project getProject()
+    {
+        return project;
+    }
+
+    /**
+     * @return the names of the documents on which the predictions have changed.
+     */
+    public Set<String> getDocumentNames()
+    {
+        return documentNames;
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder builder = new StringBuilder();
+        builder.append("PredictionsReadyEvent [user=");
+        builder.append(user);
+        builder.append(", project=");
+        builder.append(project);
+        builder.append(", documentNames=");
+        builder.append(documentNames);
+        builder.append("]");
+        return builder.toString();
+    }
+}
@@ -22,6 +22,7 @@ import org.apache.wicket.core.request.handler.IPartialPageRequestHandler;
 
 import de.tudarmstadt.ukp.clarin.webanno.api.annotation.model.AnnotatorState;
 import de.tudarmstadt.ukp.clarin.webanno.api.annotation.rendering.model.VDocument;
+import de.tudarmstadt.ukp.inception.recommendation.api.model.PredictionsDelta;
 
 public class PredictionsSwitchedEvent
 {
@@ -29,14 +30,16 @@ public class PredictionsSwitchedEvent
     private final CAS cas;
     private final AnnotatorState state;
     private final VDocument vdoc;
+    private final PredictionsDelta delta;
 
     public PredictionsSwitchedEvent(IPartialPageRequestHandler aTarget, CAS aCas,
-            AnnotatorState aState, VDocument aVDoc)
+            AnnotatorState aState, VDocument aVDoc, PredictionsDelta aDelta)
     {
         requestHandler = aTarget;
         cas = aCas;
         state = aState;
         vdoc = aVDoc;
+        delta = aDelta;
     }
 
     public IPartialPageRequestHandler getRequestHandler()
@@ -58,4 +61,12 @@ public class PredictionsSwitchedEvent
     {
         return vdoc;
     }
+
+    /**
+     * @return the changes between the previously active and the new predictions.
+     */
+    public PredictionsDelta getDelta()
+    {
+        return delta;
+    }
 }
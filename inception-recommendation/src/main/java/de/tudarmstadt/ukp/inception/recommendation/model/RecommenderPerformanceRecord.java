@@ -0,0 +1,152 @@
+/*
+ * Copyright 2019
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.recommendation.model;
+
+import java.io.Serializable;
+
+/**
+ * A single measurement of the work a recommender has done for a user, i.e. training the
+ * recommender, evaluating it or computing predictions with it.
+ */
+public class RecommenderPerformanceRecord
+    implements Serializable
+{
+    private static final long serialVersionUID = -2858911702155357217L;
+
+    /**
+     * Value of {@link #getMaxDocumentDuration()} if the time spent on individual documents was not
+     * measured.
+     */
+    public static final long NOT_MEASURED = -1;
+
+    public enum Activity
+    {
+        TRAINING, EVALUATION, PREDICTION
+    }
+
+    private final Activity activity;
+    private final String user;
+    private final long timestamp;
+    private final long duration;
+    private final int documents;
+    private final long maxDocumentDuration;
+    private final int peakCasCount;
+    private final int suggestions;
+
+    public RecommenderPerformanceRecord(Activity aActivity, String aUser, long aTimestamp,
+            long aDuration, int aDocuments, long aMaxDocumentDuration, int aPeakCasCount,
+            int aSuggestions)
+    {
+        activity = aActivity;
+        user = aUser;
+        timestamp = aTimestamp;
+        duration = aDuration;
+        documents = aDocuments;
+        maxDocumentDuration = aMaxDocumentDuration;
+        peakCasCount = aPeakCasCount;
+        suggestions = aSuggestions;
+    }
+
+    public Activity getActivity()
+    {
+        return activity;
+    }
+
+    public String getUser()
+    {
+        return user;
+    }
+
+    /**
+     * @return the time at which the activity finished in milliseconds since the epoch.
+     */
+    public long getTimestamp()
+    {
+        return timestamp;
+    }
+
+    /**
+     * @return the wall-clock duration of the activity in milliseconds. Documents may have been
+     *         processed in parallel during this time.
+     */
+    public long getDuration()
+    {
+        return duration;
+    }
+
+    public int getDocuments()
+    {
+        return documents;
+    }
+
+    /**
+     * @return the duration of the activity divided by the number of documents in milliseconds.
+     */
+    public long getAverageDocumentDuration()
+    {
+        return documents > 0 ? duration / documents : 0;
+    }
+
+    /**
+     * @return the longest time spent on a single document in milliseconds or
+     *         {@link #NOT_MEASURED}. Only measured for predictions of documents which were not
+     *         processed together with other documents.
+     */
+    public long getMaxDocumentDuration()
+    {
+        return maxDocumentDuration;
+    }
+
+    /**
+     * @return the largest number of CASes the activity held in memory at the same time.
+     */
+    public int getPeakCasCount()
+    {
+        return peakCasCount;
+    }
+
+    /**
+     * @return the number of suggestions produced. Only counted for predictions.
+     */
+    public int getSuggestions()
+    {
+        return suggestions;
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder builder = new StringBuilder();
+        builder.append("RecommenderPerformanceRecord [activity=");
+        builder.append(activity);
+        builder.append(", user=");
+        builder.append(user);
+        builder.append(", duration=");
+        builder.append(duration);
+        builder.append(", documents=");
+        builder.append(documents);
+        builder.append(", maxDocumentDuration=");
+        builder.append(maxDocumentDuration);
+        builder.append(", peakCasCount=");
+        builder.append(peakCasCount);
+        builder.append(", suggestions=");
+        builder.append(suggestions);
+        builder.append("]");
+        return builder.toString();
+    }
+}
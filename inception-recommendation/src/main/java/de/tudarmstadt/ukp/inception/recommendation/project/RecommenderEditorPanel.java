@@ -96,6 +96,7 @@ public class RecommenderEditorPanel
     private static final String MID_ALWAYS_SELECTED = "alwaysSelected";
     private static final String MID_TOOL = "tool";
     private static final String MID_ACTIVATION_CONTAINER = "activationContainer";
+    private static final String MID_PERFORMANCE = "performance";
 
     private @SpringBean RecommendationService recommendationService;
     private @SpringBean AnnotationSchemaService annotationSchemaService;
@@ -312,6 +313,9 @@ public class RecommenderEditorPanel
         form.add(traitsContainer = new WebMarkupContainer(MID_TRAITS_CONTAINER));
         traitsContainer.setOutputMarkupPlaceholderTag(true);
         traitsContainer.add(new EmptyPanel(MID_TRAITS));
+
+        form.add(new RecommenderPerformancePanel(MID_PERFORMANCE, recommenderModel)
+                .add(visibleWhen(() -> form.getModelObject().getId() != null)));
     }
 
     private void autoUpdateName(AjaxRequestTarget aTarget, TextField<String> aField,
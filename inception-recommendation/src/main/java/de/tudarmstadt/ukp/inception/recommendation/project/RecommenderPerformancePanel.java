@@ -0,0 +1,99 @@
+/*
+ * Copyright 2019
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.recommendation.project;
+
+import static de.tudarmstadt.ukp.clarin.webanno.support.lambda.LambdaBehavior.visibleWhen;
+import static de.tudarmstadt.ukp.inception.recommendation.model.RecommenderPerformanceRecord.Activity.PREDICTION;
+import static de.tudarmstadt.ukp.inception.recommendation.model.RecommenderPerformanceRecord.NOT_MEASURED;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+import org.apache.wicket.markup.html.WebMarkupContainer;
+import org.apache.wicket.markup.html.basic.Label;
+import org.apache.wicket.markup.html.list.ListItem;
+import org.apache.wicket.markup.html.list.ListView;
+import org.apache.wicket.markup.html.panel.Panel;
+import org.apache.wicket.model.IModel;
+import org.apache.wicket.model.LoadableDetachableModel;
+import org.apache.wicket.model.ResourceModel;
+import org.apache.wicket.spring.injection.annot.SpringBean;
+
+import de.tudarmstadt.ukp.inception.recommendation.api.model.Recommender;
+import de.tudarmstadt.ukp.inception.recommendation.model.RecommenderPerformanceRecord;
+import de.tudarmstadt.ukp.inception.recommendation.service.RecommenderPerformanceHistory;
+
+/**
+ * Shows the most recent training, evaluation and prediction times of a recommender.
+ */
+public class RecommenderPerformancePanel
+    extends Panel
+{
+    private static final long serialVersionUID = 4392657186011863525L;
+
+    private static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter
+            .ofPattern("yyyy-MM-dd HH:mm:ss").withZone(ZoneId.systemDefault());
+
+    private static final String MID_RECORDS = "records";
+    private static final String MID_EMPTY = "empty";
+    private static final String MID_TABLE = "table";
+
+    private @SpringBean RecommenderPerformanceHistory performanceHistory;
+
+    public RecommenderPerformancePanel(String aId, IModel<Recommender> aRecommender)
+    {
+        super(aId, aRecommender);
+
+        IModel<List<RecommenderPerformanceRecord>> records = LoadableDetachableModel
+                .of(() -> performanceHistory.getHistory(aRecommender.getObject()));
+
+        WebMarkupContainer table = new WebMarkupContainer(MID_TABLE);
+        table.add(new ListView<RecommenderPerformanceRecord>(MID_RECORDS, records)
+        {
+            private static final long serialVersionUID = -2170683738125213466L;
+
+            @Override
+            protected void populateItem(ListItem<RecommenderPerformanceRecord> aItem)
+            {
+                RecommenderPerformanceRecord record = aItem.getModelObject();
+                aItem.add(new Label("timestamp",
+                        TIMESTAMP_FORMAT.format(Instant.ofEpochMilli(record.getTimestamp()))));
+                aItem.add(new Label("user", record.getUser()));
+                aItem.add(new Label("activity",
+                        new ResourceModel("activity." + record.getActivity().name())));
+                aItem.add(new Label("duration", record.getDuration()));
+                aItem.add(new Label("documents", record.getDocuments()));
+                aItem.add(new Label("averageDocumentDuration",
+                        record.getAverageDocumentDuration()));
+                aItem.add(new Label("maxDocumentDuration",
+                        record.getMaxDocumentDuration() != NOT_MEASURED
+                                ? String.valueOf(record.getMaxDocumentDuration()) : "-"));
+                aItem.add(new Label("peakCasCount", record.getPeakCasCount()));
+                aItem.add(new Label("suggestions", record.getActivity() == PREDICTION
+                        ? String.valueOf(record.getSuggestions()) : "-"));
+            }
+        });
+        table.add(visibleWhen(() -> !records.getObject().isEmpty()));
+        add(table);
+
+        add(new Label(MID_EMPTY, new ResourceModel("noRecords"))
+                .add(visibleWhen(() -> records.getObject().isEmpty())));
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2019
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.recommendation.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.uima.UIMAException;
+import org.apache.uima.cas.CAS;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import de.tudarmstadt.ukp.clarin.webanno.api.AnnotationSchemaService;
+import de.tudarmstadt.ukp.clarin.webanno.api.DocumentService;
+import de.tudarmstadt.ukp.clarin.webanno.model.SourceDocument;
+import de.tudarmstadt.ukp.inception.recommendation.config.RecommendationProperties;
+
+/**
+ * Shares the annotation CASes read by the training, selection and prediction tasks, so that a
+ * recommendation cycle reads each document only once. The CASes are keyed by the timestamp of the
+ * annotation CAS on disk, i.e. a CAS is read again as soon as it has been saved. The cached CASes
+ * are shared between tasks and threads and <b>must not be modified</b>.
+ * <p>
+ * The size of the cache is bounded by the total length of the document texts of the cached CASes
+ * (cf. {@link RecommendationProperties#getCasSnapshotCacheSize()}).
+ */
+@Component
+public class CasSnapshotCache
+{
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    private final DocumentService documentService;
+    private final AnnotationSchemaService annoService;
+
+    private final Cache<Key, CAS> snapshots;
+
+    @Autowired
+    public CasSnapshotCache(DocumentService aDocumentService,
+            AnnotationSchemaService aAnnoService, RecommendationProperties aProperties)
+    {
+        documentService = aDocumentService;
+        annoService = aAnnoService;
+
+        snapshots = Caffeine.newBuilder()
+                .maximumWeight(aProperties.getCasSnapshotCacheSize())
+                .weigher((Key key, CAS cas) -> cas.getDocumentText() != null
+                        ? Math.max(1, cas.getDocumentText().length()) : 1)
+                .expireAfterAccess(10, TimeUnit.MINUTES)
+                .build();
+    }
+
+    /**
+     * Returns the annotation CAS of the given user for the given document, upgraded to the current
+     * project type system. If the CAS has not changed since it was last read, the cached snapshot
+     * is returned.
+     *
+     * @param aDocument
+     *            the document.
+     * @param aUsername
+     *            the annotator.
+     * @return the CAS. It must not be modified.
+     * @throws IOException
+     *             if the CAS cannot be read or upgraded.
+     */
+    public CAS getSnapshot(SourceDocument aDocument, String aUsername) throws IOException
+    {
+        Optional<Long> timestamp = documentService.getAnnotationCasTimestamp(aDocument,
+                aUsername);
+
+        // If there is no annotation CAS yet, reading it may create it. We do not cache it since
+        // that would change the timestamp anyway.
+        if (!timestamp.isPresent()) {
+            return readCas(aDocument, aUsername);
+        }
+
+        Key key = new Key(aDocument.getId(), aUsername, timestamp.get());
+        try {
+            return snapshots.get(key, k -> {
+                try {
+                    return readCas(aDocument, aUsername);
+                }
+                catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+        catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private CAS readCas(SourceDocument aDocument, String aUsername) throws IOException
+    {
+        log.trace("[{}]: Reading annotation CAS snapshot for document [{}]({})", aUsername,
+                aDocument.getName(), aDocument.getId());
+
+        CAS cas = documentService.readAnnotationCas(aDocument, aUsername);
+        try {
+            annoService.upgradeCasIfRequired(cas, aDocument);
+        }
+        catch (UIMAException e) {
+            throw new IOException("Cannot upgrade annotation CAS", e);
+        }
+        return cas;
+    }
+
+    private static final class Key
+    {
+        private final long documentId;
+        private final String username;
+        private final long timestamp;
+
+        public Key(long aDocumentId, String aUsername, long aTimestamp)
+        {
+            documentId = aDocumentId;
+            username = aUsername;
+            timestamp = aTimestamp;
+        }
+
+        @Override
+        public boolean equals(Object aOther)
+        {
+            if (this == aOther) {
+                return true;
+            }
+            if (!(aOther instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) aOther;
+            return documentId == other.documentId && timestamp == other.timestamp
+                    && username.equals(other.username);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(documentId, username, timestamp);
+        }
+    }
+}
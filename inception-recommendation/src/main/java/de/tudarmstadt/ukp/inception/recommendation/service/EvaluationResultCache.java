@@ -0,0 +1,166 @@
+/*
+ * Copyright 2019
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.recommendation.service;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import de.tudarmstadt.ukp.clarin.webanno.api.DocumentService;
+import de.tudarmstadt.ukp.clarin.webanno.model.Project;
+import de.tudarmstadt.ukp.clarin.webanno.model.SourceDocument;
+import de.tudarmstadt.ukp.inception.recommendation.api.evaluation.EvaluationResult;
+import de.tudarmstadt.ukp.inception.recommendation.api.model.Recommender;
+
+/**
+ * Remembers the evaluation results of the recommenders, so that a recommender does not need to be
+ * evaluated again as long as neither the annotations of the user nor the settings of the
+ * recommender have changed. The annotations are identified by the timestamps of the annotation
+ * CASes of the user (cf. {@link #getDataFingerprint}).
+ */
+@Component
+public class EvaluationResultCache
+{
+    private static final int MAX_ENTRIES = 1_000;
+
+    private final DocumentService documentService;
+
+    private final Cache<Key, EvaluationResult> results;
+
+    @Autowired
+    public EvaluationResultCache(DocumentService aDocumentService)
+    {
+        documentService = aDocumentService;
+
+        results = Caffeine.newBuilder()
+                .maximumSize(MAX_ENTRIES)
+                .expireAfterAccess(1, TimeUnit.HOURS)
+                .build();
+    }
+
+    /**
+     * Captures the state of the annotations of the given user in the given project. This must be
+     * obtained <b>before</b> reading the CASes used for the evaluation, so that changes made in the
+     * meantime lead to a different fingerprint the next time.
+     */
+    public DataFingerprint getDataFingerprint(Project aProject, String aUsername)
+    {
+        Map<Long, Long> timestamps = new HashMap<>();
+        for (SourceDocument document : documentService.listSourceDocuments(aProject)) {
+            long timestamp;
+            try {
+                // Documents without an annotation CAS yet are represented by their initial CAS
+                timestamp = documentService.getAnnotationCasTimestamp(document, aUsername)
+                        .orElse(-1L);
+            }
+            catch (IOException e) {
+                timestamp = -1L;
+            }
+            timestamps.put(document.getId(), timestamp);
+        }
+        return new DataFingerprint(timestamps);
+    }
+
+    public Optional<EvaluationResult> get(String aUsername, Recommender aRecommender,
+            DataFingerprint aData)
+    {
+        return Optional.ofNullable(results.getIfPresent(new Key(aUsername, aRecommender, aData)));
+    }
+
+    public void put(String aUsername, Recommender aRecommender, DataFingerprint aData,
+            EvaluationResult aResult)
+    {
+        results.put(new Key(aUsername, aRecommender, aData), aResult);
+    }
+
+    /**
+     * The timestamps of the annotation CASes of a user by document ID.
+     */
+    public static final class DataFingerprint
+    {
+        private final Map<Long, Long> timestamps;
+
+        private DataFingerprint(Map<Long, Long> aTimestamps)
+        {
+            timestamps = aTimestamps;
+        }
+
+        @Override
+        public boolean equals(Object aOther)
+        {
+            if (this == aOther) {
+                return true;
+            }
+            if (!(aOther instanceof DataFingerprint)) {
+                return false;
+            }
+            return timestamps.equals(((DataFingerprint) aOther).timestamps);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return timestamps.hashCode();
+        }
+    }
+
+    private static final class Key
+    {
+        private final String username;
+        private final long recommenderId;
+        private final String configuration;
+        private final DataFingerprint data;
+
+        public Key(String aUsername, Recommender aRecommender, DataFingerprint aData)
+        {
+            username = aUsername;
+            recommenderId = aRecommender.getId();
+            configuration = ModelSnapshotServiceImpl.getConfigurationSignature(aRecommender);
+            data = aData;
+        }
+
+        @Override
+        public boolean equals(Object aOther)
+        {
+            if (this == aOther) {
+                return true;
+            }
+            if (!(aOther instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) aOther;
+            return recommenderId == other.recommenderId && username.equals(other.username)
+                    && configuration.equals(other.configuration) && data.equals(other.data);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(username, recommenderId, configuration, data);
+        }
+    }
+}
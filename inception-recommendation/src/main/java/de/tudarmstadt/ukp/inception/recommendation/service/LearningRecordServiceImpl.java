@@ -17,15 +17,41 @@
  */
 package de.tudarmstadt.ukp.inception.recommendation.service;
 
+import static de.tudarmstadt.ukp.inception.recommendation.api.model.LearningRecordType.SHOWN;
+import static de.tudarmstadt.ukp.inception.recommendation.api.model.LearningRecordType.SKIPPED;
+import static java.util.Collections.emptyList;
+import static org.springframework.transaction.TransactionDefinition.PROPAGATION_REQUIRES_NEW;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 import javax.persistence.TypedQuery;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.event.EventListener;
+import org.springframework.security.core.session.SessionDestroyedEvent;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 
 import de.tudarmstadt.ukp.clarin.webanno.api.event.AfterDocumentResetEvent;
 import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationFeature;
@@ -36,15 +62,85 @@ import de.tudarmstadt.ukp.inception.recommendation.api.LearningRecordService;
 import de.tudarmstadt.ukp.inception.recommendation.api.model.AnnotationSuggestion;
 import de.tudarmstadt.ukp.inception.recommendation.api.model.LearningRecord;
 import de.tudarmstadt.ukp.inception.recommendation.api.model.LearningRecordChangeLocation;
+import de.tudarmstadt.ukp.inception.recommendation.api.model.LearningRecordIndex;
 import de.tudarmstadt.ukp.inception.recommendation.api.model.LearningRecordType;
+import de.tudarmstadt.ukp.inception.recommendation.config.RecommendationProperties;
 
 @Component(LearningRecordService.SERVICE_NAME)
 public class LearningRecordServiceImpl
-    implements LearningRecordService
+    implements LearningRecordService, DisposableBean
 {
+    private static final int MAX_INDEXES = 1_000;
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
     @PersistenceContext
     private EntityManager entityManager;
 
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final ScheduledExecutorService writer;
+
+    // Logged records which have not been written to the database yet. Logging a record for the same
+    // suggestion again replaces the pending record, so only the last action is written.
+    private final Map<PendingKey, LearningRecord> pendingRecords = new LinkedHashMap<>();
+    // The records which are being written at the moment - guarded by pendingRecords
+    private List<LearningRecord> writingRecords = emptyList();
+    private final Object writeLock = new Object();
+
+    // The learning records are checked for every suggestion whenever the suggestions are rendered,
+    // so we keep them indexed in memory instead of querying them from the database every time
+    private final Cache<IndexKey, LearningRecordIndex> indexes = Caffeine.newBuilder()
+            .maximumSize(MAX_INDEXES)
+            .expireAfterAccess(1, TimeUnit.HOURS)
+            .build();
+
+    @Autowired
+    public LearningRecordServiceImpl(PlatformTransactionManager aTransactionManager,
+            RecommendationProperties aProperties)
+    {
+        transactionTemplate = new TransactionTemplate(aTransactionManager);
+        transactionTemplate.setPropagationBehavior(PROPAGATION_REQUIRES_NEW);
+        batchSize = Math.max(1, aProperties.getLearningRecordBatchSize());
+
+        long interval = aProperties.getLearningRecordWriteInterval();
+        if (interval > 0) {
+            writer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "Learning record writer");
+                thread.setDaemon(true);
+                return thread;
+            });
+            writer.scheduleWithFixedDelay(this::writePendingRecordsQuietly, interval, interval,
+                    TimeUnit.MILLISECONDS);
+        }
+        else {
+            writer = null;
+        }
+    }
+
+    public LearningRecordServiceImpl(EntityManager aEntityManager,
+            PlatformTransactionManager aTransactionManager, RecommendationProperties aProperties)
+    {
+        this(aTransactionManager, aProperties);
+
+        entityManager = aEntityManager;
+    }
+
+    @Override
+    public void destroy()
+    {
+        if (writer != null) {
+            writer.shutdownNow();
+        }
+        writePendingRecordsQuietly();
+    }
+
+    @EventListener
+    public void onSessionDestroyed(SessionDestroyedEvent aEvent)
+    {
+        writePendingRecordsQuietly();
+    }
+
     @Transactional
     @EventListener
     public void afterDocumentReset(AfterDocumentResetEvent aEvent) {
@@ -69,6 +165,106 @@ public class LearningRecordServiceImpl
             AnnotationSuggestion aSuggestion, String aAlternativeLabel, AnnotationLayer aLayer,
             AnnotationFeature aFeature, LearningRecordType aUserAction, 
             LearningRecordChangeLocation aLocation)
+    {
+        LearningRecord record = new LearningRecord();
+        record.setUser(aUsername);
+        record.setSourceDocument(aDocument);
+        record.setUserAction(aUserAction);
+        record.setOffsetCharacterBegin(aSuggestion.getBegin());
+        record.setOffsetCharacterEnd(aSuggestion.getEnd());
+        record.setOffsetTokenBegin(-1);
+        record.setOffsetTokenEnd(-1);
+        record.setTokenText(aSuggestion.getCoveredText());
+        record.setAnnotation(aAlternativeLabel);
+        record.setLayer(aLayer);
+        record.setChangeLocation(aLocation);
+        record.setAnnotationFeature(aFeature);
+
+        if (writer == null) {
+            writeRecord(record);
+            updateLoadedIndex(record, index -> index.put(record));
+            return;
+        }
+
+        // Users often click through many suggestions in a short time, so we do not write the
+        // record right away but collect them and write them together later. The index is updated
+        // immediately, so the suggestion is hidden right away.
+        boolean batchComplete;
+        synchronized (pendingRecords) {
+            PendingKey key = new PendingKey(record);
+            pendingRecords.remove(key);
+            pendingRecords.put(key, record);
+            batchComplete = pendingRecords.size() >= batchSize;
+        }
+        updateLoadedIndex(record, index -> index.put(record));
+
+        if (batchComplete) {
+            writer.execute(this::writePendingRecordsQuietly);
+        }
+    }
+
+    /**
+     * Writes the records which have been logged but not written to the database yet.
+     */
+    public void writePendingRecords()
+    {
+        synchronized (writeLock) {
+            List<LearningRecord> batch;
+            synchronized (pendingRecords) {
+                if (pendingRecords.isEmpty()) {
+                    return;
+                }
+                batch = new ArrayList<>(pendingRecords.values());
+                pendingRecords.clear();
+                writingRecords = batch;
+            }
+
+            try {
+                long start = System.currentTimeMillis();
+                transactionTemplate.execute(status -> {
+                    batch.forEach(this::writeRecord);
+                    return null;
+                });
+                log.debug("Wrote {} learning records ({}ms)", batch.size(),
+                        System.currentTimeMillis() - start);
+            }
+            catch (RuntimeException e) {
+                // E.g. the document of a record may have been deleted in the meantime. We do not
+                // want to lose the other records because of that, so we write them one by one.
+                log.warn("Unable to write {} learning records together - writing them one by one",
+                        batch.size(), e);
+                for (LearningRecord record : batch) {
+                    try {
+                        record.setId(null);
+                        transactionTemplate.execute(status -> {
+                            writeRecord(record);
+                            return null;
+                        });
+                    }
+                    catch (RuntimeException ex) {
+                        log.error("Unable to write learning record {}", record, ex);
+                    }
+                }
+            }
+            finally {
+                synchronized (pendingRecords) {
+                    writingRecords = emptyList();
+                }
+            }
+        }
+    }
+
+    private void writePendingRecordsQuietly()
+    {
+        try {
+            writePendingRecords();
+        }
+        catch (Exception e) {
+            log.error("Unable to write learning records", e);
+        }
+    }
+
+    private void writeRecord(LearningRecord aRecord)
     {
         // It doesn't make any sense at all to have duplicate entries in the learning history,
         // so when adding a new entry, we dump any existing entries which basically are the
@@ -85,30 +281,49 @@ public class LearningRecordServiceImpl
                 "annotationFeature = :annotationFeature AND",
                 "annotation = :annotation");
         entityManager.createQuery(query)
-                .setParameter("user", aUsername)
-                .setParameter("sourceDocument", aDocument)
-                .setParameter("offsetCharacterBegin", aSuggestion.getBegin())
-                .setParameter("offsetCharacterEnd", aSuggestion.getEnd())
-                .setParameter("layer", aLayer)
-                .setParameter("annotationFeature", aFeature)
-                .setParameter("annotation", aAlternativeLabel)
+                .setParameter("user", aRecord.getUser())
+                .setParameter("sourceDocument", aRecord.getSourceDocument())
+                .setParameter("offsetCharacterBegin", aRecord.getOffsetCharacterBegin())
+                .setParameter("offsetCharacterEnd", aRecord.getOffsetCharacterEnd())
+                .setParameter("layer", aRecord.getLayer())
+                .setParameter("annotationFeature", aRecord.getAnnotationFeature())
+                .setParameter("annotation", aRecord.getAnnotation())
                 .executeUpdate();
-        
-        LearningRecord record = new LearningRecord();
-        record.setUser(aUsername);
-        record.setSourceDocument(aDocument);
-        record.setUserAction(aUserAction);
-        record.setOffsetCharacterBegin(aSuggestion.getBegin());
-        record.setOffsetCharacterEnd(aSuggestion.getEnd());
-        record.setOffsetTokenBegin(-1);
-        record.setOffsetTokenEnd(-1);
-        record.setTokenText(aSuggestion.getCoveredText());
-        record.setAnnotation(aAlternativeLabel);
-        record.setLayer(aLayer);
-        record.setChangeLocation(aLocation);
-        record.setAnnotationFeature(aFeature);
 
-        create(record);
+        entityManager.persist(aRecord);
+        entityManager.flush();
+    }
+
+    /**
+     * @return the records of the given user and layer which have not been written to the database
+     *         yet, the most recent record first.
+     */
+    private List<LearningRecord> getUnwrittenRecords(String aUsername, AnnotationLayer aLayer)
+    {
+        List<LearningRecord> records = new ArrayList<>();
+        synchronized (pendingRecords) {
+            if (pendingRecords.isEmpty() && writingRecords.isEmpty()) {
+                return records;
+            }
+
+            Map<PendingKey, LearningRecord> unwritten = new LinkedHashMap<>();
+            for (LearningRecord record : writingRecords) {
+                unwritten.put(new PendingKey(record), record);
+            }
+            for (Map.Entry<PendingKey, LearningRecord> e : pendingRecords.entrySet()) {
+                unwritten.remove(e.getKey());
+                unwritten.put(e.getKey(), e.getValue());
+            }
+
+            for (LearningRecord record : unwritten.values()) {
+                if (Objects.equals(record.getUser(), aUsername)
+                        && Objects.equals(record.getLayer().getId(), aLayer.getId())) {
+                    records.add(record);
+                }
+            }
+        }
+        Collections.reverse(records);
+        return records;
     }
 
     @Transactional
@@ -129,7 +344,32 @@ public class LearningRecordServiceImpl
         if (aLimit > 0) {
             query = query.setMaxResults(aLimit);
         }
-        return query.getResultList();
+
+        List<LearningRecord> unwritten = getUnwrittenRecords(aUsername, aLayer);
+        if (unwritten.isEmpty()) {
+            return query.getResultList();
+        }
+
+        // The records which have not been written yet are the most recent ones. They replace any
+        // records for the same suggestions in the database, even if they are not returned
+        // themselves.
+        Set<PendingKey> replaced = new HashSet<>();
+        List<LearningRecord> records = new ArrayList<>();
+        for (LearningRecord record : unwritten) {
+            replaced.add(new PendingKey(record));
+            if (!SHOWN.equals(record.getUserAction())) {
+                records.add(record);
+            }
+        }
+        for (LearningRecord record : query.getResultList()) {
+            if (!replaced.contains(new PendingKey(record))) {
+                records.add(record);
+            }
+        }
+        if (aLimit > 0 && records.size() > aLimit) {
+            return new ArrayList<>(records.subList(0, aLimit));
+        }
+        return records;
     }
     
     @Transactional
@@ -140,6 +380,14 @@ public class LearningRecordServiceImpl
         return listRecords(aUsername, aLayer, 0);
     }
 
+    @Transactional
+    @Override
+    public LearningRecordIndex getRecordIndex(String aUsername, AnnotationLayer aLayer)
+    {
+        return indexes.get(new IndexKey(aUsername, aLayer),
+            key -> new LearningRecordIndex(listRecords(aUsername, aLayer)));
+    }
+
     @Transactional
     @Override
     public LearningRecord getRecordById(long recordId) {
@@ -153,33 +401,57 @@ public class LearningRecordServiceImpl
     @Transactional
     @Override
     public void deleteRecords(SourceDocument document, String user) {
+        writePendingRecords();
+
         String sql = "DELETE FROM LearningRecord l where l.sourceDocument = :document and l.user " +
             "= :user";
         entityManager.createQuery(sql)
             .setParameter("document", document)
             .setParameter("user",user)
             .executeUpdate();
+
+        Long projectId = document.getProject() != null ? document.getProject().getId() : null;
+        indexes.asMap().forEach((key, index) -> {
+            if (key.username.equals(user) && Objects.equals(key.projectId, projectId)) {
+                index.removeDocument(document.getName());
+            }
+        });
     }
 
     @Override
     @Transactional
     public void create(LearningRecord learningRecord) {
+        writePendingRecords();
+
         entityManager.persist(learningRecord);
         entityManager.flush();
+
+        updateLoadedIndex(learningRecord, index -> index.put(learningRecord));
     }
 
     @Override
     @Transactional
     public void update(LearningRecord learningRecord) {
+        writePendingRecords();
+
         entityManager.merge(learningRecord);
         entityManager.flush();
+
+        // The position or label of the record may have changed, so we cannot tell which entry of
+        // the index it replaces
+        indexes.invalidate(new IndexKey(learningRecord.getUser(), learningRecord.getLayer()));
     }
 
     @Override
     @Transactional
     public void delete(LearningRecord learningRecord) {
+        // Makes sure the record has been written if it was still pending
+        writePendingRecords();
+
         entityManager.remove(entityManager.contains(learningRecord) ? learningRecord :
             entityManager.merge(learningRecord));
+
+        updateLoadedIndex(learningRecord, index -> index.remove(learningRecord));
     }
 
     @Override
@@ -195,6 +467,11 @@ public class LearningRecordServiceImpl
     @Transactional
     public boolean hasSkippedSuggestions(User aUser, AnnotationLayer aLayer)
     {
+        if (getUnwrittenRecords(aUser.getUsername(), aLayer).stream()
+                .anyMatch(record -> SKIPPED.equals(record.getUserAction()))) {
+            return true;
+        }
+
         String sql = String.join("\n",
                 "SELECT COUNT(*) FROM LearningRecord WHERE",
                 "user = :user AND",
@@ -212,6 +489,8 @@ public class LearningRecordServiceImpl
     @Transactional
     public void deleteSkippedSuggestions(User aUser, AnnotationLayer aLayer)
     {
+        writePendingRecords();
+
         String sql = String.join("\n",
                 "DELETE FROM LearningRecord WHERE",
                 "user = :user AND",
@@ -222,5 +501,122 @@ public class LearningRecordServiceImpl
                 .setParameter("layer", aLayer)
                 .setParameter("action", LearningRecordType.SKIPPED)
                 .executeUpdate();
+
+        updateLoadedIndex(new IndexKey(aUser.getUsername(), aLayer),
+                index -> index.removeIf(record -> SKIPPED.equals(record.getUserAction())));
+    }
+
+    private void updateLoadedIndex(LearningRecord aRecord, Consumer<LearningRecordIndex> aUpdate)
+    {
+        if (aRecord.getUser() == null || aRecord.getLayer() == null) {
+            return;
+        }
+        updateLoadedIndex(new IndexKey(aRecord.getUser(), aRecord.getLayer()), aUpdate);
+    }
+
+    /**
+     * Applies the given update to the index if it has been loaded. If the index is being loaded at
+     * the moment, this waits until the load is complete. The load may have read the records
+     * before the update, so skipping the update would leave the index outdated until it expires.
+     * Mind that {@code computeIfPresent} does not wait for a load in progress - it returns right
+     * away if there is no index yet.
+     */
+    private void updateLoadedIndex(IndexKey aKey, Consumer<LearningRecordIndex> aUpdate)
+    {
+        indexes.asMap().compute(aKey, (key, index) -> {
+            if (index != null) {
+                aUpdate.accept(index);
+            }
+            return index;
+        });
+    }
+
+    /**
+     * Identifies the suggestion a record was logged for - there should be only one record for each
+     * suggestion in the learning history.
+     */
+    private static final class PendingKey
+    {
+        private final String username;
+        private final Long documentId;
+        private final int begin;
+        private final int end;
+        private final Long layerId;
+        private final Long featureId;
+        private final String label;
+
+        public PendingKey(LearningRecord aRecord)
+        {
+            username = aRecord.getUser();
+            documentId = aRecord.getSourceDocument() != null
+                    ? aRecord.getSourceDocument().getId()
+                    : null;
+            begin = aRecord.getOffsetCharacterBegin();
+            end = aRecord.getOffsetCharacterEnd();
+            layerId = aRecord.getLayer() != null ? aRecord.getLayer().getId() : null;
+            featureId = aRecord.getAnnotationFeature() != null
+                    ? aRecord.getAnnotationFeature().getId()
+                    : null;
+            label = aRecord.getAnnotation();
+        }
+
+        @Override
+        public boolean equals(Object aOther)
+        {
+            if (this == aOther) {
+                return true;
+            }
+            if (!(aOther instanceof PendingKey)) {
+                return false;
+            }
+            PendingKey other = (PendingKey) aOther;
+            return begin == other.begin && end == other.end
+                    && Objects.equals(username, other.username)
+                    && Objects.equals(documentId, other.documentId)
+                    && Objects.equals(layerId, other.layerId)
+                    && Objects.equals(featureId, other.featureId)
+                    && Objects.equals(label, other.label);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(username, documentId, begin, end, layerId, featureId, label);
+        }
+    }
+
+    private static final class IndexKey
+    {
+        private final String username;
+        private final Long projectId;
+        private final Long layerId;
+
+        public IndexKey(String aUsername, AnnotationLayer aLayer)
+        {
+            username = aUsername;
+            projectId = aLayer.getProject() != null ? aLayer.getProject().getId() : null;
+            layerId = aLayer.getId();
+        }
+
+        @Override
+        public boolean equals(Object aOther)
+        {
+            if (this == aOther) {
+                return true;
+            }
+            if (!(aOther instanceof IndexKey)) {
+                return false;
+            }
+            IndexKey other = (IndexKey) aOther;
+            return Objects.equals(username, other.username)
+                    && Objects.equals(projectId, other.projectId)
+                    && Objects.equals(layerId, other.layerId);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(username, projectId, layerId);
+        }
     }
 }
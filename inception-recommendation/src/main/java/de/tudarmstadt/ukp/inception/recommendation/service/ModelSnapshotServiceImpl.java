@@ -0,0 +1,207 @@
+/*
+ * Copyright 2019
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.recommendation.service;
+
+import static de.tudarmstadt.ukp.inception.recommendation.util.RepositoryUtil.encodeUsername;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import de.tudarmstadt.ukp.clarin.webanno.api.RepositoryProperties;
+import de.tudarmstadt.ukp.clarin.webanno.security.model.User;
+import de.tudarmstadt.ukp.inception.recommendation.api.ModelSnapshotService;
+import de.tudarmstadt.ukp.inception.recommendation.api.model.Recommender;
+import de.tudarmstadt.ukp.inception.recommendation.api.recommender.RecommendationEngine;
+import de.tudarmstadt.ukp.inception.recommendation.api.recommender.RecommenderContext;
+import de.tudarmstadt.ukp.inception.recommendation.config.RecommendationProperties;
+
+/**
+ * Stores the model snapshots as files in the repository, one file per user and recommender. Each
+ * file starts with a header describing the configuration of the recommender which was used to
+ * train the model. If the configuration has changed since, the snapshot is discarded.
+ */
+@Component(ModelSnapshotService.SERVICE_NAME)
+public class ModelSnapshotServiceImpl
+    implements ModelSnapshotService
+{
+    private static final int FORMAT_VERSION = 1;
+    private static final String SUFFIX = ".model";
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    private final RepositoryProperties repositoryProperties;
+    private final RecommendationProperties properties;
+
+    @Autowired
+    public ModelSnapshotServiceImpl(RepositoryProperties aRepositoryProperties,
+            RecommendationProperties aProperties)
+    {
+        repositoryProperties = aRepositoryProperties;
+        properties = aProperties;
+    }
+
+    @Override
+    public void saveSnapshot(User aUser, Recommender aRecommender, RecommendationEngine aEngine,
+            RecommenderContext aContext)
+        throws IOException
+    {
+        if (!properties.isModelSnapshotsEnabled() || !aEngine.isModelExportSupported()
+                || !aEngine.isReadyForPrediction(aContext)) {
+            return;
+        }
+
+        File file = getSnapshotFile(aUser, aRecommender);
+        Files.createDirectories(file.getParentFile().toPath());
+
+        // Write to a temporary file first so that a concurrent or later read never sees a
+        // partially written snapshot
+        Path tempFile = Files.createTempFile(file.getParentFile().toPath(), "snapshot", ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+                out.writeInt(FORMAT_VERSION);
+                out.writeUTF(aEngine.getClass().getName());
+                writeString(out, getConfigurationSignature(aRecommender));
+                aEngine.exportModel(aContext, out);
+            }
+
+            Files.move(tempFile, file.toPath(), REPLACE_EXISTING, ATOMIC_MOVE);
+        }
+        finally {
+            Files.deleteIfExists(tempFile);
+        }
+
+        log.debug("[{}][{}]: Saved model snapshot ({} bytes)", aUser.getUsername(),
+                aRecommender.getName(), file.length());
+    }
+
+    @Override
+    public Optional<RecommenderContext> loadSnapshot(User aUser, Recommender aRecommender,
+            RecommendationEngine aEngine)
+        throws IOException
+    {
+        if (!properties.isModelSnapshotsEnabled() || !aEngine.isModelExportSupported()) {
+            return Optional.empty();
+        }
+
+        File file = getSnapshotFile(aUser, aRecommender);
+        if (!file.exists()) {
+            return Optional.empty();
+        }
+
+        RecommenderContext context = new RecommenderContext();
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(file.toPath())))) {
+            if (in.readInt() != FORMAT_VERSION
+                    || !aEngine.getClass().getName().equals(in.readUTF())
+                    || !getConfigurationSignature(aRecommender).equals(readString(in))) {
+                log.debug("[{}][{}]: Model snapshot is outdated - discarding",
+                        aUser.getUsername(), aRecommender.getName());
+                Files.deleteIfExists(file.toPath());
+                return Optional.empty();
+            }
+
+            aEngine.importModel(context, in);
+        }
+
+        context.close();
+
+        if (!aEngine.isReadyForPrediction(context)) {
+            return Optional.empty();
+        }
+
+        log.debug("[{}][{}]: Restored model snapshot", aUser.getUsername(),
+                aRecommender.getName());
+
+        return Optional.of(context);
+    }
+
+    @Override
+    public void deleteSnapshots(Recommender aRecommender) throws IOException
+    {
+        Path folder = getSnapshotFolder(aRecommender).toPath();
+        if (!Files.exists(folder)) {
+            return;
+        }
+
+        try (Stream<Path> paths = Files.walk(folder)) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    private File getSnapshotFolder(Recommender aRecommender)
+    {
+        return repositoryProperties.getPath().toPath()
+                .resolve("project")
+                .resolve(String.valueOf(aRecommender.getProject().getId()))
+                .resolve("recommender")
+                .resolve(String.valueOf(aRecommender.getId()))
+                .toFile();
+    }
+
+    private File getSnapshotFile(User aUser, Recommender aRecommender)
+    {
+        return new File(getSnapshotFolder(aRecommender),
+                encodeUsername(aUser.getUsername()) + SUFFIX);
+    }
+
+    /**
+     * Describes all settings of the recommender which influence the trained model.
+     */
+    static String getConfigurationSignature(Recommender aRecommender)
+    {
+        return String.join("\n",
+                aRecommender.getTool(),
+                aRecommender.getLayer().getName(),
+                aRecommender.getFeature().getName(),
+                String.valueOf(aRecommender.getMaxRecommendations()),
+                String.valueOf(aRecommender.getTraits()));
+    }
+
+    private static void writeString(DataOutputStream aOut, String aValue) throws IOException
+    {
+        byte[] bytes = aValue.getBytes("UTF-8");
+        aOut.writeInt(bytes.length);
+        aOut.write(bytes);
+    }
+
+    private static String readString(DataInputStream aIn) throws IOException
+    {
+        byte[] bytes = new byte[aIn.readInt()];
+        aIn.readFully(bytes);
+        return new String(bytes, "UTF-8");
+    }
+}
@@ -0,0 +1,237 @@
+/*
+ * Copyright 2019
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.recommendation.service;
+
+import static de.tudarmstadt.ukp.inception.recommendation.api.RecommendationService.FEATURE_NAME_IS_PREDICTION;
+import static de.tudarmstadt.ukp.inception.recommendation.api.RecommendationService.FEATURE_NAME_SCORE_EXPLANATION_SUFFIX;
+import static de.tudarmstadt.ukp.inception.recommendation.api.RecommendationService.FEATURE_NAME_SCORE_SUFFIX;
+import static org.apache.uima.cas.impl.Serialization.serializeWithCompression;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import org.apache.uima.cas.CAS;
+import org.apache.uima.cas.TypeSystem;
+import org.apache.uima.resource.ResourceInitializationException;
+import org.apache.uima.resource.metadata.FeatureDescription;
+import org.apache.uima.resource.metadata.TypeDescription;
+import org.apache.uima.resource.metadata.TypeSystemDescription;
+import org.apache.uima.util.CasCreationUtils;
+import org.apache.uima.util.CasIOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.tudarmstadt.ukp.clarin.webanno.api.AnnotationSchemaService;
+import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationLayer;
+import de.tudarmstadt.ukp.clarin.webanno.model.Project;
+import de.tudarmstadt.ukp.clarin.webanno.support.StopWatch;
+
+/**
+ * Provides the CASes into which the recommenders write their predictions. These CASes use the
+ * full project type system extended with the score and prediction features. Building this type
+ * system is expensive, so it is built only once per project and kept until the layer
+ * configuration of the project changes (cf. {@link #invalidate(Project)}). CASes which are no
+ * longer needed are kept in a pool and re-used.
+ */
+public class PredictionCasPool
+{
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    private final AnnotationSchemaService annoService;
+    private final int poolSize;
+
+    private final Map<Long, PatchedTypeSystem> typeSystems = new HashMap<>();
+
+    public PredictionCasPool(AnnotationSchemaService aAnnoService, int aPoolSize)
+    {
+        annoService = aAnnoService;
+        poolSize = aPoolSize;
+    }
+
+    /**
+     * @return the monkey-patched type system of the given project. The returned description is
+     *         shared and must not be modified.
+     */
+    public TypeSystemDescription getTypeSystemDescription(Project aProject)
+        throws ResourceInitializationException
+    {
+        return get(aProject).getTypeSystemDescription();
+    }
+
+    /**
+     * @return an empty CAS using the monkey-patched type system of the given project. It should
+     *         be handed back via {@link #returnCas} once it is no longer needed.
+     */
+    public CAS borrowCas(Project aProject) throws ResourceInitializationException
+    {
+        PatchedTypeSystem typeSystem = get(aProject);
+
+        CAS cas = typeSystem.getPool().poll();
+        if (cas != null) {
+            return cas;
+        }
+
+        return CasCreationUtils.createCas(typeSystem.getTypeSystem(), null, null, null);
+    }
+
+    /**
+     * Hands back a CAS obtained via {@link #borrowCas}. If the pool is full or the type system of
+     * the project has changed in the meantime, the CAS is discarded.
+     */
+    public void returnCas(Project aProject, CAS aCas)
+    {
+        PatchedTypeSystem typeSystem;
+        synchronized (typeSystems) {
+            typeSystem = typeSystems.get(aProject.getId());
+        }
+
+        if (typeSystem == null || typeSystem.getTypeSystem() != aCas.getTypeSystem()) {
+            return;
+        }
+
+        aCas.reset();
+        typeSystem.getPool().offer(aCas);
+    }
+
+    /**
+     * Drops the cached type system and the pooled CASes of the given project.
+     */
+    public void invalidate(Project aProject)
+    {
+        synchronized (typeSystems) {
+            typeSystems.remove(aProject.getId());
+        }
+    }
+
+    /**
+     * Serializes the given CAS such that it can be loaded into prediction CASes via
+     * {@link #load}.
+     */
+    public static byte[] serialize(CAS aCas) throws IOException
+    {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try {
+            // The same CAS may be serialized by several prediction threads
+            synchronized (aCas) {
+                serializeWithCompression(aCas, buffer, aCas.getTypeSystem());
+            }
+        }
+        catch (ResourceInitializationException e) {
+            throw new IOException(e);
+        }
+        return buffer.toByteArray();
+    }
+
+    /**
+     * Replaces the contents of the target CAS with the serialized contents of a CAS using the
+     * given type system. Types and features unknown to the target CAS are dropped.
+     */
+    public static void load(byte[] aSerializedCas, TypeSystem aSourceTypeSystem, CAS aTargetCas)
+        throws IOException
+    {
+        aTargetCas.reset();
+        CasIOUtils.load(new ByteArrayInputStream(aSerializedCas), aTargetCas, aSourceTypeSystem);
+    }
+
+    private PatchedTypeSystem get(Project aProject) throws ResourceInitializationException
+    {
+        synchronized (typeSystems) {
+            PatchedTypeSystem typeSystem = typeSystems.get(aProject.getId());
+            if (typeSystem == null) {
+                typeSystem = build(aProject);
+                typeSystems.put(aProject.getId(), typeSystem);
+            }
+            return typeSystem;
+        }
+    }
+
+    private PatchedTypeSystem build(Project aProject) throws ResourceInitializationException
+    {
+        try (StopWatch watch = new StopWatch(log, "adding score features")) {
+            TypeSystemDescription tsd = annoService.getFullProjectTypeSystem(aProject);
+
+            for (AnnotationLayer layer : annoService.listAnnotationLayer(aProject)) {
+                TypeDescription td = tsd.getType(layer.getName());
+
+                if (td == null) {
+                    log.trace("Could not monkey patch type [{}]", layer.getName());
+                    continue;
+                }
+
+                for (FeatureDescription feature : td.getFeatures()) {
+                    String scoreFeatureName = feature.getName() + FEATURE_NAME_SCORE_SUFFIX;
+                    td.addFeature(scoreFeatureName, "Score feature", CAS.TYPE_NAME_DOUBLE);
+
+                    String scoreExplanationFeatureName = feature.getName() +
+                            FEATURE_NAME_SCORE_EXPLANATION_SUFFIX;
+                    td.addFeature(scoreExplanationFeatureName, "Score explanation feature",
+                            CAS.TYPE_NAME_STRING);
+                }
+
+                td.addFeature(FEATURE_NAME_IS_PREDICTION, "Is Prediction", CAS.TYPE_NAME_BOOLEAN);
+            }
+
+            // The first CAS commits the type system which is then shared by all further CASes
+            CAS cas = CasCreationUtils.createCas(tsd, null, null);
+
+            PatchedTypeSystem typeSystem = new PatchedTypeSystem(tsd, cas.getTypeSystem(),
+                    poolSize);
+            typeSystem.getPool().offer(cas);
+
+            log.debug("Built prediction type system for project [{}]({})", aProject.getName(),
+                    aProject.getId());
+
+            return typeSystem;
+        }
+    }
+
+    private static class PatchedTypeSystem
+    {
+        private final TypeSystemDescription typeSystemDescription;
+        private final TypeSystem typeSystem;
+        private final BlockingQueue<CAS> pool;
+
+        public PatchedTypeSystem(TypeSystemDescription aTypeSystemDescription,
+                TypeSystem aTypeSystem, int aPoolSize)
+        {
+            typeSystemDescription = aTypeSystemDescription;
+            typeSystem = aTypeSystem;
+            pool = new ArrayBlockingQueue<>(aPoolSize);
+        }
+
+        public TypeSystemDescription getTypeSystemDescription()
+        {
+            return typeSystemDescription;
+        }
+
+        public TypeSystem getTypeSystem()
+        {
+            return typeSystem;
+        }
+
+        public BlockingQueue<CAS> getPool()
+        {
+            return pool;
+        }
+    }
+}
@@ -18,30 +18,41 @@
 package de.tudarmstadt.ukp.inception.recommendation.service;
 
 import static de.tudarmstadt.ukp.clarin.webanno.api.annotation.util.WebAnnoCasUtil.getAddr;
+import static de.tudarmstadt.ukp.clarin.webanno.api.annotation.util.WebAnnoCasUtil.selectByAddr;
 import static de.tudarmstadt.ukp.inception.recommendation.api.model.AnnotationSuggestion.FLAG_ALL;
 import static de.tudarmstadt.ukp.inception.recommendation.api.model.AnnotationSuggestion.FLAG_OVERLAP;
 import static de.tudarmstadt.ukp.inception.recommendation.api.model.AnnotationSuggestion.FLAG_REJECTED;
 import static de.tudarmstadt.ukp.inception.recommendation.api.model.AnnotationSuggestion.FLAG_SKIPPED;
 import static de.tudarmstadt.ukp.inception.recommendation.api.recommender.RecommendationEngineCapability.TRAINING_NOT_SUPPORTED;
-import static java.util.Comparator.comparingInt;
+import static de.tudarmstadt.ukp.inception.recommendation.model.RecommenderPerformanceRecord.Activity.PREDICTION;
+import static de.tudarmstadt.ukp.inception.recommendation.model.RecommenderPerformanceRecord.NOT_MEASURED;
+import static java.util.Collections.singletonList;
 import static java.util.stream.Collectors.toList;
-import static org.apache.uima.fit.util.CasUtil.getType;
-import static org.apache.uima.fit.util.CasUtil.select;
 import static org.apache.uima.fit.util.CasUtil.selectAt;
 
 import java.io.IOException;
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
-import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Predicate;
 
 import javax.persistence.EntityManager;
 import javax.persistence.NoResultException;
@@ -49,7 +60,6 @@ import javax.persistence.PersistenceContext;
 
 import org.apache.commons.collections4.MapIterator;
 import org.apache.commons.collections4.MultiValuedMap;
-import org.apache.commons.collections4.multimap.ArrayListValuedHashMap;
 import org.apache.commons.collections4.multimap.HashSetValuedHashMap;
 import org.apache.commons.lang3.Validate;
 import org.apache.commons.lang3.builder.EqualsBuilder;
@@ -61,15 +71,13 @@ import org.apache.uima.cas.Type;
 import org.apache.uima.cas.text.AnnotationFS;
 import org.apache.uima.fit.util.CasUtil;
 import org.apache.uima.resource.ResourceInitializationException;
-import org.apache.uima.resource.metadata.FeatureDescription;
-import org.apache.uima.resource.metadata.TypeDescription;
 import org.apache.uima.resource.metadata.TypeSystemDescription;
-import org.apache.uima.util.CasCreationUtils;
 import org.apache.wicket.MetaDataKey;
 import org.apache.wicket.request.cycle.IRequestCycleListener;
 import org.apache.wicket.request.cycle.RequestCycle;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.event.EventListener;
@@ -80,6 +88,12 @@ import org.springframework.security.core.session.SessionInformation;
 import org.springframework.security.core.session.SessionRegistry;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.CacheWriter;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
 
 import de.tudarmstadt.ukp.clarin.webanno.api.AnnotationSchemaService;
 import de.tudarmstadt.ukp.clarin.webanno.api.DocumentService;
@@ -92,33 +106,40 @@ import de.tudarmstadt.ukp.clarin.webanno.api.event.AfterCasWrittenEvent;
 import de.tudarmstadt.ukp.clarin.webanno.api.event.AfterDocumentCreatedEvent;
 import de.tudarmstadt.ukp.clarin.webanno.api.event.AfterDocumentResetEvent;
 import de.tudarmstadt.ukp.clarin.webanno.api.event.BeforeDocumentRemovedEvent;
+import de.tudarmstadt.ukp.clarin.webanno.api.event.LayerConfigurationChangedEvent;
 import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationFeature;
 import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationLayer;
 import de.tudarmstadt.ukp.clarin.webanno.model.Project;
 import de.tudarmstadt.ukp.clarin.webanno.model.SourceDocument;
 import de.tudarmstadt.ukp.clarin.webanno.security.UserDao;
 import de.tudarmstadt.ukp.clarin.webanno.security.model.User;
-import de.tudarmstadt.ukp.clarin.webanno.support.StopWatch;
-import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Token;
 import de.tudarmstadt.ukp.inception.recommendation.api.LearningRecordService;
+import de.tudarmstadt.ukp.inception.recommendation.api.ModelSnapshotService;
 import de.tudarmstadt.ukp.inception.recommendation.api.RecommendationService;
 import de.tudarmstadt.ukp.inception.recommendation.api.RecommenderFactoryRegistry;
 import de.tudarmstadt.ukp.inception.recommendation.api.model.AnnotationSuggestion;
 import de.tudarmstadt.ukp.inception.recommendation.api.model.EvaluatedRecommender;
 import de.tudarmstadt.ukp.inception.recommendation.api.model.LearningRecord;
+import de.tudarmstadt.ukp.inception.recommendation.api.model.LearningRecordIndex;
 import de.tudarmstadt.ukp.inception.recommendation.api.model.Offset;
 import de.tudarmstadt.ukp.inception.recommendation.api.model.Predictions;
+import de.tudarmstadt.ukp.inception.recommendation.api.model.PredictionsDelta;
 import de.tudarmstadt.ukp.inception.recommendation.api.model.Preferences;
 import de.tudarmstadt.ukp.inception.recommendation.api.model.Recommender;
+import de.tudarmstadt.ukp.inception.recommendation.api.model.SimpleAnnotationSuggestion;
 import de.tudarmstadt.ukp.inception.recommendation.api.model.SuggestionGroup;
 import de.tudarmstadt.ukp.inception.recommendation.api.recommender.RecommendationEngine;
 import de.tudarmstadt.ukp.inception.recommendation.api.recommender.RecommendationEngineFactory;
 import de.tudarmstadt.ukp.inception.recommendation.api.recommender.RecommenderContext;
+import de.tudarmstadt.ukp.inception.recommendation.config.RecommendationProperties;
+import de.tudarmstadt.ukp.inception.recommendation.event.PredictionsReadyEvent;
 import de.tudarmstadt.ukp.inception.recommendation.event.RecommenderDeletedEvent;
 import de.tudarmstadt.ukp.inception.recommendation.event.RecommenderUpdatedEvent;
+import de.tudarmstadt.ukp.inception.recommendation.model.RecommenderPerformanceRecord;
 import de.tudarmstadt.ukp.inception.recommendation.tasks.SelectionTask;
 import de.tudarmstadt.ukp.inception.recommendation.tasks.TrainingTask;
-import de.tudarmstadt.ukp.inception.recommendation.util.OverlapIterator;
+import de.tudarmstadt.ukp.inception.recommendation.util.AnnotationIntervalTree;
+import de.tudarmstadt.ukp.inception.recommendation.util.TokenOffsetIndex;
 import de.tudarmstadt.ukp.inception.scheduling.SchedulingService;
 import de.tudarmstadt.ukp.inception.scheduling.Task;
 
@@ -127,7 +148,7 @@ import de.tudarmstadt.ukp.inception.scheduling.Task;
  */
 @Component(RecommendationService.SERVICE_NAME)
 public class RecommendationServiceImpl
-    implements RecommendationService
+    implements RecommendationService, DisposableBean
 {
     private final Logger log = LoggerFactory.getLogger(getClass());
 
@@ -144,9 +165,40 @@ public class RecommendationServiceImpl
     private final LearningRecordService learningRecordService;
     private final ProjectService projectService;
     private final ApplicationEventPublisher applicationEventPublisher;
+    private final RecommendationProperties properties;
+    private final CasSnapshotCache casSnapshotCache;
+    private final ModelSnapshotService modelSnapshotService;
+    private final RecommenderPerformanceHistory performanceHistory;
+    
+    /*
+     * Runs the prediction for several documents in parallel. This is bounded and separate from
+     * the scheduler threads which wait for the predictions to complete.
+     */
+    private final ExecutorService predictionExecutor;
+    
+    private final PredictionCasPool predictionCasPool;
+    
+    /*
+     * Writes the model snapshots so that training does not have to wait for them. Only the most
+     * recent context of a user and recommender is written and only if it has not been written yet.
+     */
+    private final ExecutorService snapshotExecutor;
+    private final ConcurrentMap<SnapshotKey, PendingSnapshot> pendingSnapshots =
+            new ConcurrentHashMap<>();
+    private final ConcurrentMap<SnapshotKey, Long> savedSnapshotVersions =
+            new ConcurrentHashMap<>();
     
     private final ConcurrentMap<RecommendationStateKey, AtomicInteger> trainingTaskCounter;
     private final ConcurrentMap<RecommendationStateKey, RecommendationState> states;
+    private final RecommendationStateStore stateStore = new RecommendationStateStore();
+    
+    /**
+     * Locks which make sure that engines which cannot predict concurrently (cf.
+     * {@link RecommendationEngine#isConcurrentPredictionSupported}) only predict with a context
+     * on one thread at a time - also across concurrent prediction runs.
+     */
+    private final Cache<RecommenderContext, Object> predictionLocks = Caffeine.newBuilder()
+            .weakKeys().build();
     
     private IRequestCycleListener triggerTraingRunListener;
 
@@ -170,7 +222,10 @@ public class RecommendationServiceImpl
             RecommenderFactoryRegistry aRecommenderFactoryRegistry,
             SchedulingService aSchedulingService, AnnotationSchemaService aAnnoService,
             DocumentService aDocumentService, LearningRecordService aLearningRecordService,
-            ProjectService aProjectService, ApplicationEventPublisher aApplicationEventPublisher)
+            ProjectService aProjectService, ApplicationEventPublisher aApplicationEventPublisher,
+            RecommendationProperties aProperties, CasSnapshotCache aCasSnapshotCache,
+            ModelSnapshotService aModelSnapshotService,
+            RecommenderPerformanceHistory aPerformanceHistory)
     {
         sessionRegistry = aSessionRegistry;
         userRepository = aUserRepository;
@@ -181,9 +236,58 @@ public class RecommendationServiceImpl
         learningRecordService = aLearningRecordService;
         projectService = aProjectService;
         applicationEventPublisher = aApplicationEventPublisher;
+        properties = aProperties;
+        casSnapshotCache = aCasSnapshotCache;
+        modelSnapshotService = aModelSnapshotService;
+        performanceHistory = aPerformanceHistory;
         
         trainingTaskCounter = new ConcurrentHashMap<>();
-        states = new ConcurrentHashMap<>();
+        // States which have not been accessed for a while or which exceed the maximum number of
+        // states kept in memory are spilled to disk and restored on the next access
+        states = Caffeine.newBuilder()
+                .maximumSize(Math.max(1, properties.getRecommendationStateCacheSize()))
+                .expireAfterAccess(properties.getRecommendationStateIdleTimeout(),
+                        TimeUnit.SECONDS)
+                .writer(new CacheWriter<RecommendationStateKey, RecommendationState>()
+                {
+                    @Override
+                    public void write(RecommendationStateKey aKey, RecommendationState aState)
+                    {
+                        // Nothing to do
+                    }
+
+                    @Override
+                    public void delete(RecommendationStateKey aKey, RecommendationState aState,
+                            RemovalCause aCause)
+                    {
+                        // States removed explicitly (e.g. because the session ended) are
+                        // discarded
+                        if (aState != null && aCause.wasEvicted()) {
+                            spillState(aKey, aState);
+                        }
+                    }
+                })
+                .build().asMap();
+        
+        AtomicInteger threadCount = new AtomicInteger();
+        predictionExecutor = Executors.newFixedThreadPool(
+                Math.max(1, properties.getNumberOfPredictionThreads() - 1), runnable -> {
+                    Thread thread = new Thread(runnable,
+                            "Prediction worker " + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        
+        snapshotExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "Model snapshot writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        
+        // Keep enough CASes around for the slices of a few concurrent prediction runs
+        predictionCasPool = new PredictionCasPool(annoService,
+                2 * Math.max(1, properties.getNumberOfPredictionThreads())
+                        * Math.max(1, properties.getPredictionBatchSize()));
     }
 
     public RecommendationServiceImpl(SessionRegistry aSessionRegistry, UserDao aUserRepository,
@@ -194,18 +298,40 @@ public class RecommendationServiceImpl
     {
         this(aSessionRegistry, aUserRepository, aRecommenderFactoryRegistry, aSchedulingService,
                 aAnnoService, aDocumentService, aLearningRecordService, (ProjectService) null,
-                null);
+                null, new RecommendationProperties(), new CasSnapshotCache(aDocumentService,
+                        aAnnoService, new RecommendationProperties()), null,
+                new RecommenderPerformanceHistory(new RecommendationProperties()));
         
         entityManager = aEntityManager;
     }
 
     public RecommendationServiceImpl(EntityManager aEntityManager)
     {
-        this(null, null, null, null, null, null, null, (ProjectService) null, null);
+        this(null, null, null, null, null, null, null, (ProjectService) null, null,
+                new RecommendationProperties(),
+                new CasSnapshotCache(null, null, new RecommendationProperties()), null,
+                new RecommenderPerformanceHistory(new RecommendationProperties()));
 
         entityManager = aEntityManager;
     }
 
+    @Override
+    public void destroy()
+    {
+        predictionExecutor.shutdownNow();
+        
+        // Finish writing the pending model snapshots
+        snapshotExecutor.shutdown();
+        try {
+            snapshotExecutor.awaitTermination(1, TimeUnit.MINUTES);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        
+        stateStore.close();
+    }
+
     @Override
     public Predictions getPredictions(User aUser, Project aProject)
     {
@@ -213,6 +339,26 @@ public class RecommendationServiceImpl
         return state.getActivePredictions();
     }
     
+    @Override
+    public Predictions getLatestPredictions(User aUser, Project aProject)
+    {
+        RecommendationState state = getState(aUser.getUsername(), aProject);
+        synchronized (state) {
+            Predictions incomingPredictions = state.getIncomingPredictions();
+            return incomingPredictions != null ? incomingPredictions
+                    : state.getActivePredictions();
+        }
+    }
+    
+    @Override
+    public Optional<SourceDocument> getFocusDocument(User aUser, Project aProject)
+    {
+        RecommendationState state = getState(aUser.getUsername(), aProject);
+        synchronized (state) {
+            return Optional.ofNullable(state.getFocusDocument());
+        }
+    }
+    
     @Override
     public Predictions getIncomingPredictions(User aUser, Project aProject)
     {
@@ -224,8 +370,38 @@ public class RecommendationServiceImpl
     public void putIncomingPredictions(User aUser, Project aProject, Predictions aPredictions)
     {
         RecommendationState state = getState(aUser.getUsername(), aProject);
+        PredictionsDelta delta;
         synchronized (state) {
             state.setIncomingPredictions(aPredictions);
+            delta = state.getIncomingDelta();
+        }
+        
+        publishPredictionsReady(aUser, aProject, delta.getDocuments());
+    }
+    
+    @Override
+    public void putIncomingPredictions(User aUser, Project aProject, Predictions aPredictions,
+            Collection<String> aDocumentNames)
+    {
+        RecommendationState state = getState(aUser.getUsername(), aProject);
+        Set<String> changedDocuments;
+        synchronized (state) {
+            changedDocuments = state.updateIncomingPredictions(aUser, aProject, aPredictions,
+                    aDocumentNames);
+        }
+        
+        publishPredictionsReady(aUser, aProject, changedDocuments);
+    }
+    
+    /**
+     * Lets the UI know that there are new predictions so it does not have to wait for the next
+     * user action to pick them up.
+     */
+    private void publishPredictionsReady(User aUser, Project aProject, Set<String> aDocumentNames)
+    {
+        if (!aDocumentNames.isEmpty() && applicationEventPublisher != null) {
+            applicationEventPublisher.publishEvent(new PredictionsReadyEvent(this,
+                    aUser.getUsername(), aProject, aDocumentNames));
         }
     }
     
@@ -432,9 +608,21 @@ public class RecommendationServiceImpl
         Project project = aEvent.getDocument().getProject();
         String user = aEvent.getAnnotator();
 
+        boolean stateExists = states.containsKey(new RecommendationStateKey(user, project));
+        
+        // Remember the document so that it can be predicted first
+        RecommendationState state = getState(user, project);
+        boolean stateRestored;
+        synchronized (state) {
+            state.setFocusDocument(aEvent.getDocument().getDocument());
+            stateRestored = state.consumeRestored();
+        }
+        
         // If there already is a state, we just re-use it. We only trigger a new training if there
-        // is no state yet.
-        if (!states.containsKey(new RecommendationStateKey(user, project))) {
+        // is no state yet or if it has been restored after having been spilled to disk. In the
+        // latter case, the predictions are available right away, but the models and the active
+        // recommenders need to be restored.
+        if (!stateExists || stateRestored) {
             triggerTrainingAndClassification(user, project, "DocumentOpenedEvent");
         }
     }
@@ -501,6 +689,31 @@ public class RecommendationServiceImpl
         // state. Since (so far) recommenders do not depend on each other, we wouldn't need to 
         // trigger a training rung.
         removePredictions(aEvent.getRecommender());
+        
+        if (modelSnapshotService != null) {
+            Recommender recommender = aEvent.getRecommender();
+            pendingSnapshots.keySet().removeIf(key -> key.recommenderId == recommender.getId());
+            savedSnapshotVersions.keySet()
+                    .removeIf(key -> key.recommenderId == recommender.getId());
+            
+            // Deleting on the writer thread ensures that a snapshot which is being written right
+            // now does not survive the recommender
+            snapshotExecutor.execute(() -> {
+                try {
+                    modelSnapshotService.deleteSnapshots(recommender);
+                }
+                catch (IOException e) {
+                    log.error("Unable to delete model snapshots of recommender [{}]({})",
+                            recommender.getName(), recommender.getId(), e);
+                }
+            });
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onLayerConfigurationChanged(LayerConfigurationChangedEvent aEvent)
+    {
+        predictionCasPool.invalidate(aEvent.getProject());
     }
 
     @EventListener
@@ -592,9 +805,44 @@ public class RecommendationServiceImpl
     
     private RecommendationState getState(String aUsername, Project aProject)
     {
-        synchronized (states) {
-            return states.computeIfAbsent(new RecommendationStateKey(aUsername, aProject), (v) -> 
-                    new RecommendationState());
+        // Restoring a spilled state only blocks the callers which want the same state
+        return states.computeIfAbsent(new RecommendationStateKey(aUsername, aProject),
+                this::restoreState);
+    }
+    
+    private RecommendationState restoreState(RecommendationStateKey aKey)
+    {
+        RecommendationState state = new RecommendationState();
+        try {
+            Optional<SpilledState> spilledState = stateStore.read(aKey.getUser(),
+                    aKey.getProjectId(), SpilledState.class);
+            if (spilledState.isPresent()) {
+                state.restore(spilledState.get());
+                log.debug("[{}]: Restored recommendation state for project [{}]", aKey.getUser(),
+                        aKey.getProjectId());
+            }
+        }
+        catch (IOException e) {
+            log.error("[{}]: Unable to restore recommendation state for project [{}]",
+                    aKey.getUser(), aKey.getProjectId(), e);
+        }
+        return state;
+    }
+    
+    private void spillState(RecommendationStateKey aKey, RecommendationState aState)
+    {
+        try {
+            SpilledState spilledState;
+            synchronized (aState) {
+                spilledState = aState.spill();
+            }
+            stateStore.write(aKey.getUser(), aKey.getProjectId(), spilledState);
+            log.debug("[{}]: Spilled idle recommendation state for project [{}]", aKey.getUser(),
+                    aKey.getProjectId());
+        }
+        catch (Exception e) {
+            log.error("[{}]: Unable to spill recommendation state for project [{}]",
+                    aKey.getUser(), aKey.getProjectId(), e);
         }
     }
     
@@ -603,43 +851,53 @@ public class RecommendationServiceImpl
     {
         Validate.notNull(aUsername, "Username must be specified");
         
-        synchronized (states) {
-            states.keySet().removeIf(key -> aUsername.equals(key.getUser()));
-            trainingTaskCounter.keySet()
-                    .removeIf(key -> aUsername.equals(key.getUser()));
-        }
+        states.keySet().removeIf(key -> aUsername.equals(key.getUser()));
+        trainingTaskCounter.keySet()
+                .removeIf(key -> aUsername.equals(key.getUser()));
+        savedSnapshotVersions.keySet().removeIf(key -> aUsername.equals(key.user));
+        stateStore.delete(aUsername);
     }
 
     private void clearState(Project aProject)
     {
         Validate.notNull(aProject, "Project must be specified");
         
-        synchronized (states) {
-            states.keySet().removeIf(key -> Objects.equals(aProject.getId(), key.getProjectId()));
-            trainingTaskCounter.keySet()
-                    .removeIf(key -> Objects.equals(aProject.getId(), key.getProjectId()));
-        }
+        states.keySet().removeIf(key -> Objects.equals(aProject.getId(), key.getProjectId()));
+        trainingTaskCounter.keySet()
+                .removeIf(key -> Objects.equals(aProject.getId(), key.getProjectId()));
+        stateStore.delete(aProject.getId());
     }
 
     private void removePredictions(Recommender aRecommender)
     {
         Validate.notNull(aRecommender, "Recommender must be specified");
         
-        synchronized (states) {
-            states.entrySet().stream()
-                    .filter(entry -> Objects.equals(
-                            aRecommender.getProject().getId(), entry.getKey().getProjectId()))
-                    .forEach(entry -> entry.getValue().removePredictions(aRecommender));
-        }
+        states.entrySet().stream()
+                .filter(entry -> Objects.equals(
+                        aRecommender.getProject().getId(), entry.getKey().getProjectId()))
+                .forEach(entry -> {
+                    RecommendationState state = entry.getValue();
+                    synchronized (state) {
+                        state.removePredictions(aRecommender);
+                    }
+                });
+        // Spilled states would still contain the predictions, so we rather discard them
+        stateStore.delete(aRecommender.getProject().getId());
     }
 
     @Override
-    public boolean switchPredictions(User aUser, Project aProject)
+    public Optional<PredictionsDelta> switchPredictions(User aUser, Project aProject)
     {
         RecommendationState state = getState(aUser.getUsername(), aProject);
+        Optional<PredictionsDelta> delta;
         synchronized (state) {
-            return state.switchPredictions();
+            delta = state.switchPredictions();
         }
+        
+        delta.ifPresent(d -> log.debug("[{}][{}]: Switched predictions ({} suggestions changed)",
+                aUser.getUsername(), aProject.getName(), d.size()));
+        
+        return delta;
     }
 
     @Override
@@ -647,6 +905,22 @@ public class RecommendationServiceImpl
     {
         RecommendationState state = getState(aUser.getUsername(), aRecommender.getProject());
         synchronized (state) {
+            Optional<RecommenderContext> context = state.getContext(aRecommender);
+            if (context.isPresent() || !state.markSnapshotRestoreAttempted(aRecommender)) {
+                return context;
+            }
+        }
+        
+        // There is no trained model yet, e.g. because the application has just been started. We
+        // try to warm-start from a persisted model snapshot - but only once per state.
+        Optional<RecommenderContext> restoredContext = restoreContext(aUser, aRecommender);
+        restoredContext.ifPresent(ctx -> savedSnapshotVersions.put(
+                new SnapshotKey(aUser.getUsername(), aRecommender.getId()), ctx.getVersion()));
+        
+        synchronized (state) {
+            if (restoredContext.isPresent() && !state.getContext(aRecommender).isPresent()) {
+                state.putContext(aRecommender, restoredContext.get());
+            }
             return state.getContext(aRecommender);
         }
     }
@@ -658,6 +932,54 @@ public class RecommendationServiceImpl
         synchronized (state) {
             state.putContext(aRecommender, aContext);
         }
+        
+        if (modelSnapshotService != null && aRecommender.getId() != null) {
+            // If a write is already pending for the user and recommender, it picks up the new
+            // context instead
+            SnapshotKey key = new SnapshotKey(aUser.getUsername(), aRecommender.getId());
+            if (pendingSnapshots.put(key, new PendingSnapshot(aUser, aRecommender,
+                    aContext)) == null) {
+                snapshotExecutor.execute(() -> saveSnapshot(key));
+            }
+        }
+    }
+    
+    private void saveSnapshot(SnapshotKey aKey)
+    {
+        PendingSnapshot snapshot = pendingSnapshots.remove(aKey);
+        if (snapshot == null || Objects.equals(savedSnapshotVersions.get(aKey),
+                snapshot.context.getVersion())) {
+            return;
+        }
+        
+        try {
+            RecommendationEngine engine = getRecommenderFactory(snapshot.recommender)
+                    .build(snapshot.recommender);
+            modelSnapshotService.saveSnapshot(snapshot.user, snapshot.recommender, engine,
+                    snapshot.context);
+            savedSnapshotVersions.put(aKey, snapshot.context.getVersion());
+        }
+        catch (Exception e) {
+            log.error("[{}][{}]: Unable to save model snapshot", snapshot.user.getUsername(),
+                    snapshot.recommender.getName(), e);
+        }
+    }
+    
+    private Optional<RecommenderContext> restoreContext(User aUser, Recommender aRecommender)
+    {
+        if (modelSnapshotService == null) {
+            return Optional.empty();
+        }
+        
+        try {
+            RecommendationEngine engine = getRecommenderFactory(aRecommender).build(aRecommender);
+            return modelSnapshotService.loadSnapshot(aUser, aRecommender, engine);
+        }
+        catch (Exception e) {
+            log.error("[{}][{}]: Unable to restore model snapshot", aUser.getUsername(),
+                    aRecommender.getName(), e);
+            return Optional.empty();
+        }
     }
     
     @Override
@@ -734,6 +1056,49 @@ public class RecommendationServiceImpl
         }
     }
     
+    private static class SnapshotKey
+    {
+        private final String user;
+        private final long recommenderId;
+        
+        public SnapshotKey(String aUser, long aRecommenderId)
+        {
+            user = aUser;
+            recommenderId = aRecommenderId;
+        }
+        
+        @Override
+        public boolean equals(final Object other)
+        {
+            if (!(other instanceof SnapshotKey)) {
+                return false;
+            }
+            SnapshotKey castOther = (SnapshotKey) other;
+            return new EqualsBuilder().append(user, castOther.user)
+                    .append(recommenderId, castOther.recommenderId).isEquals();
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return new HashCodeBuilder().append(user).append(recommenderId).toHashCode();
+        }
+    }
+    
+    private static class PendingSnapshot
+    {
+        private final User user;
+        private final Recommender recommender;
+        private final RecommenderContext context;
+        
+        public PendingSnapshot(User aUser, Recommender aRecommender, RecommenderContext aContext)
+        {
+            user = aUser;
+            recommender = aRecommender;
+            context = aContext;
+        }
+    }
+    
     /**
      * We are assuming that the user is actively working on one project at a time.
      * Otherwise, the RecommendationUserState might take up a lot of memory.
@@ -746,6 +1111,10 @@ public class RecommendationServiceImpl
         private Map<Recommender, RecommenderContext> contexts = new ConcurrentHashMap<>();
         private Predictions activePredictions;
         private Predictions incomingPredictions;
+        private PredictionsDelta incomingDelta;
+        private SourceDocument focusDocument;
+        private Set<Recommender> snapshotRestoreAttempted = new HashSet<>();
+        private boolean restored;
         
         public Preferences getPreferences()
         {
@@ -778,22 +1147,120 @@ public class RecommendationServiceImpl
             Validate.notNull(aIncomingPredictions, "Predictions must be specified");
             
             incomingPredictions = aIncomingPredictions;
+            incomingDelta = null;
+        }
+        
+        /**
+         * @return the changes the incoming predictions would make to the active predictions. The
+         *         delta is computed once and re-used when the incoming predictions are activated.
+         */
+        public PredictionsDelta getIncomingDelta()
+        {
+            Validate.notNull(incomingPredictions, "There are no incoming predictions");
+            
+            if (incomingDelta == null) {
+                incomingDelta = PredictionsDelta.between(activePredictions, incomingPredictions);
+            }
+            return incomingDelta;
+        }
+        
+        /**
+         * Replaces the incoming predictions on the given documents and updates the delta for these
+         * documents only. If there are no incoming predictions, they start out as a copy of the
+         * active predictions.
+         * 
+         * @return the given documents on which the incoming predictions differ from the active
+         *         ones.
+         */
+        public Set<String> updateIncomingPredictions(User aUser, Project aProject,
+                Predictions aPredictions, Collection<String> aDocumentNames)
+        {
+            if (incomingPredictions == null) {
+                incomingPredictions = activePredictions != null
+                        ? new Predictions(activePredictions)
+                        : new Predictions(aUser, aProject);
+                incomingDelta = PredictionsDelta.empty();
+            }
+            
+            for (String documentName : aDocumentNames) {
+                incomingPredictions.replacePredictions(aPredictions, documentName);
+            }
+            
+            PredictionsDelta delta = getIncomingDelta();
+            delta.update(activePredictions, incomingPredictions, aDocumentNames);
+            
+            Set<String> changedDocuments = new LinkedHashSet<>(aDocumentNames);
+            changedDocuments.retainAll(delta.getDocuments());
+            return changedDocuments;
         }
         
         public Predictions getIncomingPredictions()
         {
             return incomingPredictions;
         }
+        
+        public SourceDocument getFocusDocument()
+        {
+            return focusDocument;
+        }
+        
+        public void setFocusDocument(SourceDocument aFocusDocument)
+        {
+            focusDocument = aFocusDocument;
+        }
 
-        public boolean switchPredictions()
+        /**
+         * Captures the parts of the state which are kept when the state is spilled to disk. The
+         * models are not included - they are restored from the model snapshots (cf.
+         * {@link ModelSnapshotService}) or by training again.
+         */
+        public SpilledState spill()
+        {
+            return new SpilledState(preferences, activePredictions, incomingPredictions,
+                    focusDocument);
+        }
+        
+        public void restore(SpilledState aSpilledState)
+        {
+            preferences = aSpilledState.preferences;
+            activePredictions = aSpilledState.activePredictions;
+            incomingPredictions = aSpilledState.incomingPredictions;
+            focusDocument = aSpilledState.focusDocument;
+            restored = true;
+        }
+        
+        /**
+         * @return whether the state has been restored from disk. Only the first call after
+         *         restoring returns {@code true}.
+         */
+        public boolean consumeRestored()
+        {
+            boolean result = restored;
+            restored = false;
+            return result;
+        }
+
+        /**
+         * Marks that restoring a model snapshot has been attempted for the given recommender.
+         * 
+         * @return whether this is the first attempt.
+         */
+        public boolean markSnapshotRestoreAttempted(Recommender aRecommender)
+        {
+            return snapshotRestoreAttempted.add(aRecommender);
+        }
+
+        public Optional<PredictionsDelta> switchPredictions()
         {
             if (incomingPredictions != null) {
+                PredictionsDelta delta = getIncomingDelta();
                 activePredictions = incomingPredictions;
                 incomingPredictions = null;
-                return true;
+                incomingDelta = null;
+                return Optional.of(delta);
             }
             else {
-                return false;
+                return Optional.empty();
             }
         }
         
@@ -821,6 +1288,7 @@ public class RecommendationServiceImpl
             // Remove incoming predictions
             if (incomingPredictions != null) {
                 incomingPredictions.removePredictions(aRecommender.getId());
+                incomingDelta = null;
             }
 
             // Remove active predictions
@@ -850,184 +1318,611 @@ public class RecommendationServiceImpl
             setActiveRecommenders(newActiveRecommenders);
         }
     }
+
+    private static class SpilledState
+        implements Serializable
+    {
+        private static final long serialVersionUID = -3180771722432931634L;
+
+        private final Preferences preferences;
+        private final Predictions activePredictions;
+        private final Predictions incomingPredictions;
+        private final SourceDocument focusDocument;
+
+        public SpilledState(Preferences aPreferences, Predictions aActivePredictions,
+                Predictions aIncomingPredictions, SourceDocument aFocusDocument)
+        {
+            preferences = aPreferences;
+            activePredictions = aActivePredictions;
+            incomingPredictions = aIncomingPredictions;
+            focusDocument = aFocusDocument;
+        }
+    }
+
+    /**
+     * A recommender which has been resolved for generating predictions together with its layer,
+     * factory and context.
+     */
+    private static class ActiveRecommender
+    {
+        private final AnnotationLayer layer;
+        private final Recommender recommender;
+        private final RecommendationEngineFactory<?> factory;
+        private final RecommenderContext context;
+
+        // Collected by all threads which predict with the recommender
+        private final AtomicInteger predictedDocuments = new AtomicInteger();
+        private final AtomicInteger suggestionCount = new AtomicInteger();
+        private final AtomicLong maxDocumentPredictionTime = new AtomicLong(NOT_MEASURED);
+
+        public ActiveRecommender(AnnotationLayer aLayer, Recommender aRecommender,
+                RecommendationEngineFactory<?> aFactory, RecommenderContext aContext)
+        {
+            layer = aLayer;
+            recommender = aRecommender;
+            factory = aFactory;
+            context = aContext;
+        }
+
+        public AnnotationLayer getLayer()
+        {
+            return layer;
+        }
+
+        public Recommender getRecommender()
+        {
+            return recommender;
+        }
+
+        public RecommendationEngineFactory<?> getFactory()
+        {
+            return factory;
+        }
+
+        public RecommenderContext getContext()
+        {
+            return context;
+        }
+
+        public void recordPrediction(int aSuggestions)
+        {
+            predictedDocuments.incrementAndGet();
+            suggestionCount.addAndGet(aSuggestions);
+        }
+
+        public void recordDocumentDuration(long aDuration)
+        {
+            maxDocumentPredictionTime.accumulateAndGet(aDuration, Math::max);
+        }
+
+        public RecommenderPerformanceRecord toPerformanceRecord(String aUser, long aDuration,
+                int aPeakCasCount)
+        {
+            return new RecommenderPerformanceRecord(PREDICTION, aUser, System.currentTimeMillis(),
+                    aDuration, predictedDocuments.get(), maxDocumentPredictionTime.get(),
+                    aPeakCasCount, suggestionCount.get());
+        }
+
+        public boolean hasPredicted()
+        {
+            return predictedDocuments.get() > 0;
+        }
+    }
     
     @Override
     public Predictions computePredictions(User aUser, Project aProject,
                                           List<SourceDocument> aDocuments)
     {
-        String username = aUser.getUsername();
         Predictions predictions = new Predictions(aUser, aProject);
+        computePredictions(aUser, aProject, singletonList(aDocuments),
+                getLatestPredictions(aUser, aProject), predictions, chunk -> true);
+        return predictions;
+    }
+    
+    @Override
+    public void computePredictions(User aUser, Project aProject,
+            List<List<SourceDocument>> aChunks, Predictions aPreviousPredictions,
+            Predictions aPredictions, Predicate<List<SourceDocument>> aChunkCallback)
+    {
+        // The recommenders are resolved only once for all documents. The per-document work then
+        // only reads from the recommender contexts and can be distributed over several threads.
+        List<ActiveRecommender> recommenders = listActiveRecommendersForPrediction(aUser,
+                aProject);
+
+        if (recommenders.isEmpty()) {
+            log.trace("[{}]: No active recommenders in project [{}]", aUser.getUsername(),
+                    aProject.getName());
+        }
+
+        // The recommenders collect their measurements over all chunks, so the run is recorded
+        // only once and not once per chunk
+        long startTime = System.currentTimeMillis();
+        int peakCasCount = 0;
+        for (List<SourceDocument> chunk : aChunks) {
+            if (!recommenders.isEmpty()) {
+                peakCasCount = Math.max(peakCasCount, computePredictions(aUser, aProject, chunk,
+                        recommenders, aPreviousPredictions, aPredictions));
+            }
+
+            if (!aChunkCallback.test(chunk)) {
+                return;
+            }
+        }
+
+        recordPredictionPerformance(aUser, recommenders, startTime, peakCasCount);
+    }
+
+    /**
+     * Computes the predictions for the given documents, distributing them over several threads.
+     * 
+     * @return the peak number of CASes held at the same time.
+     */
+    private int computePredictions(User aUser, Project aProject, List<SourceDocument> aDocuments,
+            List<ActiveRecommender> aRecommenders, Predictions aPreviousPredictions,
+            Predictions aPredictions)
+    {
+        int sliceCount = Math.min(properties.getNumberOfPredictionThreads(), aDocuments.size());
+        if (sliceCount <= 1) {
+            computePredictionsInBatches(aUser, aProject, aDocuments, aRecommenders,
+                    aPreviousPredictions, aPredictions);
+            return peakCasCount(1, aDocuments.size());
+        }
+
+        // Distribute the documents over the slices in turns, so that the documents at the start
+        // of the list (e.g. the one the user is looking at) are processed first.
+        List<List<SourceDocument>> slices = new ArrayList<>();
+        for (int i = 0; i < sliceCount; i++) {
+            slices.add(new ArrayList<>());
+        }
+        for (int i = 0; i < aDocuments.size(); i++) {
+            slices.get(i % sliceCount).add(aDocuments.get(i));
+        }
+
+        log.trace("[{}]: Computing predictions for {} documents in {} slices",
+                aUser.getUsername(), aDocuments.size(), sliceCount);
+
+        // The calling thread takes care of the first slice itself
+        List<Future<?>> futures = new ArrayList<>();
+        for (List<SourceDocument> slice : slices.subList(1, sliceCount)) {
+            futures.add(predictionExecutor.submit(() -> computePredictionsInBatches(aUser,
+                    aProject, slice, aRecommenders, aPreviousPredictions, aPredictions)));
+        }
+
+        try {
+            computePredictionsInBatches(aUser, aProject, slices.get(0), aRecommenders,
+                    aPreviousPredictions, aPredictions);
+
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        catch (ExecutionException e) {
+            log.error("[{}]: Error computing predictions in project [{}]({})",
+                    aUser.getUsername(), aProject.getName(), aProject.getId(), e.getCause());
+        }
+        finally {
+            futures.forEach(future -> future.cancel(true));
+        }
+
+        return peakCasCount(sliceCount, slices.get(0).size());
+    }
+
+    /**
+     * Each slice holds a prediction CAS and the annotation CAS for every document of the batch it
+     * is working on.
+     */
+    private int peakCasCount(int aSliceCount, int aLargestSliceSize)
+    {
+        return 2 * aSliceCount
+                * Math.min(Math.max(1, properties.getPredictionBatchSize()), aLargestSliceSize);
+    }
+
+    /**
+     * The chunks and slices are predicted one after the other or in parallel, so the duration is
+     * the wall-clock time of the whole run.
+     */
+    private void recordPredictionPerformance(User aUser, List<ActiveRecommender> aRecommenders,
+            long aStartTime, int aPeakCasCount)
+    {
+        long duration = System.currentTimeMillis() - aStartTime;
+        for (ActiveRecommender recommender : aRecommenders) {
+            // Recommenders which carried all their predictions forward did not do anything
+            if (recommender.hasPredicted()) {
+                performanceHistory.record(recommender.getRecommender(),
+                        recommender.toPerformanceRecord(aUser.getUsername(), duration,
+                                aPeakCasCount));
+            }
+        }
+    }
+
+    /**
+     * Resolves the recommenders which are to generate predictions for the given user.
+     */
+    private List<ActiveRecommender> listActiveRecommendersForPrediction(User aUser,
+            Project aProject)
+    {
+        String username = aUser.getUsername();
+
+        List<ActiveRecommender> result = new ArrayList<>();
+
+        nextLayer: for (AnnotationLayer layer : annoService.listAnnotationLayer(aProject)) {
+            if (!layer.isEnabled()) {
+                continue nextLayer;
+            }
+
+            List<EvaluatedRecommender> recommenders = getActiveRecommenders(aUser, layer);
+
+            if (recommenders.isEmpty()) {
+                log.trace("[{}]: No active recommenders on layer [{}]", username,
+                        layer.getUiName());
+                continue;
+            }
+
+            nextRecommender: for (EvaluatedRecommender r : recommenders) {
+
+                // Make sure we have the latest recommender config from the DB - the one from
+                // the active recommenders list may be outdated
+                Recommender recommender;
+
+                try {
+                    recommender = getRecommender(r.getRecommender().getId());
+                }
+                catch (NoResultException e) {
+                    log.info("[{}][{}]: Recommender no longer available... skipping",
+                            username, r.getRecommender().getName());
+                    continue nextRecommender;
+                }
+
+                if (!recommender.isEnabled()) {
+                    log.debug("[{}][{}]: Disabled - skipping", username,
+                            r.getRecommender().getName());
+                    continue nextRecommender;
+                }
+
+                Optional<RecommenderContext> context = getContext(aUser, recommender);
+
+                if (!context.isPresent()) {
+                    log.info("No context available for recommender [{}]({}) for user [{}] "
+                            + "in project [{}]({}) - skipping recommender",
+                            recommender.getName(), recommender.getId(), username,
+                            aProject.getName(), aProject.getId());
+                    continue nextRecommender;
+                }
+
+                RecommenderContext ctx = context.get();
+                ctx.setUser(aUser);
+
+                RecommendationEngineFactory<?> factory = getRecommenderFactory(recommender);
+
+                // Check that configured layer and feature are accepted
+                // by this type of recommender
+                if (!factory.accepts(recommender.getLayer(), recommender.getFeature())) {
+                    log.info("[{}][{}]: Recommender configured with invalid layer or feature "
+                            + "- skipping recommender", username, r.getRecommender().getName());
+                    continue nextRecommender;
+                }
+
+                result.add(new ActiveRecommender(layer, recommender, factory, ctx));
+            }
+        }
+
+        return result;
+    }
 
-        CAS predictionCas = null;
+    /**
+     * Computes the predictions for the given documents. Everything which is modified during the
+     * prediction (the prediction CASes and the recommendation engines) is created here, so several
+     * invocations can run in parallel. The recommender contexts are shared though, so engines
+     * which do not support concurrent prediction are only invoked on one thread at a time. The
+     * results are merged into the given predictions which can be updated concurrently.
+     */
+    private void computePredictionsInBatches(User aUser, Project aProject,
+            List<SourceDocument> aDocuments, List<ActiveRecommender> aRecommenders,
+            Predictions aPreviousPredictions, Predictions aPredictions)
+    {
+        String username = aUser.getUsername();
+        int batchSize = Math.max(1, properties.getPredictionBatchSize());
+
+        // The prediction CASes are re-used for all batches
+        List<CAS> predictionCasses = new ArrayList<>();
         try {
-            predictionCas = CasCreationUtils.createCas((TypeSystemDescription) null, null, null);
+            for (int i = 0; i < aDocuments.size(); i += batchSize) {
+                if (Thread.currentThread().isInterrupted()) {
+                    log.debug("[{}]: Interrupted - stopping predictions", username);
+                    return;
+                }
+
+                List<SourceDocument> batch = aDocuments.subList(i,
+                        Math.min(i + batchSize, aDocuments.size()));
+                while (predictionCasses.size() < batch.size()) {
+                    predictionCasses.add(predictionCasPool.borrowCas(aProject));
+                }
+
+                computePredictions(aUser, aProject, batch, aRecommenders, aPreviousPredictions,
+                        aPredictions, predictionCasses);
+            }
         }
         catch (ResourceInitializationException e) {
             log.info("Cannot create prediction CAS, stopping predictions!");
-            return predictions;
         }
+        finally {
+            predictionCasses.forEach(cas -> predictionCasPool.returnCas(aProject, cas));
+        }
+    }
 
-        nextDocument: for (SourceDocument document : aDocuments) {
-            Optional<CAS> originalCas = Optional.empty();
-            nextLayer: for (AnnotationLayer layer : annoService
-                    .listAnnotationLayer(document.getProject())) {
-                if (!layer.isEnabled()) {
-                    continue nextLayer;
+    /**
+     * Computes the predictions for a batch of documents. Each recommender is invoked only once for
+     * all documents of the batch which it needs to predict on, each document in its own prediction
+     * CAS.
+     */
+    private void computePredictions(User aUser, Project aProject,
+            List<SourceDocument> aDocuments, List<ActiveRecommender> aRecommenders,
+            Predictions aPreviousPredictions, Predictions aPredictions,
+            List<CAS> aPredictionCasses)
+    {
+        String username = aUser.getUsername();
+
+        List<PredictionDocument> documents = new ArrayList<>();
+        for (int i = 0; i < aDocuments.size(); i++) {
+            SourceDocument document = aDocuments.get(i);
+            Optional<Long> casTimestamp;
+            try {
+                casTimestamp = documentService.getAnnotationCasTimestamp(document, username);
+            }
+            catch (IOException e) {
+                casTimestamp = Optional.empty();
+            }
+            documents.add(new PredictionDocument(document, casTimestamp,
+                    aPredictionCasses.get(i)));
+        }
+
+        nextRecommender: for (ActiveRecommender activeRecommender : aRecommenders) {
+            AnnotationLayer layer = activeRecommender.getLayer();
+            Recommender recommender = activeRecommender.getRecommender();
+            RecommenderContext ctx = activeRecommender.getContext();
+
+            List<PredictionDocument> pending = new ArrayList<>();
+            for (PredictionDocument doc : documents) {
+                if (doc.failed) {
+                    continue;
                 }
 
-                List<EvaluatedRecommender> recommenders = getActiveRecommenders(aUser, layer);
-                
-                if (recommenders.isEmpty()) {
-                    log.trace("[{}]: No active recommenders on layer [{}]", username,
-                            layer.getUiName());
+                if (aPreviousPredictions != null && doc.casTimestamp.isPresent()
+                        && aPreviousPredictions.isUpToDate(doc.document.getName(),
+                                recommender.getId(), doc.casTimestamp.get(), ctx.getVersion())) {
+                    aPredictions.carryForward(aPreviousPredictions, doc.document.getName(),
+                            recommender);
+                    log.trace("[{}][{}]: Document [{}] unchanged - carrying predictions "
+                            + "forward", username, recommender.getName(), doc.document.getName());
                     continue;
                 }
 
-                nextRecommender: for (EvaluatedRecommender r : recommenders) {
-                    
-                    // Make sure we have the latest recommender config from the DB - the one from
-                    // the active recommenders list may be outdated
-                    Recommender recommender;
+                // We lazily load the CAS only at this point because that allows us to skip
+                // loading the CAS entirely if there is no enabled layer or recommender.
+                // If the CAS cannot be loaded, then we skip the document.
+                if (loadOriginalCas(doc, username)) {
+                    pending.add(doc);
+                }
+            }
 
-                    try {
-                        recommender = getRecommender(r.getRecommender().getId());
-                    }
-                    catch (NoResultException e) {
-                        log.info("[{}][{}]: Recommender no longer available... skipping",
-                                username, r.getRecommender().getName());
-                        continue nextRecommender;
-                    }
+            if (pending.isEmpty()) {
+                continue nextRecommender;
+            }
 
-                    if (!recommender.isEnabled()) {
-                        log.debug("[{}][{}]: Disabled - skipping", username,
-                                r.getRecommender().getName());
-                        continue nextRecommender;
-                    }
+            RecommendationEngine recommendationEngine;
+            try {
+                recommendationEngine = activeRecommender.getFactory().build(recommender);
 
-                    Optional<RecommenderContext> context = getContext(aUser, recommender);
+                if (!recommendationEngine.isReadyForPrediction(ctx)) {
+                    log.info("Recommender context [{}]({}) for user [{}] in project "
+                            + "[{}]({}) is not ready for prediction - skipping recommender",
+                            recommender.getName(), recommender.getId(), username,
+                            aProject.getName(), aProject.getId());
+                    continue nextRecommender;
+                }
+            }
+            catch (Throwable e) {
+                log.error("Error building recommender [{}]({}) for user [{}] in project [{}]({}) "
+                        + "- skipping recommender", recommender.getName(), recommender.getId(),
+                        username, aProject.getName(), aProject.getId(), e);
+                continue nextRecommender;
+            }
 
-                    if (!context.isPresent()) {
-                        log.info("No context available for recommender [{}]({}) for user [{}] "
-                                + "on document [{}]({}) in project [{}]({}) - skipping recommender",
-                                recommender.getName(), recommender.getId(), username,
-                                document.getName(), document.getId(),
-                                document.getProject().getName(), document.getProject().getId());
-                        continue nextRecommender;
-                    }
-                    
-                    RecommenderContext ctx = context.get();
-                    ctx.setUser(aUser);
-                    
-                    RecommendationEngineFactory<?> factory = getRecommenderFactory(recommender);
-                    
-                    // Check that configured layer and feature are accepted 
-                    // by this type of recommender
-                    if (!factory.accepts(recommender.getLayer(), recommender.getFeature())) {
-                        log.info("[{}][{}]: Recommender configured with invalid layer or feature "
-                                + "- skipping recommender", username, r.getRecommender().getName());
-                        continue nextRecommender;
-                    }
+            log.trace("[{}][{}]: Generating predictions for layer [{}] on {} documents",
+                    username, recommender.getName(), layer.getUiName(), pending.size());
+
+            // If the recommender is not trainable and not sensitive to annotations,
+            // we can actually re-use the predictions.
+            Predictions activePredictions = getPredictions(aUser, aProject);
+            if (TRAINING_NOT_SUPPORTED.equals(recommendationEngine.getTrainingCapability())
+                    && activePredictions != null) {
+                for (PredictionDocument doc : pending) {
+                    inheritPredictions(aUser, activeRecommender, doc, activePredictions,
+                            aPredictions);
+                }
+                continue nextRecommender;
+            }
 
-                    // We lazily load the CAS only at this point because that allows us to skip
-                    // loading the CAS entirely if there is no enabled layer or recommender.
-                    // If the CAS cannot be loaded, then we skip to the next document.
-                    if (!originalCas.isPresent()) {
-                        try {
-                            originalCas = Optional.of(documentService.readAnnotationCas(document,
-                                    username));
-                        }
-                        catch (IOException e) {
-                            log.error(
-                                    "Cannot read annotation CAS for user [{}] of document "
-                                            + "[{}]({}) in project [{}]({}) - skipping document",
-                                    username, document.getName(), document.getId(),
-                                    document.getProject().getName(), document.getProject().getId(),
-                                    e);
-                            continue nextDocument;
-                        }
+            long batchStart = System.currentTimeMillis();
+            try {
+                List<CAS> casses = new ArrayList<>();
+                for (PredictionDocument doc : pending) {
+                    PredictionCasPool.load(doc.serializedOriginalCas,
+                            doc.originalCas.getTypeSystem(), doc.predictionCas);
+                    casses.add(doc.predictionCas);
+                }
+
+                // Perform the actual prediction
+                if (recommendationEngine.isConcurrentPredictionSupported()) {
+                    recommendationEngine.predict(ctx, casses);
+                }
+                else {
+                    synchronized (predictionLocks.get(ctx, _ctx -> new Object())) {
+                        recommendationEngine.predict(ctx, casses);
                     }
+                }
+            }
+            catch (Throwable e) {
+                log.error("Error applying recommender [{}]({}) for user [{}] to documents {} in "
+                        + "project [{}]({}) - skipping recommender", recommender.getName(),
+                        recommender.getId(), username,
+                        pending.stream().map(doc -> doc.document.getName()).collect(toList()),
+                        aProject.getName(), aProject.getId(), e);
+                continue nextRecommender;
+            }
 
-                    try {
-                        RecommendationEngine recommendationEngine = factory.build(recommender);
-                        
-                        if (!recommendationEngine.isReadyForPrediction(ctx)) {
-                            log.info("Recommender context [{}]({}) for user [{}] in project "
-                                    + "[{}]({}) is not ready for prediction - skipping recommender",
-                                    recommender.getName(), recommender.getId(), username,
-                                    document.getProject().getName(), document.getProject().getId());
-                            continue nextRecommender;
-                        }
+            // The time for loading the documents and predicting is shared by the whole batch, so
+            // the time spent on a single document is only known if the batch holds only one
+            long batchDuration = System.currentTimeMillis() - batchStart;
+
+            for (PredictionDocument doc : pending) {
+                long documentStart = System.currentTimeMillis();
+                try {
+                    // The tokens are the same for all recommenders, so we index them only
+                    // once per document
+                    if (doc.tokenIndex == null) {
+                        doc.tokenIndex = new TokenOffsetIndex(doc.predictionCas);
+                    }
 
-                        log.trace("[{}][{}]: Generating predictions for layer [{}]", username,
-                                r.getRecommender().getName(), layer.getUiName());
-                        
-                        cloneAndMonkeyPatchCAS(aProject, originalCas.get(), predictionCas);
+                    // Extract the suggestions from the data which the recommender has
+                    // written into the CAS
+                    List<AnnotationSuggestion> suggestions = extractSuggestions(aUser,
+                            doc.predictionCas, doc.tokenIndex, doc.document, recommender);
 
-                        List<AnnotationSuggestion> suggestions;
-                        
-                        // If the recommender is not trainable and not sensitive to annotations, 
-                        // we can actually re-use the predictions.
-                        Predictions activePredictions = getPredictions(aUser, aProject);
-                        if (TRAINING_NOT_SUPPORTED
-                                .equals(recommendationEngine.getTrainingCapability())
-                                && activePredictions != null) {
-                            
-                            suggestions = activePredictions
-                                    .getPredictionsByRecommender(recommender);
-                            
-                            // Calculate the visibility of the suggestions. This happens via the 
-                            // original CAS which contains only the manually created annotations  
-                            // and *not* the suggestions.
-                            suggestions.forEach(s -> s.show(FLAG_ALL));
-                            Collection<SuggestionGroup> groups = SuggestionGroup.group(suggestions);
-                            calculateVisibility(originalCas.get(), username, layer,
-                                    groups, 0, originalCas.get().getDocumentText().length());
-                            
-                            log.debug("[{}]({}) for user [{}] on document "
-                                    + "[{}]({}) in project [{}]({}) inherited {} predictions.",
-                                    recommender.getName(), recommender.getId(), aUser.getUsername(),
-                                    document.getName(), document.getId(),
-                                    recommender.getProject().getName(),
-                                    recommender.getProject().getId(), suggestions.size());
-                        }
-                        else {
-                            // Perform the actual prediction
-                            recommendationEngine.predict(ctx, predictionCas);
-
-                            // Extract the suggestions from the data which the recommender has 
-                            // written into the CAS
-                            suggestions = extractSuggestions(aUser, predictionCas, document,
-                                    recommender);
-                            
-                            // Calculate the visibility of the suggestions. This happens via the 
-                            // original CAS which contains only the manually created annotations  
-                            // and *not* the suggestions.
-                            Collection<SuggestionGroup> groups = SuggestionGroup.group(suggestions);
-                            calculateVisibility(originalCas.get(), username, layer,
-                                    groups, 0, originalCas.get().getDocumentText().length());
-                        }
+                    putPredictions(username, activeRecommender, doc, suggestions, aPredictions);
 
-                        predictions.putPredictions(layer.getId(), suggestions);
-                    }
-                    catch (Throwable e) {
-                        log.error(
-                                "Error applying recommender [{}]({}) for user [{}] to document "
-                                        + "[{}]({}) in project [{}]({}) - skipping recommender",
-                                recommender.getName(), recommender.getId(), username,
-                                document.getName(), document.getId(),
-                                document.getProject().getName(), document.getProject().getId(), e);
-                        continue nextRecommender;
+                    activeRecommender.recordPrediction(suggestions.size());
+                    if (pending.size() == 1) {
+                        activeRecommender.recordDocumentDuration(
+                                batchDuration + System.currentTimeMillis() - documentStart);
                     }
                 }
+                catch (Throwable e) {
+                    log.error(
+                            "Error applying recommender [{}]({}) for user [{}] to document "
+                                    + "[{}]({}) in project [{}]({}) - skipping recommender",
+                            recommender.getName(), recommender.getId(), username,
+                            doc.document.getName(), doc.document.getId(), aProject.getName(),
+                            aProject.getId(), e);
+                }
             }
         }
+    }
 
-        return predictions;
+    /**
+     * Reads the annotation CAS of the given document unless it has already been read.
+     * 
+     * @return whether the CAS is available.
+     */
+    private boolean loadOriginalCas(PredictionDocument aDoc, String aUser)
+    {
+        if (aDoc.originalCas != null) {
+            return true;
+        }
+
+        try {
+            aDoc.originalCas = casSnapshotCache.getSnapshot(aDoc.document, aUser);
+            aDoc.serializedOriginalCas = PredictionCasPool.serialize(aDoc.originalCas);
+            return true;
+        }
+        catch (IOException e) {
+            log.error("Cannot read annotation CAS for user [{}] of document "
+                    + "[{}]({}) in project [{}]({}) - skipping document", aUser,
+                    aDoc.document.getName(), aDoc.document.getId(),
+                    aDoc.document.getProject().getName(), aDoc.document.getProject().getId(), e);
+            aDoc.originalCas = null;
+            aDoc.failed = true;
+            return false;
+        }
+    }
+
+    private void inheritPredictions(User aUser, ActiveRecommender aRecommender,
+            PredictionDocument aDoc, Predictions aActivePredictions, Predictions aPredictions)
+    {
+        Recommender recommender = aRecommender.getRecommender();
+        long documentStart = System.currentTimeMillis();
+        try {
+            // Copy the suggestions so that resetting their visibility does not affect the active
+            // predictions which share their visibility with the views
+            List<AnnotationSuggestion> suggestions = aActivePredictions
+                    .getPredictionsByRecommender(recommender).stream()
+                    .map(SimpleAnnotationSuggestion::new)
+                    .collect(toList());
+            suggestions.forEach(s -> s.show(FLAG_ALL));
+
+            putPredictions(aUser.getUsername(), aRecommender, aDoc, suggestions, aPredictions);
+
+            log.debug("[{}]({}) for user [{}] on document "
+                    + "[{}]({}) in project [{}]({}) inherited {} predictions.",
+                    recommender.getName(), recommender.getId(), aUser.getUsername(),
+                    aDoc.document.getName(), aDoc.document.getId(),
+                    recommender.getProject().getName(), recommender.getProject().getId(),
+                    suggestions.size());
+
+            aRecommender.recordPrediction(suggestions.size());
+            aRecommender.recordDocumentDuration(System.currentTimeMillis() - documentStart);
+        }
+        catch (Throwable e) {
+            log.error(
+                    "Error applying recommender [{}]({}) for user [{}] to document "
+                            + "[{}]({}) in project [{}]({}) - skipping recommender",
+                    recommender.getName(), recommender.getId(), aUser.getUsername(),
+                    aDoc.document.getName(), aDoc.document.getId(),
+                    recommender.getProject().getName(), recommender.getProject().getId(), e);
+        }
+    }
+
+    private void putPredictions(String aUser, ActiveRecommender aRecommender,
+            PredictionDocument aDoc, List<AnnotationSuggestion> aSuggestions,
+            Predictions aPredictions)
+    {
+        AnnotationLayer layer = aRecommender.getLayer();
+
+        // Calculate the visibility of the suggestions. This happens via the original CAS which
+        // contains only the manually created annotations and *not* the suggestions. The original
+        // CAS is a snapshot which does not change, so the recommenders on the same layer can share
+        // the annotation index.
+        Collection<SuggestionGroup> groups = SuggestionGroup.group(aSuggestions);
+        calculateVisibility(aDoc.originalCas, aUser, layer, groups, 0,
+                aDoc.originalCas.getDocumentText().length(),
+                type -> aDoc.annotationIndexes.computeIfAbsent(type.getName(),
+                        typeName -> new AnnotationIntervalTree(aDoc.originalCas, type)));
+
+        aPredictions.putPredictions(layer.getId(), aSuggestions);
+        if (aDoc.casTimestamp.isPresent()) {
+            aPredictions.putInputs(aDoc.document.getName(), aRecommender.getRecommender().getId(),
+                    aDoc.casTimestamp.get(), aRecommender.getContext().getVersion());
+        }
+    }
+
+    /**
+     * A document of a prediction batch together with the CASes used to predict on it.
+     */
+    private static class PredictionDocument
+    {
+        private final SourceDocument document;
+        private final Optional<Long> casTimestamp;
+        private final CAS predictionCas;
+        private CAS originalCas;
+        private byte[] serializedOriginalCas;
+        private TokenOffsetIndex tokenIndex;
+        private final Map<String, AnnotationIntervalTree> annotationIndexes = new HashMap<>();
+        private boolean failed = false;
+
+        private PredictionDocument(SourceDocument aDocument, Optional<Long> aCasTimestamp,
+                CAS aPredictionCas)
+        {
+            document = aDocument;
+            casTimestamp = aCasTimestamp;
+            predictionCas = aPredictionCas;
+        }
     }
 
     private List<AnnotationSuggestion> extractSuggestions(User aUser, CAS aCas,
-                                                          SourceDocument aDocument,
-                                                          Recommender aRecommender)
+            TokenOffsetIndex aTokenIndex, SourceDocument aDocument, Recommender aRecommender)
     {
         String typeName = aRecommender.getLayer().getName();
         String featureName = aRecommender.getFeature().getName();
@@ -1042,8 +1937,6 @@ public class RecommendationServiceImpl
 
         int predictionCount = 0;
 
-        Type tokenType = getType(aCas, Token.class);
-
         List<AnnotationSuggestion> result = new ArrayList<>();
         int id = 0;
         for (AnnotationFS annotationFS : CasUtil.select(aCas, predictedType)) {
@@ -1051,26 +1944,24 @@ public class RecommendationServiceImpl
                 continue;
             }
 
-            List<AnnotationFS> tokens = CasUtil.selectCovered(tokenType, annotationFS);
-            if (tokens.isEmpty()) {
+            Optional<Offset> tokenBoundaries = aTokenIndex
+                    .getCoveredTokenBoundaries(annotationFS.getBegin(), annotationFS.getEnd());
+            if (!tokenBoundaries.isPresent()) {
                 // This can happen if a recommender uses different token boundaries (e.g. if a 
                 // remote service performs its own tokenization). We might be smart here by looking
                 // for overlapping tokens instead of contained tokens.
                 continue;
             }
-            
-            AnnotationFS firstToken = tokens.get(0);
-            AnnotationFS lastToken = tokens.get(tokens.size() - 1);
 
             String label = annotationFS.getFeatureValueAsString(predictedFeature);
             double score = annotationFS.getDoubleValue(scoreFeature);
             String scoreExplanation = annotationFS.getStringValue(scoreExplanationFeature);
             String name = aRecommender.getName();
 
-            AnnotationSuggestion ao = new AnnotationSuggestion(id, aRecommender.getId(), name,
+            AnnotationSuggestion ao = new SimpleAnnotationSuggestion(id, aRecommender.getId(), name,
                     aRecommender.getLayer().getId(), featureName, aDocument.getName(),
-                    firstToken.getBegin(), lastToken.getEnd(), annotationFS.getCoveredText(), label,
-                    label, score, scoreExplanation);
+                    tokenBoundaries.get().getBegin(), tokenBoundaries.get().getEnd(),
+                    annotationFS.getCoveredText(), label, label, score, scoreExplanation);
 
             result.add(ao);
             id++;
@@ -1094,13 +1985,25 @@ public class RecommendationServiceImpl
     @Override
     public void calculateVisibility(CAS aCas, String aUser, AnnotationLayer aLayer,
             Collection<SuggestionGroup> aRecommendations, int aWindowBegin, int aWindowEnd)
+    {
+        // The CAS may have changed since the last call, so we index its annotations again
+        calculateVisibility(aCas, aUser, aLayer, aRecommendations, aWindowBegin, aWindowEnd,
+                type -> new AnnotationIntervalTree(aCas, type));
+    }
+
+    /**
+     * @param aAnnotationIndex
+     *            provides the index of the annotations of the given type in the given CAS.
+     */
+    private void calculateVisibility(CAS aCas, String aUser, AnnotationLayer aLayer,
+            Collection<SuggestionGroup> aRecommendations, int aWindowBegin, int aWindowEnd,
+            Function<Type, AnnotationIntervalTree> aAnnotationIndex)
     {
         // NOTE: In order to avoid having to upgrade the "original CAS" in computePredictions,this
         // method is implemented in such a way that it gracefully handles cases where the CAS and
         // the project type system are not in sync - specifically the CAS where the project defines
         // layers or features which do not exist in the CAS.
         
-        // Collect all annotations of the given layer within the view window
         Type type;
         try {
             type = CasUtil.getType(aCas, aLayer.getName());
@@ -1111,9 +2014,9 @@ public class RecommendationServiceImpl
             return;
         }
         
-        List<AnnotationFS> annotationsInWindow = select(aCas, type).stream()
-                .filter(fs -> aWindowBegin <= fs.getBegin() && fs.getEnd() <= aWindowEnd)
-                .collect(toList());
+        // Building the tree takes a single pass over the annotations of the layer, after which
+        // each suggestion group only needs to look at the annotations near it
+        AnnotationIntervalTree annotations = aAnnotationIndex.apply(type);
 
         // Collect all suggestions of the given layer within the view window
         List<SuggestionGroup> suggestionsInWindow = aRecommendations.stream()
@@ -1126,7 +2029,7 @@ public class RecommendationServiceImpl
                 }).collect(toList());
 
         // Get all the skipped/rejected entries for the current layer
-        List<LearningRecord> recordedAnnotations = learningRecordService.listRecords(aUser,
+        LearningRecordIndex recordedAnnotations = learningRecordService.getRecordIndex(aUser,
                 aLayer);
 
         for (AnnotationFeature feature : annoService.listAnnotationFeature(aLayer)) {
@@ -1138,123 +2041,83 @@ public class RecommendationServiceImpl
                 // we'll just skip.
                 return;
             }
-            
-            // Reduce the annotations to the ones which have a non-null feature value. We need to
-            // use a multi-valued map here because there may be multiple annotations at a
-            // given position.
-            MultiValuedMap<Offset, AnnotationFS> annotations = new ArrayListValuedHashMap<>();
-            annotationsInWindow.stream()
-                    .forEach(fs -> annotations.put(new Offset(fs.getBegin(), fs.getEnd()), fs));
-            // We need to constructed a sorted list of the keys for the OverlapIterator below
-            List<Offset> sortedAnnotationKeys = new ArrayList<>(annotations.keySet());
-            sortedAnnotationKeys
-                    .sort(comparingInt(Offset::getBegin).thenComparingInt(Offset::getEnd));
-
-            // Reduce the suggestions to the ones for the given feature. We can use the tree here
-            // since we only have a single SuggestionGroup for every position
-            Map<Offset, SuggestionGroup> suggestions = new TreeMap<>(
-                    comparingInt(Offset::getBegin).thenComparingInt(Offset::getEnd));
-            suggestionsInWindow.stream()
-                    .filter(group -> group.getFeature().equals(feature.getName()))
-                    .forEach(group -> suggestions.put(group.getOffset(), group));
-
-            // If there are no suggestions or no annotations, there is nothing to do here
-            if (suggestions.isEmpty() || annotations.isEmpty()) {
-                continue;
+
+            for (SuggestionGroup group : suggestionsInWindow) {
+                if (!group.getFeature().equals(feature.getName())) {
+                    continue;
+                }
+
+                // Hide the suggestions that overlap with existing annotations on the current
+                // layer and for the current feature
+                hideOverlappingSuggestions(aCas, aLayer, feat, group, annotations, aWindowBegin,
+                        aWindowEnd);
+
+                // Anything that was not hidden so far might still have been rejected
+                group.stream()
+                        .filter(AnnotationSuggestion::isVisible)
+                        .forEach(suggestion -> hideSuggestionsRejectedOrSkipped(suggestion,
+                                recordedAnnotations));
             }
+        }
+    }
 
-            // This iterator gives us pairs of annotations and suggestions. Note that both lists
-            // must be sorted in the same way. The suggestion offsets are sorted because they are 
-            // the keys in a TreeSet - and the annotation offsets are sorted in the same way 
-            // manually
-            OverlapIterator oi = new OverlapIterator(new ArrayList<>(suggestions.keySet()),
-                    sortedAnnotationKeys);
-
-            // Bulk-hide any groups that overlap with existing annotations on the current layer
-            // and for the current feature
-            while (oi.hasNext()) {
-                if (oi.getA().overlaps(oi.getB())) {
-                    // Fetch the current suggestion and annotation
-                    SuggestionGroup group = suggestions.get(oi.getA());
-                    for (AnnotationFS annotation : annotations.get(oi.getB())) {
-                        String label = annotation.getFeatureValueAsString(feat);
-                        for (AnnotationSuggestion suggestion : group) {
-                            if (!aLayer.isAllowStacking()
-                                    || (label != null && label.equals(suggestion.getLabel()))
-                                    || suggestion.getLabel() == null) {
-                                suggestion.hide(FLAG_OVERLAP);
-                            }
-                        }
-                    }
+    private void hideOverlappingSuggestions(CAS aCas, AnnotationLayer aLayer, Feature aFeature,
+            SuggestionGroup aGroup, AnnotationIntervalTree aAnnotations, int aWindowBegin,
+            int aWindowEnd)
+    {
+        Offset offset = aGroup.getOffset();
+        aAnnotations.forEachNear(offset.getBegin(), offset.getEnd(), (address, begin, end) -> {
+            // Only annotations within the view window are considered
+            if (begin < aWindowBegin || aWindowEnd < end
+                    || !offset.overlaps(new Offset(begin, end))) {
+                return;
+            }
 
-                    // Do not want to process the group again since the relevant annotations are
-                    // already hidden
-                    oi.ignoraA();
-                }
-                oi.step();
+            // Without stacking, any overlapping annotation hides the suggestions - there is no
+            // need to look at its label
+            String label = null;
+            if (aLayer.isAllowStacking()) {
+                label = selectByAddr(aCas, AnnotationFS.class, address)
+                        .getFeatureValueAsString(aFeature);
             }
 
-            // Anything that was not hidden so far might still have been rejected
-            suggestions.values().stream().flatMap(SuggestionGroup::stream)
-                    .filter(AnnotationSuggestion::isVisible)
-                    .forEach(suggestion -> hideSuggestionsRejectedOrSkipped(suggestion,
-                            recordedAnnotations));
-        }
+            for (AnnotationSuggestion suggestion : aGroup) {
+                if (!aLayer.isAllowStacking()
+                        || (label != null && label.equals(suggestion.getLabel()))
+                        || suggestion.getLabel() == null) {
+                    suggestion.hide(FLAG_OVERLAP);
+                }
+            }
+        });
     }
 
     private void hideSuggestionsRejectedOrSkipped(AnnotationSuggestion aSuggestion,
-            List<LearningRecord> aRecordedRecommendations)
+            LearningRecordIndex aRecordedRecommendations)
     {
         // If it was rejected or skipped, hide it
-        for (LearningRecord record : aRecordedRecommendations) {
-            boolean isAtTheSamePlace = record.getOffsetCharacterBegin() == aSuggestion
-                    .getBegin() && record.getOffsetCharacterEnd() == aSuggestion.getEnd();
-            if (isAtTheSamePlace && aSuggestion.labelEquals(record.getAnnotation())) {
-                switch (record.getUserAction()) {
-                case REJECTED:
-                    aSuggestion.hide(FLAG_REJECTED);
-                    break;
-                case SKIPPED:
-                    aSuggestion.hide(FLAG_SKIPPED);
-                    break;
-                default:
-                    // Nothing to do for the other cases. ACCEPTED annotation are filtered out
-                    // because the overlap with a created annotation and the same for CORRECTED
-                }
-                return;
-            }
+        Optional<LearningRecord> record = aRecordedRecommendations.get(aSuggestion);
+        if (!record.isPresent()) {
+            return;
+        }
+
+        switch (record.get().getUserAction()) {
+        case REJECTED:
+            aSuggestion.hide(FLAG_REJECTED);
+            break;
+        case SKIPPED:
+            aSuggestion.hide(FLAG_SKIPPED);
+            break;
+        default:
+            // Nothing to do for the other cases. ACCEPTED annotation are filtered out
+            // because the overlap with a created annotation and the same for CORRECTED
         }
     }
 
     public CAS cloneAndMonkeyPatchCAS(Project aProject, CAS aSourceCas, CAS aTargetCas)
         throws UIMAException, IOException
     {
-        try (StopWatch watch = new StopWatch(log, "adding score features")) {
-            TypeSystemDescription tsd = annoService.getFullProjectTypeSystem(aProject);
-
-            for (AnnotationLayer layer : annoService.listAnnotationLayer(aProject)) {
-                TypeDescription td = tsd.getType(layer.getName());
-
-                if (td == null) {
-                    log.trace("Could not monkey patch type [{}]", layer.getName());
-                    continue;
-                }
-
-                for (FeatureDescription feature : td.getFeatures()) {
-                    String scoreFeatureName = feature.getName() + FEATURE_NAME_SCORE_SUFFIX;
-                    td.addFeature(scoreFeatureName, "Score feature", CAS.TYPE_NAME_DOUBLE);
-                    
-                    String scoreExplanationFeatureName = feature.getName() + 
-                            FEATURE_NAME_SCORE_EXPLANATION_SUFFIX;
-                    td.addFeature(scoreExplanationFeatureName, "Score explanation feature", 
-                            CAS.TYPE_NAME_STRING);
-                }
-
-                td.addFeature(FEATURE_NAME_IS_PREDICTION, "Is Prediction", CAS.TYPE_NAME_BOOLEAN);
-            }
-
-            annoService.upgradeCas(aSourceCas, aTargetCas, tsd);
-        }
+        TypeSystemDescription tsd = predictionCasPool.getTypeSystemDescription(aProject);
+        annoService.upgradeCas(aSourceCas, aTargetCas, tsd);
 
         return aTargetCas;
     }
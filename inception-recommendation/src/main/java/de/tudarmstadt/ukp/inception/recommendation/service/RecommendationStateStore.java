@@ -0,0 +1,179 @@
+/*
+ * Copyright 2019
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.recommendation.service;
+
+import static de.tudarmstadt.ukp.inception.recommendation.util.RepositoryUtil.encodeUsername;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.function.Predicate;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps the recommendation states of users which have been idle for a while in files so that they
+ * do not occupy the heap. The files are placed in a temporary folder which is created when the
+ * first state is spilled and which is removed again on {@link #close()}. Spilled states are not
+ * meant to survive a restart - the sessions they belong to do not survive it either.
+ */
+public class RecommendationStateStore
+{
+    private static final String SUFFIX = ".state";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    private volatile Path folder;
+
+    /**
+     * Writes the given state, replacing any state which has been spilled before for the same user
+     * and project. The state is serialized into a temporary file which then replaces the spilled
+     * state, so writing does not block access to the states of other users.
+     */
+    public void write(String aUsername, long aProjectId, Serializable aState)
+        throws IOException
+    {
+        Path file = getFile(getOrCreateFolder(), aUsername, aProjectId);
+        Path tempFile = Files.createTempFile(file.getParent(), null, TEMP_SUFFIX);
+        try {
+            try (ObjectOutputStream out = new ObjectOutputStream(new GZIPOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(tempFile))))) {
+                out.writeObject(aState);
+            }
+            Files.move(tempFile, file, REPLACE_EXISTING);
+        }
+        finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    /**
+     * Reads the spilled state of the given user and project and removes it from the store. The
+     * file is moved out of the store before it is read, so reading does not block access to the
+     * states of other users and a state cannot be read twice.
+     */
+    public <T extends Serializable> Optional<T> read(String aUsername, long aProjectId,
+            Class<T> aType)
+        throws IOException
+    {
+        Path currentFolder = folder;
+        if (currentFolder == null) {
+            return Optional.empty();
+        }
+
+        Path file = getFile(currentFolder, aUsername, aProjectId);
+        if (!Files.exists(file)) {
+            return Optional.empty();
+        }
+
+        Path tempFile = Files.createTempFile(currentFolder, null, TEMP_SUFFIX);
+        try {
+            try {
+                Files.move(file, tempFile, REPLACE_EXISTING);
+            }
+            catch (NoSuchFileException e) {
+                return Optional.empty();
+            }
+
+            try (ObjectInputStream in = new ObjectInputStream(new GZIPInputStream(
+                    new BufferedInputStream(Files.newInputStream(tempFile))))) {
+                return Optional.of(aType.cast(in.readObject()));
+            }
+            catch (ClassNotFoundException e) {
+                throw new IOException(e);
+            }
+        }
+        finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    public void delete(String aUsername)
+    {
+        String suffix = "-" + encodeUsername(aUsername) + SUFFIX;
+        delete(name -> name.endsWith(suffix));
+    }
+
+    public void delete(long aProjectId)
+    {
+        String prefix = aProjectId + "-";
+        delete(name -> name.startsWith(prefix));
+    }
+
+    /**
+     * Removes all spilled states and the folder containing them.
+     */
+    public synchronized void close()
+    {
+        delete(name -> true);
+
+        if (folder != null) {
+            try {
+                Files.deleteIfExists(folder);
+            }
+            catch (IOException e) {
+                log.warn("Unable to remove folder [{}]", folder, e);
+            }
+            folder = null;
+        }
+    }
+
+    private synchronized void delete(Predicate<String> aFilter)
+    {
+        if (folder == null) {
+            return;
+        }
+
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(folder, "*" + SUFFIX)) {
+            for (Path file : files) {
+                if (aFilter.test(file.getFileName().toString())) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+        catch (IOException e) {
+            log.warn("Unable to remove spilled recommendation states from [{}]", folder, e);
+        }
+    }
+
+    private synchronized Path getOrCreateFolder() throws IOException
+    {
+        if (folder == null) {
+            folder = Files.createTempDirectory("inception-recommendation-states");
+        }
+        return folder;
+    }
+
+    private static Path getFile(Path aFolder, String aUsername, long aProjectId)
+    {
+        return aFolder.resolve(aProjectId + "-" + encodeUsername(aUsername) + SUFFIX);
+    }
+}
@@ -0,0 +1,221 @@
+/*
+ * Copyright 2019
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.recommendation.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import de.tudarmstadt.ukp.clarin.webanno.api.event.BeforeProjectRemovedEvent;
+import de.tudarmstadt.ukp.clarin.webanno.model.Project;
+import de.tudarmstadt.ukp.inception.recommendation.config.RecommendationProperties;
+
+/**
+ * Runs the per-recommender work of the training and selection tasks, i.e. training and evaluating
+ * the individual recommenders, in parallel. The thread running the task works on the jobs itself
+ * and is helped by threads from a pool shared by all tasks. The number of helper threads working
+ * for the same project at the same time is limited (cf.
+ * {@link RecommendationProperties#getRecommenderParallelism()}), so that a project with many
+ * recommenders cannot occupy all the threads.
+ */
+@Component
+public class RecommenderExecutor
+    implements DisposableBean
+{
+    private final int parallelism;
+    private final ExecutorService executor;
+    private final Map<Long, Semaphore> helpersPerProject = new ConcurrentHashMap<>();
+
+    @Autowired
+    public RecommenderExecutor(RecommendationProperties aProperties)
+    {
+        parallelism = Math.max(1, aProperties.getRecommenderParallelism());
+
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(
+                Math.max(1, aProperties.getNumberOfRecommenderThreads()), runnable -> {
+                    Thread thread = new Thread(runnable,
+                            "Recommender worker " + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    @Override
+    public void destroy()
+    {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Runs the given jobs and waits for all of them to complete. The jobs must be independent of
+     * each other and must handle their own errors.
+     *
+     * @param aProject
+     *            the project the jobs belong to.
+     * @param aJobs
+     *            the jobs.
+     * @throws InterruptedException
+     *             if the calling thread is interrupted while waiting. Jobs which have not been
+     *             started yet are not run anymore.
+     */
+    public void runAll(Project aProject, List<? extends Runnable> aJobs)
+        throws InterruptedException
+    {
+        int helperCount = Math.min(parallelism, aJobs.size()) - 1;
+        if (helperCount <= 0) {
+            for (Runnable job : aJobs) {
+                job.run();
+            }
+            return;
+        }
+
+        Queue<Runnable> queue = new ConcurrentLinkedQueue<>(aJobs);
+        Semaphore helpers = helpersPerProject.computeIfAbsent(aProject.getId(),
+            id -> new Semaphore(parallelism - 1));
+
+        List<Helper> helperList = new ArrayList<>();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < helperCount; i++) {
+            Helper helper = new Helper(queue, helpers);
+            helperList.add(helper);
+            futures.add(executor.submit(helper));
+        }
+
+        try {
+            work(queue);
+
+            // All jobs have been taken from the queue. Helpers which have not started yet are
+            // not needed anymore and we only need to wait for those which are still working.
+            for (int i = 0; i < helperCount; i++) {
+                Helper helper = helperList.get(i);
+                if (helper.cancel()) {
+                    futures.get(i).cancel(false);
+                    continue;
+                }
+
+                helper.await();
+            }
+        }
+        finally {
+            queue.clear();
+            futures.forEach(future -> future.cancel(true));
+        }
+    }
+
+    @EventListener
+    public void beforeProjectRemove(BeforeProjectRemovedEvent aEvent)
+    {
+        helpersPerProject.remove(aEvent.getProject().getId());
+    }
+
+    private static void work(Queue<Runnable> aQueue)
+    {
+        Runnable job;
+        while (!Thread.currentThread().isInterrupted() && (job = aQueue.poll()) != null) {
+            job.run();
+        }
+    }
+
+    private static class Helper
+        implements Runnable
+    {
+        private final Queue<Runnable> queue;
+        private final Semaphore helpers;
+        private final AtomicBoolean claimed = new AtomicBoolean();
+        private final CountDownLatch finished = new CountDownLatch(1);
+        private volatile Throwable failure;
+
+        public Helper(Queue<Runnable> aQueue, Semaphore aHelpers)
+        {
+            queue = aQueue;
+            helpers = aHelpers;
+        }
+
+        @Override
+        public void run()
+        {
+            // The helper is either started by the pool or cancelled by the caller, never both
+            if (!claimed.compareAndSet(false, true)) {
+                return;
+            }
+
+            try {
+                // If other tasks of the project already use all the helpers it is allowed, the
+                // threads running the tasks have to do the work themselves
+                if (!helpers.tryAcquire()) {
+                    return;
+                }
+                try {
+                    work(queue);
+                }
+                finally {
+                    helpers.release();
+                }
+            }
+            catch (Throwable e) {
+                failure = e;
+            }
+            finally {
+                finished.countDown();
+            }
+        }
+
+        /**
+         * @return whether the helper was cancelled before it has started.
+         */
+        public boolean cancel()
+        {
+            return claimed.compareAndSet(false, true);
+        }
+
+        /**
+         * Waits for the helper to finish and passes on any error that occurred while it was
+         * working.
+         */
+        public void await() throws InterruptedException
+        {
+            finished.await();
+
+            if (failure instanceof RuntimeException) {
+                throw (RuntimeException) failure;
+            }
+            if (failure instanceof Error) {
+                throw (Error) failure;
+            }
+            if (failure != null) {
+                throw new IllegalStateException(failure);
+            }
+        }
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2019
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.recommendation.service;
+
+import static java.util.Collections.emptyList;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import de.tudarmstadt.ukp.inception.recommendation.api.model.Recommender;
+import de.tudarmstadt.ukp.inception.recommendation.config.RecommendationProperties;
+import de.tudarmstadt.ukp.inception.recommendation.event.RecommenderDeletedEvent;
+import de.tudarmstadt.ukp.inception.recommendation.model.RecommenderPerformanceRecord;
+
+/**
+ * Keeps the most recent performance measurements of each recommender (cf.
+ * {@link RecommenderPerformanceRecord}). The number of measurements kept per recommender is
+ * limited by {@link RecommendationProperties#getPerformanceHistorySize()}, older ones are dropped.
+ * The history is not persisted.
+ */
+@Component
+public class RecommenderPerformanceHistory
+{
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    private final RecommendationProperties properties;
+
+    private final Map<Long, Deque<RecommenderPerformanceRecord>> history;
+
+    @Autowired
+    public RecommenderPerformanceHistory(RecommendationProperties aProperties)
+    {
+        properties = aProperties;
+        history = new ConcurrentHashMap<>();
+    }
+
+    public void record(Recommender aRecommender, RecommenderPerformanceRecord aRecord)
+    {
+        // Recommenders which have not been saved yet cannot be shown in the settings anyway
+        if (aRecommender.getId() == null || properties.getPerformanceHistorySize() <= 0) {
+            return;
+        }
+
+        log.debug("[{}][{}]: {}", aRecord.getUser(), aRecommender.getName(), aRecord);
+
+        Deque<RecommenderPerformanceRecord> records = history.computeIfAbsent(
+                aRecommender.getId(), _key -> new ArrayDeque<>());
+        synchronized (records) {
+            records.addFirst(aRecord);
+            while (records.size() > properties.getPerformanceHistorySize()) {
+                records.removeLast();
+            }
+        }
+    }
+
+    /**
+     * @return the measurements for the given recommender, the most recent one first.
+     */
+    public List<RecommenderPerformanceRecord> getHistory(Recommender aRecommender)
+    {
+        if (aRecommender.getId() == null) {
+            return emptyList();
+        }
+
+        Deque<RecommenderPerformanceRecord> records = history.get(aRecommender.getId());
+        if (records == null) {
+            return emptyList();
+        }
+
+        synchronized (records) {
+            return new ArrayList<>(records);
+        }
+    }
+
+    @EventListener
+    public void onRecommenderDelete(RecommenderDeletedEvent aEvent)
+    {
+        if (aEvent.getRecommender().getId() != null) {
+            history.remove(aEvent.getRecommender().getId());
+        }
+    }
+}
@@ -22,7 +22,6 @@ import static de.tudarmstadt.ukp.inception.recommendation.api.model.AnnotationSu
 
 import java.io.IOException;
 import java.util.List;
-import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
@@ -144,10 +143,9 @@ public class RecommenderInfoPanel
                 .orElse(getDocumentTitle(cas));
         
         // Extract all predictions for the current document / recommender
-        List<AnnotationSuggestion> suggestions = predictions.getPredictions().entrySet().stream()
-                .filter(f -> f.getKey().getDocumentName().equals(sourceDocumentName))
-                .filter(f -> f.getKey().getRecommenderId() == aRecommender.getId().longValue())
-                .map(Map.Entry::getValue)
+        List<AnnotationSuggestion> suggestions = predictions
+                .getPredictionsByDocument(sourceDocumentName).stream()
+                .filter(f -> f.getRecommenderId() == aRecommender.getId().longValue())
                 .filter(s -> s.isVisible())
                 .collect(Collectors.toList());
 
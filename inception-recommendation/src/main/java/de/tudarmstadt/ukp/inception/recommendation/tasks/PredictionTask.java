@@ -17,7 +17,14 @@
  */
 package de.tudarmstadt.ukp.inception.recommendation.tasks;
 
+import static java.util.Arrays.asList;
+import static java.util.stream.Collectors.toList;
+
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -29,7 +36,10 @@ import de.tudarmstadt.ukp.clarin.webanno.model.SourceDocument;
 import de.tudarmstadt.ukp.clarin.webanno.security.model.User;
 import de.tudarmstadt.ukp.inception.recommendation.api.RecommendationService;
 import de.tudarmstadt.ukp.inception.recommendation.api.model.Predictions;
+import de.tudarmstadt.ukp.inception.recommendation.config.RecommendationProperties;
 import de.tudarmstadt.ukp.inception.scheduling.Task;
+import de.tudarmstadt.ukp.inception.scheduling.TaskPriority;
+import de.tudarmstadt.ukp.inception.scheduling.TaskResourceClass;
 
 /**
  * This consumer predicts new annotations for a given annotation layer, if a classification tool for
@@ -41,13 +51,31 @@ public class PredictionTask
     private Logger log = LoggerFactory.getLogger(getClass());
 
     private @Autowired RecommendationService recommendationService;
+    private @Autowired RecommenderTaskResources taskResources;
     private @Autowired DocumentService documentService;
+    private @Autowired RecommendationProperties properties;
 
     public PredictionTask(User aUser, Project aProject, String aTrigger)
     {
         super(aUser, aProject, aTrigger);
     }
 
+    /**
+     * The user is waiting for the predictions, so they should overtake any training or selection
+     * tasks which are still waiting to be executed.
+     */
+    @Override
+    public TaskPriority getPriority()
+    {
+        return TaskPriority.HIGH;
+    }
+
+    @Override
+    public TaskResourceClass getResourceClass()
+    {
+        return taskResources.getResourceClass(getProject());
+    }
+
     @Override
     public void run()
     {
@@ -61,11 +89,76 @@ public class PredictionTask
         
         long startTime = System.currentTimeMillis();
 
-        Predictions predictions = recommendationService.computePredictions(user, project, docs);
+        Predictions previousPredictions = recommendationService.getLatestPredictions(user,
+                project);
+        Predictions predictions = new Predictions(user, project);
+        
+        List<List<SourceDocument>> chunks = chunk(docs,
+                recommendationService.getFocusDocument(user, project));
+        List<SourceDocument> lastChunk = chunks.isEmpty() ? null : chunks.get(chunks.size() - 1);
+        AtomicInteger predictedDocs = new AtomicInteger();
+        recommendationService.computePredictions(user, project, chunks, previousPredictions,
+                predictions, chunk -> {
+                    if (isCancelled()) {
+                        return false;
+                    }
+                    
+                    predictedDocs.addAndGet(chunk.size());
+                    
+                    if (chunk != lastChunk) {
+                        // Publish the predictions on the documents of this chunk right away.
+                        // Until they have been predicted, the previous predictions remain in
+                        // place for the remaining documents.
+                        recommendationService.putIncomingPredictions(user, project, predictions,
+                                chunk.stream().map(SourceDocument::getName).collect(toList()));
+                        
+                        log.trace("[{}][{}]: Published predictions for [{}] of [{}] documents",
+                                getId(), user.getUsername(), predictedDocs.get(), docs.size());
+                    }
+                    
+                    return true;
+                });
+        
+        if (isCancelled()) {
+            log.debug("[{}][{}]: Prediction cancelled - discarding predictions", getId(),
+                    user.getUsername());
+            return;
+        }
         
         log.debug("[{}][{}]: Prediction complete ({} ms)", getId(), user.getUsername(),
                 (System.currentTimeMillis() - startTime));
 
         recommendationService.putIncomingPredictions(user, project, predictions);
     }
+    
+    /**
+     * Splits the documents into chunks. If there is a focus document, it forms the first chunk so
+     * that its predictions are published right away. The remaining documents are split into chunks
+     * of {@link RecommendationProperties#getPredictionChunkSize()} documents and the predictions
+     * are published after each chunk.
+     */
+    private List<List<SourceDocument>> chunk(List<SourceDocument> aDocuments,
+            Optional<SourceDocument> aFocusDocument)
+    {
+        List<SourceDocument> remainingDocs = new ArrayList<>(aDocuments);
+        List<List<SourceDocument>> chunks = new ArrayList<>();
+        
+        if (aFocusDocument.isPresent()) {
+            Long focusId = aFocusDocument.get().getId();
+            Optional<SourceDocument> focusDocument = remainingDocs.stream()
+                    .filter(doc -> Objects.equals(doc.getId(), focusId))
+                    .findFirst();
+            if (focusDocument.isPresent()) {
+                remainingDocs.remove(focusDocument.get());
+                chunks.add(asList(focusDocument.get()));
+            }
+        }
+        
+        int chunkSize = Math.max(1, properties.getPredictionChunkSize());
+        for (int i = 0; i < remainingDocs.size(); i += chunkSize) {
+            chunks.add(remainingDocs.subList(i, Math.min(i + chunkSize, remainingDocs.size())));
+        }
+        
+        return chunks;
+    }
 }
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2019
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.recommendation.tasks;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import de.tudarmstadt.ukp.clarin.webanno.api.event.BeforeProjectRemovedEvent;
+import de.tudarmstadt.ukp.clarin.webanno.model.Project;
+import de.tudarmstadt.ukp.inception.recommendation.api.RecommendationService;
+import de.tudarmstadt.ukp.inception.recommendation.api.model.Recommender;
+import de.tudarmstadt.ukp.inception.recommendation.api.recommender.RecommendationEngineFactory;
+import de.tudarmstadt.ukp.inception.recommendation.event.RecommenderDeletedEvent;
+import de.tudarmstadt.ukp.inception.recommendation.event.RecommenderUpdatedEvent;
+import de.tudarmstadt.ukp.inception.scheduling.TaskResourceClass;
+
+/**
+ * Determines the thread pool in which the recommender tasks of a project should run. The resource
+ * class is requested by the scheduler every time a task is enqueued, so it is remembered per
+ * project until the recommenders of the project change.
+ */
+@Component
+public class RecommenderTaskResources
+{
+    private final RecommendationService recommendationService;
+    private final Map<Long, TaskResourceClass> resourceClasses = new ConcurrentHashMap<>();
+
+    @Autowired
+    public RecommenderTaskResources(RecommendationService aRecommendationService)
+    {
+        recommendationService = aRecommendationService;
+    }
+
+    /**
+     * Tasks for projects without enabled recommenders have little to do, tasks for projects using
+     * only remote recommenders mostly wait for the remote services. All other tasks compete for
+     * the local CPU.
+     */
+    public TaskResourceClass getResourceClass(Project aProject)
+    {
+        TaskResourceClass resourceClass = resourceClasses.get(aProject.getId());
+        if (resourceClass == null) {
+            resourceClass = determineResourceClass(aProject);
+            resourceClasses.put(aProject.getId(), resourceClass);
+        }
+        return resourceClass;
+    }
+
+    private TaskResourceClass determineResourceClass(Project aProject)
+    {
+        List<Recommender> recommenders = recommendationService.listEnabledRecommenders(aProject);
+        if (recommenders.isEmpty()) {
+            return TaskResourceClass.HOUSEKEEPING;
+        }
+
+        for (Recommender recommender : recommenders) {
+            RecommendationEngineFactory<?> factory = recommendationService
+                    .getRecommenderFactory(recommender);
+            if (factory == null || !factory.isRemote()) {
+                return TaskResourceClass.CPU_BOUND;
+            }
+        }
+
+        return TaskResourceClass.IO_BOUND;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRecommenderUpdated(RecommenderUpdatedEvent aEvent)
+    {
+        resourceClasses.remove(aEvent.getRecommender().getProject().getId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRecommenderDelete(RecommenderDeletedEvent aEvent)
+    {
+        resourceClasses.remove(aEvent.getRecommender().getProject().getId());
+    }
+
+    @EventListener
+    public void beforeProjectRemove(BeforeProjectRemovedEvent aEvent)
+    {
+        resourceClasses.remove(aEvent.getProject().getId());
+    }
+}
@@ -17,14 +17,23 @@
  */
 package de.tudarmstadt.ukp.inception.recommendation.tasks;
 
+import static de.tudarmstadt.ukp.inception.recommendation.model.RecommenderPerformanceRecord.Activity.EVALUATION;
+import static de.tudarmstadt.ukp.inception.recommendation.model.RecommenderPerformanceRecord.NOT_MEASURED;
+
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import javax.persistence.NoResultException;
 
 import org.apache.commons.lang3.concurrent.LazyInitializer;
-import org.apache.uima.UIMAException;
 import org.apache.uima.cas.CAS;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -46,8 +55,15 @@ import de.tudarmstadt.ukp.inception.recommendation.api.model.Recommender;
 import de.tudarmstadt.ukp.inception.recommendation.api.recommender.RecommendationEngine;
 import de.tudarmstadt.ukp.inception.recommendation.api.recommender.RecommendationEngineFactory;
 import de.tudarmstadt.ukp.inception.recommendation.event.RecommenderEvaluationResultEvent;
+import de.tudarmstadt.ukp.inception.recommendation.model.RecommenderPerformanceRecord;
+import de.tudarmstadt.ukp.inception.recommendation.service.CasSnapshotCache;
+import de.tudarmstadt.ukp.inception.recommendation.service.EvaluationResultCache;
+import de.tudarmstadt.ukp.inception.recommendation.service.EvaluationResultCache.DataFingerprint;
+import de.tudarmstadt.ukp.inception.recommendation.service.RecommenderExecutor;
+import de.tudarmstadt.ukp.inception.recommendation.service.RecommenderPerformanceHistory;
 import de.tudarmstadt.ukp.inception.scheduling.SchedulingService;
 import de.tudarmstadt.ukp.inception.scheduling.Task;
+import de.tudarmstadt.ukp.inception.scheduling.TaskResourceClass;
 
 /**
  * This task evaluates all available classification tools for all annotation layers of the current
@@ -61,7 +77,12 @@ public class SelectionTask
 
     private @Autowired AnnotationSchemaService annoService;
     private @Autowired DocumentService documentService;
+    private @Autowired CasSnapshotCache casSnapshotCache;
+    private @Autowired EvaluationResultCache evaluationResultCache;
+    private @Autowired RecommenderExecutor recommenderExecutor;
+    private @Autowired RecommenderPerformanceHistory performanceHistory;
     private @Autowired RecommendationService recommendationService;
+    private @Autowired RecommenderTaskResources taskResources;
     private @Autowired ApplicationEventPublisher appEventPublisher;
     private @Autowired SchedulingService schedulingService;
 
@@ -70,6 +91,12 @@ public class SelectionTask
         super(aUser, aProject, aTrigger);
     }
 
+    @Override
+    public TaskResourceClass getResourceClass()
+    {
+        return taskResources.getResourceClass(getProject());
+    }
+
     @Override
     public void run()
     {
@@ -88,8 +115,21 @@ public class SelectionTask
                 return readCasses(project, userName);
             }
         };
+        
+        // The fingerprint must be taken before the CASes are read (cf. EvaluationResultCache)
+        LazyInitializer<DataFingerprint> dataFingerprint = new LazyInitializer<DataFingerprint>()
+        {
+            @Override
+            protected DataFingerprint initialize()
+            {
+                return evaluationResultCache.getDataFingerprint(project, userName);
+            }
+        };
 
         boolean seenRecommender = false;
+        boolean modelsAvailable = false;
+        Map<AnnotationLayer, EvaluatedRecommender[]> evaluatedLayers = new LinkedHashMap<>();
+        List<Runnable> jobs = new ArrayList<>();
         for (AnnotationLayer layer : annoService.listAnnotationLayer(getProject())) {
             if (!layer.isEnabled()) {
                 continue;
@@ -104,101 +144,40 @@ public class SelectionTask
             
             seenRecommender = true;
     
-            List<EvaluatedRecommender> activeRecommenders = new ArrayList<>();
+            // Independent recommenders are evaluated in parallel
+            EvaluatedRecommender[] results = new EvaluatedRecommender[recommenders.size()];
+            evaluatedLayers.put(layer, results);
             
-            for (Recommender r : recommenders) {
-                // Make sure we have the latest recommender config from the DB - the one from
-                // the active recommenders list may be outdated
-                Recommender recommender;
-                try {
-                    recommender = recommendationService.getRecommender(r.getId());
-                }
-                catch (NoResultException e) {
-                    log.info("[{}][{}]: Recommender no longer available... skipping",
-                            user.getUsername(), r.getName());
-                    continue;
-                }
-
-                if (!recommender.isEnabled()) {
-                    log.debug("[{}][{}]: Disabled - skipping", userName, recommender.getName());
-                    continue;
-                }
-
-                String recommenderName = recommender.getName();
-                
-                try {
-                    long start = System.currentTimeMillis();
-                    RecommendationEngineFactory factory = recommendationService
-                        .getRecommenderFactory(recommender);
-                    
-                    if (factory == null) {
-                        log.error("[{}][{}]: No recommender factory available for [{}]",
-                                user.getUsername(), r.getName(), r.getTool());
-                        continue;
-                    }
-                    
-                    if (!factory.accepts(recommender.getLayer(), recommender.getFeature())) {
-                        log.info("[{}][{}]: Recommender configured with invalid layer or feature "
-                                + "- skipping recommender", user.getUsername(), r.getName());
-                        continue;
-                    }
-                    
-                    RecommendationEngine recommendationEngine = factory.build(recommender);
-
-                    if (recommender.isAlwaysSelected()) {
-                        log.debug("[{}][{}]: Activating [{}] without evaluating - always selected",
-                                userName, recommenderName, recommenderName);
-                        activeRecommenders.add(
-                                new EvaluatedRecommender(recommender, EvaluationResult.skipped()));
-                        continue;
-                    } else if (!factory.isEvaluable()) {
-                        log.debug("[{}][{}]: Activating [{}] without evaluating - not evaluable",
-                                userName, recommenderName, recommenderName);
-                        activeRecommenders.add(
-                                new EvaluatedRecommender(recommender, EvaluationResult.skipped()));
-                        continue;
-                    }
-    
-                    log.info("[{}][{}]: Evaluating...", userName, recommenderName);
-
-                    DataSplitter splitter = new PercentageBasedSplitter(0.8, 10);
-                    EvaluationResult result = recommendationEngine.evaluate(casses.get(), splitter);
-                    
-                    if (result.isEvaluationSkipped()) {
-                        log.info("[{}][{}]: Evaluation could not be performed: {}",
-                                user.getUsername(), recommenderName,
-                                result.getErrorMsg().orElse("unknown reason"));
-                        continue;
-                    }
-                    
-                    double score = result.computeF1Score();
-
-                    Double threshold = recommender.getThreshold();
-                    boolean activated;
-                    if (score >= threshold) {
-                        activated = true;
-                        activeRecommenders.add(new EvaluatedRecommender(recommender, result));
-                        log.info("[{}][{}]: Activated ({} is above threshold {})",
-                                user.getUsername(), recommenderName, score,
-                                threshold);
-                    }
-                    else {
-                        activated = false;
-                        log.info("[{}][{}]: Not activated ({} is not above threshold {})",
-                                user.getUsername(), recommenderName, score,
-                                threshold);
-                    }
-
-                    appEventPublisher.publishEvent(new RecommenderEvaluationResultEvent(this,
-                            recommender, user.getUsername(), result,
-                            System.currentTimeMillis() - start, activated));
-                }
-                catch (Throwable e) {
-                    log.error("[{}][{}]: Failed", user.getUsername(), recommenderName, e);
-                }
+            for (int i = 0; i < recommenders.size(); i++) {
+                int index = i;
+                jobs.add(() -> results[index] = evaluateRecommender(user,
+                        recommenders.get(index), casses, dataFingerprint));
             }
-    
-            recommendationService.setActiveRecommenders(user, layer, activeRecommenders);
+        }
+        
+        try {
+            recommenderExecutor.runAll(project, jobs);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        
+        if (isCancelled() || Thread.currentThread().isInterrupted()) {
+            log.debug("[{}]: Selection cancelled", userName);
+            return;
+        }
+        
+        for (Entry<AnnotationLayer, EvaluatedRecommender[]> e : evaluatedLayers.entrySet()) {
+            List<EvaluatedRecommender> activeRecommenders = Stream.of(e.getValue())
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toList());
+            
+            recommendationService.setActiveRecommenders(user, e.getKey(), activeRecommenders);
+
+            // Looking up the context restores the model snapshot of the recommender if available
+            modelsAvailable |= activeRecommenders.stream()
+                    .anyMatch(r -> recommendationService.getContext(user, r.getRecommender())
+                            .isPresent());
         }
         
         if (!seenRecommender) {
@@ -211,23 +190,152 @@ public class SelectionTask
             return;
         }
         
+        // If models have been restored (e.g. after a restart), predictions can be provided right
+        // away instead of only once the training has completed
+        if (modelsAvailable && recommendationService.getPredictions(user, project) == null) {
+            schedulingService.enqueue(new PredictionTask(user, getProject(),
+                    "SelectionTask with restored models"));
+        }
+
         schedulingService.enqueue(new TrainingTask(user, getProject(),
                 "SelectionTask after activating recommenders"));
         
     }
 
+    /**
+     * @return the recommender if it is to be activated, otherwise {@code null}.
+     */
+    private EvaluatedRecommender evaluateRecommender(User aUser, Recommender aRecommender,
+            LazyInitializer<List<CAS>> aCasses,
+            LazyInitializer<DataFingerprint> aDataFingerprint)
+    {
+        if (isCancelled()) {
+            return null;
+        }
+        
+        // Make sure we have the latest recommender config from the DB - the one from
+        // the active recommenders list may be outdated
+        Recommender recommender;
+        try {
+            recommender = recommendationService.getRecommender(aRecommender.getId());
+        }
+        catch (NoResultException e) {
+            log.info("[{}][{}]: Recommender no longer available... skipping",
+                    aUser.getUsername(), aRecommender.getName());
+            return null;
+        }
+
+        if (!recommender.isEnabled()) {
+            log.debug("[{}][{}]: Disabled - skipping", aUser.getUsername(), recommender.getName());
+            return null;
+        }
+
+        String recommenderName = recommender.getName();
+        
+        try {
+            long start = System.currentTimeMillis();
+            RecommendationEngineFactory factory = recommendationService
+                .getRecommenderFactory(recommender);
+            
+            if (factory == null) {
+                log.error("[{}][{}]: No recommender factory available for [{}]",
+                        aUser.getUsername(), aRecommender.getName(), aRecommender.getTool());
+                return null;
+            }
+            
+            if (!factory.accepts(recommender.getLayer(), recommender.getFeature())) {
+                log.info("[{}][{}]: Recommender configured with invalid layer or feature "
+                        + "- skipping recommender", aUser.getUsername(), aRecommender.getName());
+                return null;
+            }
+            
+            RecommendationEngine recommendationEngine = factory.build(recommender);
+
+            if (recommender.isAlwaysSelected()) {
+                log.debug("[{}][{}]: Activating [{}] without evaluating - always selected",
+                        aUser.getUsername(), recommenderName, recommenderName);
+                return new EvaluatedRecommender(recommender, EvaluationResult.skipped());
+            } else if (!factory.isEvaluable()) {
+                log.debug("[{}][{}]: Activating [{}] without evaluating - not evaluable",
+                        aUser.getUsername(), recommenderName, recommenderName);
+                return new EvaluatedRecommender(recommender, EvaluationResult.skipped());
+            }
+
+            Optional<EvaluationResult> cachedResult = evaluationResultCache
+                    .get(aUser.getUsername(), recommender, aDataFingerprint.get());
+            
+            EvaluationResult result;
+            if (cachedResult.isPresent()) {
+                log.debug("[{}][{}]: Annotations and settings unchanged - reusing "
+                        + "previous evaluation result", aUser.getUsername(), recommenderName);
+                result = cachedResult.get();
+            }
+            else {
+                log.info("[{}][{}]: Evaluating...", aUser.getUsername(), recommenderName);
+
+                DataSplitter splitter = new PercentageBasedSplitter(0.8, 10);
+                long evaluationStart = System.currentTimeMillis();
+                result = recommendationEngine.evaluate(aCasses.get(), splitter);
+                evaluationResultCache.put(aUser.getUsername(), recommender, aDataFingerprint.get(),
+                        result);
+
+                // All CASes of the user are read before the evaluation and held until it is done
+                long duration = System.currentTimeMillis() - evaluationStart;
+                int casCount = aCasses.get().size();
+                performanceHistory.record(recommender, new RecommenderPerformanceRecord(
+                        EVALUATION, aUser.getUsername(), System.currentTimeMillis(), duration,
+                        casCount, NOT_MEASURED, casCount, 0));
+            }
+            
+            if (result.isEvaluationSkipped()) {
+                log.info("[{}][{}]: Evaluation could not be performed: {}",
+                        aUser.getUsername(), recommenderName,
+                        result.getErrorMsg().orElse("unknown reason"));
+                return null;
+            }
+            
+            double score = result.computeF1Score();
+
+            Double threshold = recommender.getThreshold();
+            EvaluatedRecommender evaluatedRecommender = null;
+            boolean activated;
+            if (score >= threshold) {
+                activated = true;
+                evaluatedRecommender = new EvaluatedRecommender(recommender, result);
+                log.info("[{}][{}]: Activated ({} is above threshold {})",
+                        aUser.getUsername(), recommenderName, score,
+                        threshold);
+            }
+            else {
+                activated = false;
+                log.info("[{}][{}]: Not activated ({} is not above threshold {})",
+                        aUser.getUsername(), recommenderName, score,
+                        threshold);
+            }
+
+            // A reused result is no new data point e.g. for the learning curve
+            if (!cachedResult.isPresent()) {
+                appEventPublisher.publishEvent(new RecommenderEvaluationResultEvent(this,
+                        recommender, aUser.getUsername(), result,
+                        System.currentTimeMillis() - start, activated));
+            }
+            
+            return evaluatedRecommender;
+        }
+        catch (Throwable e) {
+            log.error("[{}][{}]: Failed", aUser.getUsername(), recommenderName, e);
+            return null;
+        }
+    }
+
     private List<CAS> readCasses(Project aProject, String aUserName)
     {
         List<CAS> casses = new ArrayList<>();
         for (SourceDocument document : documentService.listSourceDocuments(aProject)) {
             try {
-                CAS cas = documentService.readAnnotationCas(document, aUserName);
-                annoService.upgradeCasIfRequired(cas, document);
-                casses.add(cas);
+                casses.add(casSnapshotCache.getSnapshot(document, aUserName));
             } catch (IOException e) {
                 log.error("Cannot read annotation CAS.", e);
-            } catch (UIMAException e) {
-                log.error("Cannot upgrade annotation CAS.", e);
             }
         }
         return casses;
@@ -19,11 +19,21 @@ package de.tudarmstadt.ukp.inception.recommendation.tasks;
 
 import static de.tudarmstadt.ukp.inception.recommendation.api.recommender.RecommendationEngineCapability.TRAINING_NOT_SUPPORTED;
 import static de.tudarmstadt.ukp.inception.recommendation.api.recommender.RecommendationEngineCapability.TRAINING_REQUIRED;
+import static de.tudarmstadt.ukp.inception.recommendation.model.RecommenderPerformanceRecord.Activity.TRAINING;
+import static de.tudarmstadt.ukp.inception.recommendation.model.RecommenderPerformanceRecord.NOT_MEASURED;
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.emptySet;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 
 import javax.persistence.NoResultException;
@@ -50,9 +60,16 @@ import de.tudarmstadt.ukp.inception.recommendation.api.model.Recommender;
 import de.tudarmstadt.ukp.inception.recommendation.api.recommender.RecommendationEngine;
 import de.tudarmstadt.ukp.inception.recommendation.api.recommender.RecommendationEngineCapability;
 import de.tudarmstadt.ukp.inception.recommendation.api.recommender.RecommendationEngineFactory;
+import de.tudarmstadt.ukp.inception.recommendation.api.recommender.RecommendationException;
 import de.tudarmstadt.ukp.inception.recommendation.api.recommender.RecommenderContext;
+import de.tudarmstadt.ukp.inception.recommendation.api.recommender.RecommenderContext.Key;
+import de.tudarmstadt.ukp.inception.recommendation.model.RecommenderPerformanceRecord;
+import de.tudarmstadt.ukp.inception.recommendation.service.CasSnapshotCache;
+import de.tudarmstadt.ukp.inception.recommendation.service.RecommenderExecutor;
+import de.tudarmstadt.ukp.inception.recommendation.service.RecommenderPerformanceHistory;
 import de.tudarmstadt.ukp.inception.scheduling.SchedulingService;
 import de.tudarmstadt.ukp.inception.scheduling.Task;
+import de.tudarmstadt.ukp.inception.scheduling.TaskResourceClass;
 
 /**
  * This consumer trains a new classifier model, if a classification tool was selected before.
@@ -60,17 +77,39 @@ import de.tudarmstadt.ukp.inception.scheduling.Task;
 public class TrainingTask
     extends Task
 {
+    /**
+     * The CAS timestamps of the documents seen by the last incremental training.
+     */
+    private static final Key<Map<String, Long>> KEY_TRAINING_INPUTS = new Key<>(
+            "training_inputs");
+    
+    /**
+     * The documents which provided training data to the last incremental training.
+     */
+    private static final Key<Set<String>> KEY_TRAINING_DOCUMENTS = new Key<>(
+            "training_documents");
+
     private final Logger log = LoggerFactory.getLogger(getClass());
 
     private @Autowired AnnotationSchemaService annoService;
     private @Autowired DocumentService documentService;
+    private @Autowired CasSnapshotCache casSnapshotCache;
+    private @Autowired RecommenderExecutor recommenderExecutor;
+    private @Autowired RecommenderPerformanceHistory performanceHistory;
     private @Autowired RecommendationService recommendationService;
+    private @Autowired RecommenderTaskResources taskResources;
     private @Autowired SchedulingService schedulingService;
 
     public TrainingTask(User aUser, Project aProject, String aTrigger)
     {
         super(aUser, aProject, aTrigger);
     }
+
+    @Override
+    public TaskResourceClass getResourceClass()
+    {
+        return taskResources.getResourceClass(getProject());
+    }
     
     @Override
     public void run()
@@ -90,13 +129,15 @@ public class TrainingTask
             @Override
             protected List<TrainingDocument> initialize()
             {
-                return readCasses(project, user);
+                return listDocuments(project, user);
             }
         };
         
-        boolean seenSuccessfulTraining = false;
-        boolean seenNonTrainingRecommender = false;
+        AtomicBoolean seenSuccessfulTraining = new AtomicBoolean();
+        AtomicBoolean seenNonTrainingRecommender = new AtomicBoolean();
         
+        // Independent recommenders are trained in parallel
+        List<Runnable> jobs = new ArrayList<>();
         for (AnnotationLayer layer : annoService.listAnnotationLayer(project)) {
             if (!layer.isEnabled()) {
                 continue;
@@ -112,107 +153,24 @@ public class TrainingTask
             }
             
             for (EvaluatedRecommender r : recommenders) {
-                // Make sure we have the latest recommender config from the DB - the one from the
-                // active recommenders list may be outdated
-                Recommender recommender;
-                try {
-                    recommender = recommendationService.getRecommender(r.getRecommender().getId());
-                }
-                catch (NoResultException e) {
-                    log.debug("[{}][{}][{}]: Recommender no longer available... skipping",
-                            getId(), user.getUsername(), r.getRecommender().getName());
-                    continue;
-                }
-                
-                if (!recommender.isEnabled()) {
-                    log.debug("[{}][{}][{}]: Disabled - skipping", user.getUsername(),
-                            getId(), r.getRecommender().getName());
-                    continue;
-                }
-                
-                long startTime = System.currentTimeMillis();
-                
-                try {
-                    RecommendationEngineFactory factory = recommendationService
-                            .getRecommenderFactory(recommender);
-
-                    if (!factory.accepts(recommender.getLayer(), recommender.getFeature())) {
-                        log.debug("[{}][{}][{}]: Recommender configured with invalid layer or feature "
-                                        + "- skipping recommender",
-                                getId(), user.getUsername(), r.getRecommender().getName());
-                        continue;
-                    }
-                    
-                    RecommendationEngine recommendationEngine = factory.build(recommender);
-                   
-                    RecommenderContext ctx = recommendationEngine
-                            .newContext(recommendationService.getContext(user, recommender)
-                                    .orElse(RecommenderContext.EMPTY_CONTEXT));
-                    ctx.setUser(user);
-                    
-                    RecommendationEngineCapability capability = recommendationEngine
-                            .getTrainingCapability();
-                    
-                    // If engine does not support training, mark engine ready and skip to prediction
-                    if (capability == TRAINING_NOT_SUPPORTED) {
-                        seenNonTrainingRecommender = true;
-                        log.debug("[{}][{}][{}]: Engine does not support training",
-                                getId(), user.getUsername(), recommender.getName());
-                        ctx.close();
-                        recommendationService.putContext(user, recommender, ctx);
-                        continue;
-                    }
-                    
-                    List<CAS> cassesForTraining = casses.get()
-                            .stream()
-                            .filter(e -> !recommender.getStatesIgnoredForTraining()
-                                    .contains(e.state))
-                            .filter(e -> containsTargetTypeAndFeature(recommender, e.cas))
-                            .map(e -> e.cas)
-                            .collect(Collectors.toList());
-
-                    // If no data for training is available, but the engine requires training, 
-                    // do not mark as ready
-                    if (cassesForTraining.isEmpty() && capability == TRAINING_REQUIRED) {
-                        log.debug("[{}][{}][{}]: There are no annotations available to train on",
-                                getId(), user.getUsername(), recommender.getName());
-                        continue;
-                    }
-                    
-                    log.debug("[{}][{}][{}]: Training model on [{}] out of [{}] documents ...",
-                            getId(), user.getUsername(), recommender.getName(),
-                            cassesForTraining.size(), casses.get().size());
-                    
-                    recommendationEngine.train(ctx, cassesForTraining);
-                    
-                    if (recommendationEngine.isReadyForPrediction(ctx)) {
-                        log.debug(
-                                "[{}][{}][{}]: Training successful on [{}] out of [{}] documents ({} ms)",
-                                getId(), user.getUsername(), recommender.getName(),
-                                cassesForTraining.size(), casses.get().size(),
-                                (System.currentTimeMillis() - startTime));
-                        seenSuccessfulTraining = true;
-                    }
-                    else {
-                        log.debug(
-                                "[{}][{}][{}]: Training unsuccessful on [{}] out of [{}] documents ({} ms)",
-                                getId(), user.getUsername(), recommender.getName(),
-                                cassesForTraining.size(), casses.get().size(),
-                                (System.currentTimeMillis() - startTime));
-                    }
-                    
-                    ctx.close();
-                    recommendationService.putContext(user, recommender, ctx);
-                }
-                catch (Throwable e) {
-                    log.error("[{}][{}][{}]: Training failed ({} ms)", getId(),
-                            user.getUsername(), recommender.getName(),
-                            (System.currentTimeMillis() - startTime), e);
-                }
+                jobs.add(() -> trainRecommender(user, r, casses, seenSuccessfulTraining,
+                        seenNonTrainingRecommender));
             }
         }
 
-        if (!seenSuccessfulTraining && !seenNonTrainingRecommender) {
+        try {
+            recommenderExecutor.runAll(project, jobs);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        
+        if (isCancelled() || Thread.currentThread().isInterrupted()) {
+            log.debug("[{}][{}]: Training cancelled", getId(), user.getUsername());
+            return;
+        }
+
+        if (!seenSuccessfulTraining.get() && !seenNonTrainingRecommender.get()) {
             log.debug("[{}][{}]: No recommenders trained successfully and no non-training "
                     + "recommenders, skipping prediction.", getId(), user.getUsername());
             return;
@@ -222,25 +180,260 @@ public class TrainingTask
                 String.format("TrainingTask %s complete", getId())));
     }
 
-    private List<TrainingDocument> readCasses(Project aProject, User aUser)
+    private void trainRecommender(User aUser, EvaluatedRecommender aEvaluatedRecommender,
+            LazyInitializer<List<TrainingDocument>> aCasses,
+            AtomicBoolean aSeenSuccessfulTraining, AtomicBoolean aSeenNonTrainingRecommender)
+    {
+        if (isCancelled()) {
+            return;
+        }
+        
+        // Make sure we have the latest recommender config from the DB - the one from the
+        // active recommenders list may be outdated
+        Recommender recommender;
+        try {
+            recommender = recommendationService
+                    .getRecommender(aEvaluatedRecommender.getRecommender().getId());
+        }
+        catch (NoResultException e) {
+            log.debug("[{}][{}][{}]: Recommender no longer available... skipping", getId(),
+                    aUser.getUsername(), aEvaluatedRecommender.getRecommender().getName());
+            return;
+        }
+        
+        if (!recommender.isEnabled()) {
+            log.debug("[{}][{}][{}]: Disabled - skipping", aUser.getUsername(),
+                    getId(), aEvaluatedRecommender.getRecommender().getName());
+            return;
+        }
+        
+        long startTime = System.currentTimeMillis();
+        
+        try {
+            RecommendationEngineFactory factory = recommendationService
+                    .getRecommenderFactory(recommender);
+
+            if (!factory.accepts(recommender.getLayer(), recommender.getFeature())) {
+                log.debug("[{}][{}][{}]: Recommender configured with invalid layer or feature "
+                        + "- skipping recommender", getId(), aUser.getUsername(),
+                        recommender.getName());
+                return;
+            }
+            
+            RecommendationEngine recommendationEngine = factory.build(recommender);
+           
+            RecommenderContext previousCtx = recommendationService
+                    .getContext(aUser, recommender)
+                    .orElse(RecommenderContext.EMPTY_CONTEXT);
+            
+            // Incremental training needs to know which documents the previous context
+            // was trained on - if it does not, we start over
+            if (recommendationEngine.isIncrementalTrainingSupported()
+                    && !previousCtx.get(KEY_TRAINING_INPUTS).isPresent()) {
+                previousCtx = RecommenderContext.EMPTY_CONTEXT;
+            }
+            
+            RecommenderContext ctx = recommendationEngine.newContext(previousCtx);
+            ctx.setUser(aUser);
+            
+            RecommendationEngineCapability capability = recommendationEngine
+                    .getTrainingCapability();
+            
+            // If engine does not support training, mark engine ready and skip to prediction
+            if (capability == TRAINING_NOT_SUPPORTED) {
+                aSeenNonTrainingRecommender.set(true);
+                log.debug("[{}][{}][{}]: Engine does not support training",
+                        getId(), aUser.getUsername(), recommender.getName());
+                ctx.close();
+                recommendationService.putContext(aUser, recommender, ctx);
+                return;
+            }
+            
+            if (recommendationEngine.isIncrementalTrainingSupported()) {
+                Optional<Boolean> success = trainIncrementally(recommender,
+                        recommendationEngine, previousCtx, ctx, aCasses.get(), startTime);
+                if (success.isPresent()) {
+                    if (success.get()) {
+                        aSeenSuccessfulTraining.set(true);
+                    }
+                    log.debug("[{}][{}][{}]: Incremental training {} ({} ms)", getId(),
+                            aUser.getUsername(), recommender.getName(),
+                            success.get() ? "successful" : "unsuccessful",
+                            (System.currentTimeMillis() - startTime));
+                }
+                return;
+            }
+            
+            List<CAS> cassesForTraining = aCasses.get()
+                    .stream()
+                    .filter(e -> !recommender.getStatesIgnoredForTraining()
+                            .contains(e.state))
+                    .map(TrainingDocument::getCas)
+                    .filter(Objects::nonNull)
+                    .filter(cas -> containsTargetTypeAndFeature(recommender, cas))
+                    .collect(Collectors.toList());
+
+            // If no data for training is available, but the engine requires training, 
+            // do not mark as ready
+            if (cassesForTraining.isEmpty() && capability == TRAINING_REQUIRED) {
+                log.debug("[{}][{}][{}]: There are no annotations available to train on",
+                        getId(), aUser.getUsername(), recommender.getName());
+                return;
+            }
+            
+            log.debug("[{}][{}][{}]: Training model on [{}] out of [{}] documents ...",
+                    getId(), aUser.getUsername(), recommender.getName(),
+                    cassesForTraining.size(), aCasses.get().size());
+            
+            recommendationEngine.train(ctx, cassesForTraining);
+            recordTraining(recommender, startTime, cassesForTraining.size(), aCasses.get());
+            
+            if (recommendationEngine.isReadyForPrediction(ctx)) {
+                log.debug(
+                        "[{}][{}][{}]: Training successful on [{}] out of [{}] documents ({} ms)",
+                        getId(), aUser.getUsername(), recommender.getName(),
+                        cassesForTraining.size(), aCasses.get().size(),
+                        (System.currentTimeMillis() - startTime));
+                aSeenSuccessfulTraining.set(true);
+            }
+            else {
+                log.debug(
+                        "[{}][{}][{}]: Training unsuccessful on [{}] out of [{}] documents ({} ms)",
+                        getId(), aUser.getUsername(), recommender.getName(),
+                        cassesForTraining.size(), aCasses.get().size(),
+                        (System.currentTimeMillis() - startTime));
+            }
+            
+            ctx.close();
+            recommendationService.putContext(aUser, recommender, ctx);
+        }
+        catch (Throwable e) {
+            log.error("[{}][{}][{}]: Training failed ({} ms)", getId(),
+                    aUser.getUsername(), recommender.getName(),
+                    (System.currentTimeMillis() - startTime), e);
+        }
+    }
+
+    /**
+     * Trains the given engine using only the documents which changed since the previous training.
+     * 
+     * @return whether the engine is ready for prediction after the training or nothing if the
+     *         engine has not been trained.
+     */
+    private Optional<Boolean> trainIncrementally(Recommender aRecommender,
+            RecommendationEngine aEngine, RecommenderContext aPreviousCtx,
+            RecommenderContext aCtx, List<TrainingDocument> aDocuments, long aStartTime)
+        throws RecommendationException
     {
-        List<TrainingDocument> casses = new ArrayList<>();
+        Map<String, Long> previousInputs = aPreviousCtx.get(KEY_TRAINING_INPUTS)
+                .orElse(emptyMap());
+        Set<String> previousDocuments = aPreviousCtx.get(KEY_TRAINING_DOCUMENTS)
+                .orElse(emptySet());
+        
+        Map<String, Long> inputs = new HashMap<>();
+        Set<String> trainingDocuments = new HashSet<>();
+        Map<String, CAS> changedCasses = new HashMap<>();
+        for (TrainingDocument doc : aDocuments) {
+            if (aRecommender.getStatesIgnoredForTraining().contains(doc.state)) {
+                continue;
+            }
+            
+            String name = doc.document.getName();
+            
+            // Unchanged documents keep contributing whatever they did before
+            if (doc.timestamp.isPresent() && doc.timestamp.get().equals(previousInputs.get(name))) {
+                inputs.put(name, doc.timestamp.get());
+                if (previousDocuments.contains(name)) {
+                    trainingDocuments.add(name);
+                }
+                continue;
+            }
+            
+            CAS cas = doc.getCas();
+            if (cas == null) {
+                continue;
+            }
+            
+            doc.timestamp.ifPresent(timestamp -> inputs.put(name, timestamp));
+            if (containsTargetTypeAndFeature(aRecommender, cas)) {
+                trainingDocuments.add(name);
+                changedCasses.put(name, cas);
+            }
+        }
+        
+        Set<String> removedDocuments = new HashSet<>(previousDocuments);
+        removedDocuments.removeAll(trainingDocuments);
+        
+        if (aPreviousCtx != RecommenderContext.EMPTY_CONTEXT && changedCasses.isEmpty()
+                && removedDocuments.isEmpty()) {
+            log.debug("[{}][{}][{}]: Training data unchanged - keeping model", getId(),
+                    getUser().getUsername(), aRecommender.getName());
+            return Optional.of(aEngine.isReadyForPrediction(aPreviousCtx));
+        }
+        
+        // If no data for training is available, but the engine requires training, 
+        // do not mark as ready
+        if (trainingDocuments.isEmpty() && aEngine.getTrainingCapability() == TRAINING_REQUIRED) {
+            log.debug("[{}][{}][{}]: There are no annotations available to train on", getId(),
+                    getUser().getUsername(), aRecommender.getName());
+            return Optional.empty();
+        }
+        
+        log.debug("[{}][{}][{}]: Training model incrementally on [{}] changed and [{}] removed "
+                + "out of [{}] documents ...", getId(), getUser().getUsername(),
+                aRecommender.getName(), changedCasses.size(), removedDocuments.size(),
+                trainingDocuments.size());
+        
+        aEngine.trainIncrementally(aCtx, changedCasses, removedDocuments);
+        recordTraining(aRecommender, aStartTime, changedCasses.size(), aDocuments);
+        aCtx.put(KEY_TRAINING_INPUTS, inputs);
+        aCtx.put(KEY_TRAINING_DOCUMENTS, trainingDocuments);
+        aCtx.close();
+        recommendationService.putContext(getUser(), aRecommender, aCtx);
+        
+        return Optional.of(aEngine.isReadyForPrediction(aCtx));
+    }
+
+    /**
+     * The documents are shared by all recommenders of the task and stay in memory until the task
+     * ends, so all CASes read so far count towards the peak.
+     */
+    private void recordTraining(Recommender aRecommender, long aStartTime, int aDocuments,
+            List<TrainingDocument> aAllDocuments)
+    {
+        long duration = System.currentTimeMillis() - aStartTime;
+        int loadedCasses = (int) aAllDocuments.stream()
+                .filter(TrainingDocument::isCasLoaded)
+                .count();
+        performanceHistory.record(aRecommender,
+                new RecommenderPerformanceRecord(TRAINING, getUser().getUsername(),
+                        System.currentTimeMillis(), duration, aDocuments, NOT_MEASURED,
+                        loadedCasses, 0));
+    }
+
+    private List<TrainingDocument> listDocuments(Project aProject, User aUser)
+    {
+        List<TrainingDocument> documents = new ArrayList<>();
         Map<SourceDocument, AnnotationDocument> allDocuments =
                 documentService.listAllDocuments(aProject, aUser);
         for (Map.Entry<SourceDocument, AnnotationDocument> entry : allDocuments.entrySet()) {
-            try {
-                SourceDocument sourceDocument = entry.getKey();
-                AnnotationDocument annotationDocument = entry.getValue();
-                AnnotationDocumentState state = annotationDocument != null ?
-                        annotationDocument.getState() : AnnotationDocumentState.NEW;
+            SourceDocument sourceDocument = entry.getKey();
+            AnnotationDocument annotationDocument = entry.getValue();
+            AnnotationDocumentState state = annotationDocument != null ?
+                    annotationDocument.getState() : AnnotationDocumentState.NEW;
 
-                CAS cas = documentService.readAnnotationCas(sourceDocument, aUser.getUsername());
-                casses.add(new TrainingDocument(cas, state));
-            } catch (IOException e) {
-                log.error("Cannot read annotation CAS.", e);
+            Optional<Long> timestamp;
+            try {
+                timestamp = documentService.getAnnotationCasTimestamp(sourceDocument,
+                        aUser.getUsername());
             }
+            catch (IOException e) {
+                timestamp = Optional.empty();
+            }
+            
+            documents.add(new TrainingDocument(sourceDocument, state, timestamp));
         }
-        return casses;
+        return documents;
     }
 
     private boolean containsTargetTypeAndFeature(Recommender aRecommender, CAS aCas)
@@ -264,14 +457,45 @@ public class TrainingTask
         return CasUtil.iterator(aCas, type).hasNext();
     }
 
-    private static class TrainingDocument
+    /**
+     * A document which may be used for training. The CAS is only read when it is needed.
+     */
+    private class TrainingDocument
     {
-        private final CAS cas;
+        private final SourceDocument document;
         private final AnnotationDocumentState state;
+        private final Optional<Long> timestamp;
+        private CAS cas;
+        private boolean casRead = false;
 
-        private TrainingDocument(CAS aCas, AnnotationDocumentState aState) {
-            cas = aCas;
+        private TrainingDocument(SourceDocument aDocument, AnnotationDocumentState aState,
+                Optional<Long> aTimestamp)
+        {
+            document = aDocument;
             state = aState;
+            timestamp = aTimestamp;
+        }
+        
+        /**
+         * @return the CAS or {@code null} if it cannot be read.
+         */
+        private synchronized CAS getCas()
+        {
+            if (!casRead) {
+                casRead = true;
+                try {
+                    cas = casSnapshotCache.getSnapshot(document, getUser().getUsername());
+                }
+                catch (IOException e) {
+                    log.error("Cannot read annotation CAS.", e);
+                }
+            }
+            return cas;
+        }
+
+        private synchronized boolean isCasLoaded()
+        {
+            return cas != null;
         }
     }
 }
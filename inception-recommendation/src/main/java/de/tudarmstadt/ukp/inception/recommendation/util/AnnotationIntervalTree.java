@@ -0,0 +1,130 @@
+/*
+ * Copyright 2019
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.recommendation.util;
+
+import static de.tudarmstadt.ukp.clarin.webanno.api.annotation.util.WebAnnoCasUtil.getAddr;
+
+import org.apache.uima.cas.CAS;
+import org.apache.uima.cas.Type;
+import org.apache.uima.cas.text.AnnotationFS;
+import org.apache.uima.cas.text.AnnotationIndex;
+
+/**
+ * An interval tree over the annotations of a type in a CAS, so that the annotations near an offset
+ * range can be found without going through all annotations for every range.
+ * <p>
+ * The tree is laid out implicitly over the annotations sorted by begin offset: the node for a
+ * section of the array is the element in its middle and its children are the nodes for the two
+ * halves left and right of it. Every node remembers the largest end offset in its subtree, so
+ * subtrees ending before the queried range can be skipped. Only the addresses and offsets of the
+ * annotations are kept, not the annotations themselves, so the tree does not keep the CAS alive.
+ * <p>
+ * The tree is a snapshot of the annotations at the time it was built. The UIMA CAS does not track
+ * modifications and checking whether the tree is still valid would require another pass over all
+ * annotations, which costs as much as building the tree. The tree should therefore only be used
+ * as long as the CAS is known not to change.
+ */
+public class AnnotationIntervalTree
+{
+    private final int[] addresses;
+    private final int[] begins;
+    private final int[] ends;
+    private final int[] maxEnds;
+
+    public AnnotationIntervalTree(CAS aCas, Type aType)
+    {
+        AnnotationIndex<AnnotationFS> index = aCas.getAnnotationIndex(aType);
+
+        // The annotation index is sorted by begin offset
+        addresses = new int[index.size()];
+        begins = new int[addresses.length];
+        ends = new int[addresses.length];
+        maxEnds = new int[addresses.length];
+        int i = 0;
+        for (AnnotationFS fs : index) {
+            addresses[i] = getAddr(fs);
+            begins[i] = fs.getBegin();
+            ends[i] = fs.getEnd();
+            i++;
+        }
+
+        computeMaxEnds(0, addresses.length);
+    }
+
+    private int computeMaxEnds(int aLow, int aHigh)
+    {
+        if (aLow >= aHigh) {
+            return Integer.MIN_VALUE;
+        }
+
+        int mid = (aLow + aHigh) >>> 1;
+        maxEnds[mid] = Math.max(ends[mid],
+                Math.max(computeMaxEnds(aLow, mid), computeMaxEnds(mid + 1, aHigh)));
+        return maxEnds[mid];
+    }
+
+    public int size()
+    {
+        return addresses.length;
+    }
+
+    /**
+     * Passes all annotations to the given consumer which begin at or before the end of the given
+     * range and end at or after its begin. This includes the annotations which merely touch the
+     * range, so the caller can apply its own notion of overlap. The annotations are passed in
+     * the order of their begin offsets.
+     */
+    public void forEachNear(int aBegin, int aEnd, IntervalConsumer aConsumer)
+    {
+        forEachNear(0, addresses.length, aBegin, aEnd, aConsumer);
+    }
+
+    private void forEachNear(int aLow, int aHigh, int aBegin, int aEnd,
+            IntervalConsumer aConsumer)
+    {
+        if (aLow >= aHigh) {
+            return;
+        }
+
+        int mid = (aLow + aHigh) >>> 1;
+
+        // Nothing in this subtree reaches the range
+        if (maxEnds[mid] < aBegin) {
+            return;
+        }
+
+        forEachNear(aLow, mid, aBegin, aEnd, aConsumer);
+
+        // This node and everything right of it begin after the range
+        if (begins[mid] > aEnd) {
+            return;
+        }
+
+        if (ends[mid] >= aBegin) {
+            aConsumer.accept(addresses[mid], begins[mid], ends[mid]);
+        }
+
+        forEachNear(mid + 1, aHigh, aBegin, aEnd, aConsumer);
+    }
+
+    @FunctionalInterface
+    public interface IntervalConsumer
+    {
+        void accept(int aAddress, int aBegin, int aEnd);
+    }
+}
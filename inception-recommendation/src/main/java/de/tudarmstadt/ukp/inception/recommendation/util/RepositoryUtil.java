@@ -17,6 +17,8 @@
  */
 package de.tudarmstadt.ukp.inception.recommendation.util;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+
 import java.io.File;
 import java.util.LinkedList;
 import java.util.List;
@@ -89,4 +91,17 @@ public class RepositoryUtil
         File result = getRecommendationDir(dc, p);
         return new File(result, RESULT_DIR_NAME);
     }
+
+    /**
+     * User names may contain characters which are not allowed in file names, so files belonging
+     * to a user are named using the hex-encoded UTF-8 bytes of the user name.
+     */
+    public static String encodeUsername(String aUsername)
+    {
+        StringBuilder sb = new StringBuilder();
+        for (byte b : aUsername.getBytes(UTF_8)) {
+            sb.append(String.format("%02x", b));
+        }
+        return sb.toString();
+    }
 }
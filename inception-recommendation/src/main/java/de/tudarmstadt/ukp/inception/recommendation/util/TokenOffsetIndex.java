@@ -0,0 +1,100 @@
+/*
+ * Copyright 2019
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.recommendation.util;
+
+import static org.apache.uima.fit.util.CasUtil.getType;
+import static org.apache.uima.fit.util.CasUtil.select;
+
+import java.util.Collection;
+import java.util.Optional;
+
+import org.apache.uima.cas.CAS;
+import org.apache.uima.cas.text.AnnotationFS;
+
+import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Token;
+import de.tudarmstadt.ukp.inception.recommendation.api.model.Offset;
+
+/**
+ * The offsets of the tokens of a CAS in sorted arrays, so that the tokens covered by an offset
+ * range can be found by binary search instead of selecting them from the CAS for every range.
+ */
+public class TokenOffsetIndex
+{
+    private final int[] begins;
+    private final int[] ends;
+
+    public TokenOffsetIndex(CAS aCas)
+    {
+        Collection<AnnotationFS> tokens = select(aCas, getType(aCas, Token.class));
+
+        // The tokens are returned in index order, i.e. sorted by begin offset
+        begins = new int[tokens.size()];
+        ends = new int[tokens.size()];
+        int i = 0;
+        for (AnnotationFS token : tokens) {
+            begins[i] = token.getBegin();
+            ends[i] = token.getEnd();
+            i++;
+        }
+    }
+
+    /**
+     * Snaps the given offset range to token boundaries.
+     *
+     * @return the begin of the first and the end of the last token covered by the given range or
+     *         nothing if the range does not cover any token.
+     */
+    public Optional<Offset> getCoveredTokenBoundaries(int aBegin, int aEnd)
+    {
+        int first = -1;
+        int last = -1;
+        for (int i = lowerBound(aBegin); i < begins.length && begins[i] <= aEnd; i++) {
+            if (ends[i] <= aEnd) {
+                if (first == -1) {
+                    first = i;
+                }
+                last = i;
+            }
+        }
+
+        if (first == -1) {
+            return Optional.empty();
+        }
+
+        return Optional.of(new Offset(begins[first], ends[last]));
+    }
+
+    /**
+     * @return the index of the first token which begins at or after the given offset.
+     */
+    private int lowerBound(int aOffset)
+    {
+        int low = 0;
+        int high = begins.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (begins[mid] < aOffset) {
+                low = mid + 1;
+            }
+            else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2019
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.recommendation.websocket;
+
+import java.util.Objects;
+
+import org.apache.wicket.Component;
+import org.apache.wicket.ajax.AbstractDefaultAjaxBehavior;
+import org.apache.wicket.ajax.AjaxRequestTarget;
+import org.apache.wicket.event.IEvent;
+import org.apache.wicket.protocol.ws.api.WebSocketBehavior;
+import org.apache.wicket.protocol.ws.api.event.WebSocketPushPayload;
+
+import de.tudarmstadt.ukp.clarin.webanno.api.annotation.model.AnnotatorState;
+import de.tudarmstadt.ukp.clarin.webanno.api.annotation.page.AnnotationPageBase;
+import de.tudarmstadt.ukp.clarin.webanno.model.Mode;
+
+/**
+ * Refreshes the document shown on an annotation page when a {@link PredictionsReadyMessage} for
+ * it arrives. Rendering the annotation editor requires an AJAX request, so the behavior asks the
+ * browser to call it back instead of rendering in response to the websocket message. Rendering
+ * the document then activates the new predictions (cf.
+ * {@code RecommendationEditorExtension#render}).
+ */
+public class PredictionsPushBehavior
+    extends AbstractDefaultAjaxBehavior
+{
+    private static final long serialVersionUID = 3521917399553934431L;
+
+    /**
+     * Adds the behavior and the websocket connection it receives the messages through to
+     * annotation pages. Meant to be registered as a component instantiation listener.
+     */
+    public static void install(Component aComponent)
+    {
+        if (aComponent instanceof AnnotationPageBase) {
+            aComponent.add(new WebSocketBehavior()
+            {
+                private static final long serialVersionUID = -1658423913785011493L;
+            });
+            aComponent.add(new PredictionsPushBehavior());
+        }
+    }
+
+    @Override
+    public void onEvent(Component aComponent, IEvent<?> aEvent)
+    {
+        super.onEvent(aComponent, aEvent);
+
+        if (!(aEvent.getPayload() instanceof WebSocketPushPayload)) {
+            return;
+        }
+
+        WebSocketPushPayload payload = (WebSocketPushPayload) aEvent.getPayload();
+        if (!(payload.getMessage() instanceof PredictionsReadyMessage)) {
+            return;
+        }
+
+        PredictionsReadyMessage message = (PredictionsReadyMessage) payload.getMessage();
+        AnnotatorState state = ((AnnotationPageBase) aComponent).getModelObject();
+        if (!isShowingPredictions(state, message)) {
+            return;
+        }
+
+        payload.getHandler().appendJavaScript(getCallbackScript());
+    }
+
+    /**
+     * Predictions for other documents are picked up on the next user action - there is nothing
+     * on screen to update for them.
+     */
+    private boolean isShowingPredictions(AnnotatorState aState, PredictionsReadyMessage aMessage)
+    {
+        return aState != null && Mode.ANNOTATION.equals(aState.getMode())
+                && aState.getUser() != null && aState.getProject() != null
+                && aState.getDocument() != null
+                && aMessage.getUser().equals(aState.getUser().getUsername())
+                && Objects.equals(aMessage.getProjectId(), aState.getProject().getId())
+                && aMessage.getDocumentNames().contains(aState.getDocument().getName());
+    }
+
+    @Override
+    protected void respond(AjaxRequestTarget aTarget)
+    {
+        ((AnnotationPageBase) getComponent()).actionRefreshDocument(aTarget);
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2019
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.recommendation.websocket;
+
+import java.util.Set;
+
+import org.apache.wicket.protocol.ws.api.message.IWebSocketPushMessage;
+
+/**
+ * Pushed to the pages of a user via websocket when new predictions are waiting to be activated.
+ */
+public class PredictionsReadyMessage
+    implements IWebSocketPushMessage
+{
+    private final String user;
+    private final long projectId;
+    private final Set<String> documentNames;
+
+    public PredictionsReadyMessage(String aUser, long aProjectId, Set<String> aDocumentNames)
+    {
+        user = aUser;
+        projectId = aProjectId;
+        documentNames = aDocumentNames;
+    }
+
+    public String getUser()
+    {
+        return user;
+    }
+
+    public long getProjectId()
+    {
+        return projectId;
+    }
+
+    /**
+     * @return the names of the documents on which the predictions have changed.
+     */
+    public Set<String> getDocumentNames()
+    {
+        return documentNames;
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2019
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.recommendation.websocket;
+
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.apache.wicket.Application;
+import org.apache.wicket.protocol.ws.WebSocketSettings;
+import org.apache.wicket.protocol.ws.api.IWebSocketConnection;
+import org.apache.wicket.protocol.ws.api.registry.IWebSocketConnectionRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.security.core.session.SessionInformation;
+import org.springframework.security.core.session.SessionRegistry;
+import org.springframework.stereotype.Component;
+
+import de.tudarmstadt.ukp.inception.recommendation.event.PredictionsReadyEvent;
+
+/**
+ * Notifies the open pages of a user via websocket when new predictions are ready so that the
+ * annotation editor can pick them up without waiting for the next user action.
+ */
+@Component
+public class PredictionsWebSocketPusher
+{
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    private final SessionRegistry sessionRegistry;
+
+    @Autowired
+    public PredictionsWebSocketPusher(SessionRegistry aSessionRegistry)
+    {
+        sessionRegistry = aSessionRegistry;
+    }
+
+    @EventListener
+    public void onPredictionsReady(PredictionsReadyEvent aEvent)
+    {
+        // The principals in the session registry are the user names
+        Set<String> sessionIds = sessionRegistry.getAllSessions(aEvent.getUser(), false).stream()
+                .map(SessionInformation::getSessionId)
+                .collect(Collectors.toSet());
+        if (sessionIds.isEmpty()) {
+            return;
+        }
+
+        PredictionsReadyMessage message = new PredictionsReadyMessage(aEvent.getUser(),
+                aEvent.getProject().getId(), aEvent.getDocumentNames());
+
+        // The event is published by the prediction task, i.e. outside of any Wicket request
+        for (String applicationKey : Application.getApplicationKeys()) {
+            Application application = Application.get(applicationKey);
+            IWebSocketConnectionRegistry registry = WebSocketSettings.Holder.get(application)
+                    .getConnectionRegistry();
+            for (IWebSocketConnection connection : registry.getConnections(application)) {
+                if (connection.isOpen() && sessionIds.contains(connection.getSessionId())) {
+                    log.trace("[{}]: Pushing new predictions for [{}] to page [{}]",
+                            aEvent.getUser(), aEvent.getDocumentNames(), connection.getKey());
+                    try {
+                        connection.sendMessage(message);
+                    }
+                    catch (Exception e) {
+                        // The page picks up the predictions on the next user action anyway
+                        log.warn("[{}]: Unable to push new predictions to page [{}]",
+                                aEvent.getUser(), connection.getKey(), e);
+                    }
+                }
+            }
+        }
+    }
+}
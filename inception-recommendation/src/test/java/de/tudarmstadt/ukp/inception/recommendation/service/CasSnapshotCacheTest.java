@@ -0,0 +1,85 @@
+/*
+ * Copyright 2019
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.recommendation.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Optional;
+
+import org.apache.uima.cas.CAS;
+import org.apache.uima.fit.factory.JCasFactory;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.tudarmstadt.ukp.clarin.webanno.api.AnnotationSchemaService;
+import de.tudarmstadt.ukp.clarin.webanno.api.DocumentService;
+import de.tudarmstadt.ukp.clarin.webanno.model.SourceDocument;
+import de.tudarmstadt.ukp.inception.recommendation.config.RecommendationProperties;
+
+public class CasSnapshotCacheTest
+{
+    private DocumentService documentService;
+    private SourceDocument document;
+
+    private CasSnapshotCache sut;
+
+    @Before
+    public void setup() throws Exception
+    {
+        document = new SourceDocument();
+        document.setId(1L);
+        document.setName("doc1");
+
+        documentService = mock(DocumentService.class);
+        when(documentService.readAnnotationCas(document, "user"))
+                .thenAnswer(invocation -> JCasFactory.createText("text").getCas());
+
+        sut = new CasSnapshotCache(documentService, mock(AnnotationSchemaService.class),
+                new RecommendationProperties());
+    }
+
+    @Test
+    public void thatUnchangedCasIsReadOnlyOnce() throws Exception
+    {
+        when(documentService.getAnnotationCasTimestamp(document, "user"))
+                .thenReturn(Optional.of(1L));
+
+        CAS cas1 = sut.getSnapshot(document, "user");
+        CAS cas2 = sut.getSnapshot(document, "user");
+
+        assertThat(cas2).isSameAs(cas1);
+        verify(documentService, times(1)).readAnnotationCas(document, "user");
+    }
+
+    @Test
+    public void thatChangedCasIsReadAgain() throws Exception
+    {
+        when(documentService.getAnnotationCasTimestamp(document, "user"))
+                .thenReturn(Optional.of(1L), Optional.of(2L));
+
+        CAS cas1 = sut.getSnapshot(document, "user");
+        CAS cas2 = sut.getSnapshot(document, "user");
+
+        assertThat(cas2).isNotSameAs(cas1);
+        verify(documentService, times(2)).readAnnotationCas(document, "user");
+    }
+}
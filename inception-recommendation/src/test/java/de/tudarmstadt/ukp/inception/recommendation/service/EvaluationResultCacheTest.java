@@ -0,0 +1,116 @@
+/*
+ * Copyright 2019
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.recommendation.service;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Optional;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import de.tudarmstadt.ukp.clarin.webanno.api.DocumentService;
+import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationFeature;
+import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationLayer;
+import de.tudarmstadt.ukp.clarin.webanno.model.Project;
+import de.tudarmstadt.ukp.clarin.webanno.model.SourceDocument;
+import de.tudarmstadt.ukp.inception.recommendation.api.evaluation.EvaluationResult;
+import de.tudarmstadt.ukp.inception.recommendation.api.model.Recommender;
+import de.tudarmstadt.ukp.inception.recommendation.service.EvaluationResultCache.DataFingerprint;
+
+public class EvaluationResultCacheTest
+{
+    private DocumentService documentService;
+    private Project project;
+    private SourceDocument document;
+    private Recommender recommender;
+
+    private EvaluationResultCache sut;
+
+    @Before
+    public void setup() throws Exception
+    {
+        project = new Project();
+        project.setId(1L);
+
+        document = new SourceDocument();
+        document.setId(1L);
+        document.setName("doc1");
+
+        documentService = mock(DocumentService.class);
+        when(documentService.listSourceDocuments(project)).thenReturn(asList(document));
+
+        AnnotationLayer layer = new AnnotationLayer();
+        layer.setName("layer");
+        AnnotationFeature feature = new AnnotationFeature();
+        feature.setName("feature");
+
+        recommender = new Recommender();
+        recommender.setId(1L);
+        recommender.setTool("tool");
+        recommender.setLayer(layer);
+        recommender.setFeature(feature);
+
+        sut = new EvaluationResultCache(documentService);
+    }
+
+    @Test
+    public void thatResultIsReusedWhileNothingChanges() throws Exception
+    {
+        when(documentService.getAnnotationCasTimestamp(document, "user"))
+                .thenReturn(Optional.of(1L));
+
+        EvaluationResult result = EvaluationResult.skipped();
+        sut.put("user", recommender, sut.getDataFingerprint(project, "user"), result);
+
+        assertThat(sut.get("user", recommender, sut.getDataFingerprint(project, "user")))
+                .containsSame(result);
+        assertThat(sut.get("other", recommender, sut.getDataFingerprint(project, "user")))
+                .isEmpty();
+    }
+
+    @Test
+    public void thatChangedAnnotationsInvalidateResult() throws Exception
+    {
+        when(documentService.getAnnotationCasTimestamp(document, "user"))
+                .thenReturn(Optional.of(1L), Optional.of(2L));
+
+        DataFingerprint before = sut.getDataFingerprint(project, "user");
+        sut.put("user", recommender, before, EvaluationResult.skipped());
+
+        assertThat(sut.get("user", recommender, sut.getDataFingerprint(project, "user")))
+                .isEmpty();
+    }
+
+    @Test
+    public void thatChangedSettingsInvalidateResult() throws Exception
+    {
+        when(documentService.getAnnotationCasTimestamp(document, "user"))
+                .thenReturn(Optional.of(1L));
+
+        DataFingerprint data = sut.getDataFingerprint(project, "user");
+        sut.put("user", recommender, data, EvaluationResult.skipped());
+
+        recommender.setMaxRecommendations(recommender.getMaxRecommendations() + 1);
+
+        assertThat(sut.get("user", recommender, data)).isEmpty();
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright 2019
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.recommendation.service;
+
+import static de.tudarmstadt.ukp.inception.recommendation.api.model.LearningRecordChangeLocation.MAIN_EDITOR;
+import static de.tudarmstadt.ukp.inception.recommendation.api.model.LearningRecordType.REJECTED;
+import static de.tudarmstadt.ukp.inception.recommendation.api.model.LearningRecordType.SKIPPED;
+import static java.util.Collections.emptyList;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+import javax.persistence.TypedQuery;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationFeature;
+import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationLayer;
+import de.tudarmstadt.ukp.clarin.webanno.model.Project;
+import de.tudarmstadt.ukp.clarin.webanno.model.SourceDocument;
+import de.tudarmstadt.ukp.clarin.webanno.security.model.User;
+import de.tudarmstadt.ukp.inception.recommendation.api.model.AnnotationSuggestion;
+import de.tudarmstadt.ukp.inception.recommendation.api.model.LearningRecord;
+import de.tudarmstadt.ukp.inception.recommendation.api.model.SimpleAnnotationSuggestion;
+import de.tudarmstadt.ukp.inception.recommendation.config.RecommendationProperties;
+
+public class LearningRecordServiceImplTest
+{
+    private EntityManager entityManager;
+    private PlatformTransactionManager transactionManager;
+
+    private SourceDocument document;
+    private AnnotationLayer layer;
+    private AnnotationFeature feature;
+    private AnnotationSuggestion suggestion;
+
+    private LearningRecordServiceImpl sut;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setup()
+    {
+        TypedQuery<LearningRecord> select = mock(TypedQuery.class);
+        when(select.setParameter(anyString(), any())).thenReturn(select);
+        when(select.getResultList()).thenReturn(emptyList());
+        Query delete = mock(Query.class);
+        when(delete.setParameter(anyString(), any())).thenReturn(delete);
+
+        entityManager = mock(EntityManager.class);
+        when(entityManager.createQuery(anyString(), eq(LearningRecord.class))).thenReturn(select);
+        when(entityManager.createQuery(anyString())).thenReturn(delete);
+
+        transactionManager = mock(PlatformTransactionManager.class);
+
+        Project project = new Project();
+        project.setId(1L);
+
+        document = new SourceDocument();
+        document.setId(1L);
+        document.setName("doc1");
+        document.setProject(project);
+
+        layer = new AnnotationLayer();
+        layer.setId(1L);
+        layer.setProject(project);
+
+        feature = new AnnotationFeature("value", "uima.cas.String");
+        feature.setId(1L);
+
+        suggestion = new SimpleAnnotationSuggestion(1, 1, "rec1", 1, "value", "doc1", 0, 1, "a",
+                "A", "#A", 0.1, "E1");
+
+        // Do not let the timer interfere with the tests
+        RecommendationProperties properties = new RecommendationProperties();
+        properties.setLearningRecordWriteInterval(60_000);
+
+        sut = new LearningRecordServiceImpl(entityManager, transactionManager, properties);
+    }
+
+    @After
+    public void tearDown()
+    {
+        sut.destroy();
+    }
+
+    @Test
+    public void thatRecordsAreWrittenTogether()
+    {
+        sut.logRecord(document, "user", suggestion, layer, feature, REJECTED, MAIN_EDITOR);
+        sut.logRecord(document, "user", suggestion, layer, feature, SKIPPED, MAIN_EDITOR);
+
+        verify(entityManager, never()).persist(any());
+
+        sut.writePendingRecords();
+
+        // Only the last action for the suggestion is written
+        verify(entityManager, times(1)).persist(any());
+        verify(transactionManager, times(1)).commit(any());
+        assertThat(sut.listRecords("user", layer)).isEmpty();
+    }
+
+    @Test
+    public void thatPendingRecordsAreVisibleToReaders()
+    {
+        assertThat(sut.getRecordIndex("user", layer).get(suggestion)).isEmpty();
+
+        sut.logRecord(document, "user", suggestion, layer, feature, SKIPPED, MAIN_EDITOR);
+
+        assertThat(sut.listRecords("user", layer))
+                .extracting(LearningRecord::getUserAction)
+                .containsExactly(SKIPPED);
+        assertThat(sut.listRecords("other", layer)).isEmpty();
+        assertThat(sut.getRecordIndex("user", layer).get(suggestion)).isPresent();
+        assertThat(sut.hasSkippedSuggestions(new User("user"), layer)).isTrue();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void thatRecordLoggedWhileIndexIsLoadingIsIndexed() throws Exception
+    {
+        // The first query (the one loading the index) is blocked until we release it
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicBoolean first = new AtomicBoolean(true);
+        TypedQuery<LearningRecord> select = mock(TypedQuery.class);
+        when(select.setParameter(anyString(), any())).thenReturn(select);
+        when(select.getResultList()).thenAnswer(invocation -> {
+            if (first.getAndSet(false)) {
+                loading.countDown();
+                release.await(5, SECONDS);
+            }
+            return emptyList();
+        });
+        when(entityManager.createQuery(anyString(), eq(LearningRecord.class))).thenReturn(select);
+
+        ExecutorService executor = Executors.newCachedThreadPool();
+        try {
+            Future<?> load = executor.submit(() -> sut.getRecordIndex("user", layer));
+            assertThat(loading.await(5, SECONDS)).isTrue();
+
+            // The load has already taken its snapshot of the records which have not been written
+            // yet, so the record logged now is not part of it
+            Future<?> log = executor.submit(() -> sut.logRecord(document, "user", suggestion,
+                    layer, feature, REJECTED, MAIN_EDITOR));
+            while (sut.listRecords("user", layer).isEmpty()) {
+                Thread.sleep(10);
+            }
+            Thread.sleep(200);
+
+            release.countDown();
+            load.get(5, SECONDS);
+            log.get(5, SECONDS);
+        }
+        finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(sut.getRecordIndex("user", layer).get(suggestion)).isPresent();
+    }
+}
@@ -0,0 +1,328 @@
+/*
+ * Copyright 2019
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.recommendation.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Optional;
+
+import org.apache.uima.cas.CAS;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import de.tudarmstadt.ukp.clarin.webanno.api.ProjectService;
+import de.tudarmstadt.ukp.clarin.webanno.api.RepositoryProperties;
+import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationFeature;
+import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationLayer;
+import de.tudarmstadt.ukp.clarin.webanno.model.Project;
+import de.tudarmstadt.ukp.clarin.webanno.security.model.User;
+import de.tudarmstadt.ukp.inception.recommendation.api.ModelSnapshotService;
+import de.tudarmstadt.ukp.inception.recommendation.api.RecommenderFactoryRegistry;
+import de.tudarmstadt.ukp.inception.recommendation.api.evaluation.DataSplitter;
+import de.tudarmstadt.ukp.inception.recommendation.api.evaluation.EvaluationResult;
+import de.tudarmstadt.ukp.inception.recommendation.api.model.Recommender;
+import de.tudarmstadt.ukp.inception.recommendation.api.recommender.RecommendationEngine;
+import de.tudarmstadt.ukp.inception.recommendation.api.recommender.RecommendationEngineFactory;
+import de.tudarmstadt.ukp.inception.recommendation.api.recommender.RecommenderContext;
+import de.tudarmstadt.ukp.inception.recommendation.api.recommender.RecommenderContext.Key;
+import de.tudarmstadt.ukp.inception.recommendation.config.RecommendationProperties;
+import de.tudarmstadt.ukp.inception.recommendation.event.RecommenderDeletedEvent;
+
+public class ModelSnapshotServiceImplTest
+{
+    private static final Key<String> KEY_MODEL = new Key<>("model");
+
+    public @Rule TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File repositoryDir;
+    private RecommendationProperties properties;
+    private User user;
+    private Recommender recommender;
+
+    private ModelSnapshotServiceImpl sut;
+
+    @Before
+    public void setup() throws Exception
+    {
+        repositoryDir = temporaryFolder.newFolder();
+        RepositoryProperties repositoryProperties = new RepositoryProperties();
+        repositoryProperties.setPath(repositoryDir);
+
+        properties = new RecommendationProperties();
+
+        user = new User("user");
+
+        Project project = new Project();
+        project.setId(1L);
+        project.setName("project");
+
+        AnnotationLayer layer = new AnnotationLayer();
+        layer.setName("layer");
+        AnnotationFeature feature = new AnnotationFeature();
+        feature.setName("value");
+
+        recommender = new Recommender();
+        recommender.setId(2L);
+        recommender.setName("rec");
+        recommender.setProject(project);
+        recommender.setLayer(layer);
+        recommender.setFeature(feature);
+        recommender.setTool("tool");
+        recommender.setMaxRecommendations(3);
+        recommender.setTraits("{}");
+
+        sut = new ModelSnapshotServiceImpl(repositoryProperties, properties);
+    }
+
+    @Test
+    public void thatSnapshotCanBeRestored() throws Exception
+    {
+        sut.saveSnapshot(user, recommender, new TestEngine(recommender), context("model1"));
+
+        Optional<RecommenderContext> restored = sut.loadSnapshot(user, recommender,
+                new TestEngine(recommender));
+
+        assertThat(restored).isPresent();
+        assertThat(restored.get().get(KEY_MODEL)).contains("model1");
+        assertThat(restored.get().isClosed()).isTrue();
+    }
+
+    @Test
+    public void thatSnapshotIsDiscardedWhenConfigurationChanges() throws Exception
+    {
+        sut.saveSnapshot(user, recommender, new TestEngine(recommender), context("model1"));
+        assertThat(snapshotFile()).exists();
+
+        recommender.setTraits("{\"changed\":true}");
+
+        assertThat(sut.loadSnapshot(user, recommender, new TestEngine(recommender))).isEmpty();
+        assertThat(snapshotFile()).doesNotExist();
+    }
+
+    @Test
+    public void thatSnapshotIsDiscardedWhenEngineChanges() throws Exception
+    {
+        sut.saveSnapshot(user, recommender, new TestEngine(recommender), context("model1"));
+
+        assertThat(sut.loadSnapshot(user, recommender, new OtherTestEngine(recommender)))
+                .isEmpty();
+        assertThat(snapshotFile()).doesNotExist();
+    }
+
+    @Test
+    public void thatFailedWriteKeepsPreviousSnapshot() throws Exception
+    {
+        sut.saveSnapshot(user, recommender, new TestEngine(recommender), context("model1"));
+
+        assertThatThrownBy(() -> sut.saveSnapshot(user, recommender,
+                new FailingTestEngine(recommender), context("model2")))
+                        .isInstanceOf(IOException.class);
+
+        // Neither the previous snapshot is damaged nor is a temporary file left behind
+        assertThat(snapshotFile().getParentFile().list()).containsExactly("75736572.model");
+        assertThat(sut.loadSnapshot(user, recommender, new TestEngine(recommender)).get()
+                .get(KEY_MODEL)).contains("model1");
+    }
+
+    @Test
+    public void thatUsernameIsEncodedInFileName() throws Exception
+    {
+        User otherUser = new User("../other");
+
+        sut.saveSnapshot(otherUser, recommender, new TestEngine(recommender),
+                context("model1"));
+
+        assertThat(new File(repositoryDir, "project/1/recommender/2/2e2e2f6f74686572.model"))
+                .exists();
+        assertThat(sut.loadSnapshot(otherUser, recommender, new TestEngine(recommender)).get()
+                .get(KEY_MODEL)).contains("model1");
+    }
+
+    @Test
+    public void thatNothingIsSavedWhenSnapshotsAreDisabled() throws Exception
+    {
+        properties.setModelSnapshotsEnabled(false);
+
+        sut.saveSnapshot(user, recommender, new TestEngine(recommender), context("model1"));
+
+        assertThat(snapshotFile()).doesNotExist();
+        assertThat(sut.loadSnapshot(user, recommender, new TestEngine(recommender))).isEmpty();
+    }
+
+    @Test
+    public void thatSnapshotsAreDeletedWithRecommender() throws Exception
+    {
+        sut.saveSnapshot(user, recommender, new TestEngine(recommender), context("model1"));
+        sut.saveSnapshot(new User("other"), recommender, new TestEngine(recommender),
+                context("model2"));
+
+        RecommendationServiceImpl recommendationService = new RecommendationServiceImpl(null,
+                null, null, null, null, null, null, (ProjectService) null, null, properties,
+                new CasSnapshotCache(null, null, properties), sut,
+                new RecommenderPerformanceHistory(properties));
+        try {
+            recommendationService
+                    .onRecommenderDelete(new RecommenderDeletedEvent(this, recommender));
+        }
+        finally {
+            recommendationService.destroy();
+        }
+
+        assertThat(snapshotFile().getParentFile()).doesNotExist();
+        assertThat(sut.loadSnapshot(user, recommender, new TestEngine(recommender))).isEmpty();
+    }
+
+    @Test
+    public void thatContextIsSavedOnlyOnce() throws Exception
+    {
+        ModelSnapshotService snapshotService = spy(sut);
+        RecommendationEngineFactory<?> factory = mock(RecommendationEngineFactory.class);
+        doReturn(new TestEngine(recommender)).when(factory).build(any());
+        RecommenderFactoryRegistry factoryRegistry = mock(RecommenderFactoryRegistry.class);
+        doReturn(factory).when(factoryRegistry).getFactory("tool");
+
+        RecommenderContext context = context("model1");
+
+        RecommendationServiceImpl recommendationService = new RecommendationServiceImpl(null,
+                null, factoryRegistry, null, null, null, null, (ProjectService) null, null,
+                properties, new CasSnapshotCache(null, null, properties), snapshotService,
+                new RecommenderPerformanceHistory(properties));
+        try {
+            recommendationService.putContext(user, recommender, context);
+            recommendationService.putContext(user, recommender, context);
+        }
+        finally {
+            // Waits for the pending snapshots to be written
+            recommendationService.destroy();
+        }
+
+        verify(snapshotService, times(1)).saveSnapshot(eq(user), eq(recommender), any(),
+                eq(context));
+        assertThat(sut.loadSnapshot(user, recommender, new TestEngine(recommender)).get()
+                .get(KEY_MODEL)).contains("model1");
+    }
+
+    private File snapshotFile()
+    {
+        return new File(repositoryDir, "project/1/recommender/2/75736572.model");
+    }
+
+    private static RecommenderContext context(String aModel)
+    {
+        RecommenderContext context = new RecommenderContext();
+        context.put(KEY_MODEL, aModel);
+        context.close();
+        return context;
+    }
+
+    private static class TestEngine
+        extends RecommendationEngine
+    {
+        public TestEngine(Recommender aRecommender)
+        {
+            super(aRecommender);
+        }
+
+        @Override
+        public void train(RecommenderContext aContext, List<CAS> aCasses)
+        {
+            // Not used
+        }
+
+        @Override
+        public void predict(RecommenderContext aContext, CAS aCas)
+        {
+            // Not used
+        }
+
+        @Override
+        public EvaluationResult evaluate(List<CAS> aCasses, DataSplitter aDataSplitter)
+        {
+            return new EvaluationResult();
+        }
+
+        @Override
+        public boolean isReadyForPrediction(RecommenderContext aContext)
+        {
+            return aContext.get(KEY_MODEL).isPresent();
+        }
+
+        @Override
+        public boolean isModelExportSupported()
+        {
+            return true;
+        }
+
+        @Override
+        public void exportModel(RecommenderContext aContext, OutputStream aOutput)
+            throws IOException
+        {
+            new DataOutputStream(aOutput).writeUTF(aContext.get(KEY_MODEL).get());
+        }
+
+        @Override
+        public void importModel(RecommenderContext aContext, InputStream aInput)
+            throws IOException
+        {
+            aContext.put(KEY_MODEL, new DataInputStream(aInput).readUTF());
+        }
+    }
+
+    private static class OtherTestEngine
+        extends TestEngine
+    {
+        public OtherTestEngine(Recommender aRecommender)
+        {
+            super(aRecommender);
+        }
+    }
+
+    private static class FailingTestEngine
+        extends TestEngine
+    {
+        public FailingTestEngine(Recommender aRecommender)
+        {
+            super(aRecommender);
+        }
+
+        @Override
+        public void exportModel(RecommenderContext aContext, OutputStream aOutput)
+            throws IOException
+        {
+            aOutput.write(new byte[1024]);
+            throw new IOException("Disk full");
+        }
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2019
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.recommendation.service;
+
+import static de.tudarmstadt.ukp.inception.recommendation.api.RecommendationService.FEATURE_NAME_IS_PREDICTION;
+import static de.tudarmstadt.ukp.inception.recommendation.api.RecommendationService.FEATURE_NAME_SCORE_SUFFIX;
+import static java.util.Arrays.asList;
+import static org.apache.uima.fit.factory.TypeSystemDescriptionFactory.createTypeSystemDescription;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.apache.uima.cas.CAS;
+import org.apache.uima.cas.Feature;
+import org.apache.uima.cas.Type;
+import org.apache.uima.cas.text.AnnotationFS;
+import org.apache.uima.fit.factory.JCasFactory;
+import org.apache.uima.fit.util.CasUtil;
+import org.apache.uima.jcas.JCas;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.tudarmstadt.ukp.clarin.webanno.api.AnnotationSchemaService;
+import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationLayer;
+import de.tudarmstadt.ukp.clarin.webanno.model.Project;
+import de.tudarmstadt.ukp.dkpro.core.api.ner.type.NamedEntity;
+
+public class PredictionCasPoolTest
+{
+    private AnnotationSchemaService annoService;
+    private Project project;
+
+    private PredictionCasPool sut;
+
+    @Before
+    public void setup()
+    {
+        project = new Project();
+        project.setId(1L);
+        project.setName("project");
+
+        AnnotationLayer layer = new AnnotationLayer();
+        layer.setName(NamedEntity.class.getName());
+
+        annoService = mock(AnnotationSchemaService.class);
+        when(annoService.getFullProjectTypeSystem(project))
+                .thenAnswer(invocation -> createTypeSystemDescription());
+        when(annoService.listAnnotationLayer(project)).thenReturn(asList(layer));
+
+        sut = new PredictionCasPool(annoService, 2);
+    }
+
+    @Test
+    public void thatBorrowedCasHasScoreFeatures() throws Exception
+    {
+        CAS cas = sut.borrowCas(project);
+
+        Type type = CasUtil.getType(cas, NamedEntity.class.getName());
+        assertThat(type.getFeatures())
+                .extracting(Feature::getShortName)
+                .contains("value" + FEATURE_NAME_SCORE_SUFFIX)
+                .contains(FEATURE_NAME_IS_PREDICTION);
+    }
+
+    @Test
+    public void thatCasesAreReusedUntilInvalidated() throws Exception
+    {
+        CAS cas1 = sut.borrowCas(project);
+        CAS cas2 = sut.borrowCas(project);
+        assertThat(cas2).isNotSameAs(cas1);
+        assertThat(cas2.getTypeSystem()).isSameAs(cas1.getTypeSystem());
+
+        cas1.setDocumentText("text");
+        sut.returnCas(project, cas1);
+
+        CAS cas3 = sut.borrowCas(project);
+        assertThat(cas3).isSameAs(cas1);
+        assertThat(cas3.getDocumentText()).isNull();
+        verify(annoService, times(1)).getFullProjectTypeSystem(project);
+
+        sut.invalidate(project);
+        sut.returnCas(project, cas2);
+
+        CAS cas4 = sut.borrowCas(project);
+        assertThat(cas4).isNotSameAs(cas2);
+        assertThat(cas4.getTypeSystem()).isNotSameAs(cas1.getTypeSystem());
+        verify(annoService, times(2)).getFullProjectTypeSystem(project);
+    }
+
+    @Test
+    public void thatCasCanBeLoadedIntoPredictionCas() throws Exception
+    {
+        JCas original = JCasFactory.createText("John lives here.", "en");
+        new NamedEntity(original, 0, 4).addToIndexes();
+
+        CAS cas = sut.borrowCas(project);
+        cas.setDocumentText("previous contents");
+
+        PredictionCasPool.load(PredictionCasPool.serialize(original.getCas()),
+                original.getTypeSystem(), cas);
+
+        assertThat(cas.getDocumentText()).isEqualTo("John lives here.");
+        assertThat(CasUtil.select(cas, CasUtil.getType(cas, NamedEntity.class.getName())))
+                .extracting(AnnotationFS::getCoveredText)
+                .containsExactly("John");
+    }
+}
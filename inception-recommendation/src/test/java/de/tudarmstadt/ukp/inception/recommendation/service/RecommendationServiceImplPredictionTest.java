@@ -0,0 +1,205 @@
+/*
+ * Copyright 2019
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.recommendation.service;
+
+import static de.tudarmstadt.ukp.inception.recommendation.model.RecommenderPerformanceRecord.Activity.PREDICTION;
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import javax.persistence.EntityManager;
+
+import org.apache.uima.cas.CAS;
+import org.apache.uima.fit.factory.JCasFactory;
+import org.apache.uima.fit.factory.TypeSystemDescriptionFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import de.tudarmstadt.ukp.clarin.webanno.api.AnnotationSchemaService;
+import de.tudarmstadt.ukp.clarin.webanno.api.DocumentService;
+import de.tudarmstadt.ukp.clarin.webanno.api.ProjectService;
+import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationFeature;
+import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationLayer;
+import de.tudarmstadt.ukp.clarin.webanno.model.Project;
+import de.tudarmstadt.ukp.clarin.webanno.model.SourceDocument;
+import de.tudarmstadt.ukp.clarin.webanno.security.model.User;
+import de.tudarmstadt.ukp.dkpro.core.api.ner.type.NamedEntity;
+import de.tudarmstadt.ukp.inception.recommendation.api.LearningRecordService;
+import de.tudarmstadt.ukp.inception.recommendation.api.RecommenderFactoryRegistry;
+import de.tudarmstadt.ukp.inception.recommendation.api.model.EvaluatedRecommender;
+import de.tudarmstadt.ukp.inception.recommendation.api.model.LearningRecordIndex;
+import de.tudarmstadt.ukp.inception.recommendation.api.model.Predictions;
+import de.tudarmstadt.ukp.inception.recommendation.api.model.Recommender;
+import de.tudarmstadt.ukp.inception.recommendation.api.recommender.RecommendationEngine;
+import de.tudarmstadt.ukp.inception.recommendation.api.recommender.RecommendationEngineFactory;
+import de.tudarmstadt.ukp.inception.recommendation.api.recommender.RecommenderContext;
+import de.tudarmstadt.ukp.inception.recommendation.config.RecommendationProperties;
+import de.tudarmstadt.ukp.inception.recommendation.model.RecommenderPerformanceRecord;
+
+public class RecommendationServiceImplPredictionTest
+{
+    private @Mock AnnotationSchemaService annoService;
+    private @Mock DocumentService documentService;
+    private @Mock LearningRecordService learningRecordService;
+    private @Mock RecommenderFactoryRegistry factoryRegistry;
+    private @Mock RecommendationEngineFactory<Object> factory;
+    private @Mock RecommendationEngine engine;
+    private @Mock EntityManager entityManager;
+
+    private User user;
+    private Project project;
+    private List<SourceDocument> documents;
+    private Recommender recommender1;
+    private Recommender recommender2;
+
+    private RecommenderPerformanceHistory performanceHistory;
+    private RecommendationServiceImpl sut;
+
+    @Before
+    public void setup() throws Exception
+    {
+        initMocks(this);
+
+        user = new User("user");
+
+        project = new Project();
+        project.setId(1L);
+        project.setName("project");
+
+        AnnotationLayer layer = new AnnotationLayer();
+        layer.setId(1L);
+        layer.setName(NamedEntity.class.getName());
+        layer.setProject(project);
+        layer.setEnabled(true);
+
+        AnnotationFeature feature = new AnnotationFeature("value", CAS.TYPE_NAME_STRING);
+        feature.setLayer(layer);
+
+        documents = new ArrayList<>();
+        for (long id = 1; id <= 5; id++) {
+            SourceDocument document = new SourceDocument();
+            document.setId(id);
+            document.setName("doc" + id);
+            document.setProject(project);
+            documents.add(document);
+        }
+
+        recommender1 = buildRecommender(1L, layer, feature);
+        recommender2 = buildRecommender(2L, layer, feature);
+
+        when(annoService.listAnnotationLayer(project)).thenReturn(asList(layer));
+        when(annoService.listAnnotationFeature(layer)).thenReturn(asList(feature));
+        when(annoService.getFullProjectTypeSystem(project))
+                .thenAnswer(invocation -> TypeSystemDescriptionFactory
+                        .createTypeSystemDescription());
+        when(documentService.getAnnotationCasTimestamp(any(), anyString()))
+                .thenReturn(Optional.empty());
+        when(documentService.readAnnotationCas(any(SourceDocument.class), anyString()))
+                .thenAnswer(invocation -> {
+                    CAS cas = JCasFactory.createJCas().getCas();
+                    cas.setDocumentText("This is a test.");
+                    return cas;
+                });
+        when(learningRecordService.getRecordIndex(anyString(), any()))
+                .thenReturn(new LearningRecordIndex(emptyList()));
+        when(factoryRegistry.getFactory("tool")).thenReturn(factory);
+        when(factory.accepts(any(), any())).thenReturn(true);
+        when(factory.build(any())).thenReturn(engine);
+        when(engine.isReadyForPrediction(any())).thenReturn(true);
+        when(entityManager.find(Recommender.class, 1L)).thenReturn(recommender1);
+        when(entityManager.find(Recommender.class, 2L)).thenReturn(recommender2);
+
+        RecommendationProperties properties = new RecommendationProperties();
+        performanceHistory = new RecommenderPerformanceHistory(properties);
+        sut = new RecommendationServiceImpl(null, null, factoryRegistry, null, annoService,
+                documentService, learningRecordService, (ProjectService) null, null, properties,
+                new CasSnapshotCache(documentService, annoService, properties), null,
+                performanceHistory);
+        ReflectionTestUtils.setField(sut, "entityManager", entityManager);
+
+        sut.setActiveRecommenders(user, layer,
+                asList(new EvaluatedRecommender(recommender1, null),
+                        new EvaluatedRecommender(recommender2, null)));
+        sut.putContext(user, recommender1, new RecommenderContext());
+        sut.putContext(user, recommender2, new RecommenderContext());
+    }
+
+    @After
+    public void tearDown()
+    {
+        sut.destroy();
+    }
+
+    @Test
+    public void thatPredictionIsRecordedOncePerRun()
+    {
+        List<List<SourceDocument>> chunks = asList(documents.subList(0, 1),
+                documents.subList(1, 3), documents.subList(3, 5));
+        List<List<SourceDocument>> predictedChunks = new ArrayList<>();
+
+        sut.computePredictions(user, project, chunks, null, new Predictions(user, project),
+                chunk -> predictedChunks.add(chunk));
+
+        assertThat(predictedChunks).containsExactlyElementsOf(chunks);
+        for (Recommender recommender : asList(recommender1, recommender2)) {
+            List<RecommenderPerformanceRecord> history = performanceHistory
+                    .getHistory(recommender);
+            assertThat(history).hasSize(1);
+            assertThat(history.get(0).getActivity()).isEqualTo(PREDICTION);
+            assertThat(history.get(0).getDocuments()).isEqualTo(documents.size());
+        }
+    }
+
+    @Test
+    public void thatAbortedPredictionIsNotRecorded()
+    {
+        List<List<SourceDocument>> chunks = asList(documents.subList(0, 1),
+                documents.subList(1, 5));
+
+        sut.computePredictions(user, project, chunks, null, new Predictions(user, project),
+                chunk -> false);
+
+        assertThat(performanceHistory.getHistory(recommender1)).isEmpty();
+        assertThat(performanceHistory.getHistory(recommender2)).isEmpty();
+    }
+
+    private Recommender buildRecommender(long aId, AnnotationLayer aLayer,
+            AnnotationFeature aFeature)
+    {
+        Recommender recommender = new Recommender();
+        recommender.setId(aId);
+        recommender.setName("rec" + aId);
+        recommender.setProject(project);
+        recommender.setLayer(aLayer);
+        recommender.setFeature(aFeature);
+        recommender.setTool("tool");
+        recommender.setEnabled(true);
+        return recommender;
+    }
+}
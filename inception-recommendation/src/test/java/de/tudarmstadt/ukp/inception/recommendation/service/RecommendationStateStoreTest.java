@@ -0,0 +1,87 @@
+/*
+ * Copyright 2019
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.recommendation.service;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class RecommendationStateStoreTest
+{
+    private RecommendationStateStore sut;
+
+    @Before
+    public void setup()
+    {
+        sut = new RecommendationStateStore();
+    }
+
+    @After
+    public void tearDown()
+    {
+        sut.close();
+    }
+
+    @Test
+    public void thatStateIsReadOnlyOnce() throws Exception
+    {
+        sut.write("user/1", 1, state("a", "b"));
+
+        assertThat(sut.read("user/1", 1, ArrayList.class)).contains(state("a", "b"));
+        assertThat(sut.read("user/1", 1, ArrayList.class)).isEmpty();
+    }
+
+    @Test
+    public void thatStatesAreKeptPerUserAndProject() throws Exception
+    {
+        sut.write("user1", 1, state("a"));
+        sut.write("user1", 2, state("b"));
+        sut.write("user2", 1, state("c"));
+
+        assertThat(sut.read("user1", 2, ArrayList.class)).contains(state("b"));
+        assertThat(sut.read("user2", 1, ArrayList.class)).contains(state("c"));
+        assertThat(sut.read("user1", 1, ArrayList.class)).contains(state("a"));
+    }
+
+    @Test
+    public void thatStatesCanBeDeletedByUserOrProject() throws Exception
+    {
+        sut.write("user1", 1, state("a"));
+        sut.write("user1", 2, state("b"));
+        sut.write("user2", 1, state("c"));
+        sut.write("user2", 2, state("d"));
+
+        sut.delete("user1");
+        sut.delete(2);
+
+        assertThat(sut.read("user1", 1, ArrayList.class)).isEmpty();
+        assertThat(sut.read("user1", 2, ArrayList.class)).isEmpty();
+        assertThat(sut.read("user2", 2, ArrayList.class)).isEmpty();
+        assertThat(sut.read("user2", 1, ArrayList.class)).contains(state("c"));
+    }
+
+    private static ArrayList<String> state(String... aValues)
+    {
+        return new ArrayList<>(asList(aValues));
+    }
+}
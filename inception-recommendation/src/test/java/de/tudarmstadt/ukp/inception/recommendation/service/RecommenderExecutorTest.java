@@ -0,0 +1,155 @@
+/*
+ * Copyright 2019
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.recommendation.service;
+
+import static java.util.Arrays.asList;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.tudarmstadt.ukp.clarin.webanno.model.Project;
+import de.tudarmstadt.ukp.inception.recommendation.config.RecommendationProperties;
+
+public class RecommenderExecutorTest
+{
+    private Project project;
+
+    private RecommenderExecutor sut;
+
+    @Before
+    public void setup()
+    {
+        project = new Project();
+        project.setId(1L);
+
+        RecommendationProperties properties = new RecommendationProperties();
+        properties.setNumberOfRecommenderThreads(2);
+        properties.setRecommenderParallelism(2);
+
+        sut = new RecommenderExecutor(properties);
+    }
+
+    @After
+    public void tearDown()
+    {
+        sut.destroy();
+    }
+
+    @Test
+    public void thatAllJobsAreRun() throws Exception
+    {
+        AtomicInteger count = new AtomicInteger();
+        List<Runnable> jobs = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            jobs.add(count::incrementAndGet);
+        }
+
+        sut.runAll(project, jobs);
+
+        assertThat(count.get()).isEqualTo(10);
+    }
+
+    @Test
+    public void thatJobsRunInParallel() throws Exception
+    {
+        // Both jobs only complete if they run at the same time
+        CountDownLatch latch = new CountDownLatch(2);
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+        Runnable job = () -> {
+            threads.add(Thread.currentThread().getName());
+            latch.countDown();
+            try {
+                latch.await(10, SECONDS);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+
+        List<Runnable> jobs = new ArrayList<>();
+        jobs.add(job);
+        jobs.add(job);
+        sut.runAll(project, jobs);
+
+        assertThat(latch.getCount()).isEqualTo(0);
+        assertThat(threads).hasSize(2).contains(Thread.currentThread().getName());
+    }
+
+    @Test
+    public void thatHelpersWhichHaveNotStartedAreNotWaitedFor() throws Exception
+    {
+        RecommendationProperties properties = new RecommendationProperties();
+        properties.setNumberOfRecommenderThreads(1);
+        properties.setRecommenderParallelism(2);
+        RecommenderExecutor executor = new RecommenderExecutor(properties);
+
+        Project otherProject = new Project();
+        otherProject.setId(2L);
+
+        CountDownLatch started = new CountDownLatch(2);
+        CountDownLatch release = new CountDownLatch(1);
+        Runnable blockingJob = () -> {
+            started.countDown();
+            try {
+                release.await(10, SECONDS);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+
+        Thread blocker = new Thread(() -> {
+            try {
+                executor.runAll(otherProject, asList(blockingJob, blockingJob));
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        try {
+            // Occupy the only thread of the pool
+            blocker.start();
+            assertThat(started.await(10, SECONDS)).isTrue();
+
+            // The helper for these jobs cannot start, so the calling thread runs all the jobs and
+            // must then return without waiting for the helper
+            AtomicInteger count = new AtomicInteger();
+            Runnable job = count::incrementAndGet;
+            executor.runAll(project, asList(job, job));
+
+            assertThat(count.get()).isEqualTo(2);
+            assertThat(release.getCount()).isEqualTo(1);
+        }
+        finally {
+            release.countDown();
+            blocker.join(10_000);
+            executor.destroy();
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2019
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.recommendation.service;
+
+import static de.tudarmstadt.ukp.inception.recommendation.model.RecommenderPerformanceRecord.Activity.PREDICTION;
+import static de.tudarmstadt.ukp.inception.recommendation.model.RecommenderPerformanceRecord.Activity.TRAINING;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import de.tudarmstadt.ukp.inception.recommendation.api.model.Recommender;
+import de.tudarmstadt.ukp.inception.recommendation.config.RecommendationProperties;
+import de.tudarmstadt.ukp.inception.recommendation.event.RecommenderDeletedEvent;
+import de.tudarmstadt.ukp.inception.recommendation.model.RecommenderPerformanceRecord;
+
+public class RecommenderPerformanceHistoryTest
+{
+    private RecommendationProperties properties;
+    private Recommender recommender;
+
+    private RecommenderPerformanceHistory sut;
+
+    @Before
+    public void setup()
+    {
+        properties = new RecommendationProperties();
+        properties.setPerformanceHistorySize(3);
+
+        recommender = new Recommender();
+        recommender.setId(1L);
+        recommender.setName("rec1");
+
+        sut = new RecommenderPerformanceHistory(properties);
+    }
+
+    @Test
+    public void thatOnlyMostRecentRecordsAreKept()
+    {
+        for (int i = 1; i <= 5; i++) {
+            sut.record(recommender, record(i));
+        }
+
+        assertThat(sut.getHistory(recommender))
+                .extracting(RecommenderPerformanceRecord::getDuration)
+                .containsExactly(5L, 4L, 3L);
+    }
+
+    @Test
+    public void thatUnsavedRecommendersAreNotRecorded()
+    {
+        Recommender unsaved = new Recommender();
+
+        sut.record(unsaved, record(1));
+
+        assertThat(sut.getHistory(unsaved)).isEmpty();
+    }
+
+    @Test
+    public void thatHistoryIsDroppedWhenRecommenderIsDeleted()
+    {
+        sut.record(recommender, record(1));
+
+        sut.onRecommenderDelete(new RecommenderDeletedEvent(this, recommender));
+
+        assertThat(sut.getHistory(recommender)).isEmpty();
+    }
+
+    @Test
+    public void thatAverageDocumentDurationIsComputed()
+    {
+        RecommenderPerformanceRecord prediction = new RecommenderPerformanceRecord(PREDICTION,
+                "user", 0, 100, 4, 40, 2, 10);
+
+        assertThat(prediction.getAverageDocumentDuration()).isEqualTo(25);
+    }
+
+    private static RecommenderPerformanceRecord record(long aDuration)
+    {
+        return new RecommenderPerformanceRecord(TRAINING, "user", System.currentTimeMillis(),
+                aDuration, 1, aDuration, 1, 0);
+    }
+}
@@ -40,11 +40,14 @@ import de.tudarmstadt.ukp.clarin.webanno.api.WebAnnoConst;
 import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationFeature;
 import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationLayer;
 import de.tudarmstadt.ukp.clarin.webanno.model.Project;
+import de.tudarmstadt.ukp.clarin.webanno.model.SourceDocument;
 import de.tudarmstadt.ukp.dkpro.core.api.ner.type.NamedEntity;
 import de.tudarmstadt.ukp.inception.recommendation.api.LearningRecordService;
 import de.tudarmstadt.ukp.inception.recommendation.api.model.AnnotationSuggestion;
 import de.tudarmstadt.ukp.inception.recommendation.api.model.LearningRecord;
+import de.tudarmstadt.ukp.inception.recommendation.api.model.LearningRecordIndex;
 import de.tudarmstadt.ukp.inception.recommendation.api.model.LearningRecordType;
+import de.tudarmstadt.ukp.inception.recommendation.api.model.SimpleAnnotationSuggestion;
 import de.tudarmstadt.ukp.inception.recommendation.api.model.SuggestionGroup;
 
 public class VisibilityCalculationTests
@@ -53,6 +56,7 @@ public class VisibilityCalculationTests
     private @Mock AnnotationSchemaService annoService;
 
     private Project project;
+    private SourceDocument document;
     private AnnotationLayer layer;
     private String user;
     private String neName;
@@ -87,6 +91,10 @@ public class VisibilityCalculationTests
         project.setName("Test Project");
         project.setMode(WebAnnoConst.PROJECT_TYPE_ANNOTATION);
 
+        document = new SourceDocument();
+        document.setName(DOC_NAME);
+        document.setProject(project);
+
         List<AnnotationFeature> featureList = new ArrayList<AnnotationFeature>();
         featureList.add(new AnnotationFeature("value", "uima.cas.String"));
         when(annoService.listAnnotationFeature(layer)).thenReturn(featureList);
@@ -98,7 +106,8 @@ public class VisibilityCalculationTests
     @Test
     public void testCalculateVisibilityNoRecordsAllHidden() throws Exception
     {
-        when(recordService.listRecords(user, layer)).thenReturn(new ArrayList<>());
+        when(recordService.getRecordIndex(user, layer))
+                .thenReturn(new LearningRecordIndex(new ArrayList<>()));
 
         CAS cas = getTestCas();
         Collection<SuggestionGroup> suggestions = getSuggestionGroup(
@@ -123,7 +132,8 @@ public class VisibilityCalculationTests
     @Test
     public void testCalculateVisibilityNoRecordsNotHidden() throws Exception
     {
-        when(recordService.listRecords(user, layer)).thenReturn(new ArrayList<>());
+        when(recordService.getRecordIndex(user, layer))
+                .thenReturn(new LearningRecordIndex(new ArrayList<>()));
 
         CAS cas = getTestCas();
         Collection<SuggestionGroup> suggestions = getSuggestionGroup(new int[][] { { 1, 5, 10 } });
@@ -143,10 +153,13 @@ public class VisibilityCalculationTests
         List<LearningRecord> records = new ArrayList<>();
         LearningRecord rejectedRecord = new LearningRecord();
         rejectedRecord.setUserAction(LearningRecordType.REJECTED);
+        rejectedRecord.setSourceDocument(document);
+        rejectedRecord.setAnnotationFeature(new AnnotationFeature(FEATURE, "uima.cas.String"));
         rejectedRecord.setOffsetCharacterBegin(5);
         rejectedRecord.setOffsetCharacterEnd(10);
         records.add(rejectedRecord);
-        when(recordService.listRecords(user, layer)).thenReturn(records);
+        when(recordService.getRecordIndex(user, layer))
+                .thenReturn(new LearningRecordIndex(records));
 
         CAS cas = getTestCas();
         Collection<SuggestionGroup> suggestions = getSuggestionGroup(new int[][] { { 1, 5, 10 } });
@@ -181,7 +194,7 @@ public class VisibilityCalculationTests
 
         List<AnnotationSuggestion> suggestions = new ArrayList<>();
         for (int[] val : vals) {
-            suggestions.add(new AnnotationSuggestion(val[0], RECOMMENDER_ID, RECOMMENDER_NAME,
+            suggestions.add(new SimpleAnnotationSuggestion(val[0], RECOMMENDER_ID, RECOMMENDER_NAME,
                     layerId, FEATURE, DOC_NAME, val[1], val[2], COVERED_TEXT, null, UI_LABEL,
                     CONFIDENCE, CONFIDENCE_EXPLANATION));
         }
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2019
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.recommendation.util;
+
+import static org.apache.uima.fit.util.CasUtil.getType;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.uima.cas.Type;
+import org.apache.uima.fit.factory.JCasFactory;
+import org.apache.uima.jcas.JCas;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Token;
+import de.tudarmstadt.ukp.inception.recommendation.api.model.Offset;
+
+public class AnnotationIntervalTreeTest
+{
+    private JCas jcas;
+    private Type type;
+
+    @Before
+    public void setup() throws Exception
+    {
+        jcas = JCasFactory.createText("This is a test with a few more words in it.", "en");
+        type = getType(jcas.getCas(), Token.class);
+    }
+
+    @Test
+    public void thatAnnotationsNearRangeAreFound()
+    {
+        new Token(jcas, 0, 4).addToIndexes();
+        new Token(jcas, 0, 14).addToIndexes();
+        new Token(jcas, 5, 7).addToIndexes();
+        new Token(jcas, 8, 9).addToIndexes();
+        new Token(jcas, 10, 14).addToIndexes();
+
+        AnnotationIntervalTree sut = new AnnotationIntervalTree(jcas.getCas(), type);
+
+        assertThat(near(sut, 5, 7)).containsExactly(new Offset(0, 14), new Offset(5, 7));
+        assertThat(near(sut, 4, 5)).containsExactly(new Offset(0, 14), new Offset(0, 4),
+                new Offset(5, 7));
+        assertThat(near(sut, 15, 20)).isEmpty();
+    }
+
+    @Test
+    public void thatResultsMatchLinearScan()
+    {
+        Random rnd = new Random(42);
+        int length = jcas.getDocumentText().length();
+        List<Offset> offsets = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            int begin = rnd.nextInt(length);
+            int end = begin + rnd.nextInt(Math.min(10, length - begin) + 1);
+            new Token(jcas, begin, end).addToIndexes();
+            offsets.add(new Offset(begin, end));
+        }
+
+        AnnotationIntervalTree sut = new AnnotationIntervalTree(jcas.getCas(), type);
+
+        for (int i = 0; i < 100; i++) {
+            int begin = rnd.nextInt(length);
+            int end = begin + rnd.nextInt(length - begin + 1);
+
+            List<Offset> expected = new ArrayList<>();
+            for (Offset offset : offsets) {
+                if (offset.getBegin() <= end && begin <= offset.getEnd()) {
+                    expected.add(offset);
+                }
+            }
+
+            assertThat(near(sut, begin, end)).containsExactlyInAnyOrderElementsOf(expected);
+        }
+    }
+
+    private static List<Offset> near(AnnotationIntervalTree aTree, int aBegin, int aEnd)
+    {
+        List<Offset> result = new ArrayList<>();
+        aTree.forEachNear(aBegin, aEnd,
+            (address, begin, end) -> result.add(new Offset(begin, end)));
+        return result;
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2019
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.recommendation.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.apache.uima.fit.factory.JCasFactory;
+import org.apache.uima.jcas.JCas;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Token;
+import de.tudarmstadt.ukp.inception.recommendation.api.model.Offset;
+
+public class TokenOffsetIndexTest
+{
+    private TokenOffsetIndex sut;
+
+    @Before
+    public void setup() throws Exception
+    {
+        JCas jcas = JCasFactory.createText("This is a test.", "en");
+        new Token(jcas, 0, 4).addToIndexes();
+        new Token(jcas, 5, 7).addToIndexes();
+        new Token(jcas, 8, 9).addToIndexes();
+        new Token(jcas, 10, 14).addToIndexes();
+        new Token(jcas, 14, 15).addToIndexes();
+
+        sut = new TokenOffsetIndex(jcas.getCas());
+    }
+
+    @Test
+    public void thatRangesAreSnappedToCoveredTokens()
+    {
+        assertThat(sut.getCoveredTokenBoundaries(0, 4)).contains(new Offset(0, 4));
+        assertThat(sut.getCoveredTokenBoundaries(0, 9)).contains(new Offset(0, 9));
+        assertThat(sut.getCoveredTokenBoundaries(4, 13)).contains(new Offset(5, 9));
+        assertThat(sut.getCoveredTokenBoundaries(10, 15)).contains(new Offset(10, 15));
+    }
+
+    @Test
+    public void thatRangesWithoutCoveredTokensAreIgnored()
+    {
+        assertThat(sut.getCoveredTokenBoundaries(1, 3)).isEmpty();
+        assertThat(sut.getCoveredTokenBoundaries(1, 6)).isEmpty();
+        assertThat(sut.getCoveredTokenBoundaries(20, 25)).isEmpty();
+    }
+}
@@ -0,0 +1,386 @@
+/*
+ * Copyright 2019
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.scheduling;
+
+import static org.apache.commons.lang3.Validate.notNull;
+
+import java.util.AbstractQueue;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.commons.lang3.Validate;
+
+/**
+ * Bounded blocking queue which hands out tasks by {@link TaskPriority priority} first and then
+ * in a round-robin fashion across the users owning the waiting tasks. Thus, interactive tasks
+ * overtake background tasks and a user with many waiting tasks cannot starve other users. Tasks
+ * of the same user and priority are handed out in the order in which they were added.
+ * <p>
+ * Elements are matched by identity when removing them from the queue because {@link Task#equals}
+ * considers different tasks for the same user and project to be equal.
+ */
+public class PriorityFairShareQueue
+    extends AbstractQueue<Runnable>
+    implements BlockingQueue<Runnable>
+{
+    private static final String NO_OWNER = "";
+
+    private final int capacity;
+    private final Map<TaskPriority, LinkedHashMap<String, Deque<Runnable>>> lanes;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+
+    private int count;
+
+    public PriorityFairShareQueue(int aCapacity)
+    {
+        Validate.isTrue(aCapacity > 0, "Capacity must be positive");
+
+        capacity = aCapacity;
+        lanes = new EnumMap<>(TaskPriority.class);
+        for (TaskPriority priority : TaskPriority.values()) {
+            lanes.put(priority, new LinkedHashMap<>());
+        }
+    }
+
+    @Override
+    public boolean offer(Runnable aRunnable)
+    {
+        notNull(aRunnable);
+
+        lock.lock();
+        try {
+            if (count >= capacity) {
+                return false;
+            }
+
+            enqueue(aRunnable);
+            return true;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean offer(Runnable aRunnable, long aTimeout, TimeUnit aUnit)
+        throws InterruptedException
+    {
+        notNull(aRunnable);
+
+        long nanos = aUnit.toNanos(aTimeout);
+        lock.lockInterruptibly();
+        try {
+            while (count >= capacity) {
+                if (nanos <= 0L) {
+                    return false;
+                }
+                nanos = notFull.awaitNanos(nanos);
+            }
+
+            enqueue(aRunnable);
+            return true;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void put(Runnable aRunnable) throws InterruptedException
+    {
+        notNull(aRunnable);
+
+        lock.lockInterruptibly();
+        try {
+            while (count >= capacity) {
+                notFull.await();
+            }
+
+            enqueue(aRunnable);
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Runnable poll()
+    {
+        lock.lock();
+        try {
+            return count == 0 ? null : dequeue();
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Runnable poll(long aTimeout, TimeUnit aUnit) throws InterruptedException
+    {
+        long nanos = aUnit.toNanos(aTimeout);
+        lock.lockInterruptibly();
+        try {
+            while (count == 0) {
+                if (nanos <= 0L) {
+                    return null;
+                }
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+
+            return dequeue();
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Runnable take() throws InterruptedException
+    {
+        lock.lockInterruptibly();
+        try {
+            while (count == 0) {
+                notEmpty.await();
+            }
+
+            return dequeue();
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Runnable peek()
+    {
+        lock.lock();
+        try {
+            for (LinkedHashMap<String, Deque<Runnable>> lane : lanes.values()) {
+                if (!lane.isEmpty()) {
+                    return lane.values().iterator().next().peekFirst();
+                }
+            }
+            return null;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int size()
+    {
+        lock.lock();
+        try {
+            return count;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int remainingCapacity()
+    {
+        lock.lock();
+        try {
+            return capacity - count;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean remove(Object aObject)
+    {
+        if (aObject == null) {
+            return false;
+        }
+
+        lock.lock();
+        try {
+            for (LinkedHashMap<String, Deque<Runnable>> lane : lanes.values()) {
+                Iterator<Deque<Runnable>> laneIterator = lane.values().iterator();
+                while (laneIterator.hasNext()) {
+                    Deque<Runnable> tasks = laneIterator.next();
+                    Iterator<Runnable> taskIterator = tasks.iterator();
+                    while (taskIterator.hasNext()) {
+                        if (taskIterator.next() == aObject) {
+                            taskIterator.remove();
+                            if (tasks.isEmpty()) {
+                                laneIterator.remove();
+                            }
+                            count--;
+                            notFull.signal();
+                            return true;
+                        }
+                    }
+                }
+            }
+            return false;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int drainTo(Collection<? super Runnable> aCollection)
+    {
+        return drainTo(aCollection, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super Runnable> aCollection, int aMaxElements)
+    {
+        notNull(aCollection);
+        Validate.isTrue(aCollection != this, "Cannot drain queue to itself");
+
+        lock.lock();
+        try {
+            int drained = 0;
+            while (drained < aMaxElements && count > 0) {
+                aCollection.add(dequeue());
+                drained++;
+            }
+            return drained;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns an iterator over a snapshot of the queue. The elements are ordered by priority, but
+     * not necessarily in the order in which they will be handed out. Removing elements through the
+     * iterator removes them from the queue.
+     */
+    @Override
+    public Iterator<Runnable> iterator()
+    {
+        List<Runnable> snapshot = new ArrayList<>();
+        lock.lock();
+        try {
+            for (LinkedHashMap<String, Deque<Runnable>> lane : lanes.values()) {
+                lane.values().forEach(snapshot::addAll);
+            }
+        }
+        finally {
+            lock.unlock();
+        }
+
+        Iterator<Runnable> delegate = snapshot.iterator();
+        return new Iterator<Runnable>()
+        {
+            private Runnable last;
+
+            @Override
+            public boolean hasNext()
+            {
+                return delegate.hasNext();
+            }
+
+            @Override
+            public Runnable next()
+            {
+                last = delegate.next();
+                return last;
+            }
+
+            @Override
+            public void remove()
+            {
+                if (last == null) {
+                    throw new IllegalStateException();
+                }
+
+                PriorityFairShareQueue.this.remove(last);
+                last = null;
+            }
+        };
+    }
+
+    private void enqueue(Runnable aRunnable)
+    {
+        lanes.get(getPriority(aRunnable))
+                .computeIfAbsent(getOwner(aRunnable), _key -> new ArrayDeque<>())
+                .addLast(aRunnable);
+        count++;
+        notEmpty.signal();
+    }
+
+    private Runnable dequeue()
+    {
+        for (LinkedHashMap<String, Deque<Runnable>> lane : lanes.values()) {
+            if (lane.isEmpty()) {
+                continue;
+            }
+
+            // Serve the owner at the head of the lane and then move it to the end of the lane so
+            // that all owners with waiting tasks take turns.
+            Iterator<Map.Entry<String, Deque<Runnable>>> i = lane.entrySet().iterator();
+            Map.Entry<String, Deque<Runnable>> head = i.next();
+            i.remove();
+
+            Runnable runnable = head.getValue().pollFirst();
+            if (!head.getValue().isEmpty()) {
+                lane.put(head.getKey(), head.getValue());
+            }
+
+            count--;
+            notFull.signal();
+            return runnable;
+        }
+
+        return null;
+    }
+
+    private static TaskPriority getPriority(Runnable aRunnable)
+    {
+        if (aRunnable instanceof Task) {
+            return ((Task) aRunnable).getPriority();
+        }
+
+        return TaskPriority.NORMAL;
+    }
+
+    private static String getOwner(Runnable aRunnable)
+    {
+        if (aRunnable instanceof Task) {
+            return ((Task) aRunnable).getUser().getUsername();
+        }
+
+        return NO_OWNER;
+    }
+}
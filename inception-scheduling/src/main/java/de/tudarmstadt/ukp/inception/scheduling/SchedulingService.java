@@ -19,8 +19,14 @@ package de.tudarmstadt.ukp.inception.scheduling;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadPoolExecutor;
+import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -31,6 +37,7 @@ import org.springframework.context.ApplicationContext;
 import org.springframework.stereotype.Component;
 
 import de.tudarmstadt.ukp.inception.scheduling.config.SchedulingProperties;
+import de.tudarmstadt.ukp.inception.scheduling.metrics.TaskMetricsRegistry;
 
 @Component
 public class SchedulingService
@@ -39,34 +46,69 @@ public class SchedulingService
     private static final Logger log = LoggerFactory.getLogger(SchedulingService.class);
 
     private final ApplicationContext applicationContext;
-    private final ThreadPoolExecutor executor;
+    private final Map<TaskResourceClass, ThreadPoolExecutor> executors;
+    private final TaskMetricsRegistry metrics;
 
     private final List<Task> runningTasks;
 
+    /**
+     * Index of the tasks which are waiting in the queue. Since equivalent tasks are equal to each
+     * other, this allows coalescing a new task with an equivalent queued one without scanning the
+     * queue. Each task is mapped to itself.
+     */
+    private final Map<Task, Task> enqueuedTasks;
+
     @Autowired
     public SchedulingService(ApplicationContext aApplicationContext, SchedulingProperties aConfig)
     {
         applicationContext = aApplicationContext;
-        executor = new InspectableThreadPoolExecutor(
-                aConfig.getNumberOfThreads(), aConfig.getQueueSize(),
-                this::beforeExecute, this::afterExecute);
+        // Each resource class gets its own pool, so e.g. tasks waiting for a remote service cannot
+        // occupy the threads needed by CPU-bound tasks
+        executors = new EnumMap<>(TaskResourceClass.class);
+        executors.put(TaskResourceClass.CPU_BOUND,
+                buildExecutor(aConfig.getNumberOfThreads(), aConfig.getQueueSize()));
+        executors.put(TaskResourceClass.IO_BOUND,
+                buildExecutor(aConfig.getNumberOfIoThreads(), aConfig.getQueueSize()));
+        executors.put(TaskResourceClass.HOUSEKEEPING,
+                buildExecutor(aConfig.getNumberOfHousekeepingThreads(), aConfig.getQueueSize()));
         runningTasks = Collections.synchronizedList(new ArrayList<>());
+        enqueuedTasks = new ConcurrentHashMap<>();
+        metrics = new TaskMetricsRegistry();
+    }
+
+    private ThreadPoolExecutor buildExecutor(int aNumberOfThreads, int aQueueSize)
+    {
+        return new InspectableThreadPoolExecutor(aNumberOfThreads, aQueueSize,
+                this::beforeExecute, this::afterExecute);
     }
 
     private void beforeExecute(Thread aThread, Runnable aRunnable)
     {
-        runningTasks.add((Task) aRunnable);
+        Task task = (Task) aRunnable;
+        // Remove the task by identity - an equivalent task may only be enqueued again once the
+        // task is no longer waiting.
+        enqueuedTasks.computeIfPresent(task, (_key, queued) -> queued == task ? null : queued);
+        runningTasks.add(task);
+
+        task.setStartTime(System.nanoTime());
+        metrics.get(task.getName()).recordQueueWait(task.getStartTime() - task.getEnqueueTime());
     }
 
     private void afterExecute(Runnable aRunnable, Throwable aThrowable)
     {
-        runningTasks.remove(aRunnable);
+        Task task = (Task) aRunnable;
+        runningTasks.removeIf(t -> t == task);
+
+        metrics.get(task.getName()).recordRun(System.nanoTime() - task.getStartTime(),
+                aThrowable != null, task.isCancelled());
     }
 
     public List<Task> getScheduledTasks()
     {
         List<Task> result = new ArrayList<>();
-        executor.getQueue().forEach(r -> result.add((Task) r));
+        for (ThreadPoolExecutor executor : executors.values()) {
+            executor.getQueue().forEach(r -> result.add((Task) r));
+        }
         return result;
     }
 
@@ -85,41 +127,119 @@ public class SchedulingService
         return result;
     }
 
+    /**
+     * @return the number of waiting tasks per project, keyed by project name.
+     */
+    public Map<String, Long> getQueueDepthByProject()
+    {
+        return getScheduledTasks().stream().collect(Collectors.groupingBy(
+                task -> task.getProject().getName(), TreeMap::new, Collectors.counting()));
+    }
+
+    /**
+     * @return the total number of threads of all thread pools.
+     */
+    public int getNumberOfThreads()
+    {
+        return executors.values().stream().mapToInt(ThreadPoolExecutor::getMaximumPoolSize).sum();
+    }
+
+    public int getNumberOfThreads(TaskResourceClass aResourceClass)
+    {
+        return executors.get(aResourceClass).getMaximumPoolSize();
+    }
+
+    /**
+     * @return the metrics collected for the tasks run by this service.
+     */
+    public TaskMetricsRegistry getMetrics()
+    {
+        return metrics;
+    }
+
+    /**
+     * Schedules the given task for execution. If an equivalent task (cf. {@link Task#equals}) is
+     * already waiting in the queue, the new task is coalesced with it, i.e. it is dropped since
+     * the waiting task will do the same work once it gets to run.
+     * 
+     * @param aTask
+     *            the task to schedule.
+     */
     public synchronized void enqueue(Task aTask)
     {
-        if (getScheduledTasks().contains(aTask)) {
-            log.debug("Task already in queue: {}", aTask);
+        Task queuedTask = enqueuedTasks.get(aTask);
+        if (queuedTask != null) {
+            log.debug("Task [{}] coalesced with equivalent task already in queue: [{}]", aTask,
+                    queuedTask);
+            metrics.get(aTask.getName()).recordCoalesced();
             return;
         }
 
-        log.debug("Enqueuing task [{}]", aTask);
-
         // This autowires the task fields manually.
         AutowireCapableBeanFactory factory = applicationContext.getAutowireCapableBeanFactory();
         factory.autowireBean(aTask);
         factory.initializeBean(aTask, "transientTask");
 
-        executor.execute(aTask);
+        // The resource class may depend on the autowired fields, so we determine it only now
+        TaskResourceClass resourceClass = aTask.getResourceClass();
+
+        log.debug("Enqueuing task [{}] ({})", aTask, resourceClass);
+
+        enqueuedTasks.put(aTask, aTask);
+        aTask.setEnqueueTime(System.nanoTime());
+        try {
+            executors.get(resourceClass).execute(aTask);
+            metrics.get(aTask.getName()).recordEnqueued();
+        }
+        catch (RejectedExecutionException e) {
+            enqueuedTasks.remove(aTask);
+            metrics.get(aTask.getName()).recordRejected();
+            throw e;
+        }
     }
 
     /**
-     * Removes all task for the user with name {@code aUsername} from the scheduler's queue.
-     * @param aUserName The name of the user whose tasks will be removed.
+     * Removes all task for the user with name {@code aUsername} from the scheduler's queue and
+     * cancels the running tasks of the user. Running tasks stop once they notice that they have
+     * been cancelled (cf. {@link Task#cancel()}).
+     * 
+     * @param aUserName
+     *            The name of the user whose tasks will be removed.
      */
     public synchronized void stopAllTasksForUser(String aUserName)
     {
-        // TODO: Stop the running tasks also
-        executor.getQueue().removeIf(e -> {
-            Task task = (Task) e;
-            return task.getUser().getUsername().equals(aUserName);
-        });
+        for (ThreadPoolExecutor executor : executors.values()) {
+            executor.getQueue().removeIf(e -> {
+                Task task = (Task) e;
+                if (isOwnedBy(task, aUserName)) {
+                    metrics.get(task.getName()).recordCancelled();
+                    return true;
+                }
+                return false;
+            });
+        }
+        enqueuedTasks.keySet().removeIf(task -> isOwnedBy(task, aUserName));
+
+        synchronized (runningTasks) {
+            runningTasks.stream()
+                    .filter(task -> isOwnedBy(task, aUserName))
+                    .forEach(task -> {
+                        log.debug("Cancelling running task [{}]", task);
+                        task.cancel();
+                    });
+        }
+    }
+
+    private boolean isOwnedBy(Task aTask, String aUserName)
+    {
+        return aTask.getUser().getUsername().equals(aUserName);
     }
 
     @Override
     public void destroy()
     {
         log.info("Shutting down scheduling service!");
-        executor.shutdownNow();
+        executors.values().forEach(ThreadPoolExecutor::shutdownNow);
     }
 
 
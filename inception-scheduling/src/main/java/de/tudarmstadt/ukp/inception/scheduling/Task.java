@@ -35,6 +35,12 @@ public abstract class Task
     private final String trigger;
     private final int id;
 
+    private volatile boolean cancelled = false;
+
+    // Timestamps (System.nanoTime) maintained by the SchedulingService for its metrics
+    private volatile long enqueueTime;
+    private volatile long startTime;
+
     public Task(User aUser, Project aProject, String aTrigger)
     {
         notNull(aUser);
@@ -72,6 +78,59 @@ public abstract class Task
         return id;
     }
 
+    /**
+     * Requests the task to stop. Tasks are not interrupted forcefully. Instead, implementations of
+     * {@link #run()} should check {@link #isCancelled()} at convenient points and return early
+     * once the task has been cancelled.
+     */
+    public void cancel()
+    {
+        cancelled = true;
+    }
+
+    public boolean isCancelled()
+    {
+        return cancelled;
+    }
+
+    /**
+     * Returns the priority of the task. Waiting tasks with a higher priority are executed before
+     * waiting tasks with a lower priority.
+     */
+    public TaskPriority getPriority()
+    {
+        return TaskPriority.NORMAL;
+    }
+
+    long getEnqueueTime()
+    {
+        return enqueueTime;
+    }
+
+    void setEnqueueTime(long aEnqueueTime)
+    {
+        enqueueTime = aEnqueueTime;
+    }
+
+    long getStartTime()
+    {
+        return startTime;
+    }
+
+    void setStartTime(long aStartTime)
+    {
+        startTime = aStartTime;
+    }
+
+    /**
+     * Returns the kind of resources the task mainly uses. This determines the thread pool which
+     * runs the task.
+     */
+    public TaskResourceClass getResourceClass()
+    {
+        return TaskResourceClass.CPU_BOUND;
+    }
+
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder(getName());
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2019
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.scheduling;
+
+/**
+ * The kind of resources a {@link Task} mainly uses. Each resource class is executed by a separate
+ * thread pool, so that e.g. tasks waiting for a remote service do not occupy the threads needed for
+ * CPU-intensive tasks.
+ */
+public enum TaskResourceClass
+{
+    /**
+     * Tasks which mainly use local CPU, e.g. training a model.
+     */
+    CPU_BOUND,
+
+    /**
+     * Tasks which mainly wait for I/O, e.g. calling a remote service.
+     */
+    IO_BOUND,
+
+    /**
+     * Short tasks which neither use much CPU nor wait for long.
+     */
+    HOUSEKEEPING
+}
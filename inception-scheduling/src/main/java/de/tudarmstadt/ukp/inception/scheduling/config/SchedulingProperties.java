@@ -25,6 +25,8 @@ import org.springframework.stereotype.Component;
 public class SchedulingProperties
 {
     private int numberOfThreads = 4;
+    private int numberOfIoThreads = 4;
+    private int numberOfHousekeepingThreads = 1;
     private int queueSize = 100;
 
     public int getNumberOfThreads()
@@ -37,6 +39,26 @@ public class SchedulingProperties
         numberOfThreads = aNumberOfThreads;
     }
 
+    public int getNumberOfIoThreads()
+    {
+        return numberOfIoThreads;
+    }
+
+    public void setNumberOfIoThreads(int aNumberOfIoThreads)
+    {
+        numberOfIoThreads = aNumberOfIoThreads;
+    }
+
+    public int getNumberOfHousekeepingThreads()
+    {
+        return numberOfHousekeepingThreads;
+    }
+
+    public void setNumberOfHousekeepingThreads(int aNumberOfHousekeepingThreads)
+    {
+        numberOfHousekeepingThreads = aNumberOfHousekeepingThreads;
+    }
+
     public int getQueueSize()
     {
         return queueSize;
@@ -44,6 +66,6 @@ public class SchedulingProperties
 
     public void setQueueSize(int aQueueSize)
     {
-        queueSize = queueSize;
+        queueSize = aQueueSize;
     }
 }
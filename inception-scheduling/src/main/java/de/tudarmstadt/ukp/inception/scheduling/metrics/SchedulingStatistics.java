@@ -0,0 +1,86 @@
+/*
+ * Copyright 2019
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.scheduling.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+import de.tudarmstadt.ukp.inception.scheduling.SchedulingService;
+
+/**
+ * Exposes the scheduler metrics via JMX.
+ */
+@Component
+@ManagedResource(objectName = "de.tudarmstadt.ukp.inception:type=Scheduling,name=Statistics",
+        description = "Scheduler queue and task statistics")
+public class SchedulingStatistics
+{
+    private final SchedulingService schedulingService;
+
+    @Autowired
+    public SchedulingStatistics(SchedulingService aSchedulingService)
+    {
+        schedulingService = aSchedulingService;
+    }
+
+    @ManagedAttribute(description = "Number of threads available to run tasks")
+    public int getNumberOfThreads()
+    {
+        return schedulingService.getNumberOfThreads();
+    }
+
+    @ManagedAttribute(description = "Number of tasks currently running")
+    public int getRunningTaskCount()
+    {
+        return schedulingService.getRunningTasks().size();
+    }
+
+    @ManagedAttribute(description = "Number of tasks waiting in the queue")
+    public int getQueuedTaskCount()
+    {
+        return schedulingService.getScheduledTasks().size();
+    }
+
+    @ManagedAttribute(description = "Number of tasks waiting in the queue per project")
+    public Map<String, Long> getQueueDepthByProject()
+    {
+        return schedulingService.getQueueDepthByProject();
+    }
+
+    @ManagedAttribute(description = "Counters and wait/run times per task type")
+    public Map<String, String> getTaskStatistics()
+    {
+        Map<String, String> result = new LinkedHashMap<>();
+        for (TaskTypeMetrics metrics : schedulingService.getMetrics().getAll()) {
+            result.put(metrics.getTaskType(), metrics.toString());
+        }
+        return result;
+    }
+
+    @ManagedOperation(description = "Resets the counters and timers of all task types")
+    public void resetStatistics()
+    {
+        schedulingService.getMetrics().reset();
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2019
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.scheduling.metrics;
+
+import static java.util.Comparator.comparing;
+import static java.util.stream.Collectors.toList;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * In-process registry of the {@link TaskTypeMetrics} for each type of task run by the scheduler.
+ * Metrics are registered on first use and live as long as the registry.
+ */
+public class TaskMetricsRegistry
+{
+    private final ConcurrentMap<String, TaskTypeMetrics> metrics = new ConcurrentHashMap<>();
+
+    public TaskTypeMetrics get(String aTaskType)
+    {
+        return metrics.computeIfAbsent(aTaskType, TaskTypeMetrics::new);
+    }
+
+    /**
+     * @return the metrics of all task types seen so far, sorted by task type.
+     */
+    public List<TaskTypeMetrics> getAll()
+    {
+        return metrics.values().stream()
+                .sorted(comparing(TaskTypeMetrics::getTaskType))
+                .collect(toList());
+    }
+
+    public void reset()
+    {
+        metrics.values().forEach(TaskTypeMetrics::reset);
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2019
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.scheduling.metrics;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread-safe accumulator for durations, keeping track of the number of recorded durations, their
+ * total and their maximum.
+ */
+public class TaskTimer
+{
+    private final LongAdder count = new LongAdder();
+    private final LongAdder total = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Long::max, 0L);
+
+    public void record(long aDurationNanos)
+    {
+        long duration = Math.max(0L, aDurationNanos);
+        count.increment();
+        total.add(duration);
+        max.accumulate(duration);
+    }
+
+    public long getCount()
+    {
+        return count.sum();
+    }
+
+    public long getTotalTime(TimeUnit aUnit)
+    {
+        return aUnit.convert(total.sum(), NANOSECONDS);
+    }
+
+    public long getMaxTime(TimeUnit aUnit)
+    {
+        return aUnit.convert(max.get(), NANOSECONDS);
+    }
+
+    public long getMeanTime(TimeUnit aUnit)
+    {
+        long n = count.sum();
+        return n == 0 ? 0L : aUnit.convert(total.sum() / n, NANOSECONDS);
+    }
+
+    void reset()
+    {
+        count.reset();
+        total.reset();
+        max.reset();
+    }
+}
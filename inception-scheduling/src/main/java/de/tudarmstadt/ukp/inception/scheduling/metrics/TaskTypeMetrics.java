@@ -0,0 +1,160 @@
+/*
+ * Copyright 2019
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.scheduling.metrics;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and timers for all tasks of a given type.
+ */
+public class TaskTypeMetrics
+{
+    private final String taskType;
+
+    private final LongAdder enqueued = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder cancelled = new LongAdder();
+
+    private final TaskTimer queueWaitTime = new TaskTimer();
+    private final TaskTimer runTime = new TaskTimer();
+
+    public TaskTypeMetrics(String aTaskType)
+    {
+        taskType = aTaskType;
+    }
+
+    public String getTaskType()
+    {
+        return taskType;
+    }
+
+    public void recordEnqueued()
+    {
+        enqueued.increment();
+    }
+
+    /**
+     * Records that a task was dropped because an equivalent task was already waiting.
+     */
+    public void recordCoalesced()
+    {
+        coalesced.increment();
+    }
+
+    /**
+     * Records that a task was not accepted because the queue was full.
+     */
+    public void recordRejected()
+    {
+        rejected.increment();
+    }
+
+    public void recordCancelled()
+    {
+        cancelled.increment();
+    }
+
+    public void recordQueueWait(long aDurationNanos)
+    {
+        queueWaitTime.record(aDurationNanos);
+    }
+
+    public void recordRun(long aDurationNanos, boolean aFailed, boolean aCancelled)
+    {
+        runTime.record(aDurationNanos);
+
+        if (aFailed) {
+            failed.increment();
+        }
+        else if (aCancelled) {
+            cancelled.increment();
+        }
+        else {
+            completed.increment();
+        }
+    }
+
+    public long getEnqueued()
+    {
+        return enqueued.sum();
+    }
+
+    public long getCoalesced()
+    {
+        return coalesced.sum();
+    }
+
+    public long getRejected()
+    {
+        return rejected.sum();
+    }
+
+    public long getCompleted()
+    {
+        return completed.sum();
+    }
+
+    public long getFailed()
+    {
+        return failed.sum();
+    }
+
+    public long getCancelled()
+    {
+        return cancelled.sum();
+    }
+
+    public TaskTimer getQueueWaitTime()
+    {
+        return queueWaitTime;
+    }
+
+    public TaskTimer getRunTime()
+    {
+        return runTime;
+    }
+
+    void reset()
+    {
+        enqueued.reset();
+        coalesced.reset();
+        rejected.reset();
+        completed.reset();
+        failed.reset();
+        cancelled.reset();
+        queueWaitTime.reset();
+        runTime.reset();
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format(
+                "enqueued=%d, coalesced=%d, rejected=%d, completed=%d, failed=%d, cancelled=%d, "
+                        + "wait(mean/max)=%d/%d ms, run(mean/max)=%d/%d ms",
+                getEnqueued(), getCoalesced(), getRejected(), getCompleted(), getFailed(),
+                getCancelled(), queueWaitTime.getMeanTime(MILLISECONDS),
+                queueWaitTime.getMaxTime(MILLISECONDS), runTime.getMeanTime(MILLISECONDS),
+                runTime.getMaxTime(MILLISECONDS));
+    }
+}
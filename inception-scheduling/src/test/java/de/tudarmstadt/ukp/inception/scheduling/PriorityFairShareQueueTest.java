@@ -0,0 +1,151 @@
+/*
+ * Copyright 2019
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.scheduling;
+
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import de.tudarmstadt.ukp.clarin.webanno.model.Project;
+import de.tudarmstadt.ukp.clarin.webanno.security.model.User;
+
+public class PriorityFairShareQueueTest
+{
+    private PriorityFairShareQueue sut;
+
+    @Before
+    public void setUp()
+    {
+        sut = new PriorityFairShareQueue(10);
+    }
+
+    @Test
+    public void thatHigherPriorityTasksAreTakenFirst()
+    {
+        Task low = buildDummyTask("user1", TaskPriority.LOW);
+        Task normal = buildDummyTask("user1", TaskPriority.NORMAL);
+        Task high = buildDummyTask("user1", TaskPriority.HIGH);
+
+        sut.offer(low);
+        sut.offer(normal);
+        sut.offer(high);
+
+        assertThat(drain()).containsExactly(high.getId(), normal.getId(), low.getId());
+    }
+
+    @Test
+    public void thatUsersTakeTurns()
+    {
+        Task heavy1 = buildDummyTask("heavy", TaskPriority.NORMAL);
+        Task heavy2 = buildDummyTask("heavy", TaskPriority.NORMAL);
+        Task heavy3 = buildDummyTask("heavy", TaskPriority.NORMAL);
+        Task light1 = buildDummyTask("light", TaskPriority.NORMAL);
+        Task light2 = buildDummyTask("light", TaskPriority.NORMAL);
+
+        sut.offer(heavy1);
+        sut.offer(heavy2);
+        sut.offer(heavy3);
+        sut.offer(light1);
+        sut.offer(light2);
+
+        assertThat(drain()).containsExactly(heavy1.getId(), light1.getId(), heavy2.getId(),
+                light2.getId(), heavy3.getId());
+    }
+
+    @Test
+    public void thatQueueIsBounded()
+    {
+        sut = new PriorityFairShareQueue(2);
+
+        assertThat(sut.offer(buildDummyTask("user1", TaskPriority.NORMAL))).isTrue();
+        assertThat(sut.offer(buildDummyTask("user2", TaskPriority.NORMAL))).isTrue();
+        assertThat(sut.offer(buildDummyTask("user3", TaskPriority.HIGH))).isFalse();
+        assertThat(sut.remainingCapacity()).isEqualTo(0);
+    }
+
+    @Test
+    public void thatTasksAreRemovedByIdentity()
+    {
+        Task task1 = buildDummyTask("user1", TaskPriority.NORMAL);
+        Task task2 = buildDummyTask("user1", TaskPriority.NORMAL);
+
+        sut.offer(task1);
+        sut.offer(task2);
+
+        // Both tasks are equal according to Task.equals, but only the given one must be removed
+        assertThat(sut.remove(task2)).isTrue();
+        assertThat(drain()).containsExactly(task1.getId());
+    }
+
+    @Test
+    public void thatTasksCanBeRemovedThroughIterator()
+    {
+        sut.offer(buildDummyTask("user1", TaskPriority.NORMAL));
+        Task task = buildDummyTask("user2", TaskPriority.HIGH);
+        sut.offer(task);
+        sut.offer(buildDummyTask("user1", TaskPriority.LOW));
+
+        sut.removeIf(r -> ((Task) r).getUser().getUsername().equals("user1"));
+
+        assertThat(sut.size()).isEqualTo(1);
+        assertThat(drain()).containsExactly(task.getId());
+    }
+
+    private List<Integer> drain()
+    {
+        List<Runnable> drained = new ArrayList<>();
+        sut.drainTo(drained);
+        return drained.stream().map(r -> ((Task) r).getId()).collect(toList());
+    }
+
+    private Task buildDummyTask(String aUsername, TaskPriority aPriority)
+    {
+        Project project = new Project();
+        project.setName("project");
+        return new DummyTask(new User(aUsername), project, aPriority);
+    }
+
+    private static class DummyTask
+        extends Task
+    {
+        private final TaskPriority priority;
+
+        DummyTask(User aUser, Project aProject, TaskPriority aPriority)
+        {
+            super(aUser, aProject, "JUnit");
+            priority = aPriority;
+        }
+
+        @Override
+        public TaskPriority getPriority()
+        {
+            return priority;
+        }
+
+        @Override
+        public void run()
+        {
+            // Nothing to do
+        }
+    }
+}
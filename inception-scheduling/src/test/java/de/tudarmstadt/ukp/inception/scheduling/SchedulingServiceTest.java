@@ -115,6 +115,81 @@ public class SchedulingServiceTest {
                 .doesNotContain(tasksToRemove);
     }
 
+    @Test
+    public void thatRunningTasksForUserAreCancelled()
+    {
+        Task userTask = buildDummyTask("testUser", "project1");
+        Task otherTask = buildDummyTask("unimportantUser1", "project1");
+
+        sut.enqueue(userTask);
+        sut.enqueue(otherTask);
+
+        await().atMost(15, SECONDS).until(() -> sut.getRunningTasks().size() == 2);
+
+        sut.stopAllTasksForUser("testUser");
+
+        await().atMost(15, SECONDS).until(() -> sut.getRunningTasks().size() == 1);
+
+        assertThat(userTask.isCancelled()).isTrue();
+        assertThat(sut.getRunningTasks()).as("Only the task of the other user should be running")
+                .containsExactly(otherTask);
+    }
+
+    @Test
+    public void thatEquivalentQueuedTasksAreCoalesced()
+    {
+        // Occupy all the threads so that further tasks need to wait in the queue
+        List<Task> blockingTasks = asList(
+                buildDummyTask("user1", "project1"),
+                buildDummyTask("user2", "project1"),
+                buildDummyTask("user3", "project1"),
+                buildDummyTask("user4", "project1")
+        );
+        for (Task task : blockingTasks) {
+            sut.enqueue(task);
+        }
+
+        await().atMost(15, SECONDS)
+                .until(() -> sut.getRunningTasks().size() == blockingTasks.size());
+
+        sut.enqueue(buildDummyTask("testUser", "project1"));
+        sut.enqueue(buildDummyTask("testUser", "project1"));
+        sut.enqueue(buildDummyTask("testUser", "project2"));
+
+        assertThat(sut.getScheduledTasks()).as("Equivalent tasks should have been coalesced")
+                .hasSize(2);
+        assertThat(sut.getMetrics().get("DummyTask").getCoalesced()).isEqualTo(1);
+        assertThat(sut.getQueueDepthByProject())
+                .containsEntry("project1", 1L)
+                .containsEntry("project2", 1L);
+    }
+
+    @Test
+    public void thatIoBoundTasksDoNotWaitForCpuBoundTasks()
+    {
+        // Occupy all the threads of the CPU-bound pool
+        List<Task> blockingTasks = asList(
+                buildDummyTask("user1", "project1"),
+                buildDummyTask("user2", "project1"),
+                buildDummyTask("user3", "project1"),
+                buildDummyTask("user4", "project1")
+        );
+        for (Task task : blockingTasks) {
+            sut.enqueue(task);
+        }
+        sut.enqueue(buildDummyTask("user5", "project1"));
+
+        Task ioTask = new IoBoundDummyTask(buildUser("user6"), buildProject("project1"));
+        sut.enqueue(ioTask);
+
+        await().atMost(15, SECONDS).until(() -> sut.getRunningTasks().size() == 5);
+
+        assertThat(sut.getRunningTasks()).as("The I/O-bound task should be running")
+                .contains(ioTask);
+        assertThat(sut.getScheduledTasks()).as("The CPU-bound task should still be waiting")
+                .hasSize(1);
+    }
+
     private User buildUser(String aUsername)
     {
         return new User(aUsername);
@@ -133,8 +208,8 @@ public class SchedulingServiceTest {
     }
 
     /**
-     * DummyTask is a task that does nothing and just sleeps until interrupted. if interrupted,
-     * it just finishes running and returns.
+     * DummyTask is a task that does nothing and just sleeps until interrupted or cancelled. If
+     * interrupted or cancelled, it just finishes running and returns.
      */
     private static class DummyTask extends Task
     {
@@ -145,7 +220,7 @@ public class SchedulingServiceTest {
 
         @Override
         public void run() {
-            while (!Thread.currentThread().isInterrupted()) {
+            while (!Thread.currentThread().isInterrupted() && !isCancelled()) {
                 try {
                     Thread.sleep(1000);
                 } catch (InterruptedException e) {
@@ -154,4 +229,18 @@ public class SchedulingServiceTest {
             }
         }
     }
+
+    private static class IoBoundDummyTask extends DummyTask
+    {
+        IoBoundDummyTask(User aUser, Project aProject)
+        {
+            super(aUser, aProject);
+        }
+
+        @Override
+        public TaskResourceClass getResourceClass()
+        {
+            return TaskResourceClass.IO_BOUND;
+        }
+    }
 }
@@ -19,10 +19,10 @@ package de.tudarmstadt.ukp.inception.search;
 
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.persistence.EntityManager;
 import javax.persistence.NoResultException;
@@ -79,13 +79,13 @@ public class SearchServiceImpl
     private PhysicalIndexFactory physicalIndexFactory;
     private String physicalIndexFactoryName = "mtasDocumentIndexFactory";
 
-    // The indexes for each project
+    // The indexes for each project - accessed concurrently by the indexing threads
     private static Map<Long, Index> indexes;
 
     @Autowired
     public SearchServiceImpl()
     {
-        indexes = new HashMap<>();
+        indexes = new ConcurrentHashMap<>();
     }
 
     /** 
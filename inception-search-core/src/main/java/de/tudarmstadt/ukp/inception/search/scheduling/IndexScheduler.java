@@ -17,10 +17,10 @@
  */
 package de.tudarmstadt.ukp.inception.search.scheduling;
 
-import java.util.Iterator;
-import java.util.Optional;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import java.util.ArrayList;
+import java.util.List;
 
 import org.apache.commons.lang3.Validate;
 import org.apache.uima.cas.CAS;
@@ -35,13 +35,16 @@ import org.springframework.stereotype.Component;
 import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationDocument;
 import de.tudarmstadt.ukp.clarin.webanno.model.Project;
 import de.tudarmstadt.ukp.clarin.webanno.model.SourceDocument;
+import de.tudarmstadt.ukp.inception.search.config.IndexSchedulerProperties;
 import de.tudarmstadt.ukp.inception.search.scheduling.tasks.IndexAnnotationDocumentTask;
 import de.tudarmstadt.ukp.inception.search.scheduling.tasks.IndexSourceDocumentTask;
 import de.tudarmstadt.ukp.inception.search.scheduling.tasks.ReindexTask;
 import de.tudarmstadt.ukp.inception.search.scheduling.tasks.Task;
 
 /**
- * Indexer scheduler. Does the project re-indexing in an asynchronous way.
+ * Indexer scheduler. Does the project re-indexing in an asynchronous way. The tasks are run by
+ * several consumer threads, but the tasks of a single project are always run one after the other
+ * in the order they were scheduled (cf. {@link IndexTaskQueue}).
  */
 @Component
 public class IndexScheduler
@@ -51,24 +54,39 @@ public class IndexScheduler
 
     private @Autowired ApplicationContext applicationContext;
 
-    private TaskConsumer consumer;
-    private Thread consumerThread;
-    private BlockingQueue<Task> queue = new ArrayBlockingQueue<Task>(100);
+    private final IndexSchedulerProperties properties;
+    private final IndexTaskQueue queue;
+    private final List<Thread> consumerThreads = new ArrayList<>();
+
+    public IndexScheduler()
+    {
+        this(new IndexSchedulerProperties());
+    }
+
+    @Autowired
+    public IndexScheduler(IndexSchedulerProperties aProperties)
+    {
+        properties = aProperties;
+        queue = new IndexTaskQueue(aProperties.getQueueSize());
+    }
 
     @Override
     public void afterPropertiesSet()
     {
-        consumer = new TaskConsumer(applicationContext, queue);
-        consumerThread = new Thread(consumer, "Index task consumer");
-        consumerThread.setPriority(Thread.MIN_PRIORITY);
-        consumerThread.start();
-        log.info("Started Search Indexing Thread");
+        for (int i = 0; i < properties.getNumberOfThreads(); i++) {
+            TaskConsumer consumer = new TaskConsumer(applicationContext, queue);
+            Thread consumerThread = new Thread(consumer, "Index task consumer " + (i + 1));
+            consumerThread.setPriority(Thread.MIN_PRIORITY);
+            consumerThread.start();
+            consumerThreads.add(consumerThread);
+        }
+        log.info("Started [{}] Search Indexing Threads", consumerThreads.size());
     }
 
     @Override
     public void destroy()
     {
-        consumerThread.interrupt();
+        consumerThreads.forEach(Thread::interrupt);
     }
 
     public void enqueueReindexTask(Project aProject)
@@ -95,77 +113,35 @@ public class IndexScheduler
      *  - Indexing of a whole project
      *  - Indexing of a source document
      *  - Indexing of an annotation document for a given user
+     * 
+     * If the queue is full, this waits for the configured timeout for the consumers to catch up.
+     * If the queue is still full then, the waiting tasks of the project are replaced by a
+     * re-indexing of the whole project. Tasks are never dropped.
      *  
      * @param aRunnable
      *          The indexing task
      */
-    public synchronized void enqueue(Task aRunnable)
+    public void enqueue(Task aRunnable)
     {
-        Optional<Task> alreadyScheduledTask = findAlreadyScheduled(aRunnable);
-        
-        // Project indexing task
-        if (aRunnable instanceof ReindexTask) {
-            if (alreadyScheduledTask.isPresent()) {
-                log.debug("Matching project indexing task already scheduled: [{}] - skipping ...",
-                        aRunnable);
-            }
-            else {
-                queue.offer(aRunnable);
-                log.debug("Enqueued new project indexing task: {}", aRunnable);
-            }
+        try {
+            queue.put(aRunnable, properties.getEnqueueTimeout(), MILLISECONDS);
         }
-        // Source document indexing task
-        else if (aRunnable instanceof IndexSourceDocumentTask) {
-            if (alreadyScheduledTask.isPresent()) {
-                log.debug(
-                        "Matching source document indexing task already scheduled: [{}] - skipping ...",
-                        aRunnable);
-            }
-            else {
-                queue.offer(aRunnable);
-                log.debug("Enqueued new source document indexing task: {}", aRunnable);
-            }
-        }
-        // Annotation document indexing task
-        else if (aRunnable instanceof IndexAnnotationDocumentTask) {
-            // Try to update the document CAS in the task currently enqueued for the same 
-            // annotation document/user (if there is an enqueued task).
-            // This must be done so that the task will take into account the
-            // latest changes to the annotation document.
-            if (alreadyScheduledTask.isPresent()) {
-                alreadyScheduledTask.get().setCas(aRunnable.getCas());
-                log.debug(
-                        "Matching source document indexing task already scheduled: [{}] - updating CAS",
-                        aRunnable);
-            }
-            else {
-                queue.offer(aRunnable);
-                log.debug("Enqueued new annotation document indexing task: {}", aRunnable);
-            }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Interrupted while enqueuing indexing task: {}", aRunnable);
+            throw new IllegalStateException("Interrupted while enqueuing indexing task", e);
         }
     }
 
-    public synchronized void stopAllTasksForUser(String username)
+    public void stopAllTasksForUser(String username)
     {
-        Iterator<Task> taskIterator = queue.iterator();
-        while (taskIterator.hasNext()) {
-            Task task = taskIterator.next();
-            if (task.getUser().equals(username)) {
-                queue.remove(task);
-            }
-        }
+        queue.removeIf(task -> username.equals(task.getUser()));
     }
 
     public boolean isIndexInProgress(Project aProject)
     {
         Validate.notNull(aProject, "Project cannot be null");
         
-        return queue.stream().anyMatch(task -> aProject.equals(task.getProject())) ||
-                consumer.getActiveTask().map(t -> aProject.equals(t.getProject())).orElse(false);
-    }
-    
-    private Optional<Task> findAlreadyScheduled(Task aTask)
-    {
-        return queue.stream().filter(aTask::matches).findAny();
+        return queue.isInProgress(aProject);
     }
 }
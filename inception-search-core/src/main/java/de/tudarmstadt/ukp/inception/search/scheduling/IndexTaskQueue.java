@@ -0,0 +1,307 @@
+/*
+ * Copyright 2019
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.search.scheduling;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.tudarmstadt.ukp.clarin.webanno.model.Project;
+import de.tudarmstadt.ukp.inception.search.scheduling.tasks.IndexAnnotationDocumentTask;
+import de.tudarmstadt.ukp.inception.search.scheduling.tasks.ReindexTask;
+import de.tudarmstadt.ukp.inception.search.scheduling.tasks.Task;
+
+/**
+ * Queue of the indexing tasks waiting to be run by the {@link TaskConsumer consumers}.
+ * <ul>
+ * <li>Tasks of the same project are handed out in the order they were enqueued and never run
+ * concurrently, i.e. the next task of a project is only handed out once the previous one is
+ * {@link #done done}. Tasks of different projects run in parallel.</li>
+ * <li>Duplicate tasks (cf. {@link Task#getMatchKey()}) are looked up via a hash index.</li>
+ * <li>Tasks are never dropped silently. If the queue is full, enqueuing waits for space. If there
+ * is still no space after the timeout, the waiting tasks of the project are replaced by a single
+ * {@link ReindexTask} which covers all of them.</li>
+ * </ul>
+ */
+public class IndexTaskQueue
+{
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    private final int capacity;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition taskAvailable = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+
+    /**
+     * Waiting tasks per project ID in the order they were enqueued. Projects are served in turns,
+     * an entry is moved to the end after a task has been taken from it.
+     */
+    private final LinkedHashMap<Long, Deque<Task>> pendingTasks = new LinkedHashMap<>();
+
+    /**
+     * Waiting tasks by their match key.
+     */
+    private final Map<Object, Task> pendingTasksByKey = new HashMap<>();
+
+    /**
+     * Running tasks by project ID.
+     */
+    private final Map<Long, Task> activeTasks = new HashMap<>();
+
+    private int size;
+
+    public IndexTaskQueue(int aCapacity)
+    {
+        if (aCapacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+
+        capacity = aCapacity;
+    }
+
+    /**
+     * Adds the given task to the queue unless the waiting tasks already cover it. If the queue is
+     * full, this waits up to the given time for space to become available.
+     *
+     * @param aTask
+     *            the task.
+     * @param aTimeout
+     *            how long to wait for space in the queue.
+     * @param aUnit
+     *            the unit of the timeout.
+     * @throws InterruptedException
+     *             if the thread is interrupted while waiting.
+     */
+    public void put(Task aTask, long aTimeout, TimeUnit aUnit) throws InterruptedException
+    {
+        long nanos = aUnit.toNanos(aTimeout);
+
+        lock.lockInterruptibly();
+        try {
+            while (true) {
+                if (isCovered(aTask)) {
+                    return;
+                }
+
+                // A project reindex replaces all waiting tasks of the project, so there is at
+                // most one per project and it is accepted even if the queue is full.
+                if (aTask instanceof ReindexTask) {
+                    replaceWithReindex((ReindexTask) aTask);
+                    return;
+                }
+
+                if (size < capacity) {
+                    add(aTask);
+                    log.debug("Enqueued new indexing task: {}", aTask);
+                    return;
+                }
+
+                if (nanos <= 0L) {
+                    log.warn("Indexing queue full - replacing waiting tasks for project [{}]({}) "
+                            + "with a project reindex", aTask.getProject().getName(),
+                            aTask.getProject().getId());
+                    replaceWithReindex(new ReindexTask(aTask.getProject()));
+                    return;
+                }
+
+                nanos = notFull.awaitNanos(nanos);
+            }
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Takes the next task which can be run, i.e. the oldest waiting task of a project for which
+     * no task is running. Waits until such a task becomes available.
+     *
+     * @return the task.
+     * @throws InterruptedException
+     *             if the thread is interrupted while waiting.
+     */
+    public Task take() throws InterruptedException
+    {
+        lock.lockInterruptibly();
+        try {
+            while (true) {
+                Iterator<Entry<Long, Deque<Task>>> i = pendingTasks.entrySet().iterator();
+                while (i.hasNext()) {
+                    Entry<Long, Deque<Task>> entry = i.next();
+                    if (activeTasks.containsKey(entry.getKey())) {
+                        continue;
+                    }
+
+                    Deque<Task> tasks = entry.getValue();
+                    Task task = tasks.poll();
+                    i.remove();
+                    if (!tasks.isEmpty()) {
+                        pendingTasks.put(entry.getKey(), tasks);
+                    }
+                    pendingTasksByKey.remove(task.getMatchKey());
+                    activeTasks.put(entry.getKey(), task);
+                    size--;
+                    notFull.signal();
+                    return task;
+                }
+
+                taskAvailable.await();
+            }
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Marks the given task as completed which allows the next task of its project to be taken.
+     */
+    public void done(Task aTask)
+    {
+        lock.lock();
+        try {
+            activeTasks.remove(aTask.getProject().getId());
+            taskAvailable.signal();
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes all waiting tasks matching the given predicate.
+     */
+    public void removeIf(Predicate<Task> aFilter)
+    {
+        lock.lock();
+        try {
+            Iterator<Deque<Task>> i = pendingTasks.values().iterator();
+            while (i.hasNext()) {
+                Deque<Task> tasks = i.next();
+                Iterator<Task> j = tasks.iterator();
+                while (j.hasNext()) {
+                    Task task = j.next();
+                    if (aFilter.test(task)) {
+                        j.remove();
+                        pendingTasksByKey.remove(task.getMatchKey());
+                        size--;
+                    }
+                }
+                if (tasks.isEmpty()) {
+                    i.remove();
+                }
+            }
+            notFull.signalAll();
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return whether there is a waiting or running task for the given project.
+     */
+    public boolean isInProgress(Project aProject)
+    {
+        lock.lock();
+        try {
+            return pendingTasks.containsKey(aProject.getId())
+                    || activeTasks.containsKey(aProject.getId());
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    public int size()
+    {
+        lock.lock();
+        try {
+            return size;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Checks whether the given task is already covered by a waiting task. If a matching annotation
+     * document task is waiting, it is updated to use the CAS of the new task, so that it takes into
+     * account the latest changes to the annotation document.
+     */
+    private boolean isCovered(Task aTask)
+    {
+        Task matchingTask = pendingTasksByKey.get(aTask.getMatchKey());
+        if (matchingTask != null) {
+            if (aTask instanceof IndexAnnotationDocumentTask) {
+                matchingTask.setCas(aTask.getCas());
+                log.debug("Matching indexing task already scheduled: [{}] - updating CAS", aTask);
+            }
+            else {
+                log.debug("Matching indexing task already scheduled: [{}] - skipping ...", aTask);
+            }
+            return true;
+        }
+
+        // A waiting project reindex will pick up the document anyway
+        Object reindexKey = new ReindexTask(aTask.getProject()).getMatchKey();
+        if (pendingTasksByKey.containsKey(reindexKey)) {
+            log.debug("Project indexing task already scheduled: [{}] - skipping ...", aTask);
+            return true;
+        }
+
+        return false;
+    }
+
+    private void replaceWithReindex(ReindexTask aTask)
+    {
+        Deque<Task> tasks = pendingTasks.remove(aTask.getProject().getId());
+        if (tasks != null) {
+            for (Task task : tasks) {
+                pendingTasksByKey.remove(task.getMatchKey());
+            }
+            size -= tasks.size();
+            notFull.signalAll();
+        }
+
+        add(aTask);
+        log.debug("Enqueued new project indexing task: {} (replacing {} waiting tasks)", aTask,
+                tasks != null ? tasks.size() : 0);
+    }
+
+    private void add(Task aTask)
+    {
+        pendingTasks.computeIfAbsent(aTask.getProject().getId(), k -> new ArrayDeque<>())
+                .add(aTask);
+        pendingTasksByKey.put(aTask.getMatchKey(), aTask);
+        size++;
+        taskAvailable.signal();
+    }
+}
@@ -20,7 +20,6 @@ package de.tudarmstadt.ukp.inception.search.scheduling;
 import static org.apache.commons.lang3.Validate.notNull;
 
 import java.util.Optional;
-import java.util.concurrent.BlockingQueue;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -35,10 +34,10 @@ public class TaskConsumer
     private Logger log = LoggerFactory.getLogger(getClass());
 
     private ApplicationContext applicationContext;
-    private BlockingQueue<Task> queue;
-    private Task activeTask;
+    private IndexTaskQueue queue;
+    private volatile Task activeTask;
 
-    public TaskConsumer(ApplicationContext aApplicationContext, BlockingQueue<Task> aQueue)
+    public TaskConsumer(ApplicationContext aApplicationContext, IndexTaskQueue aQueue)
     {
         notNull(aQueue);
         notNull(aApplicationContext);
@@ -70,6 +69,7 @@ public class TaskConsumer
                     log.error("Indexing task failed: {}", activeTask, e);
                 }
                 finally {
+                    queue.done(activeTask);
                     activeTask = null;
                 }
             }
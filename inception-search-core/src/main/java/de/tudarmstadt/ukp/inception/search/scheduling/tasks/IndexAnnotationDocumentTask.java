@@ -17,6 +17,7 @@
  */
 package de.tudarmstadt.ukp.inception.search.scheduling.tasks;
 
+import org.apache.commons.lang3.tuple.Pair;
 import org.apache.uima.cas.CAS;
 import org.springframework.beans.factory.annotation.Autowired;
 
@@ -43,13 +44,9 @@ public class IndexAnnotationDocumentTask
     }
     
     @Override
-    public boolean matches(Task aTask)
+    public Object getMatchKey()
     {
-        if (!(aTask instanceof IndexAnnotationDocumentTask)) {
-            return false;
-        }
-        
-        return getAnnotationDocument().getId() == aTask.getAnnotationDocument().getId();
+        return Pair.of(IndexAnnotationDocumentTask.class, getAnnotationDocument().getId());
     }
 
 }
@@ -17,6 +17,7 @@
  */
 package de.tudarmstadt.ukp.inception.search.scheduling.tasks;
 
+import org.apache.commons.lang3.tuple.Pair;
 import org.apache.uima.cas.CAS;
 import org.springframework.beans.factory.annotation.Autowired;
 
@@ -49,12 +50,8 @@ public class IndexSourceDocumentTask
     }
     
     @Override
-    public boolean matches(Task aTask)
+    public Object getMatchKey()
     {
-        if (!(aTask instanceof IndexSourceDocumentTask)) {
-            return false;
-        }
-        
-        return getSourceDocument().getId() == aTask.getSourceDocument().getId();
+        return Pair.of(IndexSourceDocumentTask.class, getSourceDocument().getId());
     }
 }
@@ -115,11 +115,20 @@ public abstract class Task
         return builder.toString();
     }
     
+    /**
+     * Used to avoid scheduling duplicate tasks. Tasks with equal match keys are duplicates of each
+     * other. The key must be suitable for use in hash-based collections.
+     */
+    public abstract Object getMatchKey();
+
     /**
      * Used to avoid scheduling duplicate tasks. Returns true if the current task is a duplicate of
      * the given task.
      */
-    public abstract boolean matches(Task aTask);
+    public boolean matches(Task aTask)
+    {
+        return getMatchKey().equals(aTask.getMatchKey());
+    }
 
     @Override
     public int hashCode()
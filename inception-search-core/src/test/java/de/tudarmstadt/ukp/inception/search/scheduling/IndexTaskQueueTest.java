@@ -0,0 +1,276 @@
+/*
+ * Copyright 2019
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.search.scheduling;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.uima.cas.CAS;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationDocument;
+import de.tudarmstadt.ukp.clarin.webanno.model.Project;
+import de.tudarmstadt.ukp.clarin.webanno.model.SourceDocument;
+import de.tudarmstadt.ukp.inception.search.scheduling.tasks.IndexAnnotationDocumentTask;
+import de.tudarmstadt.ukp.inception.search.scheduling.tasks.IndexSourceDocumentTask;
+import de.tudarmstadt.ukp.inception.search.scheduling.tasks.ReindexTask;
+import de.tudarmstadt.ukp.inception.search.scheduling.tasks.Task;
+
+public class IndexTaskQueueTest
+{
+    private Project project1;
+    private Project project2;
+
+    private ExecutorService executor;
+
+    @Before
+    public void setup()
+    {
+        project1 = project(1L);
+        project2 = project(2L);
+
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @After
+    public void tearDown()
+    {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void thatTasksOfAProjectAreTakenInOrder() throws Exception
+    {
+        IndexTaskQueue sut = new IndexTaskQueue(10);
+        Task task1 = sourceDocumentTask(project1, 1L);
+        Task task2 = sourceDocumentTask(project1, 2L);
+        Task task3 = sourceDocumentTask(project1, 3L);
+        sut.put(task1, 0, SECONDS);
+        sut.put(task2, 0, SECONDS);
+        sut.put(task3, 0, SECONDS);
+
+        assertThat(sut.size()).isEqualTo(3);
+        for (Task expected : new Task[] { task1, task2, task3 }) {
+            Task task = sut.take();
+            assertThat(task).isSameAs(expected);
+            sut.done(task);
+        }
+        assertThat(sut.size()).isEqualTo(0);
+        assertThat(sut.isInProgress(project1)).isFalse();
+    }
+
+    @Test
+    public void thatTasksOfTheSameProjectDoNotRunConcurrently() throws Exception
+    {
+        IndexTaskQueue sut = new IndexTaskQueue(10);
+        Task task1 = sourceDocumentTask(project1, 1L);
+        Task task2 = sourceDocumentTask(project1, 2L);
+        Task otherTask = sourceDocumentTask(project2, 3L);
+        sut.put(task1, 0, SECONDS);
+        sut.put(task2, 0, SECONDS);
+        sut.put(otherTask, 0, SECONDS);
+
+        // The task of the other project overtakes the second task of the first project
+        assertThat(sut.take()).isSameAs(task1);
+        assertThat(sut.take()).isSameAs(otherTask);
+
+        // The second task of the first project is only handed out once the first one is done
+        Future<Task> next = executor.submit(sut::take);
+        Thread.sleep(200);
+        assertThat(next.isDone()).isFalse();
+        assertThat(sut.isInProgress(project1)).isTrue();
+
+        sut.done(task1);
+
+        assertThat(next.get(5, SECONDS)).isSameAs(task2);
+    }
+
+    @Test
+    public void thatDuplicateTasksAreSkipped() throws Exception
+    {
+        IndexTaskQueue sut = new IndexTaskQueue(10);
+        Task task = sourceDocumentTask(project1, 1L);
+        sut.put(task, 0, SECONDS);
+        sut.put(sourceDocumentTask(project1, 1L), 0, SECONDS);
+
+        assertThat(sut.size()).isEqualTo(1);
+        assertThat(sut.take()).isSameAs(task);
+    }
+
+    @Test
+    public void thatDuplicateAnnotationDocumentTasksUseTheLatestCas() throws Exception
+    {
+        IndexTaskQueue sut = new IndexTaskQueue(10);
+        CAS oldCas = mock(CAS.class);
+        CAS newCas = mock(CAS.class);
+        Task task = annotationDocumentTask(project1, 1L, oldCas);
+        sut.put(task, 0, SECONDS);
+        sut.put(annotationDocumentTask(project1, 1L, newCas), 0, SECONDS);
+
+        assertThat(sut.size()).isEqualTo(1);
+        Task taken = sut.take();
+        assertThat(taken).isSameAs(task);
+        assertThat(taken.getCas()).isSameAs(newCas);
+    }
+
+    @Test
+    public void thatPendingReindexCoversDocumentTasks() throws Exception
+    {
+        IndexTaskQueue sut = new IndexTaskQueue(10);
+        sut.put(sourceDocumentTask(project1, 1L), 0, SECONDS);
+        sut.put(new ReindexTask(project1), 0, SECONDS);
+        sut.put(sourceDocumentTask(project1, 2L), 0, SECONDS);
+
+        assertThat(sut.size()).isEqualTo(1);
+        assertThat(sut.take()).isInstanceOf(ReindexTask.class);
+    }
+
+    @Test
+    public void thatFullQueueCollapsesIntoReindex() throws Exception
+    {
+        IndexTaskQueue sut = new IndexTaskQueue(2);
+        sut.put(sourceDocumentTask(project1, 1L), 0, SECONDS);
+        sut.put(sourceDocumentTask(project1, 2L), 0, SECONDS);
+        sut.put(sourceDocumentTask(project1, 3L), 0, SECONDS);
+
+        assertThat(sut.size()).isEqualTo(1);
+        Task task = sut.take();
+        assertThat(task).isInstanceOf(ReindexTask.class);
+        assertThat(task.getProject()).isEqualTo(project1);
+    }
+
+    @Test
+    public void thatPutWaitsForSpace() throws Exception
+    {
+        IndexTaskQueue sut = new IndexTaskQueue(1);
+        Task task1 = sourceDocumentTask(project1, 1L);
+        Task task2 = sourceDocumentTask(project2, 2L);
+        sut.put(task1, 0, SECONDS);
+
+        Future<?> put = executor.submit(() -> {
+            sut.put(task2, 10, SECONDS);
+            return null;
+        });
+        Thread.sleep(200);
+        assertThat(put.isDone()).isFalse();
+
+        assertThat(sut.take()).isSameAs(task1);
+
+        put.get(5, SECONDS);
+        assertThat(sut.take()).isSameAs(task2);
+    }
+
+    @Test
+    public void thatRemoveIfWakesUpWaitingProducers() throws Exception
+    {
+        IndexTaskQueue sut = new IndexTaskQueue(1);
+        Task task1 = sourceDocumentTask(project1, 1L);
+        Task task2 = sourceDocumentTask(project2, 2L);
+        sut.put(task1, 0, SECONDS);
+
+        Future<?> put = executor.submit(() -> {
+            sut.put(task2, 10, SECONDS);
+            return null;
+        });
+        Thread.sleep(200);
+        assertThat(put.isDone()).isFalse();
+
+        sut.removeIf(task -> task.getProject().equals(project1));
+
+        put.get(5, SECONDS);
+        assertThat(sut.size()).isEqualTo(1);
+        assertThat(sut.isInProgress(project1)).isFalse();
+        assertThat(sut.take()).isSameAs(task2);
+    }
+
+    @Test
+    public void thatDoneWakesUpWaitingConsumers() throws Exception
+    {
+        IndexTaskQueue sut = new IndexTaskQueue(10);
+        Task task1 = sourceDocumentTask(project1, 1L);
+        Task task2 = sourceDocumentTask(project1, 2L);
+        sut.put(task1, 0, SECONDS);
+        sut.put(task2, 0, SECONDS);
+        assertThat(sut.take()).isSameAs(task1);
+
+        // Several consumers wait, only one of them gets the task
+        Future<Task> consumer1 = executor.submit(sut::take);
+        Future<Task> consumer2 = executor.submit(sut::take);
+        Thread.sleep(200);
+        assertThat(consumer1.isDone()).isFalse();
+        assertThat(consumer2.isDone()).isFalse();
+
+        sut.done(task1);
+
+        Task taken = waitForFirst(consumer1, consumer2);
+        assertThat(taken).isSameAs(task2);
+        Thread.sleep(200);
+        assertThat(consumer1.isDone() && consumer2.isDone()).isFalse();
+    }
+
+    private static Task waitForFirst(Future<Task> aFuture1, Future<Task> aFuture2)
+        throws Exception
+    {
+        long deadline = System.currentTimeMillis() + SECONDS.toMillis(5);
+        while (System.currentTimeMillis() < deadline) {
+            if (aFuture1.isDone()) {
+                return aFuture1.get();
+            }
+            if (aFuture2.isDone()) {
+                return aFuture2.get();
+            }
+            MILLISECONDS.sleep(10);
+        }
+        throw new AssertionError("No consumer received a task");
+    }
+
+    private static Project project(long aId)
+    {
+        Project project = new Project();
+        project.setId(aId);
+        project.setName("project" + aId);
+        return project;
+    }
+
+    private static Task sourceDocumentTask(Project aProject, long aId)
+    {
+        SourceDocument document = new SourceDocument();
+        document.setId(aId);
+        document.setName("doc" + aId);
+        document.setProject(aProject);
+        return new IndexSourceDocumentTask(document, mock(CAS.class));
+    }
+
+    private static Task annotationDocumentTask(Project aProject, long aId, CAS aCas)
+    {
+        AnnotationDocument document = new AnnotationDocument();
+        document.setId(aId);
+        document.setName("doc" + aId);
+        document.setUser("user");
+        document.setProject(aProject);
+        return new IndexAnnotationDocumentTask(document, aCas);
+    }
+}
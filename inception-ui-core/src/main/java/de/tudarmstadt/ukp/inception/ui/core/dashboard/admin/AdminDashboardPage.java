@@ -40,6 +40,7 @@ import de.tudarmstadt.ukp.clarin.webanno.ui.core.menu.MenuItem;
 import de.tudarmstadt.ukp.clarin.webanno.ui.core.menu.MenuItemRegistry;
 import de.tudarmstadt.ukp.clarin.webanno.ui.core.page.ApplicationPageBase;
 import de.tudarmstadt.ukp.inception.ui.core.dashboard.DashboardMenu;
+import de.tudarmstadt.ukp.inception.ui.core.dashboard.dashlet.SchedulerStatusDashlet;
 import de.tudarmstadt.ukp.inception.ui.core.dashboard.dashlet.SystemStatusDashlet;
 
 /**
@@ -94,6 +95,7 @@ public class AdminDashboardPage
         add(menu);
         
         add(new SystemStatusDashlet("systemStatusDashlet"));
+        add(new SchedulerStatusDashlet("schedulerStatusDashlet"));
     }
     
     private List<MenuItem> getMenuItems()
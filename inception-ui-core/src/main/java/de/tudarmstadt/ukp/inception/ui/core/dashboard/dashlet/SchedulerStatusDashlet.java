@@ -0,0 +1,103 @@
+/*
+ * Copyright 2019
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.ui.core.dashboard.dashlet;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import java.util.ArrayList;
+import java.util.Map;
+
+import org.apache.wicket.markup.html.basic.Label;
+import org.apache.wicket.markup.html.list.ListItem;
+import org.apache.wicket.markup.html.list.ListView;
+import org.apache.wicket.model.LoadableDetachableModel;
+import org.apache.wicket.spring.injection.annot.SpringBean;
+
+import de.tudarmstadt.ukp.clarin.webanno.security.UserDao;
+import de.tudarmstadt.ukp.inception.scheduling.SchedulingService;
+import de.tudarmstadt.ukp.inception.scheduling.metrics.TaskTimer;
+import de.tudarmstadt.ukp.inception.scheduling.metrics.TaskTypeMetrics;
+
+public class SchedulerStatusDashlet
+    extends Dashlet_ImplBase
+{
+    private static final long serialVersionUID = -3717373454376893420L;
+
+    private @SpringBean SchedulingService schedulingService;
+    private @SpringBean UserDao userRepository;
+
+    public SchedulerStatusDashlet(String aId)
+    {
+        super(aId);
+
+        add(new Label("numberOfThreads",
+                LoadableDetachableModel.of(() -> schedulingService.getNumberOfThreads())));
+        add(new Label("runningTasks",
+                LoadableDetachableModel.of(() -> schedulingService.getRunningTasks().size())));
+        add(new Label("queuedTasks",
+                LoadableDetachableModel.of(() -> schedulingService.getScheduledTasks().size())));
+
+        add(new ListView<Map.Entry<String, Long>>("queueDepth", LoadableDetachableModel.of(
+            () -> new ArrayList<Map.Entry<String, Long>>(
+                    schedulingService.getQueueDepthByProject().entrySet())))
+        {
+            private static final long serialVersionUID = 2469428539296562467L;
+
+            @Override
+            protected void populateItem(ListItem<Map.Entry<String, Long>> aItem)
+            {
+                aItem.add(new Label("project", aItem.getModelObject().getKey()));
+                aItem.add(new Label("count", aItem.getModelObject().getValue()));
+            }
+        });
+
+        add(new ListView<TaskTypeMetrics>("taskType",
+                LoadableDetachableModel.of(() -> schedulingService.getMetrics().getAll()))
+        {
+            private static final long serialVersionUID = -2581457291526318497L;
+
+            @Override
+            protected void populateItem(ListItem<TaskTypeMetrics> aItem)
+            {
+                TaskTypeMetrics metrics = aItem.getModelObject();
+                aItem.add(new Label("name", metrics.getTaskType()));
+                aItem.add(new Label("enqueued", metrics.getEnqueued()));
+                aItem.add(new Label("coalesced", metrics.getCoalesced()));
+                aItem.add(new Label("rejected", metrics.getRejected()));
+                aItem.add(new Label("completed", metrics.getCompleted()));
+                aItem.add(new Label("failed", metrics.getFailed()));
+                aItem.add(new Label("cancelled", metrics.getCancelled()));
+                aItem.add(new Label("queueWait", formatTimer(metrics.getQueueWaitTime())));
+                aItem.add(new Label("runTime", formatTimer(metrics.getRunTime())));
+            }
+        });
+    }
+
+    private static String formatTimer(TaskTimer aTimer)
+    {
+        return aTimer.getMeanTime(MILLISECONDS) + " / " + aTimer.getMaxTime(MILLISECONDS);
+    }
+
+    @Override
+    protected void onConfigure()
+    {
+        super.onConfigure();
+
+        setVisible(userRepository.isAdministrator(userRepository.getCurrentUser()));
+    }
+}